@@ -0,0 +1,276 @@
+package library;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Bench is a minimal timing harness for the benchmarks in this folder.
+ *
+ * Each benchmark is a plain main() program; run it with a large heap and assertions
+ * disabled, e.g.  java -Xmx8g -cp bin library.CopyIndexBenchmark
+ */
+public class Bench {
+
+    /**
+     * Sink for benchmark results, so the JIT cannot eliminate the measured work.
+     */
+    public static volatile Object blackhole;
+
+    private Bench() {
+    }
+
+    /**
+     * Time an operation.
+     * @param label name printed with the result
+     * @param warmups number of untimed calls made first, to let the JIT compile op
+     * @param iterations number of timed calls; must be positive
+     * @param op operation to time
+     * @return mean nanoseconds per call of op
+     */
+    public static double time(String label, int warmups, int iterations, Runnable op) {
+        for (int i = 0; i < warmups; i++) {
+            op.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        double nanosPerOp = (System.nanoTime() - start) / (double) iterations;
+        System.out.printf("%-50s %14.1f ns/op%n", label, nanosPerOp);
+        return nanosPerOp;
+    }
+
+    /**
+     * Time an operation for a fixed time rather than a fixed number of calls, for operations
+     * whose cost varies too much with the size of the library to pick one number of calls.
+     * @param label name printed with the result
+     * @param millis how long to call op, after an untimed warmup of the same length; op is
+     *        called at least once in each
+     * @param op operation to time
+     * @return mean nanoseconds per call of op
+     */
+    public static double timed(String label, long millis, Runnable op) {
+        long nanos = millis * 1_000_000;
+        long start = System.nanoTime();
+        do {
+            op.run();
+        } while (System.nanoTime() - start < nanos);
+        long calls = 0;
+        int batch = 1;
+        start = System.nanoTime();
+        long elapsed;
+        do {
+            // call op in growing batches, so reading the clock does not dominate cheap calls
+            for (int i = 0; i < batch; i++) {
+                op.run();
+            }
+            calls += batch;
+            batch = Math.min(batch * 2, 1024);
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        double nanosPerOp = elapsed / (double) calls;
+        System.out.printf("%-50s %14.1f ns/op%n", label, nanosPerOp);
+        return nanosPerOp;
+    }
+
+    /**
+     * Time each call of an operation separately and report latency percentiles.
+     * @param label name printed with the result
+     * @param warmups number of untimed calls made first, to let the JIT compile op
+     * @param iterations number of timed calls; must be positive
+     * @param op operation to time
+     * @return the 99th percentile latency of op, in nanoseconds
+     */
+    public static long percentiles(String label, int warmups, int iterations, Runnable op) {
+        for (int i = 0; i < warmups; i++) {
+            op.run();
+        }
+        long[] latencies = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            op.run();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-50s p50 %10d ns   p99 %10d ns   max %10d ns%n", label,
+                latencies[iterations / 2], latencies[(int) (iterations * 0.99)], latencies[iterations - 1]);
+        return latencies[(int) (iterations * 0.99)];
+    }
+
+    /**
+     * Run operations on several threads at once for a fixed time and report the total rate.
+     * @param label name printed with the result
+     * @param threads number of threads; must be positive
+     * @param millis how long to run, after an untimed warmup of the same length
+     * @param perThread makes the operation each thread repeats, given the thread's number
+     * @return total operations per second over all threads
+     */
+    public static double throughput(String label, int threads, long millis, IntFunction<Runnable> perThread) {
+        final Runnable[] ops = new Runnable[threads];
+        for (int t = 0; t < threads; t++) {
+            ops[t] = perThread.apply(t);
+        }
+        final AtomicBoolean timing = new AtomicBoolean(false);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final LongAdder count = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final Runnable op = ops[t];
+            workers.add(new Thread(() -> {
+                long done = 0;
+                boolean counted = false;
+                while (running.get()) {
+                    op.run();
+                    if (timing.get()) {
+                        done++;
+                        counted = true;
+                    } else if (counted) {
+                        break;
+                    }
+                }
+                count.add(done);
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        try {
+            Thread.sleep(millis);
+            timing.set(true);
+            long start = System.nanoTime();
+            Thread.sleep(millis);
+            timing.set(false);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            running.set(false);
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            double opsPerSecond = count.sum() / seconds;
+            System.out.printf("%-50s %14.0f ops/s%n", label, opsPerSecond);
+            return opsPerSecond;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Measure the heap allocated by an operation on the calling thread.
+     * @param label name printed with the result
+     * @param warmups number of unmeasured calls made first, to let the JIT compile op
+     * @param iterations number of measured calls; must be positive
+     * @param op operation to measure
+     * @return mean bytes allocated per call of op
+     */
+    public static double allocation(String label, int warmups, int iterations, Runnable op) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < warmups; i++) {
+            op.run();
+        }
+        long start = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < iterations; i++) {
+            op.run();
+        }
+        double bytesPerOp = (threads.getThreadAllocatedBytes(thread) - start) / (double) iterations;
+        System.out.printf("%-50s %14.1f B/op%n", label, bytesPerOp);
+        return bytesPerOp;
+    }
+
+    /**
+     * @return bytes of heap in use after a best-effort full garbage collection
+     */
+    public static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Parse collection sizes from command-line arguments.
+     * @param args command-line arguments, each a positive integer
+     * @param defaults sizes to use if args is empty
+     * @return the requested sizes
+     */
+    public static List<Integer> sizes(String[] args, Integer... defaults) {
+        if (args.length == 0) {
+            return Arrays.asList(defaults);
+        }
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args) {
+            sizes.add(Integer.parseInt(arg));
+        }
+        return sizes;
+    }
+
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ra", "the", "an", "vel", "dor", "sen", "ti", "mar", "is", "on",
+        "be", "gal", "rus", "fen", "wick", "ell", "ston", "ver", "al", "qui", "zo", "ham",
+        "pe", "tor", "ish", "um", "gre", "bly", "nu", "cas", "dra", "ox", "fa", "yel", "ju",
+        "har", "pin", "cro", "sut", "ew", "ly", "mon", "gi", "bre", "ac", "wal", "ner", "ig",
+        "so", "kru", "dev", "hol", "ast", "ri", "bo", "tam", "ly", "es", "vi", "pho", "ung",
+    };
+
+    /**
+     * @param random source of randomness
+     * @return a pronounceable synthetic word of two to four syllables
+     */
+    public static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+        return word.toString();
+    }
+
+    /**
+     * Make a catalog of synthetic editions with word-like titles and author names.
+     * @param books number of distinct editions
+     * @param seed seed for the random generator, so runs are repeatable
+     * @return books distinct editions
+     */
+    public static List<Book> catalog(int books, long seed) {
+        Random random = new Random(seed);
+        List<String> authors = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, books / 20); i++) {
+            authors.add(word(random) + " " + word(random));
+        }
+        List<Book> catalog = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            StringBuilder title = new StringBuilder(word(random));
+            for (int words = random.nextInt(4); words > 0; words--) {
+                title.append(' ').append(word(random));
+            }
+            // an occasional duplicate edition just becomes a second copy when bought
+            catalog.add(new Book(title.toString(), Arrays.asList(authors.get(random.nextInt(authors.size()))),
+                    1900 + i % 120));
+        }
+        return catalog;
+    }
+
+    /**
+     * Make a synthetic edition.
+     * @param i index of the edition
+     * @return a book whose title, author and year are derived from i
+     */
+    public static Book book(int i) {
+        return new Book("Title " + i, Arrays.asList("Author " + (i % 1000)), 1900 + i % 120);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,103 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Measures the cost of reading a Book's authors and of hashing Books, alone and inside
+ * HashSet probes, in time and in heap allocated per operation.
+ *
+ * Usage: java -Xmx4g library.BookBenchmark [books...]   (default 1000000)
+ */
+public class BookBenchmark {
+
+    private static final int WARMUPS = 5;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) {
+        for (int books : Bench.sizes(args, 1_000_000)) {
+            final List<Book> catalog = new ArrayList<>(books);
+            for (Book book : Bench.catalog(books, 0)) {
+                // three authors per book, as in an anthology
+                catalog.add(new Book(book.getTitle(), Arrays.asList(book.getAuthors().get(0),
+                        "Second Author", "Third Author"), book.getYear()));
+            }
+            final Set<Book> set = new HashSet<>(catalog);
+            final List<Book> probes = new ArrayList<>(books);
+            for (Book book : catalog) {
+                // equal but not identical, so equals() really compares
+                probes.add(new Book(book.getTitle(), book.getAuthors(), book.getYear()));
+            }
+
+            Runnable readAuthors = new Runnable() {
+                @Override
+                public void run() {
+                    int length = 0;
+                    for (Book book : catalog) {
+                        for (String author : book.getAuthors()) {
+                            length += author.length();
+                        }
+                    }
+                    Bench.blackhole = length;
+                }
+            };
+            Runnable getAuthor = new Runnable() {
+                @Override
+                public void run() {
+                    int length = 0;
+                    for (Book book : catalog) {
+                        for (int i = 0; i < book.getAuthorCount(); i++) {
+                            length += book.getAuthor(i).length();
+                        }
+                    }
+                    Bench.blackhole = length;
+                }
+            };
+            Runnable hash = new Runnable() {
+                @Override
+                public void run() {
+                    int hash = 0;
+                    for (Book book : catalog) {
+                        hash += book.hashCode();
+                    }
+                    Bench.blackhole = hash;
+                }
+            };
+            Runnable probe = new Runnable() {
+                @Override
+                public void run() {
+                    int found = 0;
+                    for (Book book : probes) {
+                        if (set.contains(book)) {
+                            found++;
+                        }
+                    }
+                    Bench.blackhole = found;
+                }
+            };
+            report(books + " books getAuthors", books, readAuthors);
+            report(books + " books getAuthor(i)", books, getAuthor);
+            report(books + " books hashCode", books, hash);
+            report(books + " books HashSet.contains", books, probe);
+        }
+    }
+
+    /**
+     * Time op, which performs books operations, and measure its allocation per operation.
+     */
+    private static void report(String label, int books, Runnable op) {
+        double nanos = Bench.time(label + " (whole pass)", WARMUPS, ITERATIONS, op);
+        double bytes = Bench.allocation(label + " (whole pass)", 1, ITERATIONS, op);
+        System.out.printf("%-50s %14.1f ns/op %8.1f B/op%n", label, nanos / books, bytes / books);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,71 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares receiving shipments and end-of-day returns one copy at a time with the bulk
+ * operations buy(book, count), checkoutAll and checkinAll, for each large Library.
+ *
+ * Usage: java -Xmx4g library.BulkBenchmark [copies per shipment...]   (default 100 1000)
+ */
+public class BulkBenchmark {
+
+    private static final int COPIES = 1_000_000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        for (int shipment : Bench.sizes(args, 100, 1000)) {
+            run("BigLibrary", BigLibrary::new, shipment);
+            run("ColumnarLibrary", ColumnarLibrary::new, shipment);
+            run("ConcurrentBigLibrary", ConcurrentBigLibrary::new, shipment);
+        }
+    }
+
+    private static void run(String name, Supplier<Library> make, int shipment) {
+        List<Book> catalog = Bench.catalog(COPIES / shipment, 0);
+        String label = name + " " + shipment + "/shipment ";
+        Bench.time(label + "buy one at a time", 1, ROUNDS, () -> {
+            Library library = make.get();
+            for (Book book : catalog) {
+                for (int i = 0; i < shipment; i++) {
+                    library.buy(book);
+                }
+            }
+            Bench.blackhole = library;
+        });
+        Bench.time(label + "buy(book, count)", 1, ROUNDS, () -> {
+            Library library = make.get();
+            for (Book book : catalog) {
+                library.buy(book, shipment);
+            }
+            Bench.blackhole = library;
+        });
+
+        Library library = make.get();
+        List<BookCopy> all = new ArrayList<>(COPIES);
+        for (Book book : catalog) {
+            all.addAll(library.buy(book, shipment));
+        }
+        Bench.time(label + "checkout+checkin one at a time", 1, ROUNDS, () -> {
+            for (BookCopy copy : all) {
+                library.checkout(copy);
+            }
+            for (BookCopy copy : all) {
+                library.checkin(copy);
+            }
+        });
+        Bench.time(label + "checkoutAll+checkinAll", 1, ROUNDS, () -> {
+            library.checkoutAll(all);
+            library.checkinAll(all);
+        });
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,79 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Runs a search-heavy desk workload against a BigLibrary with and without a CachingLibrary
+ * in front of it: searches drawn from a few hundred popular queries with a skewed
+ * popularity, mixed with checkouts, checkins, and an occasional new book, which only
+ * invalidates the cached queries it matches.  Reports the rate of operations and the
+ * cache's counters.
+ *
+ * Usage: java -Xmx4g library.CacheBenchmark [books...]   (default 100000)
+ */
+public class CacheBenchmark {
+
+    private static final int QUERIES = 300;
+    private static final int CAPACITY = 1000;
+    private static final int OPERATIONS = 200_000;
+    // one operation in this many buys a new book, and one in this many is a search
+    private static final int BUY_EVERY = 100;
+    private static final int SEARCH_EVERY = 2;
+
+    public static void main(String[] args) {
+        for (int books : Bench.sizes(args, 100_000)) {
+            List<Book> catalog = Bench.catalog(books + OPERATIONS / BUY_EVERY, 0);
+            Random random = new Random(1);
+            List<String> queries = new ArrayList<>();
+            for (int i = 0; i < QUERIES; i++) {
+                Book book = catalog.get(random.nextInt(books));
+                queries.add(random.nextBoolean() ? book.getTitle() : book.getAuthor(0));
+            }
+            run("BigLibrary", new BigLibrary(), catalog, books, queries);
+            CachingLibrary cached = new CachingLibrary(new BigLibrary(), CAPACITY);
+            run("CachingLibrary", cached, catalog, books, queries);
+            System.out.printf("    hits %d, misses %d, invalidations %d, evictions %d%n", cached.getHits(),
+                    cached.getMisses(), cached.getInvalidations(), cached.getEvictions());
+        }
+    }
+
+    private static void run(String label, Library library, List<Book> catalog, int books, List<String> queries) {
+        Map<Book, Integer> shipment = new LinkedHashMap<>();
+        for (Book book : catalog.subList(0, books)) {
+            shipment.put(book, 2);
+        }
+        List<BookCopy> copies = library.buyAll(shipment);
+        Random random = new Random(2);
+        int next = books;
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++) {
+            if (i % BUY_EVERY == 0) {
+                library.buy(catalog.get(next++));
+            } else if (i % SEARCH_EVERY == 0) {
+                // the square of a uniform index makes low-numbered queries far more popular
+                double u = random.nextDouble();
+                Bench.blackhole = library.find(queries.get((int) (u * u * queries.size())), 20);
+            } else {
+                BookCopy copy = copies.get(random.nextInt(copies.size()));
+                if (library.isAvailable(copy)) {
+                    library.checkout(copy);
+                } else {
+                    library.checkin(copy);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-50s %14.0f ops/s%n", label, OPERATIONS / seconds);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,55 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the heap retained per copy, and the speed of copy lookups, of BigLibrary and
+ * ColumnarLibrary holding many copies of each edition.
+ *
+ * Usage: java -Xmx4g library.ColumnarBenchmark [copies...]   (default 10000000)
+ */
+public class ColumnarBenchmark {
+
+    private static final int COPIES_PER_BOOK = 100;
+    // one copy in this many is checked out
+    private static final int CHECKED_OUT_EVERY = 10;
+
+    public static void main(String[] args) {
+        for (int copies : Bench.sizes(args, 10_000_000)) {
+            List<Book> catalog = Bench.catalog(copies / COPIES_PER_BOOK, 0);
+            run("BigLibrary", new BigLibrary(), catalog, copies);
+            run("ColumnarLibrary", new ColumnarLibrary(), catalog, copies);
+        }
+    }
+
+    private static void run(String name, Library library, List<Book> catalog, int copies) {
+        long base = Bench.usedHeap();
+        List<BookCopy> sample = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            BookCopy copy = library.buy(catalog.get(i % catalog.size()));
+            if (i % CHECKED_OUT_EVERY == 0) {
+                library.checkout(copy);
+            }
+            if (i % 1000 == 0) {
+                sample.add(copy);
+            }
+        }
+        long used = Bench.usedHeap() - base;
+        String label = name + " " + copies + " copies ";
+        System.out.printf("%-50s %14.1f B/copy retained%n", label, used / (double) copies);
+        Random random = new Random(0);
+        Bench.time(label + "availableCopies", 10_000, 100_000,
+                () -> Bench.blackhole = library.availableCopies(catalog.get(random.nextInt(catalog.size()))));
+        Bench.time(label + "isAvailable", 100_000, 1_000_000,
+                () -> Bench.blackhole = library.isAvailable(sample.get(random.nextInt(sample.size()))));
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,50 @@
+package library;
+
+import java.util.Random;
+
+/**
+ * Compares allCopies() and availableCopies() on SmallLibrary, which scans every copy in the
+ * collection, with BigLibrary, which looks up the copies of the requested book in its
+ * per-book index.
+ *
+ * Usage: java -Xmx8g library.CopyIndexBenchmark [copies...]   (default 1000000 10000000)
+ */
+public class CopyIndexBenchmark {
+
+    private static final int COPIES_PER_BOOK = 10;
+    // one copy in this many is checked out
+    private static final int CHECKED_OUT_EVERY = 10;
+
+    public static void main(String[] args) {
+        for (int copies : Bench.sizes(args, 1_000_000, 10_000_000)) {
+            run("SmallLibrary", new SmallLibrary(), copies);
+            run("BigLibrary", new BigLibrary(), copies);
+        }
+    }
+
+    private static void run(String name, Library library, int copies) {
+        int books = copies / COPIES_PER_BOOK;
+        for (int i = 0; i < copies; i++) {
+            BookCopy copy = library.buy(Bench.book(i % books));
+            if (i % CHECKED_OUT_EVERY == 0) {
+                library.checkout(copy);
+            }
+        }
+        Random random = new Random(0);
+        // a full scan of millions of copies takes tens of milliseconds, so keep the scan
+        // variants short
+        int iterations = name.equals("SmallLibrary") ? 20 : 100_000;
+        String label = name + " " + copies + " copies ";
+        Bench.time(label + "allCopies", iterations / 10, iterations,
+                () -> Bench.blackhole = library.allCopies(Bench.book(random.nextInt(books))));
+        Bench.time(label + "availableCopies", iterations / 10, iterations,
+                () -> Bench.blackhole = library.availableCopies(Bench.book(random.nextInt(books))));
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,70 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the availability checks a circulation desk makes -- is any copy available, how
+ * many copies are there, is this copy one of them -- asked of the fresh sets returned by
+ * allCopies() and availableCopies() and of the live views returned by allCopiesView() and
+ * availableCopiesView() on a BigLibrary, in time and in bytes allocated per check.
+ *
+ * Usage: java -Xmx4g library.CopyViewBenchmark [copies...]   (default 1000000)
+ */
+public class CopyViewBenchmark {
+
+    private static final int COPIES_PER_BOOK = 10;
+    // one copy in this many is checked out
+    private static final int CHECKED_OUT_EVERY = 10;
+    private static final int ITERATIONS = 2_000_000;
+
+    public static void main(String[] args) {
+        for (int copies : Bench.sizes(args, 1_000_000)) {
+            int books = copies / COPIES_PER_BOOK;
+            List<Book> catalog = new ArrayList<>();
+            for (int i = 0; i < books; i++) {
+                catalog.add(Bench.book(i));
+            }
+            BigLibrary library = new BigLibrary(false);
+            List<BookCopy> all = new ArrayList<>();
+            for (int i = 0; i < copies; i++) {
+                BookCopy copy = library.buy(catalog.get(i % books));
+                all.add(copy);
+                if (i % CHECKED_OUT_EVERY == 0) {
+                    library.checkout(copy);
+                }
+            }
+            System.out.printf("%d copies of %d books%n", copies, books);
+            Random random = new Random(0);
+            measure("availableCopies(b).isEmpty()",
+                    () -> Bench.blackhole = library.availableCopies(catalog.get(random.nextInt(books))).isEmpty());
+            measure("availableCopiesView(b).isEmpty()",
+                    () -> Bench.blackhole = library.availableCopiesView(catalog.get(random.nextInt(books))).isEmpty());
+            measure("allCopies(b).size()",
+                    () -> Bench.blackhole = library.allCopies(catalog.get(random.nextInt(books))).size());
+            measure("allCopiesView(b).size()",
+                    () -> Bench.blackhole = library.allCopiesView(catalog.get(random.nextInt(books))).size());
+            measure("allCopies(b).contains(c)", () -> {
+                BookCopy copy = all.get(random.nextInt(copies));
+                Bench.blackhole = library.allCopies(copy.getBook()).contains(copy);
+            });
+            measure("allCopiesView(b).contains(c)", () -> {
+                BookCopy copy = all.get(random.nextInt(copies));
+                Bench.blackhole = library.allCopiesView(copy.getBook()).contains(copy);
+            });
+        }
+    }
+
+    private static void measure(String label, Runnable op) {
+        Bench.time(label, ITERATIONS, ITERATIONS, op);
+        Bench.allocation(label, ITERATIONS / 10, ITERATIONS / 10, op);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,80 @@
+package library;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures what publishing events adds to the latency of a checkout and checkin: on a bare
+ * BigLibrary, on a PublishingLibrary with no subscribers, with a listener that keeps up,
+ * and with a listener that has stalled, whose events are dropped.
+ *
+ * Usage: java -Xmx2g library.EventBenchmark [iterations...]   (default 1000000)
+ */
+public class EventBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int CAPACITY = 10_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int iterations : Bench.sizes(args, 1_000_000)) {
+            run("BigLibrary", new BigLibrary(), iterations);
+
+            PublishingLibrary quiet = new PublishingLibrary(new BigLibrary());
+            run("PublishingLibrary, no subscribers", quiet, iterations);
+
+            PublishingLibrary followed = new PublishingLibrary(new BigLibrary());
+            Subscription fast = followed.subscribe(events -> Bench.blackhole = events, CAPACITY,
+                    Subscription.Overflow.DROP);
+            run("PublishingLibrary, listener keeping up", followed, iterations);
+            fast.close();
+            report(fast);
+
+            PublishingLibrary stalled = new PublishingLibrary(new BigLibrary());
+            CountDownLatch gate = new CountDownLatch(1);
+            Subscription slow = stalled.subscribe(events -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }, CAPACITY, Subscription.Overflow.DROP);
+            run("PublishingLibrary, stalled listener", stalled, iterations);
+            gate.countDown();
+            slow.close();
+            report(slow);
+        }
+    }
+
+    private static void run(String label, Library library, int iterations) {
+        List<BookCopy> copies = library.buyAll(oneOfEach(Bench.catalog(BOOKS, 0)));
+        Random random = new Random(0);
+        Bench.percentiles(label, iterations, iterations, () -> {
+            BookCopy copy = copies.get(random.nextInt(copies.size()));
+            library.checkout(copy);
+            library.checkin(copy);
+        });
+    }
+
+    private static Map<Book, Integer> oneOfEach(List<Book> catalog) {
+        Map<Book, Integer> shipment = new LinkedHashMap<>();
+        for (Book book : catalog) {
+            shipment.put(book, 1);
+        }
+        return shipment;
+    }
+
+    private static void report(Subscription subscription) {
+        System.out.printf("    delivered %d events in %d batches, dropped %d%n",
+                subscription.getDelivered(), subscription.getBatches(), subscription.getDropped());
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
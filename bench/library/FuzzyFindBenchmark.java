@@ -0,0 +1,49 @@
+package library;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures fuzzyFind() latency percentiles on BigLibrary as the catalog grows, for queries
+ * with one misspelled word.
+ *
+ * Usage: java -Xmx16g library.FuzzyFindBenchmark [books...]   (default 100000 1000000 5000000)
+ */
+public class FuzzyFindBenchmark {
+
+    public static void main(String[] args) {
+        for (int books : Bench.sizes(args, 100_000, 1_000_000, 5_000_000)) {
+            List<Book> catalog = Bench.catalog(books, 0);
+            Library library = new BigLibrary();
+            for (Book book : catalog) {
+                library.buy(book);
+            }
+            Random random = new Random(1);
+            Bench.percentiles("BigLibrary " + books + " books fuzzyFind", 1_000, 10_000, () -> {
+                Book book = catalog.get(random.nextInt(catalog.size()));
+                Bench.blackhole = library.fuzzyFind(misspell(book.getAuthors().get(0), random), 10);
+            });
+        }
+    }
+
+    /**
+     * @return text with two adjacent characters of one word swapped
+     */
+    private static String misspell(String text, Random random) {
+        char[] chars = text.toCharArray();
+        int i = 1 + random.nextInt(Math.max(1, chars.length - 3));
+        if (chars[i] != ' ' && chars[i + 1] != ' ') {
+            char swap = chars[i];
+            chars[i] = chars[i + 1];
+            chars[i + 1] = swap;
+        }
+        return new String(chars);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
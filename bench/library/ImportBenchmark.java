@@ -0,0 +1,111 @@
+package library;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares stocking a BigLibrary from a CSV catalog by parsing each line and calling buy()
+ * once per copy, as application code does without an importer, against CatalogImporter,
+ * with one parsing thread and with the common pool.  Then times small shipments of new
+ * editions bought with buyAll() into the imported library, which must not cost as much as
+ * indexing the whole catalog again.
+ *
+ * Usage: java -Xmx4g library.ImportBenchmark [records...]   (default 1000000)
+ */
+public class ImportBenchmark {
+
+    // each edition appears in this many records
+    private static final int RECORDS_PER_BOOK = 2;
+    // new editions in each small shipment
+    private static final int SHIPMENT = 10;
+
+    public static void main(String[] args) throws IOException {
+        for (int records : Bench.sizes(args, 1_000_000)) {
+            String catalog = catalog(records);
+            System.out.printf("%d records, %.1f MB of CSV, %d cores%n",
+                    records, catalog.length() / 1e6, Runtime.getRuntime().availableProcessors());
+
+            long start = System.nanoTime();
+            Library library = new BigLibrary();
+            long copies = buyOneAtATime(catalog, library);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-40s %d copies in %.1f ms, %.0f records/s%n",
+                    "split + buy() per copy", copies, seconds * 1e3, records / seconds);
+            library = null;
+
+            ForkJoinPool single = new ForkJoinPool(1);
+            report("CatalogImporter, 1 thread", new CatalogImporter(CatalogImporter.Format.CSV, single), catalog);
+            single.shutdown();
+            library = report("CatalogImporter, common pool", new CatalogImporter(CatalogImporter.Format.CSV), catalog);
+
+            Library imported = library;
+            int[] shipped = {0};
+            Bench.time("buyAll of " + SHIPMENT + " new editions", 10, 100, () -> {
+                Map<Book, Integer> shipment = new HashMap<>();
+                for (int i = 0; i < SHIPMENT; i++) {
+                    shipment.put(new Book("Shipment " + shipped[0]++, Arrays.asList("Courier"), 2020), 1);
+                }
+                Bench.blackhole = imported.buyAll(shipment);
+            });
+        }
+    }
+
+    /**
+     * @return the library stocked by importer from catalog
+     */
+    private static Library report(String label, CatalogImporter importer, String catalog) throws IOException {
+        Library library = new BigLibrary();
+        CatalogImporter.Report report = importer.importInto(new StringReader(catalog), library);
+        System.out.printf("%-40s %s%n", label, report);
+        return library;
+    }
+
+    /**
+     * @return a CSV catalog of records lines naming between 1 and 4 copies each
+     */
+    private static String catalog(int records) {
+        List<Book> books = Bench.catalog(records / RECORDS_PER_BOOK, 0);
+        StringBuilder csv = new StringBuilder("title,authors,year,copies\n");
+        for (int i = 0; i < records; i++) {
+            Book book = books.get(i % books.size());
+            csv.append('"').append(book.getTitle()).append("\",");
+            csv.append(String.join(";", book.getAuthors())).append(',');
+            csv.append(book.getYear()).append(',').append(1 + i % 4).append('\n');
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Stock library the way application code does without an importer.
+     * @return number of copies bought
+     */
+    private static long buyOneAtATime(String catalog, Library library) {
+        long copies = 0;
+        String[] lines = catalog.split("\n");
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split(",");
+            String title = fields[0].substring(1, fields[0].length() - 1);
+            List<String> authors = new ArrayList<>(Arrays.asList(fields[1].split(";")));
+            Book book = new Book(title, authors, Integer.parseInt(fields[2]));
+            int count = Integer.parseInt(fields[3]);
+            for (int c = 0; c < count; c++) {
+                library.buy(book);
+            }
+            copies += count;
+        }
+        return copies;
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,123 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures what an InstrumentedLibrary adds to the operations of a BigLibrary, from the
+ * cheapest, isAvailable(), to searches, timing every call or only the default sample of
+ * them, and what it costs several threads recording into the same histograms of a
+ * ConcurrentBigLibrary.
+ *
+ * Usage: java -Xmx4g library.InstrumentationBenchmark [books...]   (default 100000)
+ */
+public class InstrumentationBenchmark {
+
+    private static final int COPIES_PER_BOOK = 4;
+    private static final int THREADS = 4;
+    private static final long MILLIS = 2_000;
+    private static final int ROUNDS = 5;
+
+    // sample interval of the sampling wrapper
+    private static final int SAMPLE_INTERVAL = InstrumentedLibrary.DEFAULT_SAMPLE_INTERVAL;
+
+    public static void main(String[] args) {
+        for (int books : Bench.sizes(args, 100_000)) {
+            List<Book> catalog = Bench.catalog(books, 0);
+            BigLibrary bare = new BigLibrary();
+            List<BookCopy> copies = stock(bare, catalog);
+            // the wrappers share the bare library, so all three measure the same data in the
+            // same memory; only this single-threaded benchmark uses it both ways
+            InstrumentedLibrary timed = new InstrumentedLibrary(bare, 1);
+            InstrumentedLibrary sampled = new InstrumentedLibrary(bare, SAMPLE_INTERVAL);
+            System.out.printf("%d books, %d copies%n", books, copies.size());
+            // the sampling wrapper is measured first, so the JIT compiles its calls as they
+            // would be compiled in a program that uses only the default sampling
+            for (InstrumentedLibrary wrapper : Arrays.asList(sampled, timed)) {
+                String label = wrapper == timed ? "every call timed" : "1 in " + SAMPLE_INTERVAL + " timed";
+                compare("isAvailable", 1_000_000, bare, wrapper, label, copies);
+                compare("checkout+checkin", 500_000, bare, wrapper, label, copies);
+                compare("availableCopies", 500_000, bare, wrapper, label, copies);
+                compare("find(author, 10)", 10_000, bare, wrapper, label, copies);
+            }
+            System.out.println(timed.getStats("find(k)"));
+
+            ConcurrentBigLibrary concurrent = new ConcurrentBigLibrary();
+            double bareRate = circulate("ConcurrentBigLibrary", concurrent, stock(concurrent, catalog));
+            InstrumentedLibrary wrapped = new InstrumentedLibrary(new ConcurrentBigLibrary(), 1);
+            double wrappedRate = circulate("instrumented ConcurrentBigLibrary", wrapped, stock(wrapped, catalog));
+            System.out.printf("%-50s %13.1f %%%n", "overhead", 100 * (bareRate / wrappedRate - 1));
+            wrapped = new InstrumentedLibrary(new ConcurrentBigLibrary(), SAMPLE_INTERVAL);
+            wrappedRate = circulate("sampled ConcurrentBigLibrary", wrapped, stock(wrapped, catalog));
+            System.out.printf("%-50s %13.1f %%%n", "overhead", 100 * (bareRate / wrappedRate - 1));
+        }
+    }
+
+    private static List<BookCopy> stock(Library library, List<Book> catalog) {
+        List<BookCopy> copies = new ArrayList<>();
+        for (Book book : catalog) {
+            copies.addAll(library.buy(book, COPIES_PER_BOOK));
+        }
+        return copies;
+    }
+
+    // times the bare and wrapped operation alternately, since the difference can be smaller
+    // than the drift between two runs, and reports the median overhead
+    private static void compare(String operation, int iterations, Library bare, Library wrapped, String label,
+            List<BookCopy> copies) {
+        double[] overheads = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            double bareNanos = Bench.time(operation + ", bare", iterations / 10, iterations,
+                    op(operation, bare, copies));
+            double wrappedNanos = Bench.time(operation + ", " + label, iterations / 10, iterations,
+                    op(operation, wrapped, copies));
+            overheads[round] = 100 * (wrappedNanos / bareNanos - 1);
+        }
+        Arrays.sort(overheads);
+        System.out.printf("%-50s %13.1f %%%n", "median overhead", overheads[ROUNDS / 2]);
+    }
+
+    private static Runnable op(String operation, Library library, List<BookCopy> copies) {
+        Random random = new Random(0);
+        switch (operation) {
+        case "isAvailable":
+            return () -> Bench.blackhole = library.isAvailable(copies.get(random.nextInt(copies.size())));
+        case "checkout+checkin":
+            return () -> {
+                BookCopy copy = copies.get(random.nextInt(copies.size()));
+                library.checkout(copy);
+                library.checkin(copy);
+            };
+        case "availableCopies":
+            return () -> Bench.blackhole = library.availableCopies(copies.get(random.nextInt(copies.size())).getBook());
+        default:
+            return () -> Bench.blackhole = library.find(
+                    copies.get(random.nextInt(copies.size())).getBook().getAuthors().get(0), 10);
+        }
+    }
+
+    // each thread checks out and in copies of its own, and asks about any copy
+    private static double circulate(String name, Library library, List<BookCopy> copies) {
+        return Bench.throughput(name + ", " + THREADS + " threads", THREADS, MILLIS, thread -> {
+            Random random = new Random(thread);
+            return () -> {
+                int i = random.nextInt(copies.size() / THREADS) * THREADS + thread;
+                if (random.nextInt(10) == 0) {
+                    library.checkout(copies.get(i));
+                    library.checkin(copies.get(i));
+                } else {
+                    Bench.blackhole = library.isAvailable(copies.get(random.nextInt(copies.size())));
+                }
+            };
+        });
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
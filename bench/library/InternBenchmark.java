@@ -0,0 +1,62 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap retained by a BigLibrary loaded with many copies of popular editions,
+ * when every copy is bought with its own freshly parsed Book, as an importer reading one
+ * line per copy would do.
+ *
+ * Usage: java -Xmx12g library.InternBenchmark [copies...]   (default 10000000)
+ */
+public class InternBenchmark {
+
+    private static final int COPIES_PER_BOOK = 100;
+
+    public static void main(String[] args) {
+        for (int copies : Bench.sizes(args, 10_000_000)) {
+            List<Book> catalog = Bench.catalog(copies / COPIES_PER_BOOK, 0);
+            long base = Bench.usedHeap();
+            Library library = new BigLibrary();
+            for (int i = 0; i < copies; i++) {
+                library.buy(parse(catalog.get(i % catalog.size())));
+            }
+            report("BigLibrary " + copies + " copies", base, library);
+            library = null;
+
+            base = Bench.usedHeap();
+            BookPool pool = new BookPool();
+            library = new BigLibrary();
+            for (int i = 0; i < copies; i++) {
+                library.buy(pool.intern(parse(catalog.get(i % catalog.size()))));
+            }
+            pool = null;
+            report("BigLibrary " + copies + " copies, BookPool", base, library);
+        }
+    }
+
+    /**
+     * @return a Book equal to book whose strings are fresh objects, as if parsed from text
+     */
+    private static Book parse(Book book) {
+        List<String> authors = new ArrayList<>();
+        for (String author : book.getAuthors()) {
+            authors.add(new String(author.toCharArray()));
+        }
+        return new Book(new String(book.getTitle().toCharArray()), authors, book.getYear());
+    }
+
+    private static void report(String label, long base, Library library) {
+        long used = Bench.usedHeap() - base;
+        Bench.blackhole = library;
+        System.out.printf("%-50s %14.1f MB retained%n", label, used / 1e6);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,89 @@
+package library;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares the throughput of journaled checkouts and checkins with one fsync per operation
+ * against group commit, as the number of threads grows, and reports the time to recover
+ * the library from the journal each run leaves behind, and again after a checkpoint.
+ *
+ * Each thread repeatedly checks one of its own copies out and back in.  The journal is
+ * written to the default temporary directory, so the results depend on its file system;
+ * per-op fsync is bounded by the device's fsync latency whatever the thread count.
+ *
+ * Usage: java -Xmx4g library.JournalBenchmark [threads...]   (default 1 4 16 64)
+ */
+public class JournalBenchmark {
+
+    private static final int BOOKS = 1_000;
+    private static final long MILLIS = 2_000;
+
+    public static void main(String[] args) throws IOException {
+        for (int threads : Bench.sizes(args, 1, 4, 16, 64)) {
+            run("per-op fsync", false, threads);
+            run("group commit", true, threads);
+        }
+    }
+
+    private static void run(String name, boolean groupCommit, int threads) throws IOException {
+        Path file = Files.createTempFile("library", ".journal");
+        Path snapshot = file.resolveSibling(file.getFileName() + ".snapshot");
+        try {
+            final JournaledLibrary library = new JournaledLibrary(file, groupCommit);
+            final List<Book> catalog = Bench.catalog(BOOKS, 0);
+            // copies.get(t).get(b) is thread t's copy of edition b
+            final List<List<BookCopy>> copies = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                copies.add(library.buyAll(oneOfEach(catalog)));
+            }
+            Bench.throughput(name + ", " + threads + " threads", threads, MILLIS, thread -> {
+                Random random = new Random(thread);
+                List<BookCopy> mine = copies.get(thread);
+                return () -> {
+                    BookCopy copy = mine.get(random.nextInt(mine.size()));
+                    library.checkout(copy);
+                    library.checkin(copy);
+                };
+            });
+            library.close();
+
+            long size = Files.size(file);
+            long start = System.nanoTime();
+            JournaledLibrary recovered = new JournaledLibrary(file, groupCommit);
+            System.out.printf("    recovered %.1f MB journal in %.0f ms%n",
+                    size / 1e6, (System.nanoTime() - start) / 1e6);
+            recovered.checkpoint();
+            recovered.close();
+
+            start = System.nanoTime();
+            new JournaledLibrary(file, groupCommit).close();
+            System.out.printf("    recovered from a %.1f MB checkpoint and %d byte journal in %.0f ms%n",
+                    Files.size(snapshot) / 1e6, Files.size(file), (System.nanoTime() - start) / 1e6);
+        } finally {
+            Files.delete(file);
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    private static Map<Book, Integer> oneOfEach(List<Book> catalog) {
+        Map<Book, Integer> shipment = new LinkedHashMap<>();
+        for (Book book : catalog) {
+            shipment.put(book, 1);
+        }
+        return shipment;
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
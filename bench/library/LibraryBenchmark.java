@@ -0,0 +1,342 @@
+package library;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+/**
+ * Runs every Library operation against each kind of library at several sizes, and appends
+ * the results to a CSV file so that runs of different releases can be compared.
+ *
+ * Each library is stocked from a catalog of one edition per four copies, with word-like
+ * titles and authors of about twenty editions each.  Every edition gets one copy, and the
+ * remaining copies go mostly to a few popular editions, as in a real collection; the copies
+ * and books that operations are called on are drawn the same way, so popular editions are
+ * asked about more often.  Operations that change the library are paired with the operation
+ * that undoes them, e.g. buy+lose, so its size stays the same while it is measured.
+ *
+ * Each operation is first timed on a single thread.  Then a few are run on several threads
+ * at once, through a SynchronizedLibrary unless the library is threadsafe itself.  At the
+ * end, a summary estimates how the cost of each operation grows with the size of the
+ * library: an exponent of 0 means constant time, 1 means linear time.
+ *
+ * Each line of the CSV file is
+ *     run,benchmark,library,copies,threads,mode,score,unit
+ * where mode is avgt for the mean time of one call, thrpt for the total rate over all
+ * threads, or ss for the time of a single call that is only made once, such as stocking the
+ * library.
+ *
+ * Usage: java -Xmx16g [-Drun=name] [-Dresults=file] [-Dlibraries=SmallLibrary,BigLibrary]
+ *             [-Dmillis=1000] [-Dthreads=4] library.LibraryBenchmark [copies...]
+ *        (default 10000 1000000 10000000 copies; the largest size needs about 16 GB of heap)
+ */
+public class LibraryBenchmark {
+
+    private static final String RUN = System.getProperty("run", "dev");
+    private static final Path RESULTS = Paths.get(System.getProperty("results", "library-benchmark.csv"));
+    private static final List<String> LIBRARIES =
+            Arrays.asList(System.getProperty("libraries", "SmallLibrary,BigLibrary").split(","));
+    private static final long MILLIS = Long.getLong("millis", 1_000);
+    private static final int THREADS = Integer.getInteger("threads", 4);
+
+    // number of random inputs drawn for each operation before timing it; a power of two
+    private static final int INPUTS = 1 << 12;
+    // number of copies or books in each call of a bulk operation
+    private static final int BATCH = 10;
+    // number of results asked of find(query, k) and the other searches
+    private static final int K = 10;
+
+    // scores.get(library + " " + benchmark).get(copies) is the mean time of one call
+    private static final Map<String, TreeMap<Integer, Double>> scores = new LinkedHashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%d processors, Java %s, run %s%n", Runtime.getRuntime().availableProcessors(),
+                System.getProperty("java.version"), RUN);
+        if (!Files.exists(RESULTS)) {
+            Files.write(RESULTS, Collections.singletonList("run,benchmark,library,copies,threads,mode,score,unit"),
+                    StandardCharsets.UTF_8);
+        }
+        for (int copies : Bench.sizes(args, 10_000, 1_000_000, 10_000_000)) {
+            for (String name : LIBRARIES) {
+                System.out.printf("%n%s, %d copies%n", name, copies);
+                Library library = newLibrary(name);
+                List<BookCopy> stock = stock(name, library, copies);
+                single(name, library, stock, copies);
+                if (library instanceof ConcurrentBigLibrary) {
+                    contended(name, library, stock, copies);
+                } else {
+                    contended("SynchronizedLibrary(" + name + ")", new SynchronizedLibrary(library), stock, copies);
+                }
+                library = null;
+                stock = null;
+                Bench.usedHeap();
+            }
+        }
+        summarize();
+        System.out.println("\nresults appended to " + RESULTS.toAbsolutePath());
+    }
+
+    /**
+     * @param name simple name of a class of library in this package with a public no-argument
+     *        constructor
+     * @return a new, empty library of that class
+     */
+    static Library newLibrary(String name) {
+        switch (name) {
+        case "SmallLibrary":
+            return new SmallLibrary();
+        case "BigLibrary":
+            return new BigLibrary();
+        case "ColumnarLibrary":
+            return new ColumnarLibrary();
+        case "ConcurrentBigLibrary":
+            return new ConcurrentBigLibrary();
+        default:
+            throw new IllegalArgumentException("unknown library " + name);
+        }
+    }
+
+    /**
+     * Stock a library with one copy of each edition of a catalog, and the remaining copies
+     * skewed towards its first editions.
+     * @return the copies bought
+     */
+    private static List<BookCopy> stock(String name, Library library, int copies) {
+        int books = Math.max(1, copies / 4);
+        List<Book> catalog = Bench.catalog(books, 0);
+        int[] counts = new int[books];
+        Random random = new Random(0);
+        for (int i = 0; i < copies; i++) {
+            if (i < books) {
+                counts[i]++;
+            } else {
+                double u = random.nextDouble();
+                counts[(int) (books * u * u)]++;
+            }
+        }
+        Map<Book, Integer> shipment = new LinkedHashMap<>();
+        for (int i = 0; i < books; i++) {
+            shipment.merge(catalog.get(i), counts[i], Integer::sum);
+        }
+        long start = System.nanoTime();
+        List<BookCopy> stock = library.buyAll(shipment);
+        once("stock with buyAll", name, copies, start);
+        return stock;
+    }
+
+    // the next of INPUTS random inputs, in turn
+    private static int next(int[] at) {
+        return at[0] = (at[0] + 1) & (INPUTS - 1);
+    }
+
+    private static void single(String name, Library library, List<BookCopy> stock, int copies) {
+        Random random = new Random(1);
+        BookCopy[] someCopies = new BookCopy[INPUTS];
+        Book[] books = new Book[INPUTS];
+        String[] titles = new String[INPUTS];
+        String[] authors = new String[INPUTS];
+        String[] misspelled = new String[INPUTS];
+        String[] prefixes = new String[INPUTS];
+        List<List<BookCopy>> batches = new ArrayList<>();
+        List<Map<Book, Integer>> shipments = new ArrayList<>();
+        for (int i = 0; i < INPUTS; i++) {
+            someCopies[i] = stock.get(random.nextInt(stock.size()));
+            books[i] = someCopies[i].getBook();
+            titles[i] = books[i].getTitle();
+            authors[i] = books[i].getAuthors().get(0);
+            misspelled[i] = misspell(titles[i].split(" ")[0], random);
+            prefixes[i] = titles[i].substring(0, 3).toLowerCase(Locale.ROOT);
+            List<BookCopy> batch = new ArrayList<>();
+            Map<Book, Integer> shipment = new LinkedHashMap<>();
+            for (int j = 0; j < BATCH; j++) {
+                BookCopy copy = stock.get(random.nextInt(stock.size()));
+                batch.add(copy);
+                shipment.put(copy.getBook(), 1);
+            }
+            batches.add(batch);
+            shipments.add(shipment);
+        }
+        final int[] at = {0};
+
+        long start = System.nanoTime();
+        Bench.blackhole = library.find(titles[0]);
+        once("first find", name, copies, start);
+        boolean snapshots = true;
+        start = System.nanoTime();
+        try {
+            Bench.blackhole = library.snapshot();
+            once("first snapshot", name, copies, start);
+        } catch (UnsupportedOperationException e) {
+            snapshots = false;
+        }
+
+        Map<String, Runnable> ops = new LinkedHashMap<>();
+        ops.put("buy+lose", () -> library.lose(library.buy(books[next(at)])));
+        ops.put("buy(count)+lose", () -> {
+            for (BookCopy copy : library.buy(books[next(at)], BATCH)) {
+                library.lose(copy);
+            }
+        });
+        ops.put("buyAll+lose", () -> {
+            for (BookCopy copy : library.buyAll(shipments.get(next(at)))) {
+                library.lose(copy);
+            }
+        });
+        ops.put("checkout+checkin", () -> {
+            BookCopy copy = someCopies[next(at)];
+            library.checkout(copy);
+            library.checkin(copy);
+        });
+        ops.put("checkoutAll+checkinAll", () -> {
+            List<BookCopy> batch = batches.get(next(at));
+            library.checkoutAll(batch);
+            Bench.blackhole = library.checkinAll(batch);
+        });
+        ops.put("isAvailable", () -> Bench.blackhole = library.isAvailable(someCopies[next(at)]));
+        ops.put("allCopies", () -> Bench.blackhole = library.allCopies(books[next(at)]));
+        ops.put("availableCopies", () -> Bench.blackhole = library.availableCopies(books[next(at)]));
+        ops.put("allCopiesView.size", () -> Bench.blackhole = library.allCopiesView(books[next(at)]).size());
+        ops.put("availableCopiesView.size",
+                () -> Bench.blackhole = library.availableCopiesView(books[next(at)]).size());
+        ops.put("find(title)", () -> Bench.blackhole = library.find(titles[next(at)]));
+        ops.put("find(author)", () -> Bench.blackhole = library.find(authors[next(at)]));
+        ops.put("find(author k)", () -> Bench.blackhole = library.find(authors[next(at)], K));
+        ops.put("findPage(author)+next", () -> {
+            SearchPage page = library.findPage(authors[next(at)], K);
+            Bench.blackhole = page.hasNext() ? library.findPage(page.getNext(), K) : page;
+        });
+        ops.put("fuzzyFind", () -> Bench.blackhole = library.fuzzyFind(misspelled[next(at)], K));
+        ops.put("suggest", () -> Bench.blackhole = library.suggest(prefixes[next(at)], K));
+        if (snapshots) {
+            ops.put("checkout+checkin+snapshot", () -> {
+                BookCopy copy = someCopies[next(at)];
+                library.checkout(copy);
+                library.checkin(copy);
+                Bench.blackhole = library.snapshot();
+            });
+        }
+        for (Map.Entry<String, Runnable> op : ops.entrySet()) {
+            double nanos = Bench.timed(name + " " + op.getKey(), MILLIS, op.getValue());
+            record(op.getKey(), name, copies, 1, "avgt", nanos, "ns/op");
+            scores.computeIfAbsent(name + " " + op.getKey(), key -> new TreeMap<>()).put(copies, nanos);
+        }
+    }
+
+    /**
+     * Run a circulation workload, buying and losing, and searching on several threads of
+     * a threadsafe library.  Each thread only checks out and in copies of its own.
+     */
+    private static void contended(String name, Library library, List<BookCopy> stock, int copies) {
+        final BookCopy[][] mine = new BookCopy[THREADS][INPUTS];
+        final BookCopy[] someCopies = new BookCopy[INPUTS];
+        final String[] authors = new String[INPUTS];
+        Random random = new Random(2);
+        for (int i = 0; i < INPUTS; i++) {
+            for (int t = 0; t < THREADS; t++) {
+                // stock.get(j) belongs to thread j % THREADS
+                int j = random.nextInt(stock.size() / THREADS) * THREADS + t;
+                mine[t][i] = stock.get(j);
+            }
+            someCopies[i] = stock.get(random.nextInt(stock.size()));
+            authors[i] = someCopies[i].getBook().getAuthors().get(0);
+        }
+        Map<String, IntFunction<Runnable>> ops = new LinkedHashMap<>();
+        ops.put("circulation mix", thread -> {
+            int[] at = {thread};
+            Random choice = new Random(thread);
+            return () -> {
+                if (choice.nextInt(10) == 0) {
+                    BookCopy copy = mine[thread][next(at)];
+                    library.checkout(copy);
+                    library.checkin(copy);
+                } else {
+                    Bench.blackhole = library.isAvailable(someCopies[next(at)]);
+                }
+            };
+        });
+        ops.put("buy+lose", thread -> {
+            int[] at = {thread};
+            return () -> library.lose(library.buy(someCopies[next(at)].getBook()));
+        });
+        ops.put("find(author k)", thread -> {
+            int[] at = {thread};
+            return () -> Bench.blackhole = library.find(authors[next(at)], K);
+        });
+        for (Map.Entry<String, IntFunction<Runnable>> op : ops.entrySet()) {
+            double rate = Bench.throughput(name + " " + op.getKey() + " x" + THREADS, THREADS, MILLIS, op.getValue());
+            record(op.getKey(), name, copies, THREADS, "thrpt", rate, "ops/s");
+        }
+    }
+
+    // swap two adjacent characters of a word, which fuzzyFind() still matches
+    private static String misspell(String word, Random random) {
+        if (word.length() < 4) {
+            return word;
+        }
+        char[] chars = word.toCharArray();
+        int i = 1 + random.nextInt(chars.length - 2);
+        char c = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = c;
+        return new String(chars);
+    }
+
+    // report and record an operation that was called once, since start
+    private static void once(String benchmark, String library, int copies, long start) {
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-50s %14.1f ms%n", library + " " + benchmark, millis);
+        record(benchmark, library, copies, 1, "ss", millis, "ms");
+    }
+
+    // append a line to the results file
+    private static void record(String benchmark, String library, int copies, int threads, String mode,
+            double score, String unit) {
+        String line = String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%s,%.3f,%s",
+                RUN, benchmark, library, copies, threads, mode, score, unit);
+        try {
+            Files.write(RESULTS, Collections.singletonList(line), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Print, for each operation measured at more than one size, the exponent e such that its
+     * time grows like copies^e between the smallest and the largest size.
+     */
+    private static void summarize() {
+        System.out.printf("%n%-50s %10s%n", "growth of time per call with copies", "exponent");
+        for (Map.Entry<String, TreeMap<Integer, Double>> entry : scores.entrySet()) {
+            TreeMap<Integer, Double> bySize = entry.getValue();
+            if (bySize.size() < 2) {
+                continue;
+            }
+            Map.Entry<Integer, Double> smallest = bySize.firstEntry();
+            Map.Entry<Integer, Double> largest = bySize.lastEntry();
+            double exponent = Math.log(largest.getValue() / smallest.getValue())
+                    / Math.log((double) largest.getKey() / smallest.getKey());
+            System.out.printf("%-50s %10.2f%s%n", entry.getKey(), exponent, exponent >= 0.8 ? "   linear or worse" : "");
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
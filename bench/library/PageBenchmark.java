@@ -0,0 +1,60 @@
+package library;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares paging through the results of a broad query 20 books at a time by calling
+ * find(query, k) with a growing k, which ranks every match again for each page, against
+ * findPage() with the cursor of each page, which scores the matches once and then only
+ * ranks as far as the pages ask.
+ *
+ * Usage: java -Xmx4g library.PageBenchmark [books...]   (default 100000)
+ */
+public class PageBenchmark {
+
+    private static final int PAGE = 20;
+    private static final int PAGES = 50;
+    // every book has an author named "Author i", so this query matches them all
+    private static final String QUERY = "Author";
+
+    public static void main(String[] args) {
+        for (int books : Bench.sizes(args, 100_000)) {
+            Map<Book, Integer> shipment = new LinkedHashMap<>();
+            for (int i = 0; i < books; i++) {
+                shipment.put(Bench.book(i), 1);
+            }
+            BigLibrary library = new BigLibrary();
+            library.buyAll(shipment);
+            System.out.printf("%d books matching \"%s\"%n", library.find(QUERY, 1).isEmpty() ? 0 : books, QUERY);
+
+            Bench.time("find(query, 20), first page", 5, 20, () -> Bench.blackhole = library.find(QUERY, PAGE));
+            Bench.time("findPage(query, 20), first page", 5, 20, () -> Bench.blackhole = library.findPage(QUERY, PAGE));
+            Bench.time(PAGES + " pages by find(query, k)", 1, 3, () -> {
+                for (int page = 0; page < PAGES; page++) {
+                    List<Book> top = library.find(QUERY, (page + 1) * PAGE);
+                    Bench.blackhole = top.subList(page * PAGE, top.size());
+                }
+            });
+            Bench.time(PAGES + " pages by findPage and cursors", 1, 3, () -> {
+                SearchPage page = library.findPage(QUERY, PAGE);
+                for (int i = 1; i < PAGES; i++) {
+                    page = library.findPage(page.getNext(), PAGE);
+                }
+                Bench.blackhole = page;
+            });
+            SearchPage first = library.findPage(QUERY, PAGE);
+            Bench.time("findPage(cursor, 20), one later page", 1000, 10000, () -> {
+                Bench.blackhole = library.findPage(first.getNext(), PAGE);
+            });
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,72 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares a BigLibrary behind one global lock with a BigLibrary behind an OptimisticLibrary
+ * on read-heavy traffic, as the number of reader threads grows.
+ *
+ * Reader threads issue isAvailable, availableCopies and find in the ratio 12:4:3; one writer
+ * thread keeps checking copies out and in, so writes are about 5% of all operations when
+ * there is one reader.  Scaling is bounded by the number of cores of the machine.
+ *
+ * Usage: java -Xmx4g library.ReadHeavyBenchmark [readers...]   (default 1 8 32)
+ */
+public class ReadHeavyBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final int COPIES_PER_BOOK = 4;
+    private static final long MILLIS = 2_000;
+
+    public static void main(String[] args) {
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+        for (int readers : Bench.sizes(args, 1, 8, 32)) {
+            run("SynchronizedLibrary", new SynchronizedLibrary(new BigLibrary()), readers);
+            run("OptimisticLibrary", new OptimisticLibrary(new BigLibrary()), readers);
+        }
+    }
+
+    private static void run(String name, final Library library, final int readers) {
+        final List<Book> catalog = Bench.catalog(BOOKS, 0);
+        final List<BookCopy> copies = new ArrayList<>();
+        for (Book book : catalog) {
+            for (int i = 0; i < COPIES_PER_BOOK; i++) {
+                copies.add(library.buy(book));
+            }
+        }
+        // thread number readers is the writer
+        Bench.throughput(name + " " + readers + " readers + 1 writer", readers + 1, MILLIS, thread -> {
+            Random random = new Random(thread);
+            if (thread == readers) {
+                return () -> {
+                    BookCopy copy = copies.get(random.nextInt(copies.size()));
+                    library.checkout(copy);
+                    library.checkin(copy);
+                    // pace the writer at roughly one write per twenty reads on one thread
+                    for (int i = 0; i < 19; i++) {
+                        Bench.blackhole = library.isAvailable(copies.get(random.nextInt(copies.size())));
+                    }
+                };
+            }
+            return () -> {
+                int op = random.nextInt(19);
+                if (op < 12) {
+                    Bench.blackhole = library.isAvailable(copies.get(random.nextInt(copies.size())));
+                } else if (op < 16) {
+                    Bench.blackhole = library.availableCopies(catalog.get(random.nextInt(BOOKS)));
+                } else {
+                    Bench.blackhole = library.find(catalog.get(random.nextInt(BOOKS)).getTitle(), 10);
+                }
+            };
+        });
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
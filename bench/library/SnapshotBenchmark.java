@@ -0,0 +1,78 @@
+package library;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares restarting with a BigLibrary by re-importing its CSV catalog against loading a
+ * LibrarySnapshot of it, whose search index is only built by the first search, and
+ * reports the size of each.
+ *
+ * Usage: java -Xmx4g library.SnapshotBenchmark [books...]   (default 500000)
+ */
+public class SnapshotBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        for (int books : Bench.sizes(args, 500_000)) {
+            List<Book> catalog = Bench.catalog(books, 0);
+            Map<Book, Integer> shipment = new LinkedHashMap<>();
+            StringBuilder csv = new StringBuilder();
+            for (int i = 0; i < catalog.size(); i++) {
+                Book book = catalog.get(i);
+                int copies = 1 + i % 8;
+                Integer sum = shipment.get(book);
+                shipment.put(book, sum == null ? copies : sum + copies);
+                csv.append('"').append(book.getTitle()).append("\",");
+                csv.append(String.join(";", book.getAuthors())).append(',');
+                csv.append(book.getYear()).append(',').append(copies).append('\n');
+            }
+            BigLibrary library = new BigLibrary();
+            List<BookCopy> copies = library.buyAll(shipment);
+            for (int i = 0; i < copies.size(); i += 3) {
+                library.checkout(copies.get(i));
+            }
+            copies = null;
+
+            Path file = Files.createTempFile("library", ".snapshot");
+            try {
+                long start = System.nanoTime();
+                LibrarySnapshot.save(library, file);
+                System.out.printf("%d books: snapshot %.1f MB saved in %.0f ms; CSV %.1f MB%n",
+                        books, Files.size(file) / 1e6, (System.nanoTime() - start) / 1e6, csv.length() / 1e6);
+                library = null;
+
+                for (int round = 0; round < 3; round++) {
+                    start = System.nanoTime();
+                    Library imported = new BigLibrary();
+                    new CatalogImporter(CatalogImporter.Format.CSV).importInto(new StringReader(csv.toString()), imported);
+                    double importMillis = (System.nanoTime() - start) / 1e6;
+                    imported = null;
+
+                    start = System.nanoTime();
+                    Library loaded = LibrarySnapshot.load(file);
+                    double loadMillis = (System.nanoTime() - start) / 1e6;
+                    start = System.nanoTime();
+                    Bench.blackhole = loaded.find(catalog.get(0).getTitle());
+                    double searchMillis = (System.nanoTime() - start) / 1e6;
+                    loaded = null;
+                    System.out.printf("  re-import CSV %8.0f ms    load snapshot %8.0f ms, then first search %8.0f ms%n",
+                            importMillis, loadMillis, searchMillis);
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,62 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the throughput of a circulation-desk workload on a BigLibrary behind one global
+ * lock and on a ConcurrentBigLibrary, as the number of threads grows.
+ *
+ * Each thread repeatedly picks a random edition; nine times in ten it asks whether a random
+ * copy of it is available, and otherwise it checks its own copy of the edition out and back
+ * in.  Scaling is bounded by the number of cores of the machine.
+ *
+ * Usage: java -Xmx4g library.ThroughputBenchmark [threads...]   (default 1 2 4 8 16 32 64)
+ */
+public class ThroughputBenchmark {
+
+    private static final int BOOKS = 10_000;
+    private static final long MILLIS = 2_000;
+
+    public static void main(String[] args) {
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+        for (int threads : Bench.sizes(args, 1, 2, 4, 8, 16, 32, 64)) {
+            run("SynchronizedLibrary", new SynchronizedLibrary(new BigLibrary()), threads);
+            run("ConcurrentBigLibrary", new ConcurrentBigLibrary(), threads);
+        }
+    }
+
+    private static void run(String name, final Library library, int threads) {
+        final List<Book> catalog = Bench.catalog(BOOKS, 0);
+        // copies.get(t).get(b) is thread t's copy of edition b
+        final List<List<BookCopy>> copies = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<BookCopy> mine = new ArrayList<>();
+            for (Book book : catalog) {
+                mine.add(library.buy(book));
+            }
+            copies.add(mine);
+        }
+        Bench.throughput(name + " " + threads + " threads", threads, MILLIS, thread -> {
+            Random random = new Random(thread);
+            List<BookCopy> mine = copies.get(thread);
+            return () -> {
+                int book = random.nextInt(BOOKS);
+                if (random.nextInt(10) == 0) {
+                    library.checkout(mine.get(book));
+                    library.checkin(mine.get(book));
+                } else {
+                    Bench.blackhole = library.isAvailable(copies.get(random.nextInt(copies.size())).get(book));
+                }
+            };
+        });
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
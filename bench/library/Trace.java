@@ -0,0 +1,164 @@
+package library;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Trace is a timed sequence of library operations, synthesized by TraceGenerator or
+ * recorded from real traffic, that TraceReplay replays against a Library.
+ *
+ * A trace file has one event per line, with tab-separated fields:
+ *
+ *     micros  buy          copy  title  authors  year
+ *     micros  checkout     copy
+ *     micros  checkin      copy
+ *     micros  lose         copy
+ *     micros  isAvailable  copy
+ *     micros  find         query
+ *
+ * where micros is the time of the event in microseconds from the start of the trace, copy
+ * is any string that names a copy, introduced by the buy event that creates it, and authors
+ * are separated by semicolons.  Events with a negative time set up the library before the
+ * trace starts, e.g. its initial stock, and are replayed as fast as possible without being
+ * measured.  Events are in order of time, and lines starting with # are comments.
+ */
+public class Trace {
+
+    /**
+     * One operation of a trace.
+     */
+    public static class Event {
+        public final long micros;
+        public final String op;
+        // the copy operated on, or null for find
+        public final String copy;
+        // the book bought, or null for every other operation
+        public final Book book;
+        // the search string of find, or null for every other operation
+        public final String query;
+
+        private Event(long micros, String op, String copy, Book book, String query) {
+            this.micros = micros;
+            this.op = op;
+            this.copy = copy;
+            this.book = book;
+            this.query = query;
+        }
+
+        public static Event buy(long micros, String copy, Book book) {
+            return new Event(micros, "buy", copy, book, null);
+        }
+
+        /**
+         * @param op checkout, checkin, lose or isAvailable
+         */
+        public static Event ofCopy(long micros, String op, String copy) {
+            return new Event(micros, op, copy, null, null);
+        }
+
+        public static Event find(long micros, String query) {
+            return new Event(micros, "find", null, null, query);
+        }
+
+        @Override
+        public String toString() {
+            if (book != null) {
+                return micros + "\t" + op + "\t" + copy + "\t" + book.getTitle() + "\t"
+                        + String.join(";", book.getAuthors()) + "\t" + book.getYear();
+            }
+            return micros + "\t" + op + "\t" + (copy != null ? copy : query);
+        }
+    }
+
+    private final List<Event> events;
+
+    /**
+     * @param events the events of the trace, in order of time
+     */
+    public Trace(List<Event> events) {
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+    }
+
+    /**
+     * @return the events of this trace, in order of time
+     */
+    public List<Event> events() {
+        return events;
+    }
+
+    /**
+     * @return time of the last event, in microseconds from the start of the trace, or 0 if
+     *         the trace has no timed events
+     */
+    public long duration() {
+        return events.isEmpty() ? 0 : Math.max(0, events.get(events.size() - 1).micros);
+    }
+
+    /**
+     * Write this trace to a file in the format above.
+     */
+    public void write(Path file) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Event event : events) {
+                out.write(event.toString());
+                out.newLine();
+            }
+        }
+    }
+
+    /**
+     * Read a trace file in the format above.
+     * @throws IOException if the file cannot be read or has a malformed line
+     */
+    public static Trace read(Path file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int number = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                number++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                try {
+                    long micros = Long.parseLong(fields[0]);
+                    switch (fields[1]) {
+                    case "buy":
+                        events.add(Event.buy(micros, fields[2], new Book(fields[3],
+                                Arrays.asList(fields[4].split(";")), Integer.parseInt(fields[5]))));
+                        break;
+                    case "checkout":
+                    case "checkin":
+                    case "lose":
+                    case "isAvailable":
+                        events.add(Event.ofCopy(micros, fields[1], fields[2]));
+                        break;
+                    case "find":
+                        events.add(Event.find(micros, fields[2]));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown operation " + fields[1]);
+                    }
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException(file + ":" + number + ": malformed event: " + line, e);
+                }
+            }
+        }
+        return new Trace(events);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,239 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * TraceGenerator synthesizes the circulation traffic of a library, for capacity planning.
+ *
+ * The catalog has a Zipfian popularity: the edition of rank r is asked for in proportion to
+ * 1 / r, whether it is checked out, searched for, or bought again.  The library starts with
+ * one copy of most of the catalog, plus extra copies of the popular editions; the rest of
+ * the catalog is new releases, bought later.  Over each simulated day:
+ *   - traffic follows a diurnal cycle, from almost nothing at midnight to its peak at noon;
+ *   - returns dominate the morning and checkouts the afternoon;
+ *   - at 9:00 an acquisition arrives: a burst of buys of new releases and of more copies of
+ *     popular editions, much faster than the rest of the traffic;
+ *   - a trickle of copies is lost.
+ * A patron who wants an edition with no copy available searches for it instead.
+ *
+ * The generator simulates the library as it goes, so the trace only checks out available
+ * copies, only checks in checked out ones, and only refers to copies it has bought.
+ */
+public class TraceGenerator {
+
+    // share of the catalog held at the start; the rest is new releases
+    private static final double STOCKED = 0.9;
+    // diurnal swing of the rate around its mean, as a fraction of the mean
+    private static final double AMPLITUDE = 0.9;
+    // share of events that are searches, availability checks, and losses
+    private static final double FINDS = 0.2;
+    private static final double CHECKS = 0.1;
+    private static final double LOSSES = 0.001;
+    // time between two buys of an acquisition burst
+    private static final long BURST_SPACING_MICROS = 100;
+
+    private final int books;
+    private final double rate;
+    private final long dayMicros;
+    private final int burst;
+    private final long seed;
+
+    /**
+     * @param books number of editions in the catalog; must be positive
+     * @param rate mean events per second, outside acquisition bursts; must be positive
+     * @param daySeconds length of a simulated day, in seconds of trace time; must be positive
+     * @param burst number of copies bought by each daily acquisition
+     * @param seed seed for the random generator, so traces are repeatable
+     */
+    public TraceGenerator(int books, double rate, double daySeconds, int burst, long seed) {
+        if (books <= 0 || rate <= 0 || daySeconds <= 0 || burst < 0) {
+            throw new IllegalArgumentException("books, rate and day length must be positive, and burst nonnegative");
+        }
+        this.books = books;
+        this.rate = rate;
+        this.dayMicros = (long) (daySeconds * 1e6);
+        this.burst = burst;
+        this.seed = seed;
+    }
+
+    /**
+     * Sampler of ranks 0 to n - 1, rank r with probability proportional to 1 / (r + 1).
+     */
+    private static class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int r = 0; r < n; r++) {
+                sum += 1.0 / (r + 1);
+                cumulative[r] = sum;
+            }
+        }
+
+        int next(Random random) {
+            double u = random.nextDouble() * cumulative[cumulative.length - 1];
+            int r = Arrays.binarySearch(cumulative, u);
+            return Math.min(r >= 0 ? r : -r - 1, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * The copies of the simulated library, by state.
+     */
+    private static class Shelves {
+        // available.get(b) is the available copies of edition b
+        final List<List<String>> available = new ArrayList<>();
+        final List<String> checkedOut = new ArrayList<>();
+        final Map<String, Integer> editions = new HashMap<>();
+        final List<String> all = new ArrayList<>();
+        // number of copies ever bought
+        int bought = 0;
+
+        Shelves(int books) {
+            for (int b = 0; b < books; b++) {
+                available.add(new ArrayList<String>());
+            }
+        }
+
+        String add(int book) {
+            String copy = "c" + bought++;
+            available.get(book).add(copy);
+            editions.put(copy, book);
+            all.add(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Generate a trace.
+     * @param seconds length of the trace, in seconds, not counting its setup
+     * @return the trace, whose setup buys the initial stock
+     */
+    public Trace generate(double seconds) {
+        Random random = new Random(seed);
+        List<Book> catalog = Bench.catalog(books, seed);
+        // popularity.get(r) is the edition of rank r; new releases are ranked like the rest
+        List<Integer> popularity = new ArrayList<>();
+        for (int b = 0; b < books; b++) {
+            popularity.add(b);
+        }
+        Collections.shuffle(popularity, random);
+        Zipf zipf = new Zipf(books);
+        Shelves shelves = new Shelves(books);
+        List<Trace.Event> events = new ArrayList<>();
+
+        int stocked = Math.max(1, (int) (books * STOCKED));
+        for (int b = 0; b < stocked; b++) {
+            events.add(Trace.Event.buy(-1, shelves.add(b), catalog.get(b)));
+        }
+        for (int i = 0; i < stocked; i++) {
+            int b = popularity.get(zipf.next(random));
+            if (b < stocked) {
+                events.add(Trace.Event.buy(-1, shelves.add(b), catalog.get(b)));
+            }
+        }
+
+        long end = (long) (seconds * 1e6);
+        double peak = rate * (1 + AMPLITUDE);
+        long nextRelease = stocked;
+        long nextAcquisition = dayMicros * 3 / 8;
+        double t = 0;
+        while (true) {
+            // thinning: candidate events at the peak rate, each kept with probability
+            // rate(t) / peak
+            t += -Math.log(1 - random.nextDouble()) / peak * 1e6;
+            if (t >= end) {
+                break;
+            }
+            if (t >= nextAcquisition) {
+                for (int i = 0; i < burst; i++) {
+                    int b = nextRelease < books && i % 2 == 0 ? (int) nextRelease++ : popularity.get(zipf.next(random));
+                    events.add(Trace.Event.buy(nextAcquisition + i * BURST_SPACING_MICROS, shelves.add(b),
+                            catalog.get(b)));
+                }
+                t = Math.max(t, nextAcquisition + burst * BURST_SPACING_MICROS);
+                nextAcquisition += dayMicros;
+                continue;
+            }
+            double phase = 2 * Math.PI * (t % dayMicros) / dayMicros;
+            if (random.nextDouble() * peak > rate * (1 - AMPLITUDE * Math.cos(phase))) {
+                continue;
+            }
+            long micros = (long) t;
+            double u = random.nextDouble();
+            if (u < LOSSES) {
+                lose(micros, shelves, random, events);
+            } else if (u < LOSSES + FINDS) {
+                Book book = catalog.get(popularity.get(zipf.next(random)));
+                events.add(Trace.Event.find(micros, random.nextInt(3) == 0 ? book.getAuthor(0) : book.getTitle()));
+            } else if (u < LOSSES + FINDS + CHECKS) {
+                if (!shelves.all.isEmpty()) {
+                    events.add(Trace.Event.ofCopy(micros, "isAvailable",
+                            shelves.all.get(random.nextInt(shelves.all.size()))));
+                }
+            } else if (random.nextDouble() < 0.5 + 0.3 * Math.sin(phase)) {
+                // returns dominate the morning, when sin(phase) > 0
+                checkin(micros, shelves, random, events, catalog, popularity, zipf);
+            } else {
+                checkout(micros, shelves, random, events, catalog, popularity, zipf);
+            }
+        }
+        return new Trace(events);
+    }
+
+    private static void checkout(long micros, Shelves shelves, Random random, List<Trace.Event> events,
+            List<Book> catalog, List<Integer> popularity, Zipf zipf) {
+        int b = popularity.get(zipf.next(random));
+        List<String> available = shelves.available.get(b);
+        if (available.isEmpty()) {
+            events.add(Trace.Event.find(micros, catalog.get(b).getTitle()));
+            return;
+        }
+        String copy = available.remove(available.size() - 1);
+        shelves.checkedOut.add(copy);
+        events.add(Trace.Event.ofCopy(micros, "checkout", copy));
+    }
+
+    private static void checkin(long micros, Shelves shelves, Random random, List<Trace.Event> events,
+            List<Book> catalog, List<Integer> popularity, Zipf zipf) {
+        if (shelves.checkedOut.isEmpty()) {
+            checkout(micros, shelves, random, events, catalog, popularity, zipf);
+            return;
+        }
+        List<String> out = shelves.checkedOut;
+        int i = random.nextInt(out.size());
+        String copy = out.get(i);
+        out.set(i, out.get(out.size() - 1));
+        out.remove(out.size() - 1);
+        shelves.available.get(shelves.editions.get(copy)).add(copy);
+        events.add(Trace.Event.ofCopy(micros, "checkin", copy));
+    }
+
+    private static void lose(long micros, Shelves shelves, Random random, List<Trace.Event> events) {
+        if (shelves.all.isEmpty()) {
+            return;
+        }
+        int i = random.nextInt(shelves.all.size());
+        String copy = shelves.all.get(i);
+        shelves.all.set(i, shelves.all.get(shelves.all.size() - 1));
+        shelves.all.remove(shelves.all.size() - 1);
+        if (!shelves.available.get(shelves.editions.get(copy)).remove(copy)) {
+            shelves.checkedOut.remove(copy);
+        }
+        events.add(Trace.Event.ofCopy(micros, "lose", copy));
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,249 @@
+package library;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a Trace against a Library, open loop: each event is issued at its time in the
+ * trace, scaled by a speed factor, whether or not the library has kept up with the events
+ * before it.  Reports the throughput achieved against the rate the trace asks for, and
+ * latency percentiles measured two ways:
+ *   - from the time the event was due to start, which counts the time it spent waiting
+ *     behind slow events before it.  This corrects for coordinated omission: a load
+ *     generator that waits for each response before sending the next request, and times
+ *     only the request, leaves out exactly the waits that patrons would see when the
+ *     library stalls;
+ *   - from the time the event actually started, i.e. service time alone, for comparison.
+ *
+ * With several threads, events are divided among them by copy, so the events of one copy
+ * keep their order, and searches are spread evenly.  The library must then be threadsafe;
+ * it is wrapped in a SynchronizedLibrary unless it is a ConcurrentBigLibrary.  Events that
+ * the library rejects, e.g. a recorded checkout of a copy the trace never bought, are
+ * counted as errors and still timed.
+ *
+ * Usage: java -Xmx4g library.TraceReplay generate FILE [books [seconds [rate]]]
+ *        java -Xmx4g library.TraceReplay replay FILE LIBRARY [speed [threads]]
+ *        java -Xmx4g library.TraceReplay
+ *   generate writes a synthetic trace (default 100000 books, 60 s, 2000 events/s, one
+ *   simulated day); replay replays a trace file against a new library of the named class;
+ *   with no arguments, a synthetic trace is generated in memory and replayed against a
+ *   BigLibrary at its own speed, then at ten times its speed, beyond what one thread of this
+ *   library can keep up with.
+ */
+public class TraceReplay {
+
+    private static final int BOOKS = 100_000;
+    private static final double SECONDS = 60;
+    private static final double RATE = 2_000;
+    // copies bought by each daily acquisition, per thousand books
+    private static final int BURST_PER_THOUSAND = 20;
+    // time to let the threads start before the first event is due
+    private static final long START_NANOS = 10_000_000;
+
+    private static final String[] OPS = { "buy", "checkout", "checkin", "lose", "isAvailable", "find" };
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            Trace trace = generate(BOOKS, SECONDS, RATE);
+            replay(trace, "BigLibrary", 1, 1);
+            replay(trace, "BigLibrary", 10, 1);
+        } else if (args[0].equals("generate") && args.length >= 2) {
+            int books = args.length > 2 ? Integer.parseInt(args[2]) : BOOKS;
+            double seconds = args.length > 3 ? Double.parseDouble(args[3]) : SECONDS;
+            double rate = args.length > 4 ? Double.parseDouble(args[4]) : RATE;
+            generate(books, seconds, rate).write(Paths.get(args[1]));
+        } else if (args[0].equals("replay") && args.length >= 3) {
+            replay(Trace.read(Paths.get(args[1])), args[2],
+                    args.length > 3 ? Double.parseDouble(args[3]) : 1,
+                    args.length > 4 ? Integer.parseInt(args[4]) : 1);
+        } else {
+            System.err.println("usage: TraceReplay generate FILE [books [seconds [rate]]]");
+            System.err.println("       TraceReplay replay FILE LIBRARY [speed [threads]]");
+            System.exit(2);
+        }
+    }
+
+    private static Trace generate(int books, double seconds, double rate) {
+        long start = System.nanoTime();
+        Trace trace = new TraceGenerator(books, rate, seconds, books / 1000 * BURST_PER_THOUSAND, 0).generate(seconds);
+        System.out.printf("generated %d events over %.0f s in %.1f s%n", trace.events().size(),
+                trace.duration() / 1e6, (System.nanoTime() - start) / 1e9);
+        return trace;
+    }
+
+    private static void replay(Trace trace, String name, double speed, int threads) {
+        Library library = LibraryBenchmark.newLibrary(name);
+        if (threads > 1 && !(library instanceof ConcurrentBigLibrary)) {
+            library = new SynchronizedLibrary(library);
+            name = "SynchronizedLibrary(" + name + ")";
+        }
+        System.out.printf("%nreplaying against %s at %.1fx speed on %d threads%n", name, speed, threads);
+        new TraceReplay(library, threads).run(trace, speed);
+    }
+
+    private final Library library;
+    private final int threads;
+    private final Map<String, BookCopy> copies = new ConcurrentHashMap<>();
+    // latencies from the time each event was due, in total and by operation
+    private final Histogram corrected = new Histogram();
+    private final Map<String, Histogram> correctedByOp = new LinkedHashMap<>();
+    // latencies from the time each event started
+    private final Histogram service = new Histogram();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param library library to replay traces against; threadsafe if threads > 1
+     * @param threads number of threads issuing events
+     */
+    public TraceReplay(Library library, int threads) {
+        this.library = library;
+        this.threads = threads;
+        for (String op : OPS) {
+            correctedByOp.put(op, new Histogram());
+        }
+    }
+
+    /**
+     * Replay a trace, after its setup, and print what was achieved.
+     * @param speed factor by which to speed up the trace; 1 replays it in real time
+     */
+    public void run(Trace trace, double speed) {
+        List<List<Trace.Event>> work = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            work.add(new ArrayList<Trace.Event>());
+        }
+        int setup = 0;
+        int index = 0;
+        for (Trace.Event event : trace.events()) {
+            if (event.micros < 0) {
+                try {
+                    apply(event);
+                } catch (IllegalArgumentException e) {
+                    errors.increment();
+                }
+                setup++;
+                continue;
+            }
+            int thread = event.copy != null ? event.copy.hashCode() : index++;
+            work.get(Math.floorMod(thread, threads)).add(event);
+        }
+        System.out.printf("%d setup events applied, %d copies%n", setup, copies.size());
+
+        final long start = System.nanoTime() + START_NANOS;
+        final long[] finished = new long[threads];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final List<Trace.Event> events = work.get(t);
+            final int number = t;
+            Thread worker = new Thread(() -> {
+                for (Trace.Event event : events) {
+                    long due = start + (long) (event.micros * 1000 / speed);
+                    waitUntil(due);
+                    long began = System.nanoTime();
+                    try {
+                        apply(event);
+                    } catch (IllegalArgumentException e) {
+                        errors.increment();
+                    }
+                    long done = System.nanoTime();
+                    corrected.record(done - due);
+                    correctedByOp.get(event.op).record(done - due);
+                    service.record(done - began);
+                    finished[number] = done;
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        long end = start;
+        for (long done : finished) {
+            end = Math.max(end, done);
+        }
+
+        long events = corrected.getCount();
+        double targetSeconds = trace.duration() / 1e6 / speed;
+        double seconds = (end - start) / 1e9;
+        System.out.printf("%-30s %12.0f events/s%n", "target", events / targetSeconds);
+        System.out.printf("%-30s %12.0f events/s   (%d events in %.1f s, %d errors)%n", "achieved",
+                events / seconds, events, seconds, errors.sum());
+        System.out.printf("%-30s %10s %10s %10s %10s %10s%n", "latency (us)", "p50", "p90", "p99", "p99.9", "max");
+        print("from due time (corrected)", corrected);
+        print("service time (uncorrected)", service);
+        for (Map.Entry<String, Histogram> entry : correctedByOp.entrySet()) {
+            if (entry.getValue().getCount() > 0) {
+                print("  " + entry.getKey() + " x" + entry.getValue().getCount(), entry.getValue());
+            }
+        }
+    }
+
+    private static void print(String label, Histogram histogram) {
+        System.out.printf("%-30s %10.1f %10.1f %10.1f %10.1f %10.1f%n", label,
+                histogram.getValueAtPercentile(50) / 1e3, histogram.getValueAtPercentile(90) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3, histogram.getValueAtPercentile(99.9) / 1e3,
+                histogram.getMax() / 1e3);
+    }
+
+    // sleep until shortly before a time, then spin, since sleeps overshoot
+    private static void waitUntil(long due) {
+        long remaining;
+        while ((remaining = due - System.nanoTime()) > 0) {
+            if (remaining > 200_000) {
+                LockSupport.parkNanos(remaining - 100_000);
+            }
+        }
+    }
+
+    private void apply(Trace.Event event) {
+        switch (event.op) {
+        case "buy":
+            copies.put(event.copy, library.buy(event.book));
+            break;
+        case "checkout":
+            library.checkout(copy(event));
+            break;
+        case "checkin":
+            library.checkin(copy(event));
+            break;
+        case "lose":
+            library.lose(copy(event));
+            break;
+        case "isAvailable":
+            Bench.blackhole = library.isAvailable(copy(event));
+            break;
+        case "find":
+            Bench.blackhole = library.find(event.query);
+            break;
+        default:
+            throw new IllegalArgumentException("unknown operation " + event.op);
+        }
+    }
+
+    private BookCopy copy(Trace.Event event) {
+        BookCopy copy = copies.get(event.copy);
+        if (copy == null) {
+            throw new IllegalArgumentException("copy " + event.copy + " was never bought");
+        }
+        return copy;
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,94 @@
+package library;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures Library.snapshot() on a BigLibrary and a ConcurrentBigLibrary: the first snapshot, which records every
+ * book, the snapshots after it, which only record the books changed since the previous
+ * one, and copying the whole library instead, which is what a report that must not see the
+ * library change would otherwise do while holding its lock.  Also measures what tracking
+ * changes adds to a checkout and checkin.
+ *
+ * Usage: java -Xmx4g library.ViewBenchmark [books...]   (default 200000)
+ */
+public class ViewBenchmark {
+
+    // changes made between two snapshots
+    private static final int CHANGES = 1000;
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) {
+        for (int books : Bench.sizes(args, 200_000)) {
+            List<Book> catalog = Bench.catalog(books, 0);
+            Map<Book, Integer> shipment = new LinkedHashMap<>();
+            for (int i = 0; i < catalog.size(); i++) {
+                shipment.put(catalog.get(i), 1 + i % 4);
+            }
+            run("BigLibrary", new BigLibrary(false), catalog, shipment);
+            run("ConcurrentBigLibrary", new ConcurrentBigLibrary(), catalog, shipment);
+        }
+    }
+
+    /**
+     * Run every measurement on library, after buying shipment.
+     */
+    private static void run(String name, Library library, List<Book> catalog, Map<Book, Integer> shipment) {
+        final List<BookCopy> copies = library.buyAll(shipment);
+        System.out.printf("%s: %d books, %d copies%n", name, catalog.size(), copies.size());
+        final Random random = new Random(0);
+        Runnable circulate = () -> {
+            BookCopy copy = copies.get(random.nextInt(copies.size()));
+            library.checkout(copy);
+            library.checkin(copy);
+        };
+        Bench.time("checkout+checkin, no snapshot taken", 1_000_000, 1_000_000, circulate);
+
+        long start = System.nanoTime();
+        Bench.blackhole = library.snapshot();
+        System.out.printf("%-50s %14.1f ms%n", "first snapshot", (System.nanoTime() - start) / 1e6);
+        Bench.time("checkout+checkin, tracking changes", 1_000_000, 1_000_000, circulate);
+
+        long[] latencies = new long[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < CHANGES; i++) {
+                circulate.run();
+            }
+            start = System.nanoTime();
+            Bench.blackhole = library.snapshot();
+            latencies[round] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-50s p50 %10d ns   p99 %10d ns%n", "snapshot after " + CHANGES + " changes",
+                latencies[ROUNDS / 2], latencies[ROUNDS * 99 / 100]);
+
+        Bench.time("copy of the whole library", 2, 5, () -> {
+            Map<Book, List<Set<BookCopy>>> copy = new HashMap<>();
+            for (Book book : catalog) {
+                copy.put(book, Arrays.asList(library.allCopies(book), library.availableCopies(book)));
+            }
+            Bench.blackhole = copy;
+        });
+
+        LibraryView view = library.snapshot();
+        Bench.time("iterate every copy of a snapshot", 2, 5, () -> {
+            long count = 0;
+            for (Book book : view.books()) {
+                count += view.allCopies(book).size();
+            }
+            Bench.blackhole = count;
+        });
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
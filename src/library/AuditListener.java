@@ -0,0 +1,24 @@
+package library;
+
+import java.util.List;
+
+/**
+ * AuditListener is notified by an Auditor when an audit finds rep invariant violations.
+ */
+public interface AuditListener {
+
+    /**
+     * Called after an audit of target that found violations.  May be called from the
+     * auditor's background thread.
+     * @param target object that was audited
+     * @param violations nonempty list of descriptions of the violations found
+     */
+    public void violationsFound(Auditable target, List<String> violations);
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
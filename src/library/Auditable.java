@@ -0,0 +1,29 @@
+package library;
+
+import java.util.List;
+
+/**
+ * Auditable is a mutable object that can check its whole rep invariant on demand.
+ *
+ * Mutators of an Auditable check, with assertions, only the part of the invariant that the
+ * mutation touched, so that each mutation stays fast with assertions enabled; audit() is the
+ * full check, for tests and for periodic use by an Auditor.
+ */
+public interface Auditable {
+
+    /**
+     * Check the whole rep invariant.  Takes time linear in the size of this object.
+     * Not safe to call while another thread mutates this object, unless the implementation
+     * says otherwise.
+     * @return a description of each violation of the rep invariant found, in no particular
+     *         order; empty if the invariant holds
+     */
+    public List<String> audit();
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
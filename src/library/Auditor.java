@@ -0,0 +1,154 @@
+package library;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Auditor periodically audits an Auditable on a background thread and reports violations
+ * to a listener.
+ *
+ * An audit runs concurrently with the target's other operations, so the target's audit()
+ * must be safe to call while other threads use it.  SynchronizedLibrary audits the library
+ * it wraps under the lock of its operations, and ConcurrentBigLibrary audits while holding
+ * all its stripes; to audit a BigLibrary or SmallLibrary in use, wrap it in a
+ * SynchronizedLibrary and audit the wrapper.  A library used by one thread can also be
+ * audited directly with auditNow() on that thread.
+ */
+public class Auditor {
+
+    private final Auditable target;
+    private final AuditListener listener;
+    private ScheduledExecutorService scheduler;
+
+    // rep invariant:
+    //    target and listener are non-null
+    //    scheduler is null if and only if periodic audits are stopped
+    //
+    // abstraction function:
+    //    represents an auditor of target reporting to listener, which is running if and
+    //      only if scheduler is non-null
+    //
+    // safety from rep exposure:
+    //    all fields are private; target and listener are shared with the client by design,
+    //      and scheduler is never returned.
+    //
+    // thread safety argument:
+    //    scheduler is only read and written inside synchronized methods of this auditor;
+    //    target and listener are final and never reassigned.
+
+    /**
+     * Make an auditor that is not yet running.
+     * @param target object to audit
+     * @param listener listener to notify of violations
+     */
+    public Auditor(Auditable target, AuditListener listener) {
+        if (target == null || listener == null) {
+            throw new IllegalArgumentException("target and listener cannot be null");
+        }
+        this.target = target;
+        this.listener = listener;
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert target != null && listener != null;
+    }
+
+    /**
+     * Audit the target once, on the calling thread, notifying the listener if it finds
+     * violations.
+     * @return the violations found, empty if none
+     */
+    public List<String> auditNow() {
+        List<String> violations = target.audit();
+        if (!violations.isEmpty()) {
+            listener.violationsFound(target, violations);
+        }
+        return violations;
+    }
+
+    /**
+     * Start auditing the target periodically on a daemon thread.  The first audit runs
+     * after one period.  If an audit throws an exception, the listener is notified of a
+     * single violation describing it; if the listener throws, the exception is ignored.
+     * Either way, periodic audits continue until stop() is called.
+     * @param period time between the start of successive audits; must be positive
+     * @param unit unit of period
+     * @throws IllegalStateException if this auditor is already running
+     */
+    public synchronized void start(long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("auditor already running");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "library-auditor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                auditPeriodically();
+            }
+        }, period, period, unit);
+        checkRep();
+    }
+
+    /**
+     * Audit the target once for the periodic schedule, reporting any exception as a
+     * violation, since an exception escaping the scheduled task would cancel it silently.
+     */
+    private void auditPeriodically() {
+        List<String> violations;
+        try {
+            violations = target.audit();
+        } catch (RuntimeException | AssertionError e) {
+            violations = Collections.singletonList("audit failed: " + e);
+        }
+        if (violations.isEmpty()) {
+            return;
+        }
+        try {
+            listener.violationsFound(target, violations);
+        } catch (RuntimeException e) {
+            // the listener's failure is its own; keep auditing
+        }
+    }
+
+    /**
+     * Stop auditing periodically.  An audit in progress is allowed to finish.
+     * Has no effect if this auditor is not running.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        checkRep();
+    }
+
+    /**
+     * @return true if and only if this auditor is auditing periodically
+     */
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
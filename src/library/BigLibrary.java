@@ -1,10 +1,15 @@
 package library;
 
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -15,61 +20,341 @@ import java.util.Set;
  * In particular, every operation needs to run faster than linear time (as a function of the number of books
  * in the library).
  */
-public class BigLibrary implements Library {
-
-    // TODO: rep
-    
-    // TODO: rep invariant
-    // TODO: abstraction function
-    // TODO: safety from rep exposure argument
-    
- // rep
-    private Set<BookCopy> inLibrary;
-    private Set<BookCopy> checkedOut;
+public class BigLibrary implements Library, Auditable {
+
+    // rep
+    private final Map<Book, Set<BookCopy>> inLibrary;
+    private final Map<Book, Set<BookCopy>> checkedOut;
+    private SearchIndex index;
+    private PersistentMap<Book, LibraryView.Shelf> published;
+    private Set<Book> changed;
 
     // rep invariant:
-    //    the intersection of inLibrary and checkedOut is the empty set
+    //    every copy in inLibrary.get(b) or checkedOut.get(b) is a copy of b
+    //    for every book b, inLibrary.get(b) and checkedOut.get(b) are disjoint
+    //    no value of inLibrary or checkedOut is an empty set
+    //    index is null, or contains exactly the books that are keys of inLibrary or
+    //      checkedOut
+    //    all copies of the same book share one Book instance
+    //    published is null and changed is empty, or published maps every book that is not
+    //      in changed, and has copies, to a shelf of exactly its available and checked out
+    //      copies, and has no other keys outside changed
     //
     // abstraction function:
-    //    represents the collection of books inLibrary union checkedOut,
-    //      where if a book copy is in inLibrary then it is available,
-    //      and if a copy is in checkedOut then it is checked out
-
-    // TODO: safety from rep exposure argument
+    //    represents the collection of book copies in the union of all the values of
+    //      inLibrary and checkedOut, where if a copy is in inLibrary.get(b) then it is
+    //      an available copy of b, and if it is in checkedOut.get(b) then it is a
+    //      checked out copy of b; index == null means the index has not been built yet.
+    //      published is the state of the library as of the last snapshot, brought up to date
+    //      for every book except those in changed, or null if no snapshot has been taken
+    //
+    // safety from rep exposure:
+    //    all fields are private, and all but index, published and changed are final.
+    //    allCopies() and availableCopies() return fresh sets, never the sets stored in
+    //      inLibrary or checkedOut.  allCopiesView() and availableCopiesView() return
+    //      unmodifiable views that look up those sets on every call, and only read them.
+    //    BookCopy is mutable, but its only mutable state is its condition, which is not
+    //      part of this rep.
+    //    find() returns the fresh list built by index.
+    //    snapshot() returns a view of published, which is immutable.
 
     public BigLibrary() {
-        inLibrary = new HashSet<>();
-        checkedOut = new HashSet<>();
+        this(true);
+    }
+
+    /**
+     * Make an empty library.
+     * @param indexed if false, the search index is not maintained until buildIndex() or the
+     *                first call of find(), fuzzyFind() or suggest(), which then builds it
+     *                from all the books in the library at once.  Loading a large library
+     *                this way is much faster, but the build is slow, and it mutates the
+     *                library; call buildIndex() before sharing the library, so that no
+     *                search pays for it.
+     */
+    BigLibrary(boolean indexed) {
+        inLibrary = new HashMap<>();
+        checkedOut = new HashMap<>();
+        index = indexed ? new SearchIndex() : null;
+        published = null;
+        changed = new HashSet<>();
         checkRep();
     }
 
     // assert the rep invariant
     private void checkRep() {
+        assert audit().isEmpty() : audit();
+    }
+
+    // assert the parts of the rep invariant that involve copy, which a mutation of copy
+    // could have broken, in time independent of the size of the library
+    private void checkRep(BookCopy copy) {
+        Book book = copy.getBook();
+        Set<BookCopy> available = inLibrary.get(book);
+        Set<BookCopy> out = checkedOut.get(book);
+        assert available == null || !available.isEmpty();
+        assert out == null || !out.isEmpty();
         // same BookCopy cannot be both in inLibrary and checkedOut
-        for (BookCopy copy : checkedOut) {
-            assert !inLibrary.contains(copy);
+        assert available == null || out == null || !(available.contains(copy) && out.contains(copy));
+        assert index == null || index.contains(book) == (available != null || out != null);
+        // a copy no longer in the library, such as one lost twice, may be of an equal Book
+        // instance other than the one its book was bought with again
+        boolean held = available != null && available.contains(copy) || out != null && out.contains(copy);
+        assert !held || canonical(book) == book;
+    }
+
+    @Override
+    public List<String> audit() {
+        List<String> violations = new ArrayList<>();
+        for (Map<Book, Set<BookCopy>> copies : Arrays.asList(inLibrary, checkedOut)) {
+            for (Map.Entry<Book, Set<BookCopy>> entry : copies.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    violations.add("empty set of copies for " + entry.getKey());
+                }
+                Book shared = canonical(entry.getKey());
+                for (BookCopy copy : entry.getValue()) {
+                    if (!copy.getBook().equals(entry.getKey())) {
+                        violations.add(copy + " stored under " + entry.getKey());
+                    } else if (copy.getBook() != shared) {
+                        violations.add("copies do not share one Book instance: " + copy);
+                    }
+                }
+                if (index != null && !index.contains(entry.getKey())) {
+                    violations.add("not in search index: " + entry.getKey());
+                }
+            }
+        }
+        for (Map.Entry<Book, Set<BookCopy>> entry : checkedOut.entrySet()) {
+            Set<BookCopy> available = inLibrary.get(entry.getKey());
+            for (BookCopy copy : entry.getValue()) {
+                if (available != null && available.contains(copy)) {
+                    violations.add("both available and checked out: " + copy);
+                }
+            }
+        }
+        Set<Book> books = new HashSet<>(inLibrary.keySet());
+        books.addAll(checkedOut.keySet());
+        if (index != null && index.size() != books.size()) {
+            violations.add("search index has " + index.size() + " books, library has " + books.size());
+        }
+        if (published == null && !changed.isEmpty()) {
+            violations.add("changes tracked before the first snapshot: " + changed);
+        }
+        if (published != null) {
+            for (Book book : books) {
+                if (!changed.contains(book) && !published.containsKey(book)) {
+                    violations.add("missing from the last snapshot: " + book);
+                }
+            }
+            for (Book book : published) {
+                if (!changed.contains(book) && !books.contains(book)) {
+                    violations.add("no longer in library, but still in the last snapshot: " + book);
+                }
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Add a copy to the bucket of its book in index, creating the bucket if needed.
+     */
+    private static void addTo(Map<Book, Set<BookCopy>> index, BookCopy copy) {
+        Set<BookCopy> copies = index.get(copy.getBook());
+        if (copies == null) {
+            copies = new HashSet<>();
+            index.put(copy.getBook(), copies);
+        }
+        copies.add(copy);
+    }
+
+    /**
+     * Remove a copy from the bucket of its book in index, dropping the bucket if it becomes empty.
+     * @return true if and only if index contained copy
+     */
+    private static boolean removeFrom(Map<Book, Set<BookCopy>> index, BookCopy copy) {
+        Set<BookCopy> copies = index.get(copy.getBook());
+        if (copies == null || !copies.remove(copy)) {
+            return false;
+        }
+        if (copies.isEmpty()) {
+            index.remove(copy.getBook());
+        }
+        return true;
+    }
+
+    /**
+     * @return true if and only if index contains copy
+     */
+    private static boolean contains(Map<Book, Set<BookCopy>> index, BookCopy copy) {
+        Set<BookCopy> copies = index.get(copy.getBook());
+        return copies != null && copies.contains(copy);
+    }
+
+    /**
+     * @return the bucket of book in index, or an empty set if it has none
+     */
+    private static Set<BookCopy> copies(Map<Book, Set<BookCopy>> index, Book book) {
+        Set<BookCopy> copies = index.get(book);
+        return copies == null ? Collections.<BookCopy>emptySet() : copies;
+    }
+
+    /**
+     * Record that the copies of book changed, if a snapshot has been taken and so must be
+     * brought up to date by the next one.
+     */
+    private void changed(Book book) {
+        if (published != null) {
+            changed.add(book);
+        }
+    }
+
+    /**
+     * @return true if and only if this library has a copy of book, available or checked out
+     */
+    private boolean hasCopies(Book book) {
+        return inLibrary.containsKey(book) || checkedOut.containsKey(book);
+    }
+
+    /**
+     * @return the Book instance shared by the copies of book in this library, or null if
+     *         this library has no copy of book
+     */
+    private Book canonical(Book book) {
+        Set<BookCopy> copies = inLibrary.get(book);
+        if (copies == null) {
+            copies = checkedOut.get(book);
         }
+        return copies == null ? null : copies.iterator().next().getBook();
     }
 
+    /**
+     * Buy a new copy of a book and add it to the library's collection.  If the library
+     * already has copies of the book, the new copy shares their Book instance, so that
+     * the library keeps one copy of each edition's metadata.
+     * @param book Book to buy
+     * @return a new, good-condition copy of a book equal to book, which is now available
+     *         in this library
+     */
     @Override
     public BookCopy buy(Book book) {
         if (book == null) {
             throw new IllegalArgumentException("book cannot be null");
         }
-        BookCopy newCopy = new BookCopy(book);
-        inLibrary.add(newCopy);
-        checkRep();
+        Book canonical = canonical(book);
+        if (canonical == null) {
+            canonical = book;
+            if (index != null) {
+                index.add(book);
+            }
+        }
+        BookCopy newCopy = new BookCopy(canonical);
+        addTo(inLibrary, newCopy);
+        changed(canonical);
+        checkRep(newCopy);
         return newCopy;
     }
 
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count cannot be negative");
+        }
+        List<BookCopy> newCopies = new ArrayList<>(count);
+        if (count == 0) {
+            return newCopies;
+        }
+        Book canonical = canonical(book);
+        if (canonical == null) {
+            canonical = book;
+            if (index != null) {
+                index.add(book);
+            }
+        }
+        addCopies(canonical, count, newCopies);
+        checkRep(newCopies.get(0));
+        return newCopies;
+    }
+
+    /**
+     * Add new available copies of a book, sizing its bucket once for all of them instead of
+     * rehashing as it grows.
+     * @param canonical the Book instance shared by the copies of the book in this library
+     * @param count number of copies to add, positive
+     * @param newCopies list to which the new copies are appended
+     */
+    private void addCopies(Book canonical, int count, List<BookCopy> newCopies) {
+        Set<BookCopy> available = inLibrary.get(canonical);
+        int size = available == null ? count : available.size() + count;
+        if (available == null || count > available.size()) {
+            Set<BookCopy> resized = new HashSet<>(size * 4 / 3 + 1);
+            if (available != null) {
+                resized.addAll(available);
+            }
+            available = resized;
+            inLibrary.put(canonical, available);
+        }
+        for (int i = 0; i < count; i++) {
+            BookCopy newCopy = new BookCopy(canonical);
+            available.add(newCopy);
+            newCopies.add(newCopy);
+        }
+        changed(canonical);
+    }
+
+    /**
+     * Buy new copies of many books at once.  The books new to this library are added to the
+     * search index together at the end, rather than one at a time.
+     */
+    @Override
+    public List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        if (shipment == null) {
+            throw new IllegalArgumentException("shipment cannot be null");
+        }
+        int total = 0;
+        for (Map.Entry<Book, Integer> entry : shipment.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new IllegalArgumentException("book cannot be null");
+            }
+            if (entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException("count cannot be negative");
+            }
+            total += entry.getValue();
+        }
+        List<BookCopy> newCopies = new ArrayList<>(total);
+        List<Book> newBooks = new ArrayList<>();
+        // index in newCopies of the first new copy of each book
+        List<Integer> firsts = new ArrayList<>();
+        for (Map.Entry<Book, Integer> entry : shipment.entrySet()) {
+            if (entry.getValue() == 0) {
+                continue;
+            }
+            Book canonical = canonical(entry.getKey());
+            if (canonical == null) {
+                canonical = entry.getKey();
+                newBooks.add(canonical);
+            }
+            firsts.add(newCopies.size());
+            addCopies(canonical, entry.getValue(), newCopies);
+        }
+        if (index != null) {
+            index.addAll(newBooks);
+        }
+        for (int first : firsts) {
+            checkRep(newCopies.get(first));
+        }
+        return newCopies;
+    }
+
     @Override
     public void checkout(BookCopy copy) {
-        if (copy == null || !inLibrary.contains(copy)) {
+        if (copy == null || !removeFrom(inLibrary, copy)) {
             throw new IllegalArgumentException("book copy not in library");
         }
-        inLibrary.remove(copy);
-        checkedOut.add(copy);
-        checkRep();
+        addTo(checkedOut, copy);
+        changed(copy.getBook());
+        checkRep(copy);
     }
 
     @Override
@@ -77,12 +362,49 @@ public class BigLibrary implements Library {
         if (copy == null) {
             throw new IllegalArgumentException("book copy cannot be null");
         }
-        if (!checkedOut.contains(copy)) {
+        if (!removeFrom(checkedOut, copy)) {
             throw new IllegalArgumentException("book copy needs to be checked out");
         }
-        checkedOut.remove(copy);
-        inLibrary.add(copy);
-        checkRep();
+        addTo(inLibrary, copy);
+        changed(copy.getBook());
+        checkRep(copy);
+    }
+
+    /**
+     * Move each copy in copies from one bucket map to another, skipping those not in from.
+     * @return the copies, in order, that were not in from
+     */
+    private List<BookCopy> moveAll(Collection<BookCopy> copies,
+            Map<Book, Set<BookCopy>> from, Map<Book, Set<BookCopy>> to) {
+        if (copies == null) {
+            throw new IllegalArgumentException("copies cannot be null");
+        }
+        for (BookCopy copy : copies) {
+            if (copy == null) {
+                throw new IllegalArgumentException("copies cannot contain null");
+            }
+        }
+        List<BookCopy> failed = new ArrayList<>();
+        for (BookCopy copy : copies) {
+            if (removeFrom(from, copy)) {
+                addTo(to, copy);
+                changed(copy.getBook());
+                checkRep(copy);
+            } else {
+                failed.add(copy);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        return moveAll(copies, inLibrary, checkedOut);
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        return moveAll(copies, checkedOut, inLibrary);
     }
 
     @Override
@@ -90,7 +412,17 @@ public class BigLibrary implements Library {
         if (copy == null) {
             throw new IllegalArgumentException("book copy cannot be null");
         }
-        return inLibrary.contains(copy);
+        return contains(inLibrary, copy);
+    }
+
+    /**
+     * @return the books of which this library has at least one copy, as the Book instances
+     *         its copies share
+     */
+    Set<Book> books() {
+        Set<Book> books = new HashSet<>(inLibrary.keySet());
+        books.addAll(checkedOut.keySet());
+        return books;
     }
 
     @Override
@@ -99,17 +431,11 @@ public class BigLibrary implements Library {
             throw new IllegalArgumentException("book object cannot benull");
         }
         Set<BookCopy> allBookCopies = new HashSet<>();
-        // get all available copies
-        for (BookCopy copy : inLibrary) {
-            if (copy.getBook().equals(book)) {
-                allBookCopies.add(copy);
-            }
+        if (inLibrary.containsKey(book)) {
+            allBookCopies.addAll(inLibrary.get(book));
         }
-        // get all checkedOutCopies
-        for (BookCopy copy : checkedOut) {
-            if (copy.getBook().equals(book)) {
-                allBookCopies.add(copy);
-            }
+        if (checkedOut.containsKey(book)) {
+            allBookCopies.addAll(checkedOut.get(book));
         }
         return allBookCopies;
     }
@@ -120,56 +446,205 @@ public class BigLibrary implements Library {
             throw new IllegalArgumentException("book object cannot be null");
         }
         Set<BookCopy> availableCopies = new HashSet<>();
-        // get all available copies
-        for (BookCopy copy : inLibrary) {
-            if (copy.getBook().equals(book)) {
-                availableCopies.add(copy);
-            }
+        if (inLibrary.containsKey(book)) {
+            availableCopies.addAll(inLibrary.get(book));
         }
         return availableCopies;
     }
 
-    @Override
-    public List<Book> find(String query) {
-        Set<Book> matchingBooksSet = new HashSet<Book>();
-        for (BookCopy copy : inLibrary) {
-            Book book = copy.getBook();
-            String title = book.getTitle();
-            // exact title match
-            if ( (title.equals(query) || query.lastIndexOf(title) > -1) && !matchingBooksSet.contains(book)) {
-                matchingBooksSet.add(book);
-                continue;           
-            }
-            List<String> authors = book.getAuthors();
-            for (String author : authors) {
-                // exact author match
-                if ( (author.equals(query) || query.lastIndexOf(author) > -1) && !matchingBooksSet.contains(book)) {
-                    matchingBooksSet.add(book);
-                    break;
-                }
+    /**
+     * Live, read-only view of the copies of one book, looked up in inLibrary and checkedOut
+     * on every call, so that it follows the book's buckets as they are created and dropped.
+     */
+    private class CopiesView extends AbstractSet<BookCopy> {
+        private final Book book;
+        private final boolean withCheckedOut;
+
+        CopiesView(Book book, boolean withCheckedOut) {
+            this.book = book;
+            this.withCheckedOut = withCheckedOut;
+        }
+
+        @Override
+        public int size() {
+            int size = copies(inLibrary, book).size();
+            return withCheckedOut ? size + copies(checkedOut, book).size() : size;
+        }
+
+        @Override
+        public boolean contains(Object object) {
+            if (!(object instanceof BookCopy) || !((BookCopy) object).getBook().equals(book)) {
+                return false;
             }
+            BookCopy copy = (BookCopy) object;
+            return BigLibrary.contains(inLibrary, copy) || withCheckedOut && BigLibrary.contains(checkedOut, copy);
         }
-        List<Book> matchedBooks = new ArrayList<Book>(matchingBooksSet);
-        Collections.sort(matchedBooks, new SortyByQueryMatch());
-        return matchedBooks;
-    }
-    class SortyByQueryMatch implements Comparator<Book> {
+
         @Override
-        public int compare(Book a, Book b) {
-            if (a.getTitle().equals(b.getTitle()) && a.getAuthors().equals(b.getAuthors())) {
-                return -a.getYear() + b.getYear();
+        public Iterator<BookCopy> iterator() {
+            final Iterator<BookCopy> available = Collections.unmodifiableSet(copies(inLibrary, book)).iterator();
+            if (!withCheckedOut) {
+                return available;
             }
-            return 0;
+            final Iterator<BookCopy> out = Collections.unmodifiableSet(copies(checkedOut, book)).iterator();
+            return new Iterator<BookCopy>() {
+                @Override
+                public boolean hasNext() {
+                    return available.hasNext() || out.hasNext();
+                }
+
+                @Override
+                public BookCopy next() {
+                    return available.hasNext() ? available.next() : out.next();
+                }
+            };
+        }
+    }
+
+    /**
+     * Get a live view of all the copies of a book.  Its size() and contains() take constant
+     * time and allocate nothing, and it reflects every later change to this library.  It is
+     * only safe to use while no other thread changes this library; an iterator may throw
+     * ConcurrentModificationException if this library changes the book's copies during
+     * iteration, and otherwise may miss copies that changed bucket while it ran.
+     */
+    @Override
+    public Set<BookCopy> allCopiesView(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book object cannot be null");
+        }
+        return new CopiesView(book, true);
+    }
+
+    /**
+     * Get a live view of the available copies of a book, with the same semantics as
+     * allCopiesView().
+     */
+    @Override
+    public Set<BookCopy> availableCopiesView(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book object cannot be null");
+        }
+        return new CopiesView(book, false);
+    }
+
+    /**
+     * Build the search index now, if this library was made without one and no search has
+     * built it yet.  Has no effect otherwise.
+     */
+    public void buildIndex() {
+        index();
+    }
+
+    /**
+     * @return the search index, building it first if it has not been built yet
+     */
+    private SearchIndex index() {
+        if (index == null) {
+            // build it completely before storing it, so a failed build leaves no partial index
+            SearchIndex built = new SearchIndex();
+            built.addAll(books());
+            index = built;
         }
+        return index;
     }
+
+    @Override
+    public List<Book> find(String query) {
+        return find(query, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> find(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return index().find(query, k);
+    }
+
+    /**
+     * Find the first page of a search.  The matches are scored and arranged in a heap once,
+     * in time linear in their number, and then ranked only as far as the pages found ask
+     * for, so each page costs time proportional to its size, however deep it is.
+     */
+    @Override
+    public SearchPage findPage(String query, int pageSize) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size must be positive");
+        }
+        return SearchPage.next(this, index().search(query), 0, pageSize);
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return index().fuzzyFind(query, k);
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix cannot be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return index().suggest(prefix, limit);
+    }
+
     @Override
     public void lose(BookCopy copy) {
         if (copy == null) {
             throw new IllegalArgumentException("book copy cannot be null");
         }
-        inLibrary.remove(copy);
-        checkedOut.remove(copy);
-        checkRep();
+        boolean removed = removeFrom(inLibrary, copy) || removeFrom(checkedOut, copy);
+        if (removed) {
+            changed(copy.getBook());
+        }
+        if (removed && index != null && !hasCopies(copy.getBook())) {
+            index.remove(copy.getBook());
+        }
+        checkRep(copy);
+    }
+
+    /**
+     * Take a snapshot.  The first snapshot records every book, in time linear in the size of
+     * the library; after that, this library remembers which books change, and each snapshot
+     * only records those, in time proportional to their copies, sharing everything else with
+     * the previous snapshot.  Operations pay for this by remembering their book, once a
+     * snapshot has been taken.
+     */
+    @Override
+    public LibraryView snapshot() {
+        if (published == null) {
+            // publish every book directly, rather than by adding them all to changed
+            published = PersistentMap.empty();
+            for (Book book : books()) {
+                published = published.plus(book, new LibraryView.Shelf(copies(inLibrary, book), copies(checkedOut, book)));
+            }
+        }
+        for (Book book : changed) {
+            if (hasCopies(book)) {
+                published = published.plus(book, new LibraryView.Shelf(copies(inLibrary, book), copies(checkedOut, book)));
+            } else {
+                published = published.minus(book);
+            }
+        }
+        // a fresh set rather than clear(), which would take time proportional to the largest
+        // number of books that ever changed between two snapshots
+        changed = new HashSet<>();
+        return new LibraryView(published);
     }
 
     // uncomment the following methods if you need to implement equals and hashCode,
@@ -3,6 +3,7 @@ package library;
 import java.lang.IllegalArgumentException;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 /**
  * Book is an immutable type representing an edition of a book -- not the physical object,
  * but the combination of words and pictures that make up a book.  Each book is uniquely
@@ -15,6 +16,7 @@ public class Book {
     private final String title;
     private final List<String> authors;
     private final int year;
+    private final int hash;
     /**
      * REP INVARIANT
      * =============
@@ -22,6 +24,7 @@ public class Book {
      * @param authors : Names of the authors of the book. Must be non-empty, and each
      *                  name must contain at least one non-space character.
      * @param year : Non-negative integer
+     * @param hash : equals the hash of title, authors, and year computed by hashCode()
      */
 
     /**
@@ -38,9 +41,9 @@ public class Book {
      * title is a String, so it is guaranteed to be immutable.
      * authors is a list of String, so elements are guaranteed to be immutable.
      * authors is final, so it cannot be reassigned.
-     * authors is mutable list, so getAuthors() performs defensive copying to avoid
-     * sharing the representation with clients.
-     * year is final, so it is guaranteed to be immutable
+     * authors is an unmodifiable view of a list copied from the constructor's argument,
+     * and no other reference to that list exists, so getAuthors() can return it directly.
+     * year and hash are final ints, so they are guaranteed to be immutable
      */
 
     /**
@@ -61,9 +64,10 @@ public class Book {
             throw new IllegalArgumentException("year cannot be negative integer");
         }
         this.title = title;
-        this.authors = new ArrayList<>();
-        this.authors.addAll(authors);
+        this.authors = Collections.unmodifiableList(new ArrayList<>(authors));
         this.year = year;
+        this.hash = computeHash();
+        checkRep();
     }
 
     // assert the rep invariant
@@ -71,6 +75,7 @@ public class Book {
         assert title!=null && !title.isEmpty();
         assert authors!=null && !authors.isEmpty();
         assert year >= 0;
+        assert hash == computeHash();
     }
 
     /**
@@ -81,12 +86,25 @@ public class Book {
     }
 
     /**
-     * @return the authors of this book
+     * @return the authors of this book, as an unmodifiable list
      */
     public List<String> getAuthors() {
-        List<String> authorCopy = new ArrayList<>();
-        authorCopy.addAll(authors);
-        return authorCopy;
+        return authors;
+    }
+
+    /**
+     * @return the number of authors of this book
+     */
+    public int getAuthorCount() {
+        return authors.size();
+    }
+
+    /**
+     * @param i index of an author; requires 0 <= i < getAuthorCount()
+     * @return the i-th author of this book
+     */
+    public String getAuthor(int i) {
+        return authors.get(i);
     }
 
     /**
@@ -115,14 +133,28 @@ public class Book {
         if (this == that) return true;
         else if (!(that instanceof Book)) return false;
         Book b2 = (Book) that;
-        return this.title.equals(b2.title) && this.year == b2.year && this.authors.equals(b2.authors);
+        if (this.hash != b2.hash || this.year != b2.year || !this.title.equals(b2.title)
+                || this.authors.size() != b2.authors.size()) {
+            return false;
+        }
+        // indexed, so the comparison allocates no iterators
+        for (int i = 0; i < authors.size(); i++) {
+            if (!this.authors.get(i).equals(b2.authors.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
     }
 
     /**
      * hashing strategy taken from effective java : unit 9
      */
-    @Override
-    public int hashCode() {
+    private int computeHash() {
         int result = 17;
         result = 31 * result + this.title.hashCode();
         for (String author : authors) {
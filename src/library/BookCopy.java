@@ -80,8 +80,8 @@ public class BookCopy {
      *    and the words "good" or "damaged" depending on its condition
      */
     public String toString() {
-        String conditionStr = condition==Condition.GOOD ? "good" : "damaged";
-        return book.toString() + "\n" + conditionStr;
+        String conditionStr = getCondition()==Condition.GOOD ? "good" : "damaged";
+        return getBook().toString() + "\n" + conditionStr;
     }
 
     // @Override
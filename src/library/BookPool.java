@@ -0,0 +1,98 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * BookPool is a mutable, thread-safe pool of canonical Books.  Interning a book returns the
+ * one pooled instance equal to it, so that callers that build many equal Books, such as
+ * importers reading one line per copy, keep one copy of each edition's metadata.  The title
+ * and author strings of pooled books are themselves shared between editions.
+ *
+ * A pool holds its books strongly, so it should live only as long as the load that uses it.
+ */
+public class BookPool {
+
+    // rep
+    private final ConcurrentMap<Book, Book> books;
+    private final ConcurrentMap<String, String> strings;
+
+    // rep invariant:
+    //    every key of books maps to itself
+    //    every key of strings maps to itself
+    //    the title and authors of every book in books are values of strings
+    //
+    // abstraction function:
+    //    represents the set of canonical books books.keySet()
+    //
+    // safety from rep exposure:
+    //    all fields are private and final, and never returned; Book and String are
+    //      immutable, so returning pooled instances is safe.
+    //
+    // thread safety argument:
+    //    books and strings are threadsafe maps, and entries are only added with
+    //      putIfAbsent, so every caller interning equal books gets the instance that
+    //      won the race
+
+    /**
+     * Make an empty pool.
+     */
+    public BookPool() {
+        books = new ConcurrentHashMap<>();
+        strings = new ConcurrentHashMap<>();
+        checkRep();
+    }
+
+    // assert the rep invariant, in time independent of the size of the pool
+    private void checkRep() {
+        assert books != null && strings != null;
+    }
+
+    /**
+     * Get the canonical instance of a book.
+     * @param book book to intern
+     * @return the book in this pool equal to book, adding one if there is none; for equal
+     *         arguments, always the same instance
+     */
+    public Book intern(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        Book canonical = books.get(book);
+        if (canonical != null) {
+            return canonical;
+        }
+        List<String> authors = new ArrayList<>(book.getAuthorCount());
+        for (int i = 0; i < book.getAuthorCount(); i++) {
+            authors.add(intern(book.getAuthor(i)));
+        }
+        Book fresh = new Book(intern(book.getTitle()), authors, book.getYear());
+        canonical = books.putIfAbsent(fresh, fresh);
+        checkRep();
+        return canonical == null ? fresh : canonical;
+    }
+
+    /**
+     * @return the canonical instance of s
+     */
+    private String intern(String s) {
+        String canonical = strings.putIfAbsent(s, s);
+        return canonical == null ? s : canonical;
+    }
+
+    /**
+     * @return the number of distinct books in this pool
+     */
+    public int size() {
+        return books.size();
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
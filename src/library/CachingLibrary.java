@@ -0,0 +1,488 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * CachingLibrary is a wrapper for another Library that caches the results of find(), for
+ * collections where a few queries make up most searches.  The cache holds a bounded number
+ * of queries and evicts the least recently used one when it is full.
+ *
+ * Results only depend on which books the collection holds, so checking copies out and in,
+ * and buying more copies of a book already held, never invalidate the cache.  When a book
+ * gains its first copy or loses its last, only the cached queries it could match are
+ * dropped: those sharing a search token with its title or authors, and those containing its
+ * title or an author.  This is exact for wrapped libraries whose find() only matches books
+ * that way, as every Library in this package does.
+ *
+ * The ranking of BigLibrary and the other indexed libraries also weighs each token by how
+ * rare it is in the whole collection, so a book joining or leaving can reorder near-ties in
+ * the results of queries it does not match.  Such a query keeps its cached result, so for
+ * these libraries a cached result may be stale: it holds the books that match the query
+ * now, but ranked as they were when it was cached, so its order, and which of them make
+ * the first k, can differ from what the wrapped library's find() would return now.  A
+ * cached result is recomputed once MAX_CHANGES books have joined or left the collection
+ * since it was cached, which bounds the drift.
+ *
+ * A CachingLibrary is threadsafe if the library it wraps is.  Buying and losing copies of a
+ * book hold a lock of that book while they decide whether it joins or leaves, change the
+ * wrapped library, and drop the cached queries it could match, so concurrent buys and
+ * losses of the same book cannot miss an invalidation.
+ */
+public class CachingLibrary implements Library {
+
+    /**
+     * Number of books that may join or leave the collection before a cached result is
+     * recomputed, even if none of them matches its query.
+     */
+    public static final int MAX_CHANGES = 1024;
+
+    // number of locks that order the buys and losses of each book
+    private static final int STRIPES = 64;
+
+    /**
+     * The cached result of one query.
+     */
+    private static class Entry {
+        // the first min(k, n) books of find(query), where n is its number of results
+        private final List<Book> books;
+        private final int k;
+        // value of changes when books was found
+        private final long changes;
+
+        Entry(List<Book> books, int k, long changes) {
+            this.books = books;
+            this.k = k;
+            this.changes = changes;
+        }
+
+        // true if and only if the first k results of the query are known
+        boolean covers(int k) {
+            return k <= this.k || books.size() < this.k;
+        }
+    }
+
+    private final Library library;
+    private final int capacity;
+    private final ReentrantLock[] stripes;
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, Set<String>> queriesByToken;
+    private long changes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    // rep invariant:
+    //    library is non-null, and capacity > 0
+    //    stripes.length is a power of two
+    //    entries.size() <= capacity, and entries is in access order, least recent first
+    //    queriesByToken maps each search token t to the nonempty set of keys of entries
+    //      whose tokens include t, and has no other keys
+    //    every entry has changes <= this.changes
+    //    all counters are nonnegative
+    //
+    // abstraction function:
+    //    represents the same collection of copies as library, where entries.get(q), if
+    //      present, is the start of find(q) at the time it was cached; no book matching q
+    //      has joined or left the collection since then, and at most MAX_CHANGES books
+    //      have, so it differs from the start of find(q) now at most by how the wrapped
+    //      library's ranking of those books changed.  changes is the number of books that
+    //      have joined or left through this wrapper
+    //
+    // safety from rep exposure:
+    //    all fields are private and final or primitive.  Cached lists are copies, never the
+    //      lists passed to or returned to clients.  Book is immutable.
+    //
+    // thread safety argument:
+    //    library is accessed only through its own methods.  Every buy or loss holds the
+    //      stripes of its books, taken in increasing index so that operations cannot
+    //      deadlock, from before it checks whether a book is held until the queries the
+    //      book could match are dropped; so whether a book joins or leaves is decided
+    //      without another buy or loss of it in between.  The monitor of entries is only
+    //      taken after stripes, never before.
+    //    The other fields are only accessed while holding the monitor of entries.  A result is only cached if no
+    //      book joined or left while it was being found, as changes shows, so a result
+    //      found before a change can never be cached after the change's invalidation.
+
+    /**
+     * Wrap a library.
+     * @param library library to wrap; after this call it must only be used through the
+     *        wrapper
+     * @param capacity maximum number of queries cached; must be positive
+     */
+    public CachingLibrary(Library library, int capacity) {
+        if (library == null) {
+            throw new IllegalArgumentException("library cannot be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.library = library;
+        this.capacity = capacity;
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.queriesByToken = new HashMap<>();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert library != null && capacity > 0;
+        assert Integer.bitCount(stripes.length) == 1;
+        assert entries.size() <= capacity;
+    }
+
+    @Override
+    public List<Book> find(String query) {
+        return find(query, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> find(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        long seen;
+        synchronized (entries) {
+            Entry entry = entries.get(query);
+            if (entry != null && changes - entry.changes > MAX_CHANGES) {
+                remove(query);
+                invalidations++;
+                entry = null;
+            }
+            if (entry != null && entry.covers(k)) {
+                hits++;
+                return new ArrayList<>(entry.books.subList(0, Math.min(k, entry.books.size())));
+            }
+            misses++;
+            seen = changes;
+        }
+        List<Book> books = library.find(query, k);
+        synchronized (entries) {
+            if (changes == seen) {
+                put(query, new Entry(new ArrayList<>(books), k, seen));
+            }
+            checkRep();
+        }
+        return books;
+    }
+
+    /**
+     * Cache an entry, replacing any entry for the same query, and evict the least recently
+     * used query if the cache is over capacity.  Requires the monitor of entries.
+     */
+    private void put(String query, Entry entry) {
+        remove(query);
+        entries.put(query, entry);
+        for (String token : SearchIndex.tokens(query)) {
+            Set<String> queries = queriesByToken.get(token);
+            if (queries == null) {
+                queries = new HashSet<>();
+                queriesByToken.put(token, queries);
+            }
+            queries.add(query);
+        }
+        if (entries.size() > capacity) {
+            remove(entries.keySet().iterator().next());
+            evictions++;
+        }
+    }
+
+    /**
+     * Drop the entry for a query, if any.  Requires the monitor of entries.
+     */
+    private void remove(String query) {
+        if (entries.remove(query) == null) {
+            return;
+        }
+        for (String token : SearchIndex.tokens(query)) {
+            Set<String> queries = queriesByToken.get(token);
+            if (queries != null && queries.remove(query) && queries.isEmpty()) {
+                queriesByToken.remove(token);
+            }
+        }
+    }
+
+    /**
+     * Drop the cached queries that a book could match, after it joined or left the
+     * collection.
+     */
+    private void changed(Book book) {
+        synchronized (entries) {
+            changes++;
+            Set<String> dropped = new HashSet<>();
+            for (String token : SearchIndex.tokens(book)) {
+                Set<String> queries = queriesByToken.get(token);
+                if (queries != null) {
+                    dropped.addAll(queries);
+                }
+            }
+            // a query matches a book whose title or author it contains, even without a
+            // shared token; the cache is small, so check every query
+            for (String query : entries.keySet()) {
+                if (contains(query, book)) {
+                    dropped.add(query);
+                }
+            }
+            for (String query : dropped) {
+                remove(query);
+            }
+            invalidations += dropped.size();
+            checkRep();
+        }
+    }
+
+    // true if and only if query contains the title or an author of book
+    private static boolean contains(String query, Book book) {
+        if (query.contains(book.getTitle())) {
+            return true;
+        }
+        for (String author : book.getAuthors()) {
+            if (query.contains(author)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // true if and only if book is not null and has no copies in library
+    private boolean isNew(Book book) {
+        return book != null && library.allCopiesView(book).isEmpty();
+    }
+
+    /**
+     * @return the index of the stripe that orders the buys and losses of book
+     */
+    private int stripe(Book book) {
+        int hash = book.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * @param book book of an operation, or null if the operation will fail without changing
+     *        anything, in which case any stripe will do
+     * @return the lock of the stripe that orders the buys and losses of book
+     */
+    private ReentrantLock stripeLock(Book book) {
+        return stripes[book == null ? 0 : stripe(book)];
+    }
+
+    @Override
+    public BookCopy buy(Book book) {
+        ReentrantLock lock = stripeLock(book);
+        lock.lock();
+        try {
+            boolean isNew = isNew(book);
+            BookCopy copy = library.buy(book);
+            if (isNew) {
+                changed(copy.getBook());
+            }
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        ReentrantLock lock = stripeLock(book);
+        lock.lock();
+        try {
+            boolean isNew = isNew(book);
+            List<BookCopy> copies = library.buy(book, count);
+            if (isNew && !copies.isEmpty()) {
+                changed(copies.get(0).getBook());
+            }
+            return copies;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        BitSet held = new BitSet(stripes.length);
+        if (shipment != null) {
+            for (Book book : shipment.keySet()) {
+                if (book != null) {
+                    held.set(stripe(book));
+                }
+            }
+        }
+        for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+            stripes[i].lock();
+        }
+        try {
+            List<Book> newBooks = new ArrayList<>();
+            if (shipment != null) {
+                for (Map.Entry<Book, Integer> entry : shipment.entrySet()) {
+                    Integer count = entry.getValue();
+                    if (count != null && count > 0 && isNew(entry.getKey())) {
+                        newBooks.add(entry.getKey());
+                    }
+                }
+            }
+            List<BookCopy> copies = library.buyAll(shipment);
+            for (Book book : newBooks) {
+                changed(book);
+            }
+            return copies;
+        } finally {
+            for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public void lose(BookCopy copy) {
+        ReentrantLock lock = stripeLock(copy == null ? null : copy.getBook());
+        lock.lock();
+        try {
+            boolean held = copy != null && !library.allCopiesView(copy.getBook()).isEmpty();
+            library.lose(copy);
+            if (held && library.allCopiesView(copy.getBook()).isEmpty()) {
+                changed(copy.getBook());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void checkout(BookCopy copy) {
+        library.checkout(copy);
+    }
+
+    @Override
+    public void checkin(BookCopy copy) {
+        library.checkin(copy);
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        return library.checkoutAll(copies);
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        return library.checkinAll(copies);
+    }
+
+    @Override
+    public boolean isAvailable(BookCopy copy) {
+        return library.isAvailable(copy);
+    }
+
+    @Override
+    public Set<BookCopy> allCopies(Book book) {
+        return library.allCopies(book);
+    }
+
+    @Override
+    public Set<BookCopy> availableCopies(Book book) {
+        return library.availableCopies(book);
+    }
+
+    @Override
+    public Set<BookCopy> allCopiesView(Book book) {
+        return library.allCopiesView(book);
+    }
+
+    @Override
+    public Set<BookCopy> availableCopiesView(Book book) {
+        return library.availableCopiesView(book);
+    }
+
+    @Override
+    public SearchPage findPage(String query, int pageSize) {
+        return library.findPage(query, pageSize);
+    }
+
+    @Override
+    public SearchPage findPage(SearchCursor cursor, int pageSize) {
+        return library.findPage(cursor, pageSize);
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        return library.fuzzyFind(query, k);
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        return library.suggest(prefix, limit);
+    }
+
+    @Override
+    public LibraryView snapshot() {
+        return library.snapshot();
+    }
+
+    /**
+     * @return number of calls of find() answered from the cache
+     */
+    public long getHits() {
+        synchronized (entries) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return number of calls of find() passed on to the wrapped library
+     */
+    public long getMisses() {
+        synchronized (entries) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return number of cached queries dropped to make room for others
+     */
+    public long getEvictions() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    /**
+     * @return number of cached queries dropped because a book joined or left the collection
+     */
+    public long getInvalidations() {
+        synchronized (entries) {
+            return invalidations;
+        }
+    }
+
+    /**
+     * @return number of queries cached now
+     */
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
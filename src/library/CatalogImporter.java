@@ -0,0 +1,420 @@
+package library;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * CatalogImporter stocks a library from a delimited text catalog, one record per line:
+ *
+ *     title, authors, year, copies
+ *
+ * where authors are separated by semicolons and copies is the positive number of copies to
+ * buy.  In CSV, a field may be enclosed in double quotes, inside which commas are literal and
+ * a doubled quote stands for one quote; quoted fields may not span lines.  TSV has no
+ * quoting.  Leading and trailing whitespace around each title, author and number is ignored.
+ * A first line whose title field is "title" (in any case) is a header and is skipped, as
+ * are blank lines.  Any other line that does not make a valid record is malformed: it is
+ * counted and skipped, and does not stop the import.
+ *
+ * The input is read sequentially in chunks of lines, and chunks are parsed in parallel by
+ * fork/join tasks, each of which splits its chunk further until the pieces are small.  The
+ * parsed Books are interned, so every record of an edition yields the same Book instance
+ * and equal title and author strings are shared, and the copy counts of repeated records
+ * are summed.  Only when the whole input has been parsed is the library stocked, with one
+ * call to Library.buyAll(), so that a library that builds its sets and search index in bulk
+ * can do so once.
+ *
+ * An importer is immutable and may be used by several threads at once.
+ */
+public class CatalogImporter {
+
+    /**
+     * Format of a catalog.
+     */
+    public enum Format {
+        /** comma-separated values, with optional double-quoted fields */
+        CSV(',', true),
+        /** tab-separated values, without quoting */
+        TSV('\t', false);
+
+        private final char separator;
+        private final boolean quoting;
+
+        private Format(char separator, boolean quoting) {
+            this.separator = separator;
+            this.quoting = quoting;
+        }
+    }
+
+    /**
+     * Summary of one import.
+     */
+    public static class Report {
+        private final long records;
+        private final long malformed;
+        private final int books;
+        private final long copies;
+        private final long elapsedNanos;
+
+        // rep invariant:
+        //    all fields are nonnegative
+        //    books <= records <= copies
+        //
+        // abstraction function:
+        //    represents an import that read records valid records and malformed malformed
+        //      ones, naming books distinct editions and copies copies in all, and took
+        //      elapsedNanos nanoseconds
+        //
+        // safety from rep exposure:
+        //    all fields are private, final and primitive.
+
+        private Report(long records, long malformed, int books, long copies, long elapsedNanos) {
+            this.records = records;
+            this.malformed = malformed;
+            this.books = books;
+            this.copies = copies;
+            this.elapsedNanos = elapsedNanos;
+            checkRep();
+        }
+
+        // assert the rep invariant
+        private void checkRep() {
+            assert malformed >= 0 && elapsedNanos >= 0;
+            assert 0 <= books && books <= records && records <= copies;
+        }
+
+        /**
+         * @return number of valid records imported
+         */
+        public long getRecords() {
+            return records;
+        }
+
+        /**
+         * @return number of malformed records skipped
+         */
+        public long getMalformed() {
+            return malformed;
+        }
+
+        /**
+         * @return number of distinct editions among the valid records
+         */
+        public int getBooks() {
+            return books;
+        }
+
+        /**
+         * @return total number of copies bought
+         */
+        public long getCopies() {
+            return copies;
+        }
+
+        /**
+         * @return time taken by the import, from reading the first line to stocking the
+         *         library, in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return valid and malformed records processed per second over the whole import
+         */
+        public double getRecordsPerSecond() {
+            return (records + malformed) * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d records (%d malformed), %d books, %d copies in %.1f ms, %.0f records/s",
+                    records, malformed, books, copies, elapsedNanos / 1e6, getRecordsPerSecond());
+        }
+    }
+
+    // lines read before a chunk is handed to the pool
+    private static final int CHUNK_LINES = 1 << 14;
+    // lines a task parses itself rather than splitting
+    private static final int TASK_LINES = 1 << 10;
+
+    private final Format format;
+    private final ForkJoinPool pool;
+
+    // rep invariant:
+    //    format and pool are non-null
+    //
+    // abstraction function:
+    //    represents an importer of catalogs in format that parses in pool
+    //
+    // safety from rep exposure:
+    //    all fields are private and final; format is immutable, and pool is shared with
+    //      the client by design.
+    //
+    // thread safety argument:
+    //    the fields are final and refer to threadsafe objects; each call of importInto()
+    //      keeps its state in local variables and in tasks it creates, whose results are
+    //      published to the calling thread by ForkJoinTask.join().
+
+    /**
+     * Make an importer that parses in the common fork/join pool.
+     * @param format format of the catalogs to import
+     */
+    public CatalogImporter(Format format) {
+        this(format, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Make an importer.
+     * @param format format of the catalogs to import
+     * @param pool pool in which to parse
+     */
+    public CatalogImporter(Format format, ForkJoinPool pool) {
+        if (format == null || pool == null) {
+            throw new IllegalArgumentException("format and pool cannot be null");
+        }
+        this.format = format;
+        this.pool = pool;
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert format != null && pool != null;
+    }
+
+    /**
+     * Import a catalog into a library, buying the copies that each valid record names.
+     * Nothing is bought until the whole catalog has been read, so if reading fails the
+     * library is unchanged.
+     * @param in catalog to read, up to its end; not closed
+     * @param library library to stock
+     * @return summary of the import
+     * @throws IOException if reading in fails
+     */
+    public Report importInto(Reader in, Library library) throws IOException {
+        if (in == null || library == null) {
+            throw new IllegalArgumentException("reader and library cannot be null");
+        }
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(in, 1 << 16);
+        BookPool books = new BookPool();
+        Parsed total = new Parsed();
+        // chunks in flight, oldest first; bounded so a large catalog is never all in memory
+        Deque<ForkJoinTask<Parsed>> pending = new ArrayDeque<>();
+        int maxPending = 2 * pool.getParallelism() + 1;
+        List<String> chunk = new ArrayList<>(CHUNK_LINES);
+        boolean first = true;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (first) {
+                first = false;
+                if (isHeader(line)) {
+                    continue;
+                }
+            }
+            chunk.add(line);
+            if (chunk.size() == CHUNK_LINES) {
+                if (pending.size() == maxPending) {
+                    total.merge(pending.removeFirst().join());
+                }
+                pending.addLast(pool.submit(new Parse(chunk, 0, chunk.size(), books)));
+                chunk = new ArrayList<>(CHUNK_LINES);
+            }
+        }
+        pending.addLast(pool.submit(new Parse(chunk, 0, chunk.size(), books)));
+        while (!pending.isEmpty()) {
+            total.merge(pending.removeFirst().join());
+        }
+        library.buyAll(total.copies);
+        long copies = 0;
+        for (int count : total.copies.values()) {
+            copies += count;
+        }
+        return new Report(total.records, total.malformed, total.copies.size(), copies,
+                System.nanoTime() - start);
+    }
+
+    /**
+     * @return true if and only if line is a header naming the fields
+     */
+    private boolean isHeader(String line) {
+        List<String> fields = fields(line, format);
+        return fields != null && fields.get(0).trim().equalsIgnoreCase("title");
+    }
+
+    /**
+     * Result of parsing some lines: the copies of each book they name, summed over
+     * records, and the number of valid and malformed records.
+     */
+    private static class Parsed {
+        private final Map<Book, Integer> copies = new HashMap<>();
+        private long records;
+        private long malformed;
+
+        /**
+         * Add the copies and counts of other to this result.
+         */
+        void merge(Parsed other) {
+            for (Map.Entry<Book, Integer> entry : other.copies.entrySet()) {
+                add(entry.getKey(), entry.getValue());
+            }
+            records += other.records;
+            malformed += other.malformed;
+        }
+
+        /**
+         * Add count copies of book to this result.
+         */
+        void add(Book book, int count) {
+            Integer sum = copies.get(book);
+            copies.put(book, sum == null ? count : sum + count);
+        }
+    }
+
+    /**
+     * Task that parses lines[lo..hi), splitting the range in half until it is small.
+     */
+    private class Parse extends RecursiveTask<Parsed> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> lines;
+        private final int lo;
+        private final int hi;
+        private final BookPool books;
+
+        Parse(List<String> lines, int lo, int hi, BookPool books) {
+            this.lines = lines;
+            this.lo = lo;
+            this.hi = hi;
+            this.books = books;
+        }
+
+        @Override
+        protected Parsed compute() {
+            if (hi - lo > TASK_LINES) {
+                int mid = (lo + hi) >>> 1;
+                Parse left = new Parse(lines, lo, mid, books);
+                left.fork();
+                Parsed parsed = new Parse(lines, mid, hi, books).compute();
+                Parsed other = left.join();
+                if (other.copies.size() > parsed.copies.size()) {
+                    other.merge(parsed);
+                    return other;
+                }
+                parsed.merge(other);
+                return parsed;
+            }
+            Parsed parsed = new Parsed();
+            for (int i = lo; i < hi; i++) {
+                String line = lines.get(i);
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                if (parse(line, parsed)) {
+                    parsed.records++;
+                } else {
+                    parsed.malformed++;
+                }
+            }
+            return parsed;
+        }
+
+        /**
+         * Parse one record, adding its copies to parsed.
+         * @return true if and only if line is a valid record
+         */
+        private boolean parse(String line, Parsed parsed) {
+            List<String> fields = fields(line, format);
+            if (fields == null || fields.size() != 4) {
+                return false;
+            }
+            List<String> authors = new ArrayList<>();
+            for (String author : fields.get(1).split(";")) {
+                if (!author.trim().isEmpty()) {
+                    authors.add(author.trim());
+                }
+            }
+            int year;
+            int copies;
+            try {
+                year = Integer.parseInt(fields.get(2).trim());
+                copies = Integer.parseInt(fields.get(3).trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            String title = fields.get(0).trim();
+            if (title.isEmpty() || authors.isEmpty() || year < 0 || copies <= 0) {
+                return false;
+            }
+            parsed.add(books.intern(new Book(title, authors, year)), copies);
+            return true;
+        }
+    }
+
+    /**
+     * Split a line into fields.
+     * @param line line to split, without its line terminator
+     * @param format format of line
+     * @return the fields of line, in order, with quotes removed; or null if line has a
+     *         quoted field that is unterminated or followed by something other than a
+     *         separator
+     */
+    static List<String> fields(String line, Format format) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int n = line.length();
+        int i = 0;
+        while (true) {
+            if (format.quoting && i < n && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i == n) {
+                        return null;
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < n && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < n && line.charAt(i) != format.separator) {
+                    return null;
+                }
+            } else {
+                int end = line.indexOf(format.separator, i);
+                if (end < 0) {
+                    end = n;
+                }
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            field.setLength(0);
+            if (i == n) {
+                return fields;
+            }
+            i++; // skip the separator
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,525 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ColumnarLibrary is a Library for very large collections that stores each copy as a dense
+ * integer id instead of an object: the book of every copy is an entry of an int array, and
+ * availability and damage are bits of bitsets.  Measured with ColumnarBenchmark, a copy costs
+ * about 32 bytes of retained heap, or about 13.5 without its share of the search index; a
+ * copy in a BigLibrary costs about 90.
+ *
+ * The BookCopy objects it hands out are thin handles on those ids, made on demand; handles
+ * for the same copy are equal, and their condition is read from and written to the library.
+ * Every operation takes the same time as in BigLibrary, except that allCopies and
+ * availableCopies also skip over the ids of lost copies of the book; lose() compacts them
+ * away whenever they outnumber the book's copies, so there are never more of them than
+ * copies, and observers never change the rep.
+ */
+public class ColumnarLibrary implements Library, Auditable {
+
+    // rep
+    private final List<Book> books;
+    private final Map<Book, Integer> bookIds;
+    private final List<IdList> copiesOfBook;
+    private int[] liveCopies;
+    private int[] bookOf;
+    private int copies;
+    private final BitSet inLibrary;
+    private final BitSet checkedOut;
+    private final BitSet damaged;
+    private final SearchIndex index;
+
+    // rep invariant:
+    //    bookIds maps books.get(b) to b for every book id b, and nothing else
+    //    books.size() == copiesOfBook.size() <= liveCopies.length
+    //    copies <= bookOf.length, and 0 <= bookOf[c] < books.size() for every copy id c < copies
+    //    inLibrary, checkedOut and damaged have no bits set at or above copies
+    //    inLibrary and checkedOut are disjoint
+    //    copiesOfBook.get(b) contains, once each, every copy id c with bookOf[c] == b that is
+    //      in inLibrary or checkedOut, and possibly some ids of lost copies of b, but no
+    //      more of those than of copies in inLibrary or checkedOut
+    //    liveCopies[b] is the number of copy ids c with bookOf[c] == b that are in inLibrary
+    //      or checkedOut
+    //    index contains exactly the books b with liveCopies[b] > 0
+    //
+    // abstraction function:
+    //    represents the collection of copies with ids c < copies that are in inLibrary or
+    //      checkedOut, where copy c is a copy of books.get(bookOf[c]), is available if c is in
+    //      inLibrary and checked out if c is in checkedOut, and is damaged if c is in damaged;
+    //      copy ids in neither set are lost and never reused
+    //
+    // safety from rep exposure:
+    //    all fields are private, and none is returned.
+    //    allCopies() and availableCopies() return fresh sets of fresh Handles; a Handle
+    //      refers back to this library, but can only change a copy's condition, through
+    //      setCondition(), which is part of the BookCopy spec.
+    //    find() returns the fresh list built by index.
+
+    /**
+     * A BookCopy that is a handle on a copy id of a ColumnarLibrary.
+     */
+    private static class Handle extends BookCopy {
+        private final ColumnarLibrary library;
+        private final int id;
+
+        Handle(ColumnarLibrary library, int id) {
+            super(library.books.get(library.bookOf[id]));
+            this.library = library;
+            this.id = id;
+        }
+
+        @Override
+        public Condition getCondition() {
+            return library.damaged.get(id) ? Condition.DAMAGED : Condition.GOOD;
+        }
+
+        @Override
+        public void setCondition(Condition condition) {
+            if (condition == null) {
+                throw new IllegalArgumentException("condition cannot be null");
+            }
+            library.damaged.set(id, condition == Condition.DAMAGED);
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            if (!(that instanceof Handle)) {
+                return false;
+            }
+            Handle h2 = (Handle) that;
+            return this.library == h2.library && this.id == h2.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
+    /**
+     * A growable list of ints.
+     */
+    private static class IdList {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+        }
+
+        void addRange(int from, int to) {
+            if (size + (to - from) > ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(2 * ids.length, size + (to - from)));
+            }
+            for (int id = from; id < to; id++) {
+                ids[size++] = id;
+            }
+        }
+    }
+
+    public ColumnarLibrary() {
+        books = new ArrayList<>();
+        bookIds = new HashMap<>();
+        copiesOfBook = new ArrayList<>();
+        liveCopies = new int[16];
+        bookOf = new int[16];
+        copies = 0;
+        inLibrary = new BitSet();
+        checkedOut = new BitSet();
+        damaged = new BitSet();
+        index = new SearchIndex();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert audit().isEmpty() : audit();
+    }
+
+    // assert the parts of the rep invariant that involve copy id, which a mutation of that
+    // copy could have broken, in constant time
+    private void checkRep(int id) {
+        assert 0 <= id && id < copies;
+        assert !(inLibrary.get(id) && checkedOut.get(id));
+        int book = bookOf[id];
+        assert liveCopies[book] >= 0;
+        assert copiesOfBook.get(book).size <= 2 * liveCopies[book];
+        assert index.contains(books.get(book)) == (liveCopies[book] > 0);
+    }
+
+    @Override
+    public List<String> audit() {
+        List<String> violations = new ArrayList<>();
+        if (inLibrary.intersects(checkedOut)) {
+            BitSet both = (BitSet) inLibrary.clone();
+            both.and(checkedOut);
+            violations.add("both available and checked out: copy ids " + both);
+        }
+        for (BitSet bits : Arrays.asList(inLibrary, checkedOut, damaged)) {
+            if (bits.length() > copies) {
+                violations.add("bit set for unallocated copy id " + (bits.length() - 1));
+            }
+        }
+        int[] counted = new int[books.size()];
+        for (int c = 0; c < copies; c++) {
+            if (bookOf[c] < 0 || bookOf[c] >= books.size()) {
+                violations.add("copy id " + c + " has unknown book id " + bookOf[c]);
+            } else if (inLibrary.get(c) || checkedOut.get(c)) {
+                counted[bookOf[c]]++;
+            }
+        }
+        int indexed = 0;
+        for (int b = 0; b < books.size(); b++) {
+            Book book = books.get(b);
+            if (!Integer.valueOf(b).equals(bookIds.get(book))) {
+                violations.add("book id " + b + " not mapped back from " + book);
+            }
+            if (liveCopies[b] != counted[b]) {
+                violations.add("book id " + b + " counts " + liveCopies[b] + " copies, has " + counted[b]);
+            }
+            IdList ids = copiesOfBook.get(b);
+            Set<Integer> listed = new HashSet<>();
+            for (int i = 0; i < ids.size; i++) {
+                if (bookOf[ids.ids[i]] != b || !listed.add(ids.ids[i])) {
+                    violations.add("copy id " + ids.ids[i] + " misfiled under book id " + b);
+                }
+                if (inLibrary.get(ids.ids[i]) || checkedOut.get(ids.ids[i])) {
+                    counted[b]--;
+                }
+            }
+            if (counted[b] != 0) {
+                violations.add("copies of book id " + b + " missing from its list");
+            }
+            if (ids.size > 2 * liveCopies[b]) {
+                violations.add("book id " + b + " lists " + ids.size + " ids for " + liveCopies[b] + " copies");
+            }
+            if (index.contains(book) != (liveCopies[b] > 0)) {
+                violations.add("search index disagrees about " + book);
+            }
+            if (liveCopies[b] > 0) {
+                indexed++;
+            }
+        }
+        if (bookIds.size() != books.size()) {
+            violations.add("bookIds has " + bookIds.size() + " books, books has " + books.size());
+        }
+        if (index.size() != indexed) {
+            violations.add("search index has " + index.size() + " books, library has " + indexed);
+        }
+        return violations;
+    }
+
+    /**
+     * @return the id of copy in this library, or -1 if copy is not a handle made by this
+     *         library
+     */
+    private int idOf(BookCopy copy) {
+        if (!(copy instanceof Handle) || ((Handle) copy).library != this) {
+            return -1;
+        }
+        return ((Handle) copy).id;
+    }
+
+    /**
+     * @return true if and only if copy id is available or checked out
+     */
+    private boolean isLive(int id) {
+        return inLibrary.get(id) || checkedOut.get(id);
+    }
+
+    /**
+     * @return the id of book, assigning it the next id if it has none
+     */
+    private int bookId(Book book) {
+        Integer bookId = bookIds.get(book);
+        if (bookId == null) {
+            bookId = books.size();
+            books.add(book);
+            bookIds.put(book, bookId);
+            copiesOfBook.add(new IdList());
+            if (bookId == liveCopies.length) {
+                liveCopies = Arrays.copyOf(liveCopies, 2 * bookId);
+            }
+        }
+        return bookId;
+    }
+
+    @Override
+    public BookCopy buy(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        int bookId = bookId(book);
+        if (liveCopies[bookId] == 0) {
+            index.add(books.get(bookId));
+        }
+        if (copies == bookOf.length) {
+            bookOf = Arrays.copyOf(bookOf, 2 * copies);
+        }
+        int id = copies++;
+        bookOf[id] = bookId;
+        inLibrary.set(id);
+        copiesOfBook.get(bookId).add(id);
+        liveCopies[bookId]++;
+        checkRep(id);
+        return new Handle(this, id);
+    }
+
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count cannot be negative");
+        }
+        List<BookCopy> newCopies = new ArrayList<>(count);
+        if (count == 0) {
+            return newCopies;
+        }
+        int bookId = bookId(book);
+        if (liveCopies[bookId] == 0) {
+            index.add(books.get(bookId));
+        }
+        // the new copies get consecutive ids, so each column is filled as one range
+        if (copies + count > bookOf.length) {
+            bookOf = Arrays.copyOf(bookOf, Math.max(2 * bookOf.length, copies + count));
+        }
+        int first = copies;
+        copies += count;
+        Arrays.fill(bookOf, first, copies, bookId);
+        inLibrary.set(first, copies);
+        copiesOfBook.get(bookId).addRange(first, copies);
+        liveCopies[bookId] += count;
+        for (int id = first; id < copies; id++) {
+            newCopies.add(new Handle(this, id));
+        }
+        checkRep(first);
+        return newCopies;
+    }
+
+    @Override
+    public void checkout(BookCopy copy) {
+        int id = copy == null ? -1 : idOf(copy);
+        if (id < 0 || !inLibrary.get(id)) {
+            throw new IllegalArgumentException("book copy not in library");
+        }
+        inLibrary.clear(id);
+        checkedOut.set(id);
+        checkRep(id);
+    }
+
+    @Override
+    public void checkin(BookCopy copy) {
+        if (copy == null) {
+            throw new IllegalArgumentException("book copy cannot be null");
+        }
+        int id = idOf(copy);
+        if (id < 0 || !checkedOut.get(id)) {
+            throw new IllegalArgumentException("book copy needs to be checked out");
+        }
+        checkedOut.clear(id);
+        inLibrary.set(id);
+        checkRep(id);
+    }
+
+    /**
+     * Move each copy in copies from one circulation bitset to the other, skipping those
+     * not in from.
+     * @return the copies, in order, that were not in from
+     */
+    private List<BookCopy> moveAll(Collection<BookCopy> copies, BitSet from, BitSet to) {
+        if (copies == null) {
+            throw new IllegalArgumentException("copies cannot be null");
+        }
+        for (BookCopy copy : copies) {
+            if (copy == null) {
+                throw new IllegalArgumentException("copies cannot contain null");
+            }
+        }
+        List<BookCopy> failed = new ArrayList<>();
+        for (BookCopy copy : copies) {
+            int id = idOf(copy);
+            if (id >= 0 && from.get(id)) {
+                from.clear(id);
+                to.set(id);
+                checkRep(id);
+            } else {
+                failed.add(copy);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        return moveAll(copies, inLibrary, checkedOut);
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        return moveAll(copies, checkedOut, inLibrary);
+    }
+
+    @Override
+    public boolean isAvailable(BookCopy copy) {
+        if (copy == null) {
+            throw new IllegalArgumentException("book copy cannot be null");
+        }
+        int id = idOf(copy);
+        return id >= 0 && inLibrary.get(id);
+    }
+
+    /**
+     * Get handles on the copies of a book that are in some of the copy sets.
+     * @param book book to look up
+     * @param available include available copies
+     * @param out include checked-out copies
+     * @return fresh set of handles on the selected copies of book
+     */
+    private Set<BookCopy> copiesOf(Book book, boolean available, boolean out) {
+        Set<BookCopy> result = new HashSet<>();
+        Integer bookId = bookIds.get(book);
+        if (bookId == null) {
+            return result;
+        }
+        IdList ids = copiesOfBook.get(bookId);
+        for (int i = 0; i < ids.size; i++) {
+            int id = ids.ids[i];
+            if (available && inLibrary.get(id) || out && checkedOut.get(id)) {
+                result.add(new Handle(this, id));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<BookCopy> allCopies(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book object cannot be null");
+        }
+        return copiesOf(book, true, true);
+    }
+
+    @Override
+    public Set<BookCopy> availableCopies(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book object cannot be null");
+        }
+        return copiesOf(book, true, false);
+    }
+
+    @Override
+    public List<Book> find(String query) {
+        return find(query, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> find(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return index.find(query, k);
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return index.fuzzyFind(query, k);
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix cannot be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return index.suggest(prefix, limit);
+    }
+
+    @Override
+    public void lose(BookCopy copy) {
+        if (copy == null) {
+            throw new IllegalArgumentException("book copy cannot be null");
+        }
+        int id = idOf(copy);
+        if (id < 0 || !isLive(id)) {
+            return;
+        }
+        inLibrary.clear(id);
+        checkedOut.clear(id);
+        int bookId = bookOf[id];
+        liveCopies[bookId]--;
+        if (liveCopies[bookId] == 0) {
+            index.remove(books.get(bookId));
+        }
+        if (copiesOfBook.get(bookId).size > 2 * liveCopies[bookId]) {
+            compact(bookId);
+        }
+        checkRep(id);
+    }
+
+    /**
+     * Remove the ids of lost copies from the list of copies of a book, and shrink the list
+     * if it is mostly empty.  Takes time linear in the length of the list; lose() only calls
+     * it once at least half the list is lost, so its cost is constant per lost copy.
+     */
+    private void compact(int bookId) {
+        IdList ids = copiesOfBook.get(bookId);
+        int kept = 0;
+        for (int i = 0; i < ids.size; i++) {
+            if (isLive(ids.ids[i])) {
+                ids.ids[kept++] = ids.ids[i];
+            }
+        }
+        ids.size = kept;
+        if (ids.ids.length > 4 * Math.max(kept, 2)) {
+            ids.ids = Arrays.copyOf(ids.ids, 2 * Math.max(kept, 1));
+        }
+    }
+
+    /**
+     * Take a snapshot by copying handles on all the copies, in time linear in their number.
+     */
+    @Override
+    public LibraryView snapshot() {
+        List<BookCopy> available = new ArrayList<>();
+        List<BookCopy> out = new ArrayList<>();
+        for (int bookId = 0; bookId < books.size(); bookId++) {
+            if (liveCopies[bookId] > 0) {
+                available.addAll(copiesOf(books.get(bookId), true, false));
+                out.addAll(copiesOf(books.get(bookId), false, true));
+            }
+        }
+        return LibraryView.copyOf(available, out);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,573 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ConcurrentBigLibrary is a threadsafe Library for large collections shared by many threads.
+ *
+ * Every operation on the copies of a book locks only the stripe that the book hashes to, so
+ * operations on different books proceed in parallel.  The circulation state of each copy --
+ * available, checked out or lost -- is a single atomic field, so isAvailable is one volatile
+ * read and never blocks.  Searches share a read lock on the search index, which is only
+ * locked for writing when a book gains its first copy or loses its last one.
+ *
+ * snapshot() is point-in-time consistent: it holds every stripe while it runs, so it sees
+ * each checkout, checkin, buy and loss either whole or not at all.  Like BigLibrary, once a
+ * snapshot has been taken each stripe remembers which of its books change, and the next
+ * snapshot only re-publishes those, sharing the rest with the previous view; so the stripes
+ * are held for time proportional to the number of stripes plus the copies of the changed
+ * books, rather than to the size of the library.  The first snapshot publishes every book.
+ * availableCopies(), on the other hand, reads the state of each copy separately, so while
+ * other threads check copies out and in, the set it returns may mix states from slightly
+ * different moments.
+ */
+public class ConcurrentBigLibrary implements Library, Auditable {
+
+    private static final int DEFAULT_STRIPES = 256;
+
+    // circulation states of a copy
+    private static final int AVAILABLE = 0;
+    private static final int CHECKED_OUT = 1;
+    private static final int LOST = 2;
+
+    /**
+     * The copies of one book.
+     */
+    private static class Shelf {
+        // the Book instance shared by all the copies on this shelf
+        private final Book book;
+        private final Set<BookCopy> copies = new HashSet<>();
+
+        Shelf(Book book) {
+            this.book = book;
+        }
+    }
+
+    /**
+     * A lock guarding the books that hash to it, and the books among them that changed since
+     * the last snapshot.
+     */
+    private static class Stripe {
+        private Set<Book> changed = new HashSet<>();
+    }
+
+    // rep
+    private final ConcurrentMap<Book, Shelf> shelves;
+    private final ConcurrentMap<BookCopy, AtomicInteger> states;
+    private final Stripe[] stripes;
+    private PersistentMap<Book, LibraryView.Shelf> published;
+    private final SearchIndex index;
+    private final ReadWriteLock indexLock;
+
+    // rep invariant:
+    //    stripes.length is a power of two
+    //    for every book b, shelves.get(b) is null or a shelf with at least one copy whose
+    //      book equals b
+    //    every copy on a shelf is a copy of the shelf's book instance
+    //    the keys of states are exactly the copies on all the shelves, and each maps to
+    //      AVAILABLE or CHECKED_OUT
+    //    index contains exactly the keys of shelves
+    //    stripes[i].changed only contains books that hash to stripe i
+    //    published is null and every stripe's changed set is empty, or published maps every
+    //      book that is not in a changed set, and has a shelf, to a shelf of exactly its
+    //      available and checked out copies, and has no other keys outside the changed sets
+    //
+    // abstraction function:
+    //    represents the collection of book copies on all the shelves in shelves, where copy c
+    //      is available if states.get(c) is AVAILABLE and checked out if it is CHECKED_OUT
+    //    published is the state of the library as of the last snapshot, brought up to date
+    //      for every book except those in the changed sets, or null if no snapshot has been
+    //      taken
+    //
+    // safety from rep exposure:
+    //    all fields are private, and all but published are final.  no shelf, state or lock
+    //      is returned.  snapshot() returns a view of published, which is immutable.
+    //    allCopies() and availableCopies() return fresh sets, never a shelf's set.
+    //    find() returns the fresh list built by index.
+    //
+    // thread safety argument:
+    //    shelves and states are threadsafe maps.
+    //    the entry of shelves for a book b, the shelf it maps to, and the entries of states
+    //      for copies of b, are only added or removed while holding the monitor of stripe(b).
+    //    a copy's state only changes while holding the monitor of stripe(its book), and
+    //      atomically, so isAvailable can read it without a lock: checkout and checkin
+    //      between AVAILABLE and CHECKED_OUT, and lose by setting LOST just before removing
+    //      the copy.
+    //    stripes[i].changed is only read or mutated while holding the monitor of stripes[i].
+    //    published is only read or assigned while holding the monitors of every stripe, or
+    //      read while holding one of them, so every operation that changes a book sees
+    //      whether a snapshot has been taken.
+    //    index is only read while holding indexLock's read lock, and only mutated while
+    //      holding its write lock.
+    //    locks are always acquired in the order stripe monitors in increasing index, then
+    //      indexLock, so there is no deadlock.
+
+    /**
+     * Make an empty library with a default number of lock stripes.
+     */
+    public ConcurrentBigLibrary() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Make an empty library.
+     * @param stripes minimum number of locks to spread books over; must be positive.  More
+     *        stripes allow more parallelism between operations on different books.
+     */
+    public ConcurrentBigLibrary(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        int length = Integer.highestOneBit(stripes);
+        if (length < stripes) {
+            length *= 2;
+        }
+        this.stripes = new Stripe[length];
+        for (int i = 0; i < length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        published = null;
+        shelves = new ConcurrentHashMap<>();
+        states = new ConcurrentHashMap<>();
+        index = new SearchIndex();
+        indexLock = new ReentrantReadWriteLock();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert audit().isEmpty() : audit();
+    }
+
+    // assert the parts of the rep invariant that involve the shelf of book and copy, which
+    // buying or losing copy could have broken; requires holding the monitor of stripe(book)
+    private void checkRep(Book book, BookCopy copy) {
+        Shelf shelf = shelves.get(book);
+        assert shelf == null || !shelf.copies.isEmpty();
+        AtomicInteger state = states.get(copy);
+        if (shelf != null && shelf.copies.contains(copy)) {
+            assert state != null && state.get() != LOST;
+        } else {
+            assert state == null;
+        }
+    }
+
+    @Override
+    public List<String> audit() {
+        List<String> violations = new ArrayList<>();
+        if (Integer.bitCount(stripes.length) != 1) {
+            violations.add("stripe count not a power of two: " + stripes.length);
+        }
+        auditHolding(0, violations);
+        return violations;
+    }
+
+    /**
+     * Acquire the monitors of stripes[i..] in order, then audit every shelf, the index and
+     * the last snapshot.
+     */
+    private void auditHolding(int i, List<String> violations) {
+        if (i < stripes.length) {
+            synchronized (stripes[i]) {
+                auditHolding(i + 1, violations);
+            }
+            return;
+        }
+        int copies = 0;
+        for (Map.Entry<Book, Shelf> entry : shelves.entrySet()) {
+            Shelf shelf = entry.getValue();
+            if (shelf.copies.isEmpty()) {
+                violations.add("empty shelf for " + entry.getKey());
+            }
+            if (!shelf.book.equals(entry.getKey())) {
+                violations.add("shelf of " + shelf.book + " stored under " + entry.getKey());
+            }
+            for (BookCopy copy : shelf.copies) {
+                if (copy.getBook() != shelf.book) {
+                    violations.add("copy not of its shelf's book instance: " + copy);
+                }
+                AtomicInteger state = states.get(copy);
+                if (state == null || state.get() == LOST) {
+                    violations.add("copy on shelf has no circulation state: " + copy);
+                }
+            }
+            copies += shelf.copies.size();
+        }
+        if (states.size() != copies) {
+            violations.add(states.size() + " circulation states for " + copies + " copies");
+        }
+        Set<Book> changed = new HashSet<>();
+        for (Stripe stripe : stripes) {
+            for (Book book : stripe.changed) {
+                if (stripe(book) != stripe) {
+                    violations.add("change tracked in the wrong stripe: " + book);
+                }
+            }
+            changed.addAll(stripe.changed);
+        }
+        if (published == null && !changed.isEmpty()) {
+            violations.add("changes tracked before the first snapshot: " + changed);
+        }
+        if (published != null) {
+            for (Book book : shelves.keySet()) {
+                if (!changed.contains(book) && !published.containsKey(book)) {
+                    violations.add("missing from the last snapshot: " + book);
+                }
+            }
+            for (Book book : published) {
+                if (!changed.contains(book) && !shelves.containsKey(book)) {
+                    violations.add("no longer in library, but still in the last snapshot: " + book);
+                }
+            }
+        }
+        indexLock.readLock().lock();
+        try {
+            for (Book book : shelves.keySet()) {
+                if (!index.contains(book)) {
+                    violations.add("not in search index: " + book);
+                }
+            }
+            if (index.size() != shelves.size()) {
+                violations.add("search index has " + index.size() + " books, library has " + shelves.size());
+            }
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the lock guarding the shelf of book
+     */
+    private Stripe stripe(Book book) {
+        int hash = book.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * Record that the copies of book changed, if a snapshot has been taken and so must be
+     * brought up to date; requires holding the monitor of stripe, which is stripe(book).
+     */
+    private void changed(Stripe stripe, Book book) {
+        if (published != null) {
+            stripe.changed.add(book);
+        }
+    }
+
+    @Override
+    public BookCopy buy(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        return buy(book, 1).get(0);
+    }
+
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count cannot be negative");
+        }
+        List<BookCopy> newCopies = new ArrayList<>(count);
+        if (count == 0) {
+            return newCopies;
+        }
+        Stripe stripe = stripe(book);
+        synchronized (stripe) {
+            Shelf shelf = shelves.get(book);
+            if (shelf == null) {
+                shelf = new Shelf(book);
+                indexLock.writeLock().lock();
+                try {
+                    index.add(book);
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+                shelves.put(book, shelf);
+            }
+            for (int i = 0; i < count; i++) {
+                BookCopy newCopy = new BookCopy(shelf.book);
+                shelf.copies.add(newCopy);
+                states.put(newCopy, new AtomicInteger(AVAILABLE));
+                newCopies.add(newCopy);
+            }
+            changed(stripe, book);
+            checkRep(book, newCopies.get(0));
+        }
+        return newCopies;
+    }
+
+    /**
+     * Atomically move a copy from one circulation state to another.
+     * @return true if and only if copy is in this library and was in state from
+     */
+    private boolean transition(BookCopy copy, int from, int to) {
+        Book book = copy.getBook();
+        Stripe stripe = stripe(book);
+        synchronized (stripe) {
+            AtomicInteger state = states.get(copy);
+            if (state == null || !state.compareAndSet(from, to)) {
+                return false;
+            }
+            changed(stripe, book);
+            return true;
+        }
+    }
+
+    @Override
+    public void checkout(BookCopy copy) {
+        if (copy == null || !transition(copy, AVAILABLE, CHECKED_OUT)) {
+            throw new IllegalArgumentException("book copy not in library");
+        }
+    }
+
+    @Override
+    public void checkin(BookCopy copy) {
+        if (copy == null) {
+            throw new IllegalArgumentException("book copy cannot be null");
+        }
+        if (!transition(copy, CHECKED_OUT, AVAILABLE)) {
+            throw new IllegalArgumentException("book copy needs to be checked out");
+        }
+    }
+
+    /**
+     * Atomically move each copy in copies from one circulation state to another, skipping
+     * those not in state from.
+     * @return the copies, in order, that were not in state from
+     */
+    private List<BookCopy> transitionAll(Collection<BookCopy> copies, int from, int to) {
+        if (copies == null) {
+            throw new IllegalArgumentException("copies cannot be null");
+        }
+        for (BookCopy copy : copies) {
+            if (copy == null) {
+                throw new IllegalArgumentException("copies cannot contain null");
+            }
+        }
+        List<BookCopy> failed = new ArrayList<>();
+        for (BookCopy copy : copies) {
+            if (!transition(copy, from, to)) {
+                failed.add(copy);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        return transitionAll(copies, AVAILABLE, CHECKED_OUT);
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        return transitionAll(copies, CHECKED_OUT, AVAILABLE);
+    }
+
+    @Override
+    public boolean isAvailable(BookCopy copy) {
+        if (copy == null) {
+            throw new IllegalArgumentException("book copy cannot be null");
+        }
+        AtomicInteger state = states.get(copy);
+        return state != null && state.get() == AVAILABLE;
+    }
+
+    @Override
+    public Set<BookCopy> allCopies(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book object cannot be null");
+        }
+        Set<BookCopy> allBookCopies = new HashSet<>();
+        synchronized (stripe(book)) {
+            Shelf shelf = shelves.get(book);
+            if (shelf != null) {
+                allBookCopies.addAll(shelf.copies);
+            }
+        }
+        return allBookCopies;
+    }
+
+    @Override
+    public Set<BookCopy> availableCopies(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book object cannot be null");
+        }
+        Set<BookCopy> availableCopies = new HashSet<>();
+        synchronized (stripe(book)) {
+            Shelf shelf = shelves.get(book);
+            if (shelf != null) {
+                for (BookCopy copy : shelf.copies) {
+                    if (states.get(copy).get() == AVAILABLE) {
+                        availableCopies.add(copy);
+                    }
+                }
+            }
+        }
+        return availableCopies;
+    }
+
+    /**
+     * Take a point-in-time view of this library's copies, holding every stripe while it runs.
+     * The first snapshot records every book, in time linear in the size of the library; after
+     * that, each snapshot only records the books that changed since the previous one, in time
+     * proportional to their copies plus the number of stripes, sharing everything else with
+     * the previous view.  Operations pay for this by remembering their book, once a snapshot
+     * has been taken.
+     */
+    @Override
+    public LibraryView snapshot() {
+        return snapshotHolding(0);
+    }
+
+    /**
+     * Acquire the monitors of stripes[i..] in order, then bring published up to date.
+     */
+    private LibraryView snapshotHolding(int i) {
+        if (i < stripes.length) {
+            synchronized (stripes[i]) {
+                return snapshotHolding(i + 1);
+            }
+        }
+        if (published == null) {
+            // publish every book directly, rather than by adding them all to the changed sets
+            published = PersistentMap.empty();
+            for (Map.Entry<Book, Shelf> entry : shelves.entrySet()) {
+                published = published.plus(entry.getKey(), publish(entry.getValue()));
+            }
+        }
+        for (Stripe stripe : stripes) {
+            if (stripe.changed.isEmpty()) {
+                continue;
+            }
+            for (Book book : stripe.changed) {
+                Shelf shelf = shelves.get(book);
+                if (shelf != null) {
+                    published = published.plus(book, publish(shelf));
+                } else {
+                    published = published.minus(book);
+                }
+            }
+            // a fresh set rather than clear(), which would take time proportional to the
+            // largest number of books that ever changed between two snapshots
+            stripe.changed = new HashSet<>();
+        }
+        return new LibraryView(published);
+    }
+
+    /**
+     * @return the copies on shelf, and their circulation states, as a shelf of a view;
+     *         requires holding the monitor of stripe(shelf.book)
+     */
+    private LibraryView.Shelf publish(Shelf shelf) {
+        List<BookCopy> available = new ArrayList<>();
+        List<BookCopy> checkedOut = new ArrayList<>();
+        for (BookCopy copy : shelf.copies) {
+            if (states.get(copy).get() == AVAILABLE) {
+                available.add(copy);
+            } else {
+                checkedOut.add(copy);
+            }
+        }
+        return new LibraryView.Shelf(available, checkedOut);
+    }
+
+    @Override
+    public List<Book> find(String query) {
+        return find(query, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Book> find(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        indexLock.readLock().lock();
+        try {
+            return index.find(query, k);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        indexLock.readLock().lock();
+        try {
+            return index.fuzzyFind(query, k);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix cannot be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        indexLock.readLock().lock();
+        try {
+            return index.suggest(prefix, limit);
+        } finally {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void lose(BookCopy copy) {
+        if (copy == null) {
+            throw new IllegalArgumentException("book copy cannot be null");
+        }
+        Book book = copy.getBook();
+        Stripe stripe = stripe(book);
+        synchronized (stripe) {
+            Shelf shelf = shelves.get(book);
+            if (shelf == null || !shelf.copies.remove(copy)) {
+                return;
+            }
+            states.get(copy).set(LOST);
+            states.remove(copy);
+            changed(stripe, book);
+            if (shelf.copies.isEmpty()) {
+                shelves.remove(book);
+                indexLock.writeLock().lock();
+                try {
+                    index.remove(book);
+                } finally {
+                    indexLock.writeLock().unlock();
+                }
+            }
+            checkRep(book, copy);
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,312 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ContainmentIndex is a mutable multiset of pattern strings that can find, in one pass over
+ * a text, every pattern that occurs in the text as a substring (case-sensitively).
+ *
+ * Patterns are compiled into Aho-Corasick automata, which are immutable, so the index keeps
+ * a logarithmic number of them in levels, as in a binary counter: level i holds at most 2^i
+ * patterns.  Adding a pattern merges it with the full levels below the first empty one and
+ * rebuilds that level, so each pattern is recompiled O(log n) times over its life.  A batch
+ * of new patterns is added the same way, into the first empty level big enough for it and
+ * the levels below, unless it is a large fraction of all the patterns.  Removing
+ * a pattern only forgets it; the automata drop it the next time its level is rebuilt, and
+ * everything is rebuilt once forgotten patterns outnumber live ones.  A search runs the text
+ * through every level, in O(L log n + m) time for a text of length L and m matches.
+ */
+class ContainmentIndex {
+
+    /**
+     * An immutable Aho-Corasick automaton over a set of distinct patterns.
+     * State 0 is the root; the states form a trie of the patterns, numbered breadth first,
+     * so the children of each state are consecutive states in order of their edge character.
+     */
+    private static class Automaton {
+        private final String[] patterns;
+        // character on the trie edge into each state
+        private final char[] edge;
+        // first child of each state, and its number of children
+        private final int[] firstChild;
+        private final int[] children;
+        // longest proper suffix of each state's string that is also a state
+        private final int[] failure;
+        // index in patterns of the pattern each state spells, or -1
+        private final int[] pattern;
+        // nearest state on the failure chain that spells a pattern, or -1
+        private final int[] output;
+
+        Automaton(Collection<String> patterns) {
+            this.patterns = patterns.toArray(new String[patterns.size()]);
+            Arrays.sort(this.patterns);
+            int capacity = 1;
+            for (String p : this.patterns) {
+                capacity += p.length();
+            }
+            char[] edge = new char[capacity];
+            int[] firstChild = new int[capacity];
+            int[] children = new int[capacity];
+            int[] pattern = new int[capacity];
+            int[] parent = new int[capacity];
+            // the patterns with a state's string as prefix are patterns[lo..hi)
+            int[] lo = new int[capacity];
+            int[] hi = new int[capacity];
+            int[] depth = new int[capacity];
+            hi[0] = this.patterns.length;
+            int states = 1;
+            for (int state = 0; state < states; state++) {
+                int i = lo[state];
+                int d = depth[state];
+                pattern[state] = -1;
+                if (i < hi[state] && this.patterns[i].length() == d) {
+                    pattern[state] = i;
+                    i++;
+                }
+                firstChild[state] = states;
+                while (i < hi[state]) {
+                    char c = this.patterns[i].charAt(d);
+                    int j = i + 1;
+                    while (j < hi[state] && this.patterns[j].charAt(d) == c) {
+                        j++;
+                    }
+                    edge[states] = c;
+                    parent[states] = state;
+                    lo[states] = i;
+                    hi[states] = j;
+                    depth[states] = d + 1;
+                    states++;
+                    i = j;
+                }
+                children[state] = states - firstChild[state];
+            }
+            this.edge = Arrays.copyOf(edge, states);
+            this.firstChild = Arrays.copyOf(firstChild, states);
+            this.children = Arrays.copyOf(children, states);
+            this.pattern = Arrays.copyOf(pattern, states);
+
+            // failure and output links, breadth first so that parents are done first
+            failure = new int[states];
+            output = new int[states];
+            output[0] = -1;
+            for (int state = 1; state < states; state++) {
+                int target = 0;
+                if (parent[state] != 0) {
+                    int fallback = failure[parent[state]];
+                    target = next(fallback, edge[state]);
+                    while (target < 0 && fallback != 0) {
+                        fallback = failure[fallback];
+                        target = next(fallback, edge[state]);
+                    }
+                }
+                failure[state] = target < 0 ? 0 : target;
+                output[state] = this.pattern[failure[state]] >= 0 ? failure[state] : output[failure[state]];
+            }
+        }
+
+        /**
+         * @return the trie child of state along c, or -1 if none
+         */
+        private int next(int state, char c) {
+            int from = firstChild[state];
+            int i = Arrays.binarySearch(edge, from, from + children[state], c);
+            return i < 0 ? -1 : i;
+        }
+
+        /**
+         * Add to found every pattern of this automaton that occurs in text.
+         */
+        void match(String text, Set<String> found) {
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                int target = next(state, c);
+                while (target < 0 && state != 0) {
+                    state = failure[state];
+                    target = next(state, c);
+                }
+                state = target < 0 ? 0 : target;
+                for (int s = pattern[state] >= 0 ? state : output[state]; s >= 0; s = output[s]) {
+                    found.add(patterns[pattern[s]]);
+                }
+            }
+        }
+    }
+
+    // rep
+    private final List<Automaton> levels;
+    private final Map<String, Integer> counts;
+    private final Set<String> compiled;
+
+    // rep invariant:
+    //    levels.get(i) is null or an automaton over at most 2^i patterns
+    //    the patterns of the automata in levels are disjoint, and their union is compiled
+    //    every key of counts is in compiled, and every count is positive
+    //
+    // abstraction function:
+    //    represents the multiset in which each pattern p occurs counts.get(p) times;
+    //      patterns in compiled but not in counts are forgotten and never reported
+    //
+    // safety from rep exposure:
+    //    all fields are private and final, and never returned; find() returns a fresh set
+    //      of immutable strings.
+
+    /**
+     * Make an empty index.
+     */
+    public ContainmentIndex() {
+        levels = new ArrayList<>();
+        counts = new HashMap<>();
+        compiled = new HashSet<>();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert compiled.size() >= counts.size();
+    }
+
+    /**
+     * Add one occurrence of a pattern.
+     * @param pattern nonempty pattern to add
+     */
+    public void add(String pattern) {
+        Integer count = counts.get(pattern);
+        counts.put(pattern, count == null ? 1 : count + 1);
+        if (compiled.add(pattern)) {
+            List<String> carry = new ArrayList<>();
+            carry.add(pattern);
+            insert(carry);
+        }
+        checkRep();
+    }
+
+    /**
+     * Add one occurrence of each of a collection of patterns.  The new patterns among them
+     * are compiled together into one level, merged with the levels below it as add() does;
+     * if they are at least half of all the patterns, all live patterns are instead compiled
+     * into a single level at once, which is then cheaper than merging.
+     * @param patterns nonempty patterns to add
+     */
+    public void addAll(Collection<String> patterns) {
+        List<String> fresh = new ArrayList<>();
+        for (String pattern : patterns) {
+            Integer count = counts.get(pattern);
+            counts.put(pattern, count == null ? 1 : count + 1);
+            if (compiled.add(pattern)) {
+                fresh.add(pattern);
+            }
+        }
+        if (fresh.size() * 2 >= counts.size()) {
+            rebuild();
+        } else if (!fresh.isEmpty()) {
+            insert(fresh);
+        }
+        checkRep();
+    }
+
+    /**
+     * Compile new patterns into the first empty level that can hold them together with the
+     * live patterns of all the levels below it, emptying those levels.
+     * @param carry nonempty list of distinct patterns in compiled but in no level
+     */
+    private void insert(List<String> carry) {
+        int level = 0;
+        while ((level < levels.size() && levels.get(level) != null) || (1 << level) < carry.size()) {
+            if (level < levels.size() && levels.get(level) != null) {
+                carry.addAll(live(levels.get(level)));
+                levels.set(level, null);
+            }
+            level++;
+        }
+        while (levels.size() <= level) {
+            levels.add(null);
+        }
+        levels.set(level, new Automaton(carry));
+    }
+
+    /**
+     * Remove one occurrence of a pattern, if present.
+     * @param pattern pattern to remove
+     */
+    public void remove(String pattern) {
+        Integer count = counts.get(pattern);
+        if (count == null) {
+            return;
+        } else if (count > 1) {
+            counts.put(pattern, count - 1);
+            return;
+        }
+        counts.remove(pattern);
+        if (compiled.size() > 2 * counts.size()) {
+            rebuild();
+        }
+        checkRep();
+    }
+
+    /**
+     * @return the patterns of automaton that are still in this multiset; removes the others
+     *         from compiled
+     */
+    private List<String> live(Automaton automaton) {
+        List<String> live = new ArrayList<>();
+        for (String pattern : automaton.patterns) {
+            if (counts.containsKey(pattern)) {
+                live.add(pattern);
+            } else {
+                compiled.remove(pattern);
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Recompile all live patterns into a single level.
+     */
+    private void rebuild() {
+        levels.clear();
+        compiled.clear();
+        compiled.addAll(counts.keySet());
+        if (counts.isEmpty()) {
+            return;
+        }
+        int level = 0;
+        while ((1 << level) < counts.size()) {
+            level++;
+        }
+        for (int i = 0; i <= level; i++) {
+            levels.add(null);
+        }
+        levels.set(level, new Automaton(counts.keySet()));
+    }
+
+    /**
+     * Find the patterns contained in a text.
+     * @param text text to search
+     * @return the set of patterns in this multiset that occur in text as a substring
+     */
+    public Set<String> find(String text) {
+        Set<String> found = new HashSet<>();
+        for (Automaton automaton : levels) {
+            if (automaton != null) {
+                automaton.match(text, found);
+            }
+        }
+        found.retainAll(counts.keySet());
+        return found;
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
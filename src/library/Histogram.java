@@ -0,0 +1,168 @@
+package library;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram is a mutable, threadsafe distribution of nonnegative long values, e.g. latencies
+ * in nanoseconds, recorded with a fixed relative precision in a fixed amount of memory.
+ *
+ * Values below 64 are counted exactly.  Larger values are counted in buckets: each power of
+ * two is split into 32 buckets of equal width, so a bucket's values are within about 3% of
+ * each other, whatever their magnitude.  Recording a value only increments counters, and
+ * never blocks or allocates.
+ */
+final class Histogram {
+
+    // number of bits of a value, after its leading one bit, that pick its bucket
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // values below EXACT each have a bucket of their own
+    private static final int EXACT = 2 * SUB_BUCKETS;
+    // enough buckets for Long.MAX_VALUE
+    private static final int BUCKETS = EXACT + (Long.SIZE - 2 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    // rep invariant:
+    //    counts.length() == BUCKETS, and every count, sum and max are nonnegative
+    //
+    // abstraction function:
+    //    represents the multiset of values in which, for each bucket i, counts.get(i)
+    //      values lie in the range [lowest(i), highest(i)]; sum is the total of all the
+    //      values and max the largest, or 0 if there are none
+    //
+    // safety from rep exposure:
+    //    all fields are private and final, and are never returned.
+    //
+    // thread safety argument:
+    //    counts, sum and max are threadsafe, and each is only changed by its own atomic
+    //      operations.  A reader that runs while values are being recorded may see some
+    //      counters of a value before the others, so its statistics describe a mixture of
+    //      the distribution before and after that value; every statistic is still within
+    //      the range of the values recorded.
+
+    /**
+     * Make an empty histogram.
+     */
+    Histogram() {
+        counts = new AtomicLongArray(BUCKETS);
+        sum = new LongAdder();
+        max = new AtomicLong();
+        checkRep();
+    }
+
+    // assert the rep invariant, in time independent of the number of values
+    private void checkRep() {
+        assert counts.length() == BUCKETS;
+    }
+
+    // index of the bucket of a nonnegative value
+    private static int bucket(long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - 1 - SUB_BITS;
+        return EXACT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // largest value in bucket i
+    private static long highest(int i) {
+        if (i < EXACT) {
+            return i;
+        }
+        int shift = (i - EXACT) / SUB_BUCKETS + 1;
+        long sub = (i - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Record a value.
+     * @param value value to record; must be nonnegative
+     */
+    void record(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value cannot be negative");
+        }
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+        long largest = max.get();
+        while (value > largest && !max.compareAndSet(largest, value)) {
+            largest = max.get();
+        }
+    }
+
+    /**
+     * @return number of values recorded
+     */
+    long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return mean of the values recorded, or 0 if there are none
+     */
+    double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : sum.sum() / (double) count;
+    }
+
+    /**
+     * @return largest value recorded, or 0 if there are none
+     */
+    long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile percentage of values, from 0 to 100 inclusive
+     * @return a value at least as large as percentile% of the values recorded, and within
+     *         about 3% of the smallest such value; or 0 if there are none
+     */
+    long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        // the rank, counting from 1, of the value asked for
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highest(i), getMax());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Forget every value recorded.  Values recorded while this runs may be partly forgotten.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
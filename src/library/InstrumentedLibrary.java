@@ -0,0 +1,477 @@
+package library;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * InstrumentedLibrary is a wrapper for another Library that records, for each operation,
+ * how many calls returned and how many were rejected with an IllegalArgumentException, a
+ * histogram of how long the calls took, and a histogram of the sizes of their results:
+ * the number of copies, books or suggestions returned, and for checkoutAll() and
+ * checkinAll() the number of copies that failed.  The statistics of each operation are an
+ * OperationStats, which can be read directly or published as a JMX MBean with register().
+ *
+ * Recording a call increments a counter, without locking or allocating.  Timing it also
+ * reads the clock twice and updates the histograms, which costs tens of nanoseconds on most
+ * machines: a few percent of a search or a checkout, but as much as the cheapest operations
+ * themselves, such as isAvailable() on a BigLibrary.  So by default a library is wrapped to time only a random sample of 1 in
+ * DEFAULT_SAMPLE_INTERVAL calls, which keeps the overhead of every operation within a few
+ * percent; every call is still counted, and the histograms of latencies and result sizes
+ * are of the sampled calls.  Wrap it with a sample interval of 1 to time every call.
+ *
+ * The overloads of buy(), find() and findPage() are recorded separately, as "buy(count)",
+ * "find(k)" and "findPage(cursor)".  An InstrumentedLibrary is threadsafe if the library it
+ * wraps is.
+ */
+public class InstrumentedLibrary implements Library {
+
+    /**
+     * The sample interval of a library wrapped without giving one: 1 in this many calls is
+     * timed.
+     */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 256;
+
+    private final Library library;
+    private final int sampleInterval;
+    private final Map<String, OperationStats> operations = new LinkedHashMap<>();
+    private final OperationStats buy = add("buy");
+    private final OperationStats buyCount = add("buy(count)");
+    private final OperationStats buyAll = add("buyAll");
+    private final OperationStats checkout = add("checkout");
+    private final OperationStats checkin = add("checkin");
+    private final OperationStats checkoutAll = add("checkoutAll");
+    private final OperationStats checkinAll = add("checkinAll");
+    private final OperationStats isAvailable = add("isAvailable");
+    private final OperationStats allCopies = add("allCopies");
+    private final OperationStats availableCopies = add("availableCopies");
+    private final OperationStats allCopiesView = add("allCopiesView");
+    private final OperationStats availableCopiesView = add("availableCopiesView");
+    private final OperationStats find = add("find");
+    private final OperationStats findK = add("find(k)");
+    private final OperationStats findPage = add("findPage");
+    private final OperationStats findPageCursor = add("findPage(cursor)");
+    private final OperationStats fuzzyFind = add("fuzzyFind");
+    private final OperationStats suggest = add("suggest");
+    private final OperationStats lose = add("lose");
+    private final OperationStats snapshot = add("snapshot");
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    // rep invariant:
+    //    library is non-null, and sampleInterval > 0
+    //    operations maps the name of each operation to its stats, which are also the value
+    //      of the field for that operation
+    //    registered is empty, or holds one distinct name for each stats in operations
+    //
+    // abstraction function:
+    //    represents the same collection of copies as library, where the calls of each
+    //      operation named n made through this wrapper are recorded in operations.get(n),
+    //      which is published over JMX under a name in registered if registered is nonempty;
+    //      each call is timed with probability 1 / sampleInterval
+    //
+    // safety from rep exposure:
+    //    all fields are private and final.  getStats() returns the OperationStats, which
+    //      clients may read and reset, but not otherwise change; operations is returned
+    //      only as an unmodifiable map.  registered is never returned.
+    //
+    // thread safety argument:
+    //    library is accessed only through its own methods.  operations is never changed
+    //      after construction, and OperationStats is threadsafe.  registered is only
+    //      accessed while holding its own monitor.
+
+    /**
+     * Wrap a library, timing a random sample of 1 in DEFAULT_SAMPLE_INTERVAL calls.
+     * @param library library to wrap; after this call it must only be used through the
+     *        wrapper
+     */
+    public InstrumentedLibrary(Library library) {
+        this(library, DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Wrap a library, timing a random sample of the calls.
+     * @param library library to wrap; after this call it must only be used through the
+     *        wrapper
+     * @param sampleInterval each call is timed with probability 1 / sampleInterval; must be
+     *        positive, and 1 times every call
+     */
+    public InstrumentedLibrary(Library library, int sampleInterval) {
+        if (library == null) {
+            throw new IllegalArgumentException("library cannot be null");
+        }
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("sample interval must be positive");
+        }
+        this.library = library;
+        this.sampleInterval = sampleInterval;
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert library != null && sampleInterval > 0;
+    }
+
+    // start time of a call, or OperationStats.UNTIMED if this call is not in the sample
+    private long start() {
+        if (sampleInterval == 1 || ThreadLocalRandom.current().nextInt(sampleInterval) == 0) {
+            return System.nanoTime();
+        }
+        return OperationStats.UNTIMED;
+    }
+
+    // make the stats of an operation; only called while the fields are initialized
+    private OperationStats add(String operation) {
+        OperationStats stats = new OperationStats(operation);
+        operations.put(operation, stats);
+        return stats;
+    }
+
+    /**
+     * @return map from the name of each operation to its statistics, in the order of the
+     *         methods of Library; unmodifiable
+     */
+    public Map<String, OperationStats> getStats() {
+        return Collections.unmodifiableMap(operations);
+    }
+
+    /**
+     * @param operation name of an operation, e.g. "checkout" or "find(k)"
+     * @return statistics of the operation
+     */
+    public OperationStats getStats(String operation) {
+        OperationStats stats = operations.get(operation);
+        if (stats == null) {
+            throw new IllegalArgumentException("no operation named " + operation);
+        }
+        return stats;
+    }
+
+    /**
+     * Publish the statistics of each operation with the platform MBean server, as the MBean
+     * library:type=InstrumentedLibrary,name=NAME,operation=OPERATION, with name and operation
+     * quoted if they contain characters special in an ObjectName.
+     * @param name name of this library, distinct from that of any other library registered
+     * @throws JMException if the statistics could not be registered, e.g. because another
+     *         library is registered with the same name; then none are registered
+     * @throws IllegalStateException if this library is already registered
+     */
+    public void register(String name) throws JMException {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("name must be nonempty");
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (registered) {
+            if (!registered.isEmpty()) {
+                throw new IllegalStateException("already registered as " + registered.get(0).getKeyProperty("name"));
+            }
+            try {
+                for (OperationStats stats : operations.values()) {
+                    ObjectName objectName = new ObjectName("library:type=InstrumentedLibrary,name=" + quote(name)
+                            + ",operation=" + quote(stats.getOperation()));
+                    server.registerMBean(stats, objectName);
+                    registered.add(objectName);
+                }
+            } catch (JMException e) {
+                unregister();
+                throw e;
+            }
+        }
+    }
+
+    // quote a value of an ObjectName key if it contains special characters
+    private static String quote(String value) {
+        return value.matches("[^,=:\"*?\\n]*") ? value : ObjectName.quote(value);
+    }
+
+    /**
+     * Withdraw the MBeans published by register(), if any.
+     */
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (registered) {
+            for (ObjectName objectName : registered) {
+                try {
+                    server.unregisterMBean(objectName);
+                } catch (JMException e) {
+                    // already unregistered by someone else, which is what we want
+                }
+            }
+            registered.clear();
+        }
+    }
+
+    @Override
+    public BookCopy buy(Book book) {
+        long start = start();
+        try {
+            BookCopy result = library.buy(book);
+            buy.record(start);
+            return result;
+        } catch (IllegalArgumentException e) {
+            buy.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        long start = start();
+        try {
+            List<BookCopy> result = library.buy(book, count);
+            buyCount.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            buyCount.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        long start = start();
+        try {
+            List<BookCopy> result = library.buyAll(shipment);
+            buyAll.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            buyAll.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public void checkout(BookCopy copy) {
+        long start = start();
+        try {
+            library.checkout(copy);
+            checkout.record(start);
+        } catch (IllegalArgumentException e) {
+            checkout.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public void checkin(BookCopy copy) {
+        long start = start();
+        try {
+            library.checkin(copy);
+            checkin.record(start);
+        } catch (IllegalArgumentException e) {
+            checkin.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        long start = start();
+        try {
+            List<BookCopy> result = library.checkoutAll(copies);
+            checkoutAll.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            checkoutAll.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        long start = start();
+        try {
+            List<BookCopy> result = library.checkinAll(copies);
+            checkinAll.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            checkinAll.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean isAvailable(BookCopy copy) {
+        long start = start();
+        try {
+            boolean result = library.isAvailable(copy);
+            isAvailable.record(start);
+            return result;
+        } catch (IllegalArgumentException e) {
+            isAvailable.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<BookCopy> allCopies(Book book) {
+        long start = start();
+        try {
+            Set<BookCopy> result = library.allCopies(book);
+            allCopies.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            allCopies.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<BookCopy> availableCopies(Book book) {
+        long start = start();
+        try {
+            Set<BookCopy> result = library.availableCopies(book);
+            availableCopies.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            availableCopies.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<BookCopy> allCopiesView(Book book) {
+        long start = start();
+        try {
+            Set<BookCopy> result = library.allCopiesView(book);
+            allCopiesView.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            allCopiesView.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public Set<BookCopy> availableCopiesView(Book book) {
+        long start = start();
+        try {
+            Set<BookCopy> result = library.availableCopiesView(book);
+            availableCopiesView.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            availableCopiesView.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Book> find(String query) {
+        long start = start();
+        try {
+            List<Book> result = library.find(query);
+            find.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            find.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Book> find(String query, int k) {
+        long start = start();
+        try {
+            List<Book> result = library.find(query, k);
+            findK.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            findK.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public SearchPage findPage(String query, int pageSize) {
+        long start = start();
+        try {
+            SearchPage result = library.findPage(query, pageSize);
+            findPage.record(start, result.getBooks().size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            findPage.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public SearchPage findPage(SearchCursor cursor, int pageSize) {
+        long start = start();
+        try {
+            SearchPage result = library.findPage(cursor, pageSize);
+            findPageCursor.record(start, result.getBooks().size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            findPageCursor.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        long start = start();
+        try {
+            List<Book> result = library.fuzzyFind(query, k);
+            fuzzyFind.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            fuzzyFind.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        long start = start();
+        try {
+            List<String> result = library.suggest(prefix, limit);
+            suggest.record(start, result.size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            suggest.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public void lose(BookCopy copy) {
+        long start = start();
+        try {
+            library.lose(copy);
+            lose.record(start);
+        } catch (IllegalArgumentException e) {
+            lose.reject();
+            throw e;
+        }
+    }
+
+    @Override
+    public LibraryView snapshot() {
+        long start = start();
+        try {
+            LibraryView result = library.snapshot();
+            snapshot.record(start, result.books().size());
+            return result;
+        } catch (IllegalArgumentException e) {
+            snapshot.reject();
+            throw e;
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,304 @@
+package library;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Journal is an append-only file of records that survives a crash: a record whose
+ * append has been made durable is read back by the next open() of the file.
+ *
+ * On disk each record is framed as an int length, that many bytes of record, and an int
+ * CRC-32 of the record, so that a record torn by a crash is recognized and dropped when the
+ * journal is reopened.
+ *
+ * Appending and making durable are separate steps, so that with group commit, records
+ * appended by many threads while one fsync is in progress are all written and forced by
+ * the next fsync, and durability costs one fsync per batch instead of one per record.
+ * Without group commit, every append writes and forces its own record.
+ *
+ * Once a write or force has failed, the journal is failed: every later call throws, since
+ * the records after the failure cannot be made durable in order.
+ */
+class Journal implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final boolean groupCommit;
+    // framed records appended but not yet written
+    private ByteArrayOutputStream pending;
+    // number of records appended, and the number of those that are durable
+    private long appended;
+    private long durable;
+    // true while some thread is writing and forcing a batch outside the lock
+    private boolean flushing;
+    private IOException failure;
+
+    // rep invariant:
+    //    0 <= durable <= appended
+    //    pending holds the framed records after the first durable ones, except for a batch
+    //      being written while flushing
+    //    without groupCommit, durable == appended and pending is empty between calls
+    //
+    // abstraction function:
+    //    represents the sequence of the first appended records written to channel's file,
+    //      of which the first durable have been forced to disk
+    //
+    // safety from rep exposure:
+    //    all fields are private and never returned.
+    //
+    // thread safety argument:
+    //    all fields except channel and groupCommit are only accessed while holding this
+    //      journal's lock.  A batch is written and forced outside the lock, by the one
+    //      thread that set flushing, so appends can proceed meanwhile; channel is written
+    //      only by that thread, or by append() under the lock when not grouping.
+
+    /**
+     * Open a journal for appending after reading the records already in it.
+     * @param file journal file, created if it does not exist
+     * @param groupCommit whether to batch the fsyncs of concurrent callers
+     * @param records list to which the records already in file are appended, in order;
+     *                a torn or corrupt record and everything after it are dropped and
+     *                truncated from the file
+     * @throws IOException if the file cannot be opened, read or truncated
+     */
+    Journal(Path file, boolean groupCommit, List<byte[]> records) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.groupCommit = groupCommit;
+        try {
+            long end = read(channel, records);
+            if (end < channel.size()) {
+                channel.truncate(end);
+                channel.force(true);
+            }
+            channel.position(end);
+        } catch (Throwable e) {
+            try {
+                channel.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        this.pending = new ByteArrayOutputStream();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert 0 <= durable && durable <= appended;
+        assert groupCommit || flushing || durable == appended;
+    }
+
+    /**
+     * Read the intact records at the start of a journal file, streaming it from the start
+     * so that a journal of any size can be read.  Leaves channel's position unspecified.
+     * @return offset just past the last intact record
+     */
+    private static long read(FileChannel channel, List<byte[]> records) throws IOException {
+        long size = channel.size();
+        channel.position(0);
+        // not closed, since closing it would close channel
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        long end = 0;
+        try {
+            while (end < size) {
+                int length = in.readInt();
+                if (length < 0 || length > size - end - 8) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                in.readFully(record);
+                if (in.readInt() != crc(record)) {
+                    break;
+                }
+                records.add(record);
+                end += 8 + length;
+            }
+        } catch (EOFException e) {
+            // torn record at the end of the file
+        }
+        return end;
+    }
+
+    private static int crc(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Append a record.  Without group commit the record is durable when this returns;
+     * with group commit, call awaitDurable() to make it so.
+     * @param record record to append
+     * @return the sequence number of the record, counting from 1 since this journal was
+     *         opened
+     * @throws UncheckedIOException if the journal has failed, or writing fails
+     */
+    synchronized long append(byte[] record) {
+        throwIfFailed();
+        try {
+            DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(record.length);
+            out.write(record);
+            out.writeInt(crc(record));
+        } catch (IOException e) {
+            throw new AssertionError("ByteArrayOutputStream does not throw", e);
+        }
+        appended++;
+        if (!groupCommit) {
+            flush();
+        }
+        checkRep();
+        return appended;
+    }
+
+    /**
+     * Wait until a record is durable, writing and forcing the pending records, including
+     * those appended by other threads, if no other thread is already doing so.
+     * @param sequence sequence number returned by append()
+     * @throws UncheckedIOException if the journal has failed, or writing fails
+     */
+    void awaitDurable(long sequence) {
+        ByteArrayOutputStream batch;
+        long target;
+        synchronized (this) {
+            while (true) {
+                throwIfFailed();
+                if (durable >= sequence) {
+                    return;
+                } else if (!flushing) {
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException("interrupted awaiting fsync"));
+                }
+            }
+            flushing = true;
+            batch = pending;
+            pending = new ByteArrayOutputStream();
+            target = appended;
+        }
+        IOException failed = null;
+        try {
+            write(batch);
+        } catch (IOException e) {
+            failed = e;
+        }
+        synchronized (this) {
+            flushing = false;
+            if (failed != null) {
+                failure = failed;
+            } else {
+                durable = target;
+            }
+            notifyAll();
+            checkRep();
+            throwIfFailed();
+        }
+    }
+
+    /**
+     * Write and force the pending records, while holding the lock.
+     */
+    private void flush() {
+        try {
+            write(pending);
+            pending.reset();
+            durable = appended;
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(ByteArrayOutputStream batch) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new UncheckedIOException("journal failed", failure);
+        }
+    }
+
+    /**
+     * Discard every record, truncating the file to empty, for a caller that has made the
+     * effect of every record durable by other means.  Records appended so far count as
+     * durable, so awaitDurable() returns for them at once; records appended afterwards start
+     * the file again.  Waits for a batch being written by another thread to finish first.
+     * @throws UncheckedIOException if the journal has failed, or truncating fails
+     */
+    synchronized void reset() {
+        while (flushing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("interrupted awaiting fsync"));
+            }
+        }
+        throwIfFailed();
+        try {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        }
+        pending.reset();
+        durable = appended;
+        notifyAll();
+        checkRep();
+    }
+
+    /**
+     * Make every appended record durable and close the file.
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            awaitDurable(appended());
+        } catch (UncheckedIOException e) {
+            channel.close();
+            throw e.getCause();
+        }
+        channel.close();
+    }
+
+    /**
+     * @return the sequence number of the last record appended, or 0 if none
+     */
+    synchronized long appended() {
+        return appended;
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,531 @@
+package library;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JournaledLibrary is a threadsafe BigLibrary whose mutations survive a crash.  Every buy,
+ * checkout, checkin, lose and change of condition is appended to a write-ahead journal
+ * file and made durable before the operation returns, and opening a JournaledLibrary on an
+ * existing journal replays it to rebuild the library as it was.
+ *
+ * checkpoint() saves a LibrarySnapshot of the library next to the journal, in a file named
+ * like the journal with ".snapshot" appended, and then empties the journal.  Opening loads
+ * the snapshot, if there is one, and replays only the journal written since, so call
+ * checkpoint() from time to time, e.g. once the journal file has grown past a size of the
+ * caller's choosing, to keep the journal small and reopening fast.  Each checkpoint starts
+ * a new epoch, whose number labels the snapshot and is the first record of the journal;
+ * if a crash interrupts a checkpoint after its snapshot is saved, the journal left is of an
+ * older epoch than the snapshot, which already holds all its changes, so it is discarded.
+ *
+ * A copy's condition is changed through setCondition() on this library; changing it with
+ * BookCopy.setCondition() directly is not journaled.  Copies are identified in the journal
+ * by ids assigned when they are bought, so a copy bought before a crash is a new BookCopy
+ * object after recovery, with the same book, availability and condition.
+ *
+ * With group commit, a mutation is applied and appended under this library's lock, but
+ * waits for its fsync outside it, so the mutations of concurrent callers that arrive
+ * during one fsync share the next.  A mutation is then visible to other threads slightly
+ * before it is durable; it is durable before the call that made it returns.  Without group
+ * commit, each mutation is forced to disk before the lock is released.
+ *
+ * If writing the journal fails, the mutation that failed has already been applied in
+ * memory but is not durable: it and every later mutation throw UncheckedIOException, and
+ * the library should be closed and reopened from its journal.
+ */
+public class JournaledLibrary implements Library, AutoCloseable {
+
+    // journal record types
+    private static final byte BUY = 0;
+    private static final byte CHECKOUT = 1;
+    private static final byte CHECKIN = 2;
+    private static final byte LOSE = 3;
+    private static final byte CONDITION = 4;
+    private static final byte EPOCH = 5;
+
+    private final BigLibrary library;
+    private final Path snapshotFile;
+    private final Journal journal;
+    private final Map<BookCopy, Long> ids;
+    private final Map<Long, BookCopy> copies;
+    private long nextId;
+    private long epoch;
+
+    // rep invariant:
+    //    ids and copies are inverse maps, whose copies are exactly the copies in library
+    //    every id in ids is less than nextId
+    //    journal's first record is the epoch record of epoch, and replaying the rest on
+    //      the library saved in snapshotFile, or on an empty library if epoch is 0 and
+    //      there is none, yields library, with the copy with id i in the journal
+    //      corresponding to copies.get(i), and the copies of the snapshot numbered from 0
+    //      in its order
+    //
+    // abstraction function:
+    //    represents the same collection of copies as library
+    //
+    // safety from rep exposure:
+    //    all fields are private and final except nextId and epoch, primitives; library,
+    //      journal, ids and copies are never returned.  Copies are shared with clients by design:
+    //      their only mutable state is their condition.
+    //
+    // thread safety argument:
+    //    library, ids, copies, nextId and epoch are only accessed while holding this
+    //      object's monitor.  Journal is threadsafe; records are appended under this object's monitor
+    //      in the order their mutations were applied, and only awaitDurable() is called
+    //      outside it.
+
+    /**
+     * Open a journaled library, loading its last checkpoint if there is one and replaying
+     * the journal written since.
+     * @param file journal file; created if it does not exist.  The checkpoint is read from
+     *        and written to the file named like it with ".snapshot" appended.
+     * @param groupCommit whether concurrent mutations share fsyncs
+     * @throws IOException if the checkpoint or journal cannot be read or opened, the journal
+     *         contains a record that cannot be replayed, or it is of a later epoch than the
+     *         checkpoint.  A record torn by a crash at the end of the journal is not an
+     *         error: it is dropped, since its mutation never returned.
+     */
+    public JournaledLibrary(Path file, boolean groupCommit) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("file cannot be null");
+        }
+        snapshotFile = file.resolveSibling(file.getFileName() + ".snapshot");
+        ids = new HashMap<>();
+        copies = new HashMap<>();
+        if (Files.exists(snapshotFile)) {
+            LibrarySnapshot.Loaded loaded = LibrarySnapshot.read(snapshotFile);
+            library = loaded.library;
+            epoch = loaded.label;
+            remember(loaded.copies, 0);
+        } else {
+            library = new BigLibrary(false);
+            epoch = 0;
+        }
+        List<byte[]> records = new ArrayList<>();
+        journal = new Journal(file, groupCommit, records);
+        try {
+            if (records.isEmpty() || epochOf(records.get(0)) < epoch) {
+                // new, or left by a checkpoint that crashed after saving its snapshot
+                startEpoch();
+            } else if (epochOf(records.get(0)) > epoch) {
+                throw new IOException("journal of epoch " + epochOf(records.get(0))
+                        + " is later than its checkpoint, of epoch " + epoch);
+            } else {
+                for (byte[] record : records.subList(1, records.size())) {
+                    replay(record);
+                }
+            }
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException | NullPointerException e) {
+            journal.close();
+            throw new IOException("corrupt journal: " + file, e);
+        } catch (UncheckedIOException e) {
+            journal.close();
+            throw e.getCause();
+        }
+        // in bulk now, rather than inside the first search while holding this library's lock
+        library.buildIndex();
+        checkRep();
+    }
+
+    /**
+     * @return the epoch in the first record of a journal
+     * @throws IOException if record is not an epoch record
+     */
+    private static long epochOf(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        if (in.readByte() != EPOCH) {
+            throw new IOException("journal does not start with its epoch");
+        }
+        return in.readLong();
+    }
+
+    /**
+     * Empty the journal and start it with the record of epoch, durably.
+     * @throws UncheckedIOException if writing the journal fails
+     */
+    private void startEpoch() {
+        journal.reset();
+        journal.awaitDurable(journal.append(record(EPOCH, epoch).toByteArray()));
+    }
+
+    // assert the rep invariant, in time independent of the size of the library
+    private void checkRep() {
+        assert ids.size() == copies.size();
+    }
+
+    /**
+     * Apply one journal record to library.
+     */
+    private void replay(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        long id = in.readLong();
+        if (type == BUY) {
+            int count = in.readInt();
+            Book book = readBook(in);
+            remember(library.buy(book, count), id);
+            return;
+        }
+        BookCopy copy = copies.get(id);
+        if (copy == null) {
+            throw new IOException("no copy with id " + id);
+        }
+        switch (type) {
+        case CHECKOUT:
+            library.checkout(copy);
+            break;
+        case CHECKIN:
+            library.checkin(copy);
+            break;
+        case LOSE:
+            library.lose(copy);
+            forget(copy);
+            break;
+        case CONDITION:
+            copy.setCondition(BookCopy.Condition.values()[in.readByte()]);
+            break;
+        case EPOCH:
+            throw new IOException("epoch record after the start of the journal");
+        default:
+            throw new IOException("unknown record type " + type);
+        }
+    }
+
+    /**
+     * Assign consecutive ids to new copies.
+     */
+    private void remember(List<BookCopy> newCopies, long firstId) {
+        long id = firstId;
+        for (BookCopy copy : newCopies) {
+            ids.put(copy, id);
+            copies.put(id, copy);
+            id++;
+        }
+        nextId = Math.max(nextId, id);
+    }
+
+    private void forget(BookCopy copy) {
+        copies.remove(ids.remove(copy));
+    }
+
+    /**
+     * @return a journal record of type for the copy with id
+     */
+    private static ByteArrayOutputStream record(byte type, long id) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(id);
+        } catch (IOException e) {
+            throw new AssertionError("ByteArrayOutputStream does not throw", e);
+        }
+        return bytes;
+    }
+
+    /**
+     * Append the record of buying count copies of book, with ids from firstId.
+     * @return sequence number of the record
+     */
+    private long appendBuy(Book book, int count, long firstId) {
+        ByteArrayOutputStream bytes = record(BUY, firstId);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(count);
+            writeString(out, book.getTitle());
+            out.writeInt(book.getAuthorCount());
+            for (int i = 0; i < book.getAuthorCount(); i++) {
+                writeString(out, book.getAuthor(i));
+            }
+            out.writeInt(book.getYear());
+        } catch (IOException e) {
+            throw new AssertionError("ByteArrayOutputStream does not throw", e);
+        }
+        return journal.append(bytes.toByteArray());
+    }
+
+    /**
+     * Append the record of a mutation of one copy.
+     * @return sequence number of the record
+     */
+    private long append(byte type, BookCopy copy) {
+        return journal.append(record(type, ids.get(copy)).toByteArray());
+    }
+
+    // strings are written as UTF-8 with an int length, since writeUTF() is limited to 64KB
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Book readBook(DataInputStream in) throws IOException {
+        String title = readString(in);
+        int authorCount = in.readInt();
+        List<String> authors = new ArrayList<>();
+        for (int i = 0; i < authorCount; i++) {
+            authors.add(readString(in));
+        }
+        return new Book(title, authors, in.readInt());
+    }
+
+    @Override
+    public BookCopy buy(Book book) {
+        return buy(book, 1).get(0);
+    }
+
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        List<BookCopy> newCopies;
+        long sequence;
+        synchronized (this) {
+            newCopies = library.buy(book, count);
+            if (count == 0) {
+                return newCopies;
+            }
+            long firstId = nextId;
+            remember(newCopies, firstId);
+            sequence = appendBuy(book, count, firstId);
+            checkRep();
+        }
+        journal.awaitDurable(sequence);
+        return newCopies;
+    }
+
+    @Override
+    public List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        List<BookCopy> newCopies;
+        long sequence = 0;
+        synchronized (this) {
+            newCopies = library.buyAll(shipment);
+            int next = 0;
+            for (Map.Entry<Book, Integer> entry : shipment.entrySet()) {
+                int count = entry.getValue();
+                if (count > 0) {
+                    long firstId = nextId;
+                    remember(newCopies.subList(next, next + count), firstId);
+                    sequence = appendBuy(entry.getKey(), count, firstId);
+                    next += count;
+                }
+            }
+            checkRep();
+        }
+        journal.awaitDurable(sequence);
+        return newCopies;
+    }
+
+    @Override
+    public void checkout(BookCopy copy) {
+        long sequence;
+        synchronized (this) {
+            library.checkout(copy);
+            sequence = append(CHECKOUT, copy);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public void checkin(BookCopy copy) {
+        long sequence;
+        synchronized (this) {
+            library.checkin(copy);
+            sequence = append(CHECKIN, copy);
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        return moveAll(copies, CHECKOUT);
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        return moveAll(copies, CHECKIN);
+    }
+
+    /**
+     * Check out or check in several copies, appending their records under one lock
+     * acquisition and waiting for one fsync.
+     */
+    private List<BookCopy> moveAll(Collection<BookCopy> batch, byte type) {
+        if (batch == null) {
+            throw new IllegalArgumentException("copies cannot be null");
+        }
+        for (BookCopy copy : batch) {
+            if (copy == null) {
+                throw new IllegalArgumentException("copies cannot contain null");
+            }
+        }
+        List<BookCopy> failed = new ArrayList<>();
+        long sequence = 0;
+        synchronized (this) {
+            for (BookCopy copy : batch) {
+                try {
+                    if (type == CHECKOUT) {
+                        library.checkout(copy);
+                    } else {
+                        library.checkin(copy);
+                    }
+                    sequence = append(type, copy);
+                } catch (IllegalArgumentException e) {
+                    failed.add(copy);
+                }
+            }
+        }
+        journal.awaitDurable(sequence);
+        return failed;
+    }
+
+    @Override
+    public void lose(BookCopy copy) {
+        long sequence;
+        synchronized (this) {
+            if (copy == null || !ids.containsKey(copy)) {
+                library.lose(copy);
+                return;
+            }
+            library.lose(copy);
+            sequence = append(LOSE, copy);
+            forget(copy);
+            checkRep();
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    /**
+     * Change the condition of a copy, durably.
+     * @param copy copy in this library
+     * @param condition its new condition
+     */
+    public void setCondition(BookCopy copy, BookCopy.Condition condition) {
+        if (condition == null) {
+            throw new IllegalArgumentException("condition cannot be null");
+        }
+        long sequence;
+        synchronized (this) {
+            if (copy == null || !ids.containsKey(copy)) {
+                throw new IllegalArgumentException("book copy not in library");
+            }
+            copy.setCondition(condition);
+            ByteArrayOutputStream bytes = record(CONDITION, ids.get(copy));
+            bytes.write(condition.ordinal());
+            sequence = journal.append(bytes.toByteArray());
+        }
+        journal.awaitDurable(sequence);
+    }
+
+    @Override
+    public synchronized boolean isAvailable(BookCopy copy) {
+        return library.isAvailable(copy);
+    }
+
+    @Override
+    public synchronized LibraryView snapshot() {
+        return library.snapshot();
+    }
+
+    @Override
+    public synchronized Set<BookCopy> allCopies(Book book) {
+        return library.allCopies(book);
+    }
+
+    @Override
+    public synchronized Set<BookCopy> availableCopies(Book book) {
+        return library.availableCopies(book);
+    }
+
+    @Override
+    public synchronized List<Book> find(String query) {
+        return library.find(query);
+    }
+
+    @Override
+    public synchronized List<Book> find(String query, int k) {
+        return library.find(query, k);
+    }
+
+    @Override
+    public synchronized SearchPage findPage(String query, int pageSize) {
+        return library.findPage(query, pageSize);
+    }
+
+    @Override
+    public synchronized SearchPage findPage(SearchCursor cursor, int pageSize) {
+        return library.findPage(cursor, pageSize);
+    }
+
+    @Override
+    public synchronized List<Book> fuzzyFind(String query, int k) {
+        return library.fuzzyFind(query, k);
+    }
+
+    @Override
+    public synchronized List<String> suggest(String prefix, int limit) {
+        return library.suggest(prefix, limit);
+    }
+
+    /**
+     * Checkpoint this library: save a snapshot of it next to its journal, then empty the
+     * journal, so that reopening loads the snapshot and replays only the mutations made
+     * after this call.  Takes time linear in the size of the library, during which other
+     * operations wait.  Copies keep their identity; only their ids in the journal change.
+     * @throws IOException if saving the snapshot fails; the last checkpoint and the journal
+     *         are then unchanged
+     * @throws UncheckedIOException if emptying the journal fails after the snapshot was
+     *         saved; the journal has then failed, as after any failed write, and reopening
+     *         recovers from the snapshot
+     */
+    public synchronized void checkpoint() throws IOException {
+        List<BookCopy> order = LibrarySnapshot.save(library, snapshotFile, epoch + 1);
+        // until the new epoch is durable, the journal is of an older epoch than the saved
+        // snapshot, and reopening would discard it
+        epoch++;
+        ids.clear();
+        copies.clear();
+        nextId = 0;
+        remember(order, 0);
+        startEpoch();
+        checkRep();
+    }
+
+    /**
+     * Make every mutation durable and close the journal.  The library must not be used
+     * afterwards.
+     * @throws IOException if writing or closing the journal fails
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
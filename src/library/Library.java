@@ -1,6 +1,10 @@
 package library;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -17,6 +21,56 @@ public interface Library {
      */
     public BookCopy buy(Book book);
 
+    /**
+     * Buy several new copies of a book, e.g. when a shipment arrives.
+     * @param book Book to buy
+     * @param count number of copies to buy; must be nonnegative
+     * @return count new, distinct, good-condition copies of the book, which are now available
+     *         in this library
+     */
+    public default List<BookCopy> buy(Book book, int count) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count cannot be negative");
+        }
+        List<BookCopy> copies = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            copies.add(buy(book));
+        }
+        return copies;
+    }
+
+    /**
+     * Buy new copies of many books at once, e.g. when stocking a new library from a catalog.
+     * @param shipment map from each book to buy to the number of copies of it to buy; must
+     *                 not contain null keys, and its counts must be nonnegative
+     * @return for each book in shipment, the given number of new, distinct, good-condition
+     *         copies of it, which are now available in this library; in the iteration order
+     *         of shipment
+     */
+    public default List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        if (shipment == null) {
+            throw new IllegalArgumentException("shipment cannot be null");
+        }
+        int total = 0;
+        for (Map.Entry<Book, Integer> entry : shipment.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new IllegalArgumentException("book cannot be null");
+            }
+            if (entry.getValue() == null || entry.getValue() < 0) {
+                throw new IllegalArgumentException("count cannot be negative");
+            }
+            total += entry.getValue();
+        }
+        List<BookCopy> copies = new ArrayList<>(total);
+        for (Map.Entry<Book, Integer> entry : shipment.entrySet()) {
+            copies.addAll(buy(entry.getKey(), entry.getValue()));
+        }
+        return copies;
+    }
+
     /**
      * Check out a copy of a book.
      * @param copy Copy to check out. Requires that the copy be available in this library.
@@ -29,6 +83,61 @@ public interface Library {
      */
     public void checkin(BookCopy copy);
 
+    /**
+     * Check out several copies, skipping those that cannot be checked out.
+     * @param copies copies to check out, in order; must not contain null
+     * @return the elements of copies, in order, that were not available in this library
+     *         when their turn came, and so were not checked out; every other element of
+     *         copies has been checked out
+     */
+    public default List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        if (copies == null) {
+            throw new IllegalArgumentException("copies cannot be null");
+        }
+        for (BookCopy copy : copies) {
+            if (copy == null) {
+                throw new IllegalArgumentException("copies cannot contain null");
+            }
+        }
+        List<BookCopy> failed = new ArrayList<>();
+        for (BookCopy copy : copies) {
+            try {
+                checkout(copy);
+            } catch (IllegalArgumentException e) {
+                failed.add(copy);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Check in several copies, e.g. at the end of the day, skipping those that cannot be
+     * checked in.
+     * @param copies copies to check in, in order; must not contain null
+     * @return the elements of copies, in order, that were not checked out of this library
+     *         when their turn came, and so were not checked in; every other element of
+     *         copies has been checked in
+     */
+    public default List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        if (copies == null) {
+            throw new IllegalArgumentException("copies cannot be null");
+        }
+        for (BookCopy copy : copies) {
+            if (copy == null) {
+                throw new IllegalArgumentException("copies cannot contain null");
+            }
+        }
+        List<BookCopy> failed = new ArrayList<>();
+        for (BookCopy copy : copies) {
+            try {
+                checkin(copy);
+            } catch (IllegalArgumentException e) {
+                failed.add(copy);
+            }
+        }
+        return failed;
+    }
+
     /**
      * Test whether a book copy is available in this library.
      * @param copy Book copy to test
@@ -50,6 +159,30 @@ public interface Library {
      */
     public Set<BookCopy> availableCopies(Book book);
 
+    /**
+     * Get a read-only view of all the copies of a book, for callers that only ask it for its
+     * size or whether it contains a copy, and so should not pay to build a fresh set.
+     * The view may be live, reflecting later changes to this library; an implementation
+     * that returns a live view says so, and then the view must only be used while no other
+     * thread changes the library, and iterating it while the library changes may throw
+     * ConcurrentModificationException.  Use allCopies() for a set to keep.
+     * @param book Book to find
+     * @return unmodifiable set of all copies of the book in this library's collection, both
+     *         available and checked out
+     */
+    public default Set<BookCopy> allCopiesView(Book book) {
+        return Collections.unmodifiableSet(allCopies(book));
+    }
+
+    /**
+     * Get a read-only view of the available copies of a book; see allCopiesView().
+     * @param book Book to find
+     * @return unmodifiable set of all copies of the book that are available in this library
+     */
+    public default Set<BookCopy> availableCopiesView(Book book) {
+        return Collections.unmodifiableSet(availableCopies(book));
+    }
+
     /**
      * Search for books in this library's collection.
      * @param query search string
@@ -65,6 +198,80 @@ public interface Library {
      */
     public List<Book> find(String query);
 
+    /**
+     * Search for the best matches in this library's collection.
+     * @param query search string
+     * @param k maximum number of books to return; must be positive
+     * @return the first min(k, n) books of find(query), in the same order, where n is the
+     * length of find(query).  Implementations should not need to rank every match of query
+     * to produce them.
+     */
+    public List<Book> find(String query, int k);
+
+    /**
+     * Search this library's collection one page at a time.  The pages of one search, found
+     * by this method and then by findPage(cursor, pageSize) with the cursor of each page in
+     * turn, list the books of find(query) as of this call, in the same order, each at most
+     * once, except that a book is skipped if it has no copies left in this library when its
+     * page is found.  Books bought after this call are not listed.
+     * @param query search string
+     * @param pageSize maximum number of books on the page; must be positive
+     * @return the first page of the search
+     */
+    public default SearchPage findPage(String query, int pageSize) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size must be positive");
+        }
+        return SearchPage.next(this, SearchIndex.Results.of(find(query)), 0, pageSize);
+    }
+
+    /**
+     * Find the next page of a search; see findPage(query, pageSize).
+     * @param cursor cursor of the previous page of a search of this library
+     * @param pageSize maximum number of books on the page; must be positive
+     * @return the page of the search that follows cursor
+     */
+    public default SearchPage findPage(SearchCursor cursor, int pageSize) {
+        if (cursor == null) {
+            throw new IllegalArgumentException("cursor cannot be null");
+        }
+        return SearchPage.next(this, cursor.getResults(), cursor.getPosition(), pageSize);
+    }
+
+    /**
+     * Search for books in this library's collection, tolerating misspellings.
+     * @param query search string
+     * @param k maximum number of books to return; must be positive
+     * @return list of at most k books in this library's collection (both available and checked
+     * out) whose title or author contain a word close to a word of the query, ordered by
+     * decreasing amount of match.  A book should appear at most once on the list.
+     * Words of the query match words up to a number of edits (single-character insertions,
+     * deletions or substitutions, or swaps of adjacent characters) that depends on their length: no edits for words of one or
+     * two characters, one edit for three to five characters, two edits for longer words.
+     * Case, punctuation and a possessive 's are ignored.  Ranking is otherwise underdetermined,
+     * but at the very least must support:
+     *     - exact matching: if a book would match a query with no edits, it matches at least as
+     *           well as any book that needs edits to match the same query words.
+     *     - date ordering: if two matching books have the same title and author but different
+     *           publication dates, then the newer book should appear earlier on the list.
+     */
+    public List<Book> fuzzyFind(String query, int k);
+
+    /**
+     * Complete a prefix of a title or author name, e.g. as a patron types a search.
+     * @param prefix beginning of a title or author name
+     * @param limit maximum number of suggestions to return; must be positive
+     * @return up to limit distinct strings, each of which is the title or one of the authors
+     * of a book in this library's collection (available or checked out) and starts with
+     * prefix, ignoring case.  The strings are in alphabetical order ignoring case, with
+     * strings that differ only in case in alphabetical order, and are the first such strings
+     * in that order.
+     */
+    public List<String> suggest(String prefix, int limit);
+
     /**
      * Declare a copy of a book as lost from the library.  A copy can be declared lost if it is stolen
      * without being checked out, or if a borrower checks it out but never returns it.
@@ -72,6 +279,17 @@ public interface Library {
      */
     public void lose(BookCopy copy);
 
+    /**
+     * Take a consistent, read-only view of this library's copies as they are now.  Later
+     * changes to this library do not change the view.  Not every implementation supports
+     * snapshots.
+     * @return an immutable view of the copies in this library, and which are available
+     * @throws UnsupportedOperationException if this library cannot take snapshots
+     */
+    public default LibraryView snapshot() {
+        throw new UnsupportedOperationException("snapshots not supported by " + getClass().getSimpleName());
+    }
+
 
     /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
      * Redistribution of original or derived work requires explicit permission.
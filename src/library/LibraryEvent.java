@@ -0,0 +1,106 @@
+package library;
+
+/**
+ * LibraryEvent is an immutable record of one change to the copies of a library: a copy was
+ * bought, checked out, checked in, lost, or changed condition.
+ */
+public class LibraryEvent {
+
+    /**
+     * Kind of change.
+     */
+    public static enum Type {
+        BOUGHT, CHECKED_OUT, CHECKED_IN, LOST, CONDITION_CHANGED
+    };
+
+    private final long sequence;
+    private final Type type;
+    private final BookCopy copy;
+    private final BookCopy.Condition condition;
+
+    // rep invariant:
+    //    sequence >= 0; type, copy and condition are non-null
+    //
+    // abstraction function:
+    //    represents the sequence'th change published by a library, of kind type, to copy,
+    //      after which copy was in condition
+    //
+    // safety from rep exposure:
+    //    all fields are private and final.  copy is shared with clients by design; its
+    //      condition may have changed since the event, which is why the event records it.
+
+    /**
+     * Make an event.
+     * @param sequence number of the event among those published by its library, from 0
+     * @param type kind of change
+     * @param copy copy that changed
+     * @param condition condition of copy after the change
+     */
+    public LibraryEvent(long sequence, Type type, BookCopy copy, BookCopy.Condition condition) {
+        if (sequence < 0) {
+            throw new IllegalArgumentException("sequence cannot be negative");
+        }
+        if (type == null || copy == null || condition == null) {
+            throw new IllegalArgumentException("type, copy and condition cannot be null");
+        }
+        this.sequence = sequence;
+        this.type = type;
+        this.copy = copy;
+        this.condition = condition;
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert sequence >= 0;
+        assert type != null && copy != null && condition != null;
+    }
+
+    /**
+     * @return number of this event among those published by its library, from 0; a
+     *         subscriber that sees a gap in the numbers has missed events
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the copy that changed
+     */
+    public BookCopy getCopy() {
+        return copy;
+    }
+
+    /**
+     * @return the book of which the changed copy is a copy
+     */
+    public Book getBook() {
+        return copy.getBook();
+    }
+
+    /**
+     * @return the condition of the copy just after the change
+     */
+    public BookCopy.Condition getCondition() {
+        return condition;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type + " " + copy.getBook() + " (" + condition + ")";
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
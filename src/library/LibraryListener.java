@@ -0,0 +1,24 @@
+package library;
+
+import java.util.List;
+
+/**
+ * LibraryListener is notified of the changes to a PublishingLibrary, in batches.
+ */
+public interface LibraryListener {
+
+    /**
+     * Called with the next events for this listener, on its subscription's delivery
+     * thread, never concurrently with itself.  Events arrive in the order they were
+     * published, less any dropped because this listener fell behind.
+     * @param events nonempty, unmodifiable list of events, in increasing sequence order
+     */
+    public void eventsPublished(List<LibraryEvent> events);
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
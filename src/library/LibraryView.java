@@ -0,0 +1,178 @@
+package library;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LibraryView is an immutable, read-only view of the circulation state of a Library at one
+ * moment: which copies of which books it had, and which of them were available.  Views are
+ * made by Library.snapshot(), and later changes to the library never show through, so a
+ * long-running report can iterate over a view while the library keeps changing, without
+ * locking it and without seeing a half-finished operation.
+ *
+ * A view records copies, not their conditions: BookCopy.getCondition() on a copy from a
+ * view returns the copy's current condition.
+ */
+public class LibraryView {
+
+    /**
+     * The copies of one book at the moment of a snapshot.
+     */
+    static final class Shelf {
+        private final Set<BookCopy> all;
+        private final Set<BookCopy> available;
+
+        /**
+         * @param available the available copies of a book
+         * @param checkedOut its checked out copies, disjoint from available; together with
+         *        available, at least one copy
+         */
+        Shelf(Collection<BookCopy> available, Collection<BookCopy> checkedOut) {
+            Set<BookCopy> all = new HashSet<>(available);
+            all.addAll(checkedOut);
+            this.all = Collections.unmodifiableSet(all);
+            this.available = Collections.unmodifiableSet(new HashSet<>(available));
+        }
+    }
+
+    private final PersistentMap<Book, Shelf> shelves;
+    private final Set<Book> books;
+
+    // rep invariant:
+    //    every shelf in shelves holds at least one copy, and every copy on the shelf of book
+    //      b is a copy of b
+    //    books is the key set of shelves
+    //
+    // abstraction function:
+    //    represents the library in which the copies of each book b are those on
+    //      shelves.get(b), and exactly the copies in its available set are available
+    //
+    // safety from rep exposure:
+    //    all fields are private and final.  shelves is immutable, and the sets of a shelf
+    //      and books are unmodifiable, so the sets returned by books(), allCopies() and
+    //      availableCopies() cannot change the view.  BookCopy is mutable, but its condition
+    //      is not part of this rep.
+    //
+    // thread safety argument:
+    //    this type is immutable, so views can be shared freely between threads.
+
+    /**
+     * Make a view of the given shelves.
+     * @param shelves the copies of each book; not changed afterwards
+     */
+    LibraryView(final PersistentMap<Book, Shelf> shelves) {
+        this.shelves = shelves;
+        this.books = new AbstractSet<Book>() {
+            @Override
+            public Iterator<Book> iterator() {
+                return shelves.iterator();
+            }
+
+            @Override
+            public int size() {
+                return shelves.size();
+            }
+
+            @Override
+            public boolean contains(Object book) {
+                return book != null && shelves.containsKey(book);
+            }
+        };
+        checkRep();
+    }
+
+    // assert the rep invariant, in time independent of the size of the view
+    private void checkRep() {
+        assert shelves != null && books != null;
+    }
+
+    /**
+     * Make a view by copying every copy of a library, in time linear in their number; for
+     * libraries small enough that a snapshot can afford to copy them.
+     * @param available the available copies of a library
+     * @param checkedOut its checked out copies, disjoint from available
+     * @return a view of a library with exactly those copies
+     */
+    static LibraryView copyOf(Collection<BookCopy> available, Collection<BookCopy> checkedOut) {
+        Map<Book, List<List<BookCopy>>> byBook = new HashMap<>();
+        for (int state = 0; state < 2; state++) {
+            for (BookCopy copy : state == 0 ? available : checkedOut) {
+                List<List<BookCopy>> lists = byBook.get(copy.getBook());
+                if (lists == null) {
+                    lists = Arrays.<List<BookCopy>>asList(new ArrayList<BookCopy>(), new ArrayList<BookCopy>());
+                    byBook.put(copy.getBook(), lists);
+                }
+                lists.get(state).add(copy);
+            }
+        }
+        PersistentMap<Book, Shelf> shelves = PersistentMap.empty();
+        for (Map.Entry<Book, List<List<BookCopy>>> entry : byBook.entrySet()) {
+            shelves = shelves.plus(entry.getKey(), new Shelf(entry.getValue().get(0), entry.getValue().get(1)));
+        }
+        return new LibraryView(shelves);
+    }
+
+    /**
+     * @return the books of which the library had at least one copy, as an unmodifiable set
+     */
+    public Set<Book> books() {
+        return books;
+    }
+
+    /**
+     * @param book Book
+     * @return the unmodifiable set of copies of book that the library had, available or
+     *         checked out
+     */
+    public Set<BookCopy> allCopies(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        Shelf shelf = shelves.get(book);
+        return shelf == null ? Collections.<BookCopy>emptySet() : shelf.all;
+    }
+
+    /**
+     * @param book Book
+     * @return the unmodifiable set of copies of book that were available in the library
+     */
+    public Set<BookCopy> availableCopies(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("book cannot be null");
+        }
+        Shelf shelf = shelves.get(book);
+        return shelf == null ? Collections.<BookCopy>emptySet() : shelf.available;
+    }
+
+    /**
+     * @param copy a book copy
+     * @return true if and only if copy was available in the library
+     */
+    public boolean isAvailable(BookCopy copy) {
+        if (copy == null) {
+            throw new IllegalArgumentException("book copy cannot be null");
+        }
+        return availableCopies(copy.getBook()).contains(copy);
+    }
+
+    @Override
+    public String toString() {
+        return "LibraryView of " + shelves.size() + " books";
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,185 @@
+package library;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OperationStats is the mutable, threadsafe record of the calls of one operation of an
+ * InstrumentedLibrary: how many returned and how many were rejected, how long they took,
+ * and how big their results were.  It is also the JMX MBean that publishes them.
+ */
+public final class OperationStats implements OperationStatsMBean {
+
+    /**
+     * Start time passed to record() for a call that was not timed.
+     */
+    static final long UNTIMED = Long.MIN_VALUE;
+
+    private final String operation;
+    private final LongAdder calls;
+    private final Histogram latencies;
+    private final Histogram resultSizes;
+    private final LongAdder rejections;
+
+    // rep invariant:
+    //    operation is non-null and nonempty
+    //    calls is at least the number of values in latencies
+    //
+    // abstraction function:
+    //    represents the calls of operation: calls calls that returned normally, of which
+    //      the timed ones took the times in latencies and, for operations whose results
+    //      have a size, returned results of the sizes in resultSizes; and rejections calls
+    //      that were rejected
+    //
+    // safety from rep exposure:
+    //    all fields are private and final; the histograms are never returned, only
+    //      numbers computed from them.
+    //
+    // thread safety argument:
+    //    Histogram and LongAdder are threadsafe, and operation is immutable.  A reader that
+    //      runs while calls are recorded sees statistics of the calls before, during and
+    //      after its reads, as Histogram allows, so calls may briefly be less than the
+    //      number of latencies.
+
+    /**
+     * Make a record of no calls.
+     * @param operation name of the operation; must be nonempty
+     */
+    OperationStats(String operation) {
+        if (operation == null || operation.isEmpty()) {
+            throw new IllegalArgumentException("operation must be nonempty");
+        }
+        this.operation = operation;
+        this.calls = new LongAdder();
+        this.latencies = new Histogram();
+        this.resultSizes = new Histogram();
+        this.rejections = new LongAdder();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert operation != null && !operation.isEmpty();
+    }
+
+    /**
+     * Record a call that returned a result without a size.
+     * @param start System.nanoTime() when the call started, or UNTIMED if it was not timed
+     */
+    void record(long start) {
+        calls.increment();
+        if (start != UNTIMED) {
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Record a call that returned a result with a size.
+     * @param start System.nanoTime() when the call started, or UNTIMED if it was not timed
+     * @param size size of its result; must be nonnegative
+     */
+    void record(long start, int size) {
+        calls.increment();
+        if (start != UNTIMED) {
+            latencies.record(System.nanoTime() - start);
+            resultSizes.record(size);
+        }
+    }
+
+    /**
+     * Record a call rejected with an IllegalArgumentException.
+     */
+    void reject() {
+        rejections.increment();
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getTimedCalls() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public double getMeanLatency() {
+        return latencies.getMean();
+    }
+
+    @Override
+    public long getLatency50thPercentile() {
+        return latencies.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLatency90thPercentile() {
+        return latencies.getValueAtPercentile(90);
+    }
+
+    @Override
+    public long getLatency99thPercentile() {
+        return latencies.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLatency999thPercentile() {
+        return latencies.getValueAtPercentile(99.9);
+    }
+
+    @Override
+    public long getMaxLatency() {
+        return latencies.getMax();
+    }
+
+    @Override
+    public double getMeanResultSize() {
+        return resultSizes.getMean();
+    }
+
+    @Override
+    public long getResultSize50thPercentile() {
+        return resultSizes.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getResultSize99thPercentile() {
+        return resultSizes.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getMaxResultSize() {
+        return resultSizes.getMax();
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        latencies.reset();
+        resultSizes.reset();
+        rejections.reset();
+    }
+
+    @Override
+    public String toString() {
+        return operation + ": " + getCalls() + " calls, " + getRejections() + " rejected, p50 "
+                + getLatency50thPercentile() + " ns, p99 " + getLatency99thPercentile() + " ns";
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,94 @@
+package library;
+
+/**
+ * OperationStatsMBean is the management interface of OperationStats, through which JMX
+ * clients such as jconsole read the statistics of one operation of an InstrumentedLibrary.
+ * Latencies are in nanoseconds; percentiles are within about 3% of the exact value.
+ * Latency and result size statistics are of the calls that were timed, which are a random
+ * sample of the calls if the library was wrapped to time only a sample.
+ */
+public interface OperationStatsMBean {
+
+    /**
+     * @return name of the operation, e.g. "checkout"
+     */
+    public String getOperation();
+
+    /**
+     * @return number of calls that returned normally
+     */
+    public long getCalls();
+
+    /**
+     * @return number of calls that returned normally and were timed
+     */
+    public long getTimedCalls();
+
+    /**
+     * @return number of calls rejected with an IllegalArgumentException
+     */
+    public long getRejections();
+
+    /**
+     * @return mean latency of the calls that returned normally
+     */
+    public double getMeanLatency();
+
+    /**
+     * @return median latency of the calls that returned normally
+     */
+    public long getLatency50thPercentile();
+
+    /**
+     * @return 90th percentile latency of the calls that returned normally
+     */
+    public long getLatency90thPercentile();
+
+    /**
+     * @return 99th percentile latency of the calls that returned normally
+     */
+    public long getLatency99thPercentile();
+
+    /**
+     * @return 99.9th percentile latency of the calls that returned normally
+     */
+    public long getLatency999thPercentile();
+
+    /**
+     * @return largest latency of a call that returned normally
+     */
+    public long getMaxLatency();
+
+    /**
+     * @return mean size of the results of the calls that returned normally, or 0 if the
+     *         operation's results have no size
+     */
+    public double getMeanResultSize();
+
+    /**
+     * @return median result size of the calls that returned normally
+     */
+    public long getResultSize50thPercentile();
+
+    /**
+     * @return 99th percentile result size of the calls that returned normally
+     */
+    public long getResultSize99thPercentile();
+
+    /**
+     * @return largest result size of a call that returned normally
+     */
+    public long getMaxResultSize();
+
+    /**
+     * Forget every call recorded so far, e.g. at the start of a measurement period.
+     */
+    public void reset();
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
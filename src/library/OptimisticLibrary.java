@@ -0,0 +1,295 @@
+package library;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * OptimisticLibrary is a threadsafe wrapper for another Library, such as a BigLibrary, that
+ * serves read-heavy traffic without making readers write to shared memory.
+ *
+ * Mutators (buy, checkout, checkin, lose and their bulk forms) take the exclusive write
+ * lock of a StampedLock, and before releasing it publish a fresh snapshot of the wrapped
+ * library, an immutable LibraryView.  isAvailable(), allCopies(), availableCopies() and
+ * snapshot() read optimistically: they take a stamp with tryOptimisticRead(), read the
+ * published view, and validate the stamp; only if a mutator held the lock meanwhile do they
+ * wait for it under the read lock.  Since the view is immutable, what an optimistic reader
+ * reads is never torn, and since every mutation is published before its lock is released,
+ * an observer that validates never answers from a state older than a mutation that has
+ * finished.
+ *
+ * Searches (find, findPage, fuzzyFind and suggest) read the wrapped library's search index,
+ * which mutators change in place, so they share the read lock, and wait only while a
+ * mutator runs.  A StampedLock is not fair, but mutators are rare, and a writer waiting for
+ * the read lock to be released is not overtaken by readers that arrive after it.
+ *
+ * Each mutation takes a snapshot, so wrap a library whose snapshots cost time proportional
+ * to the changes since the last one, such as BigLibrary; a BigLibrary made without a search
+ * index has it built when it is wrapped.  The wrapped library's searches must not mutate
+ * it, since several may run at once.
+ */
+public class OptimisticLibrary implements Library {
+
+    private final Library library;
+    private final StampedLock lock;
+    private volatile LibraryView view;
+
+    // rep invariant:
+    //    library, lock and view are non-null
+    //    while lock is not write-locked, view is a snapshot of library's current state
+    //
+    // abstraction function:
+    //    represents the same collection of copies as library
+    //
+    // safety from rep exposure:
+    //    library and lock are private and final and never returned; the client that wrapped
+    //      library must stop using it directly.  view is immutable, and allCopies() and
+    //      availableCopies() return fresh copies of its sets.
+    //
+    // thread safety argument:
+    //    library is only mutated while holding lock's write lock, and its search index only
+    //      observed while holding its read lock; its searches do not mutate it, so
+    //      concurrent searches do not interfere.
+    //    view is volatile and immutable, and is only assigned while holding the write lock,
+    //      after the mutation it reflects; a reader whose stamp validates read it after the
+    //      last write lock was released, so it reads the latest view.
+    //    results are fresh or immutable, so returning them shares nothing between threads.
+
+    /**
+     * Wrap a library.
+     * @param library library to wrap; after this call it must only be used through the
+     *        wrapper.  If it is a BigLibrary, its search index is built now, so that no
+     *        search builds it while other observers run.
+     */
+    public OptimisticLibrary(Library library) {
+        if (library == null) {
+            throw new IllegalArgumentException("library cannot be null");
+        }
+        if (library instanceof BigLibrary) {
+            ((BigLibrary) library).buildIndex();
+        }
+        this.library = library;
+        this.lock = new StampedLock();
+        this.view = library.snapshot();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert library != null && lock != null && view != null;
+    }
+
+    // take the write lock; release it with unlock()
+    private long lock() {
+        return lock.writeLock();
+    }
+
+    // publish the state left by a mutation, even one that failed part way, then release the
+    // write lock
+    private void unlock(long stamp) {
+        try {
+            view = library.snapshot();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // the view as of the last mutation that finished
+    private LibraryView view() {
+        long stamp = lock.tryOptimisticRead();
+        LibraryView current = view;
+        if (lock.validate(stamp)) {
+            return current;
+        }
+        stamp = lock.readLock();
+        try {
+            return view;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public BookCopy buy(Book book) {
+        long stamp = lock();
+        try {
+            return library.buy(book);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        long stamp = lock();
+        try {
+            return library.buy(book, count);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    @Override
+    public List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        long stamp = lock();
+        try {
+            return library.buyAll(shipment);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        long stamp = lock();
+        try {
+            return library.checkoutAll(copies);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        long stamp = lock();
+        try {
+            return library.checkinAll(copies);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    @Override
+    public void checkout(BookCopy copy) {
+        long stamp = lock();
+        try {
+            library.checkout(copy);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    @Override
+    public void checkin(BookCopy copy) {
+        long stamp = lock();
+        try {
+            library.checkin(copy);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    @Override
+    public void lose(BookCopy copy) {
+        long stamp = lock();
+        try {
+            library.lose(copy);
+        } finally {
+            unlock(stamp);
+        }
+    }
+
+    /**
+     * Take a snapshot of the wrapped library, in constant time: the view published by the
+     * last mutation.
+     */
+    @Override
+    public LibraryView snapshot() {
+        return view();
+    }
+
+    @Override
+    public boolean isAvailable(BookCopy copy) {
+        return view().isAvailable(copy);
+    }
+
+    @Override
+    public Set<BookCopy> allCopies(Book book) {
+        return new HashSet<>(view().allCopies(book));
+    }
+
+    @Override
+    public Set<BookCopy> availableCopies(Book book) {
+        return new HashSet<>(view().availableCopies(book));
+    }
+
+    @Override
+    public Set<BookCopy> allCopiesView(Book book) {
+        return view().allCopies(book);
+    }
+
+    @Override
+    public Set<BookCopy> availableCopiesView(Book book) {
+        return view().availableCopies(book);
+    }
+
+    @Override
+    public List<Book> find(String query) {
+        long stamp = lock.readLock();
+        try {
+            return library.find(query);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Book> find(String query, int k) {
+        long stamp = lock.readLock();
+        try {
+            return library.find(query, k);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public SearchPage findPage(String query, int pageSize) {
+        long stamp = lock.readLock();
+        try {
+            return library.findPage(query, pageSize);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public SearchPage findPage(SearchCursor cursor, int pageSize) {
+        long stamp = lock.readLock();
+        try {
+            return library.findPage(cursor, pageSize);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        long stamp = lock.readLock();
+        try {
+            return library.fuzzyFind(query, k);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return library.suggest(prefix, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,341 @@
+package library;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PersistentMap is an immutable map.  Adding or removing a key makes a new map, which shares
+ * all but O(log n) of its structure with the old one, so keeping old versions of a map is
+ * cheap and they never need to be copied or locked.
+ *
+ * The entries are stored in a hash array mapped trie: each node has up to 32 slots, chosen
+ * by the next 5 bits of a key's hash, and stores only its occupied slots, in an array
+ * indexed through a bitmap.  A slot holds either a child node, or a leaf with the entries
+ * whose keys share one full hash.  An update copies the nodes on the path to the key's leaf
+ * and nothing else.
+ *
+ * Keys and values must be non-null, and keys must not change their hash codes.
+ */
+final class PersistentMap<K, V> implements Iterable<K> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * The entries whose keys have one hash; almost always just one entry.
+     */
+    private static final class Leaf {
+        private final int hash;
+        private final Object[] keys;
+        private final Object[] values;
+
+        Leaf(int hash, Object[] keys, Object[] values) {
+            this.hash = hash;
+            this.keys = keys;
+            this.values = values;
+        }
+
+        int indexOf(Object key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Leaf with(Object key, Object value) {
+            int i = indexOf(key);
+            if (i >= 0) {
+                Object[] newValues = values.clone();
+                newValues[i] = value;
+                return new Leaf(hash, keys, newValues);
+            }
+            Object[] newKeys = new Object[keys.length + 1];
+            Object[] newValues = new Object[keys.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, keys.length);
+            System.arraycopy(values, 0, newValues, 0, keys.length);
+            newKeys[keys.length] = key;
+            newValues[keys.length] = value;
+            return new Leaf(hash, newKeys, newValues);
+        }
+
+        // requires key in this leaf; returns null if it was the only entry
+        Leaf without(Object key) {
+            if (keys.length == 1) {
+                return null;
+            }
+            int i = indexOf(key);
+            Object[] newKeys = new Object[keys.length - 1];
+            Object[] newValues = new Object[keys.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(values, 0, newValues, 0, i);
+            System.arraycopy(keys, i + 1, newKeys, i, keys.length - i - 1);
+            System.arraycopy(values, i + 1, newValues, i, keys.length - i - 1);
+            return new Leaf(hash, newKeys, newValues);
+        }
+    }
+
+    /**
+     * An interior node: slots[i] is the Leaf or Node for the i-th lowest bit set in bitmap.
+     */
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        int position(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        Node replaced(int position, Object slot) {
+            Object[] newSlots = slots.clone();
+            newSlots[position] = slot;
+            return new Node(bitmap, newSlots);
+        }
+
+        Node inserted(int bit, Object slot) {
+            int position = position(bit);
+            Object[] newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, position);
+            newSlots[position] = slot;
+            System.arraycopy(slots, position, newSlots, position + 1, slots.length - position);
+            return new Node(bitmap | bit, newSlots);
+        }
+
+        // returns null if slot was the only one
+        Node removed(int bit) {
+            if (slots.length == 1) {
+                return null;
+            }
+            int position = position(bit);
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, position);
+            System.arraycopy(slots, position + 1, newSlots, position, slots.length - position - 1);
+            return new Node(bitmap & ~bit, newSlots);
+        }
+    }
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    // rep invariant:
+    //    root is null if and only if size == 0
+    //    size is the number of entries in all the leaves under root
+    //    no node has an empty slots array, and slots.length == bitCount(bitmap)
+    //    a leaf at depth d (root is depth 0) is in the slot of its node numbered by bits
+    //      [BITS*d, BITS*d + BITS) of its hash, and the bits above those agree with the
+    //      slots on its path; every key in a leaf has the leaf's hash
+    //    no two entries have equal keys
+    //
+    // abstraction function:
+    //    represents the map from each key in the leaves under root to the value stored
+    //      beside it
+    //
+    // safety from rep exposure:
+    //    all fields are private and final, nodes and leaves are immutable after construction,
+    //      and none is ever returned.  Keys and values are shared with clients by design.
+    //
+    // thread safety argument:
+    //    this type is immutable, and all its fields are final, so maps can be shared freely
+    //      between threads once published.
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    // spread the high bits of hash codes into the low bits, which choose the top slots
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return number of keys in this map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key key to look up, non-null
+     * @return the value of key in this map, or null if it has none
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        int hash = hash(key);
+        Object slot = root;
+        for (int shift = 0; slot instanceof Node; shift += BITS) {
+            Node node = (Node) slot;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            slot = node.slots[node.position(bit)];
+        }
+        if (slot == null) {
+            return null;
+        }
+        Leaf leaf = (Leaf) slot;
+        if (leaf.hash != hash) {
+            return null;
+        }
+        int i = leaf.indexOf(key);
+        return i < 0 ? null : (V) leaf.values[i];
+    }
+
+    /**
+     * @param key key to look up, non-null
+     * @return true if and only if key has a value in this map
+     */
+    boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key non-null key
+     * @param value non-null value
+     * @return a map equal to this one except that key maps to value
+     */
+    PersistentMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("key and value cannot be null");
+        }
+        int hash = hash(key);
+        int newSize = containsKey(key) ? size : size + 1;
+        Leaf leaf = new Leaf(hash, new Object[] { key }, new Object[] { value });
+        if (root == null) {
+            return new PersistentMap<>(new Node(0, new Object[0]).inserted(bit(hash, 0), leaf), newSize);
+        }
+        return new PersistentMap<>(plus(root, 0, leaf, key, value), newSize);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Node plus(Node node, int shift, Leaf leaf, Object key, Object value) {
+        int bit = bit(leaf.hash, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node.inserted(bit, leaf);
+        }
+        int position = node.position(bit);
+        Object slot = node.slots[position];
+        if (slot instanceof Node) {
+            return node.replaced(position, plus((Node) slot, shift + BITS, leaf, key, value));
+        }
+        Leaf old = (Leaf) slot;
+        if (old.hash == leaf.hash) {
+            return node.replaced(position, old.with(key, value));
+        }
+        return node.replaced(position, pair(shift + BITS, old, leaf));
+    }
+
+    // make a node holding two leaves of different hashes that agree below shift
+    private static Node pair(int shift, Leaf first, Leaf second) {
+        int firstBit = bit(first.hash, shift);
+        int secondBit = bit(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new Node(firstBit, new Object[] { pair(shift + BITS, first, second) });
+        }
+        Node node = new Node(firstBit, new Object[] { first });
+        return node.inserted(secondBit, second);
+    }
+
+    /**
+     * @param key non-null key
+     * @return a map equal to this one except that key has no value
+     */
+    PersistentMap<K, V> minus(Object key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        Node newRoot = minus(root, 0, hash(key), key);
+        return newRoot == null ? PersistentMap.<K, V>empty() : new PersistentMap<K, V>(newRoot, size - 1);
+    }
+
+    // requires key under node; returns null if node would be left empty
+    private static Node minus(Node node, int shift, int hash, Object key) {
+        int bit = bit(hash, shift);
+        int position = node.position(bit);
+        Object slot = node.slots[position];
+        Object newSlot;
+        if (slot instanceof Node) {
+            Node child = minus((Node) slot, shift + BITS, hash, key);
+            // pull a lone leaf up, so that the trie stays as shallow as its keys allow
+            newSlot = child != null && child.slots.length == 1 && child.slots[0] instanceof Leaf
+                    ? child.slots[0] : child;
+        } else {
+            newSlot = ((Leaf) slot).without(key);
+        }
+        return newSlot == null ? node.removed(bit) : node.replaced(position, newSlot);
+    }
+
+    /**
+     * @return an iterator over the keys of this map, in no particular order; it does not
+     *         support remove()
+     */
+    @Override
+    public Iterator<K> iterator() {
+        final Deque<Object> pending = new ArrayDeque<>();
+        if (root != null) {
+            pending.push(root);
+        }
+        return new Iterator<K>() {
+            private Leaf leaf;
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                while (leaf == null || next == leaf.keys.length) {
+                    if (pending.isEmpty()) {
+                        return false;
+                    }
+                    Object slot = pending.pop();
+                    if (slot instanceof Leaf) {
+                        leaf = (Leaf) slot;
+                        next = 0;
+                    } else {
+                        for (Object child : ((Node) slot).slots) {
+                            pending.push(child);
+                        }
+                    }
+                }
+                return true;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public K next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (K) leaf.keys[next++];
+            }
+        };
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,423 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * PrefixIndex is a mutable multiset of strings that can list its elements starting with a
+ * given prefix, ignoring case, in time proportional to the length of the prefix plus the
+ * number of strings listed.  It can also list its elements within a small edit distance of
+ * a query string.
+ *
+ * The strings are stored in a radix tree (a trie whose single-child chains are collapsed
+ * into one edge) keyed by their lowercase form, so strings that share a prefix share the
+ * nodes for it.  An edit-distance search walks the tree while simulating a Levenshtein
+ * automaton for the query, one row of the edit-distance table per character, and abandons
+ * a subtree as soon as every entry of the row exceeds the allowed distance, so it only
+ * visits the part of the tree near the query.
+ */
+class PrefixIndex {
+
+    /**
+     * A node of the radix tree.  The key of a node is the concatenation of the labels on
+     * the path from the root to it.
+     */
+    private static class Node {
+        private String label;
+        private char[] firsts = new char[0];
+        private Node[] children = new Node[0];
+        // strings whose lowercase form is the key of this node, with their multiplicities
+        private TreeMap<String, Integer> strings;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int indexOf(char first) {
+            return Arrays.binarySearch(firsts, first);
+        }
+
+        void addChild(Node child) {
+            int index = -(indexOf(child.label.charAt(0)) + 1);
+            char[] newFirsts = new char[firsts.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newFirsts[index] = child.label.charAt(0);
+            newChildren[index] = child;
+            System.arraycopy(firsts, index, newFirsts, index + 1, firsts.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        void removeChild(int index) {
+            char[] newFirsts = new char[firsts.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(firsts, index + 1, newFirsts, index, firsts.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        boolean isEmpty() {
+            return strings == null && children.length == 0;
+        }
+    }
+
+    /**
+     * Order in which suggest() lists strings: by lowercase form, then by the strings themselves.
+     */
+    static final Comparator<String> SUGGESTION_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            int byKey = key(a).compareTo(key(b));
+            return byKey != 0 ? byKey : a.compareTo(b);
+        }
+    };
+
+    // rep
+    private final Node root;
+
+    // rep invariant:
+    //    root.label is empty; every other node has a nonempty label
+    //    firsts[i] is the first character of children[i].label, and firsts is strictly increasing
+    //    every node other than root has strings, or at least two children
+    //    strings is null or nonempty, and every multiplicity is positive
+    //    every string in a node's strings has that node's key as its lowercase form
+    //
+    // abstraction function:
+    //    represents the multiset in which each string s in the strings of some node
+    //      occurs strings.get(s) times
+    //
+    // safety from rep exposure:
+    //    root is private and final, and no node is returned; suggest() returns a fresh list
+    //      of immutable strings.
+
+    /**
+     * Make an empty index.
+     */
+    public PrefixIndex() {
+        root = new Node("");
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert root.label.isEmpty();
+    }
+
+    /**
+     * @return the key under which s is stored
+     */
+    static String key(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Edit distance between two strings, counting single-character insertions, deletions and
+     * substitutions and transpositions of adjacent characters (optimal string alignment
+     * distance), computed only as far as a bound.
+     * @param a string
+     * @param b string
+     * @param max bound on the distance of interest; must be nonnegative
+     * @return the number of edits needed to turn a into b, if that is at most max;
+     *         otherwise max + 1
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] beforePrevious = null;
+        int[] previous = firstRow(b);
+        for (int i = 0; i < a.length(); i++) {
+            int[] current = nextRow(b, beforePrevious, previous, i == 0 ? 0 : a.charAt(i - 1), a.charAt(i));
+            if (min(current) > max) {
+                return max + 1;
+            }
+            beforePrevious = previous;
+            previous = current;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * @return the row of the edit-distance table against query for an empty string
+     */
+    private static int[] firstRow(String query) {
+        int[] row = new int[query.length() + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        return row;
+    }
+
+    /**
+     * Compute the next row of the edit-distance table of a string s against query.
+     * @param query string that indexes the columns of the table
+     * @param beforePrevious row for s without its last two characters, or null if s has
+     *        fewer than two characters
+     * @param previous row for s without its last character
+     * @param previousChar second-to-last character of s, if beforePrevious is not null
+     * @param c last character of s
+     * @return the row for s
+     */
+    private static int[] nextRow(String query, int[] beforePrevious, int[] previous, char previousChar, char c) {
+        int[] current = new int[previous.length];
+        current[0] = previous[0] + 1;
+        for (int j = 1; j < current.length; j++) {
+            int substitute = previous[j - 1] + (query.charAt(j - 1) == c ? 0 : 1);
+            current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+            if (beforePrevious != null && j > 1
+                    && query.charAt(j - 1) == previousChar && query.charAt(j - 2) == c) {
+                current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the smallest element of a nonempty row
+     */
+    private static int min(int[] row) {
+        int min = row[0];
+        for (int entry : row) {
+            min = Math.min(min, entry);
+        }
+        return min;
+    }
+
+    /**
+     * @return length of the longest common prefix of label and key.substring(start)
+     */
+    private static int commonPrefix(String label, String key, int start) {
+        int n = Math.min(label.length(), key.length() - start);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(start + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Add one occurrence of a string.
+     * @param s string to add
+     */
+    public void add(String s) {
+        String key = key(s);
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int index = node.indexOf(key.charAt(depth));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(depth));
+                node.addChild(leaf);
+                node = leaf;
+                break;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, depth);
+            if (common < child.label.length()) {
+                // split the edge into child at the end of the common prefix
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            depth += common;
+        }
+        if (node.strings == null) {
+            node.strings = new TreeMap<>();
+        }
+        Integer count = node.strings.get(s);
+        node.strings.put(s, count == null ? 1 : count + 1);
+        checkRep();
+    }
+
+    /**
+     * Remove one occurrence of a string, if present.
+     * @param s string to remove
+     */
+    public void remove(String s) {
+        String key = key(s);
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int index = node.indexOf(key.charAt(depth));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, depth)) {
+                return;
+            }
+            path.add(node);
+            node = child;
+            depth += child.label.length();
+        }
+        Integer count = node.strings == null ? null : node.strings.get(s);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            node.strings.put(s, count - 1);
+            return;
+        }
+        node.strings.remove(s);
+        if (node.strings.isEmpty()) {
+            node.strings = null;
+        }
+        // restore the invariant on the way back up: drop empty nodes, and merge nodes
+        // without strings into their only child
+        for (int i = path.size() - 1; i >= 0 && node != root; i--) {
+            Node parent = path.get(i);
+            int index = parent.indexOf(node.label.charAt(0));
+            if (node.isEmpty()) {
+                parent.removeChild(index);
+            } else if (node.strings == null && node.children.length == 1) {
+                Node only = node.children[0];
+                only.label = node.label + only.label;
+                parent.children[index] = only;
+            } else {
+                break;
+            }
+            node = parent;
+        }
+        checkRep();
+    }
+
+    /**
+     * List the strings in this index that start with a prefix, ignoring case.
+     * @param prefix prefix to complete
+     * @param limit maximum number of strings to return; must be positive
+     * @return up to limit distinct strings in this index whose lowercase form starts with
+     *         the lowercase form of prefix, in increasing order of lowercase form, with
+     *         strings of the same lowercase form in increasing order
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = key(prefix);
+        Node node = root;
+        int depth = 0;
+        while (depth < key.length()) {
+            int index = node.indexOf(key.charAt(depth));
+            if (index < 0) {
+                return new ArrayList<>();
+            }
+            node = node.children[index];
+            int common = commonPrefix(node.label, key, depth);
+            if (common < node.label.length() && depth + common < key.length()) {
+                // prefix diverges from the edge label
+                return new ArrayList<>();
+            }
+            depth += common;
+        }
+        List<String> suggestions = new ArrayList<>();
+        collect(node, limit, suggestions);
+        return suggestions;
+    }
+
+    /**
+     * List the strings in this index close to a query string, ignoring case.
+     * @param query string to compare with
+     * @param maxEdits maximum edit distance; must be nonnegative
+     * @param limit maximum number of strings to return; must be positive
+     * @return map from each of the (up to) limit distinct strings whose lowercase form is
+     *         within maxEdits edits of the lowercase form of query (as counted by
+     *         editDistance) to that distance, in increasing order of distance, with strings
+     *         at the same distance in increasing order
+     */
+    public Map<String, Integer> similar(String query, int maxEdits, int limit) {
+        String key = key(query);
+        final Map<String, Integer> distances = new HashMap<>();
+        similar(root, key, maxEdits, null, firstRow(key), (char) 0, distances);
+
+        List<String> closest = new ArrayList<>(distances.keySet());
+        Collections.sort(closest, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                int byDistance = Integer.compare(distances.get(a), distances.get(b));
+                return byDistance != 0 ? byDistance : a.compareTo(b);
+            }
+        });
+        Map<String, Integer> similar = new LinkedHashMap<>();
+        for (String s : closest.subList(0, Math.min(limit, closest.size()))) {
+            similar.put(s, distances.get(s));
+        }
+        return similar;
+    }
+
+    /**
+     * Add to distances the strings in the subtree of node within maxEdits of query.
+     * @param node node to search
+     * @param query lowercase query
+     * @param maxEdits maximum edit distance
+     * @param beforePrevious row of the edit-distance table for the parent's key without its
+     *        last character, or null if that key is empty
+     * @param previous row of the edit-distance table for the parent's key
+     * @param previousChar last character of the parent's key, if it is not empty
+     * @param distances map to add strings and their distances to
+     */
+    private static void similar(Node node, String query, int maxEdits,
+            int[] beforePrevious, int[] previous, char previousChar, Map<String, Integer> distances) {
+        for (int i = 0; i < node.label.length(); i++) {
+            char c = node.label.charAt(i);
+            int[] current = nextRow(query, beforePrevious, previous, previousChar, c);
+            if (min(current) > maxEdits) {
+                return;
+            }
+            beforePrevious = previous;
+            previous = current;
+            previousChar = c;
+        }
+        int distance = previous[query.length()];
+        if (node.strings != null && distance <= maxEdits) {
+            for (String s : node.strings.keySet()) {
+                distances.put(s, distance);
+            }
+        }
+        for (Node child : node.children) {
+            similar(child, query, maxEdits, beforePrevious, previous, previousChar, distances);
+        }
+    }
+
+    /**
+     * Append the strings in the subtree of node to suggestions, in order, until
+     * suggestions has limit elements.
+     */
+    private static void collect(Node node, int limit, List<String> suggestions) {
+        if (node.strings != null) {
+            for (Map.Entry<String, Integer> entry : node.strings.entrySet()) {
+                if (suggestions.size() == limit) {
+                    return;
+                }
+                suggestions.add(entry.getKey());
+            }
+        }
+        for (Node child : node.children) {
+            if (suggestions.size() == limit) {
+                return;
+            }
+            collect(child, limit, suggestions);
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
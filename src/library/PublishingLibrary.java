@@ -0,0 +1,447 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PublishingLibrary is a wrapper for another Library that publishes an event for every
+ * change to its copies, so that downstream systems can follow the library's changes
+ * without polling it.  Listeners subscribe with subscribe(), and each gets its own
+ * Subscription, which delivers events in batches on its own thread.
+ *
+ * An operation only pays to queue its events: with the DROP overflow policy it never
+ * waits for a listener, and a listener that falls behind loses events, which it can detect
+ * as gaps in their sequence numbers.  With BLOCK, an operation that fills the queue waits
+ * for room after it has released its locks, so a slow listener holds up the operations
+ * that publish to it, but neither other listeners nor operations already waiting on its
+ * locks, and a listener may itself call this library's operations.
+ *
+ * A copy's condition is changed through setCondition() on this library; changing it with
+ * BookCopy.setCondition() directly publishes no event.
+ *
+ * A PublishingLibrary is threadsafe if the library it wraps is.  Events are numbered and
+ * queued under one lock, which is never held while waiting for a listener, so every
+ * listener receives them in sequence order.  Each operation
+ * also holds a lock striped by book from before it mutates the wrapped library until its
+ * events are queued, so the events of any one book, and so of any one copy, are numbered
+ * in the order their operations took effect.  Events of different books, made by different
+ * threads at once, may be numbered in either order.
+ */
+public class PublishingLibrary implements Library {
+
+    // default bound on events per listener call
+    private static final int MAX_BATCH = 256;
+    // number of locks that order the events of each book
+    private static final int STRIPES = 64;
+
+    private final Library library;
+    private final List<Subscription> subscriptions;
+    private final ReentrantLock[] stripes;
+    private long sequence;
+
+    // rep invariant:
+    //    library, subscriptions and stripes are non-null
+    //    stripes.length is a power of two
+    //    sequence is the number of events published so far; a change made while there
+    //      are no subscriptions is not an event
+    //
+    // abstraction function:
+    //    represents the same collection of copies as library, whose changes are being
+    //      delivered to the listeners of subscriptions
+    //
+    // safety from rep exposure:
+    //    library, subscriptions and stripes are private and final and never returned; the client
+    //      that wrapped library must stop using it directly.  Subscriptions are shared with
+    //      their clients by design.
+    //
+    // thread safety argument:
+    //    library is accessed only through its own methods, so this wrapper is as threadsafe
+    //      as library.  subscriptions is a threadsafe list, and sequence is only accessed
+    //      while holding the lock of subscriptions, under which events are also queued, so
+    //      that sequence numbers and queue order agree.  Queuing never waits; operations
+    //      wait for room in BLOCK queues only after releasing every lock of this wrapper,
+    //      so a listener that calls back into it cannot deadlock with them.
+    //    every operation that publishes holds the stripes of its books, taken in increasing
+    //      index so that operations cannot deadlock, from before it mutates library until
+    //      its events are queued; so no event of a book is numbered between another
+    //      operation's change to that book and that operation's event.
+
+    /**
+     * Wrap a library.
+     * @param library library to wrap; after this call it must only be used through the
+     *        wrapper
+     */
+    public PublishingLibrary(Library library) {
+        if (library == null) {
+            throw new IllegalArgumentException("library cannot be null");
+        }
+        this.library = library;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert library != null && subscriptions != null && stripes != null;
+        assert Integer.bitCount(stripes.length) == 1;
+    }
+
+    /**
+     * @return the index of the stripe that orders the events of book
+     */
+    private int stripe(Book book) {
+        int hash = book.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * @param book book of an operation, or null if the operation will fail without changing
+     *        anything, in which case any stripe will do
+     * @return the lock of the stripe that orders the events of book
+     */
+    private ReentrantLock stripeLock(Book book) {
+        return stripes[book == null ? 0 : stripe(book)];
+    }
+
+    /**
+     * Lock the stripes of some books.
+     * @param books books to lock, or null; null books are skipped, since an operation on
+     *        them fails without changing anything
+     * @return the stripes locked, to pass to unlock()
+     */
+    private BitSet lockBooks(Collection<Book> books) {
+        BitSet held = new BitSet(stripes.length);
+        if (books != null) {
+            for (Book book : books) {
+                if (book != null) {
+                    held.set(stripe(book));
+                }
+            }
+        }
+        return lock(held);
+    }
+
+    /**
+     * Lock the stripes of the books of some copies.
+     * @param copies copies whose books to lock, or null; null copies are skipped
+     * @return the stripes locked, to pass to unlock()
+     */
+    private BitSet lockCopies(Collection<BookCopy> copies) {
+        BitSet held = new BitSet(stripes.length);
+        if (copies != null) {
+            for (BookCopy copy : copies) {
+                if (copy != null) {
+                    held.set(stripe(copy.getBook()));
+                }
+            }
+        }
+        return lock(held);
+    }
+
+    /**
+     * Lock stripes in increasing index.
+     * @return held, to pass to unlock()
+     */
+    private BitSet lock(BitSet held) {
+        for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+            stripes[i].lock();
+        }
+        return held;
+    }
+
+    /**
+     * Unlock stripes locked by lockBooks() or lockCopies().
+     */
+    private void unlock(BitSet held) {
+        for (int i = held.nextSetBit(0); i >= 0; i = held.nextSetBit(i + 1)) {
+            stripes[i].unlock();
+        }
+    }
+
+    /**
+     * Subscribe a listener to the events published from now on.
+     * @param listener listener to notify
+     * @param capacity maximum number of events queued for listener; must be positive
+     * @param overflow what to do with events published while listener's queue is full
+     * @return the new subscription, which is open until closed
+     */
+    public Subscription subscribe(LibraryListener listener, int capacity, Subscription.Overflow overflow) {
+        Subscription subscription = new Subscription(this, listener, capacity, overflow, MAX_BATCH);
+        synchronized (subscriptions) {
+            subscriptions.add(subscription);
+        }
+        return subscription;
+    }
+
+    /**
+     * Stop publishing to a subscription.  Once this returns, no operation is still queuing
+     * an event for it.
+     */
+    void unsubscribe(Subscription subscription) {
+        synchronized (subscriptions) {
+            subscriptions.remove(subscription);
+        }
+    }
+
+    /**
+     * Publish one event to every subscription.
+     */
+    private void publish(LibraryEvent.Type type, BookCopy copy) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        synchronized (subscriptions) {
+            LibraryEvent event = new LibraryEvent(sequence++, type, copy, copy.getCondition());
+            for (Subscription subscription : subscriptions) {
+                subscription.publish(event);
+            }
+        }
+    }
+
+    /**
+     * Wait until every BLOCK subscription has room for more events; called by operations
+     * after they have published and released their stripes.
+     */
+    private void awaitRoom() {
+        for (Subscription subscription : subscriptions) {
+            subscription.awaitRoom();
+        }
+    }
+
+    private void publishAll(LibraryEvent.Type type, List<BookCopy> copies) {
+        for (BookCopy copy : copies) {
+            publish(type, copy);
+        }
+    }
+
+    @Override
+    public BookCopy buy(Book book) {
+        ReentrantLock lock = stripeLock(book);
+        lock.lock();
+        BookCopy copy;
+        try {
+            copy = library.buy(book);
+            publish(LibraryEvent.Type.BOUGHT, copy);
+        } finally {
+            lock.unlock();
+        }
+        awaitRoom();
+        return copy;
+    }
+
+    @Override
+    public List<BookCopy> buy(Book book, int count) {
+        ReentrantLock lock = stripeLock(book);
+        lock.lock();
+        List<BookCopy> copies;
+        try {
+            copies = library.buy(book, count);
+            publishAll(LibraryEvent.Type.BOUGHT, copies);
+        } finally {
+            lock.unlock();
+        }
+        awaitRoom();
+        return copies;
+    }
+
+    @Override
+    public List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        BitSet held = lockBooks(shipment == null ? null : shipment.keySet());
+        List<BookCopy> copies;
+        try {
+            copies = library.buyAll(shipment);
+            publishAll(LibraryEvent.Type.BOUGHT, copies);
+        } finally {
+            unlock(held);
+        }
+        awaitRoom();
+        return copies;
+    }
+
+    @Override
+    public void checkout(BookCopy copy) {
+        ReentrantLock lock = stripeLock(copy == null ? null : copy.getBook());
+        lock.lock();
+        try {
+            library.checkout(copy);
+            publish(LibraryEvent.Type.CHECKED_OUT, copy);
+        } finally {
+            lock.unlock();
+        }
+        awaitRoom();
+    }
+
+    @Override
+    public void checkin(BookCopy copy) {
+        ReentrantLock lock = stripeLock(copy == null ? null : copy.getBook());
+        lock.lock();
+        try {
+            library.checkin(copy);
+            publish(LibraryEvent.Type.CHECKED_IN, copy);
+        } finally {
+            lock.unlock();
+        }
+        awaitRoom();
+    }
+
+    @Override
+    public List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        BitSet held = lockCopies(copies);
+        List<BookCopy> failed;
+        try {
+            failed = library.checkoutAll(copies);
+            publishAll(LibraryEvent.Type.CHECKED_OUT, succeeded(copies, failed));
+        } finally {
+            unlock(held);
+        }
+        awaitRoom();
+        return failed;
+    }
+
+    @Override
+    public List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        BitSet held = lockCopies(copies);
+        List<BookCopy> failed;
+        try {
+            failed = library.checkinAll(copies);
+            publishAll(LibraryEvent.Type.CHECKED_IN, succeeded(copies, failed));
+        } finally {
+            unlock(held);
+        }
+        awaitRoom();
+        return failed;
+    }
+
+    /**
+     * @return the elements of batch, in order, less one occurrence of each element of
+     *         failed, as matched in order; failed must be a subsequence of batch
+     */
+    private static List<BookCopy> succeeded(Collection<BookCopy> batch, List<BookCopy> failed) {
+        List<BookCopy> succeeded = new ArrayList<>();
+        int next = 0;
+        for (BookCopy copy : batch) {
+            if (next < failed.size() && failed.get(next) == copy) {
+                next++;
+            } else {
+                succeeded.add(copy);
+            }
+        }
+        return succeeded;
+    }
+
+    @Override
+    public void lose(BookCopy copy) {
+        ReentrantLock lock = stripeLock(copy == null ? null : copy.getBook());
+        lock.lock();
+        try {
+            boolean inLibrary = copy != null && library.allCopiesView(copy.getBook()).contains(copy);
+            library.lose(copy);
+            if (inLibrary) {
+                publish(LibraryEvent.Type.LOST, copy);
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitRoom();
+    }
+
+    /**
+     * Change the condition of a copy and publish the change.
+     * @param copy copy in this library
+     * @param condition its new condition
+     */
+    public void setCondition(BookCopy copy, BookCopy.Condition condition) {
+        if (copy == null || condition == null) {
+            throw new IllegalArgumentException("copy and condition cannot be null");
+        }
+        ReentrantLock lock = stripeLock(copy.getBook());
+        lock.lock();
+        try {
+            if (!library.allCopiesView(copy.getBook()).contains(copy)) {
+                throw new IllegalArgumentException("book copy not in library");
+            }
+            copy.setCondition(condition);
+            publish(LibraryEvent.Type.CONDITION_CHANGED, copy);
+        } finally {
+            lock.unlock();
+        }
+        awaitRoom();
+    }
+
+    @Override
+    public boolean isAvailable(BookCopy copy) {
+        return library.isAvailable(copy);
+    }
+
+    @Override
+    public LibraryView snapshot() {
+        return library.snapshot();
+    }
+
+    @Override
+    public Set<BookCopy> allCopies(Book book) {
+        return library.allCopies(book);
+    }
+
+    @Override
+    public Set<BookCopy> availableCopies(Book book) {
+        return library.availableCopies(book);
+    }
+
+    @Override
+    public Set<BookCopy> allCopiesView(Book book) {
+        return library.allCopiesView(book);
+    }
+
+    @Override
+    public Set<BookCopy> availableCopiesView(Book book) {
+        return library.availableCopiesView(book);
+    }
+
+    @Override
+    public List<Book> find(String query) {
+        return library.find(query);
+    }
+
+    @Override
+    public List<Book> find(String query, int k) {
+        return library.find(query, k);
+    }
+
+    @Override
+    public SearchPage findPage(String query, int pageSize) {
+        return library.findPage(query, pageSize);
+    }
+
+    @Override
+    public SearchPage findPage(SearchCursor cursor, int pageSize) {
+        return library.findPage(cursor, pageSize);
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        return library.fuzzyFind(query, k);
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        return library.suggest(prefix, limit);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
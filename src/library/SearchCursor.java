@@ -0,0 +1,65 @@
+package library;
+
+/**
+ * SearchCursor is an opaque, immutable position in the results of one search, from which
+ * Library.findPage() continues.  A cursor can be used any number of times, and from any
+ * thread, and always continues from the same position.
+ *
+ * A cursor holds on to the matches of its search that have not been listed yet, so a
+ * client should drop it once it no longer needs later pages.
+ */
+public final class SearchCursor {
+
+    private final SearchIndex.Results results;
+    private final int position;
+
+    // rep invariant:
+    //    position >= 0
+    //
+    // abstraction function:
+    //    represents the position just before results.get(position) in the results of a
+    //      search
+    //
+    // safety from rep exposure:
+    //    all fields are private and final, and results is never returned.
+    //
+    // thread safety argument:
+    //    this type is immutable, and Results is threadsafe.
+
+    SearchCursor(SearchIndex.Results results, int position) {
+        this.results = results;
+        this.position = position;
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert results != null && position >= 0;
+    }
+
+    /**
+     * @return the results of the search this cursor is in
+     */
+    SearchIndex.Results getResults() {
+        return results;
+    }
+
+    /**
+     * @return the rank in its results of the first book this cursor has not passed
+     */
+    int getPosition() {
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchCursor at " + position;
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,641 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * SearchIndex is a mutable inverted index over the titles and authors of a set of books.
+ * Titles and author names are broken into normalized tokens, and each token maps to the
+ * books whose title or authors contain it, so a search only touches the books sharing a
+ * token with the query.
+ *
+ * A book whose whole title or author name occurs in the query (case-sensitively, as a
+ * substring) also matches, even without a shared token; those books are found in one pass
+ * over the query by a ContainmentIndex over all titles and author names.
+ *
+ * Matches whose title or author occurs in the query rank first.  Otherwise matches are
+ * ranked with BM25 over the title and author fields: a match scores higher the more query
+ * tokens it contains, the rarer those tokens are in the index, and the shorter the field
+ * they occur in.  Equal scores are broken by decreasing publication year, then by title and
+ * authors, so the ranking is a total order.  fuzzyFind() first sorts matches into tiers by
+ * how many query tokens they match exactly, then within one edit, then within two, and
+ * ranks with BM25 only within a tier, so that a match needing edits never outranks one
+ * matching the same query tokens exactly, however rare the token it matched is.
+ *
+ * The index also completes prefixes of whole titles and author names, for autocompletion,
+ * and tolerates misspelled query tokens by expanding them to the nearby tokens in its token
+ * dictionary, which is kept in a PrefixIndex so the nearby tokens can be found without
+ * comparing the query against every token.
+ */
+class SearchIndex {
+
+    // BM25 term-frequency saturation and field-length normalization parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // maximum number of index tokens a misspelled query token can stand for
+    private static final int MAX_EXPANSIONS = 16;
+    // largest value of allowedEdits()
+    private static final int MAX_EDITS = 2;
+    // bits per count of matched query tokens in a fuzzyFind() tier
+    private static final int TIER_BITS = 21;
+
+    // rep
+    private final Map<String, Set<Book>> postings;
+    private final PrefixIndex prefixes;
+    private final PrefixIndex dictionary;
+    private final Map<String, Set<Book>> booksByName;
+    private final ContainmentIndex names;
+    private int size;
+    private long titleTokens;
+    private long authorTokens;
+
+    // rep invariant:
+    //    no value of postings is an empty set
+    //    if book is in postings.get(t), then t is in tokens(book)
+    //    size is the number of books in the index
+    //    titleTokens and authorTokens are the total number of title and author tokens,
+    //      with duplicates, over all books in the index
+    //    dictionary contains exactly the keys of postings, once each
+    //    prefixes contains the title and each author of every book in the index, once
+    //      per book
+    //    booksByName maps each title and author name s to the nonempty set of books in the
+    //      index with title s or an author s
+    //    names contains exactly the keys of booksByName, once each
+    //
+    // abstraction function:
+    //    represents the set of books that appear in some value of postings
+    //
+    // safety from rep exposure:
+    //    postings, prefixes, dictionary, booksByName and names are private and final, and never returned; find(),
+    //      fuzzyFind() and suggest() return fresh lists, and search() returns fresh Results
+    //      holding only Books.
+    //    Book is immutable.
+
+    /**
+     * Make an empty index.
+     */
+    public SearchIndex() {
+        postings = new HashMap<>();
+        prefixes = new PrefixIndex();
+        dictionary = new PrefixIndex();
+        booksByName = new HashMap<>();
+        names = new ContainmentIndex();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert postings != null;
+        assert size >= 0;
+        assert titleTokens >= size && authorTokens >= size;
+    }
+
+    /**
+     * Break text into search tokens.  A token is a maximal run of letters and digits,
+     * lowercased; a possessive 's is dropped and other apostrophes inside a word are
+     * ignored, so "Darwin's" yields "darwin" and "O'Brian" yields "obrian".
+     * Text without any letters or digits yields itself, trimmed and lowercased, as its only
+     * token, so that every title and author remains searchable.
+     * @param text text to tokenize
+     * @return tokens of text, in order of appearance, possibly with duplicates
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                token.append(Character.toLowerCase(c));
+            } else if ((c == '\'' || c == '\u2019') && token.length() > 0) {
+                if (isPossessive(text, i)) {
+                    i++;
+                }
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        if (tokens.isEmpty()) {
+            String trimmed = text.trim().toLowerCase(Locale.ROOT);
+            tokens.add(trimmed.isEmpty() ? text : trimmed);
+        }
+        return tokens;
+    }
+
+    /**
+     * @return true if and only if the apostrophe at text[i] is followed by an s that ends
+     *         a word
+     */
+    private static boolean isPossessive(String text, int i) {
+        return i + 1 < text.length()
+                && Character.toLowerCase(text.charAt(i + 1)) == 's'
+                && (i + 2 == text.length() || !Character.isLetterOrDigit(text.charAt(i + 2)));
+    }
+
+    /**
+     * Number of edits a query token may be away from an index token and still match it in
+     * fuzzyFind(): none for tokens of up to two characters, one for three to five, and two
+     * for longer tokens.
+     * @param token query token
+     * @return allowed edit distance for token
+     */
+    static int allowedEdits(String token) {
+        if (token.length() <= 2) {
+            return 0;
+        } else if (token.length() <= 5) {
+            return 1;
+        }
+        return 2;
+    }
+
+    /**
+     * @param book book to tokenize
+     * @return the distinct tokens of the title and authors of book
+     */
+    static Set<String> tokens(Book book) {
+        Set<String> tokens = new HashSet<>(tokens(book.getTitle()));
+        tokens.addAll(authorTokens(book));
+        return tokens;
+    }
+
+    /**
+     * @param book book to tokenize
+     * @return the tokens of all the authors of book, in order, possibly with duplicates
+     */
+    private static List<String> authorTokens(Book book) {
+        List<String> tokens = new ArrayList<>();
+        for (String author : book.getAuthors()) {
+            tokens.addAll(tokens(author));
+        }
+        return tokens;
+    }
+
+    /**
+     * Add a book to the index.
+     * @param book book to add; must not already be in the index
+     */
+    public void add(Book book) {
+        List<String> newNames = new ArrayList<>();
+        insert(book, newNames);
+        for (String name : newNames) {
+            names.add(name);
+        }
+        checkRep();
+    }
+
+    /**
+     * Add many books to the index at once.  Equivalent to adding them one at a time, but
+     * the titles and author names new to the index are compiled into the containment index
+     * together, instead of one by one.
+     * @param books books to add; must be distinct and not already in the index
+     */
+    public void addAll(Collection<Book> books) {
+        List<String> newNames = new ArrayList<>();
+        for (Book book : books) {
+            insert(book, newNames);
+        }
+        names.addAll(newNames);
+        checkRep();
+    }
+
+    /**
+     * Add a book to every part of the index except names.
+     * @param book book to add; must not already be in the index
+     * @param newNames list to which the title and author names of book that were not yet
+     *                 in booksByName are appended
+     */
+    private void insert(Book book, List<String> newNames) {
+        for (String token : tokens(book)) {
+            Set<Book> books = postings.get(token);
+            if (books == null) {
+                books = new HashSet<>();
+                postings.put(token, books);
+                dictionary.add(token);
+            }
+            books.add(book);
+        }
+        prefixes.add(book.getTitle());
+        addName(book.getTitle(), book, newNames);
+        for (String author : book.getAuthors()) {
+            prefixes.add(author);
+            addName(author, book, newNames);
+        }
+        size++;
+        titleTokens += tokens(book.getTitle()).size();
+        authorTokens += authorTokens(book).size();
+    }
+
+    /**
+     * Record that book has a title or author name, appending name to newNames if no other
+     * book had it.
+     */
+    private void addName(String name, Book book, List<String> newNames) {
+        Set<Book> books = booksByName.get(name);
+        if (books == null) {
+            books = new HashSet<>();
+            booksByName.put(name, books);
+            newNames.add(name);
+        }
+        books.add(book);
+    }
+
+    /**
+     * Forget that book has a title or author name.
+     */
+    private void removeName(String name, Book book) {
+        Set<Book> books = booksByName.get(name);
+        if (books != null && books.remove(book) && books.isEmpty()) {
+            booksByName.remove(name);
+            names.remove(name);
+        }
+    }
+
+    /**
+     * Remove a book from the index.
+     * @param book book to remove; must be in the index
+     */
+    public void remove(Book book) {
+        for (String token : tokens(book)) {
+            Set<Book> books = postings.get(token);
+            if (books != null) {
+                books.remove(book);
+                if (books.isEmpty()) {
+                    postings.remove(token);
+                    dictionary.remove(token);
+                }
+            }
+        }
+        prefixes.remove(book.getTitle());
+        removeName(book.getTitle(), book);
+        for (String author : book.getAuthors()) {
+            prefixes.remove(author);
+            removeName(author, book);
+        }
+        size--;
+        titleTokens -= tokens(book.getTitle()).size();
+        authorTokens -= authorTokens(book).size();
+        checkRep();
+    }
+
+    /**
+     * @return the number of books in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param book book to look up
+     * @return true if and only if book is in the index
+     */
+    public boolean contains(Book book) {
+        Set<Book> books = booksByName.get(book.getTitle());
+        return books != null && books.contains(book);
+    }
+
+    /**
+     * Find the books matching a query, best match first.
+     * @param query search string
+     * @param k maximum number of books to return; must be positive
+     * @return the k highest-ranked books in the index whose title or authors contain a
+     *         token of query, or whose title or an author occurs in query, in decreasing
+     *         order of rank
+     */
+    public List<Book> find(String query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        return rank(terms(query), contained(query), Collections.<Book, Long>emptyMap(), k);
+    }
+
+    /**
+     * Find the books matching a query, as find() does, but rank them lazily, as they are
+     * asked for.  Scoring every match and arranging them in a heap takes time linear in the
+     * number of matches; after that, each book in rank order costs time logarithmic in it.
+     * @param query search string
+     * @return the books that find(query, k) would return for any k, in the same order;
+     *         unaffected by later changes to this index
+     */
+    public Results search(String query) {
+        Map<String, Double> terms = terms(query);
+        Set<Book> contained = contained(query);
+        List<ScoredBook> scored = new ArrayList<>();
+        for (Book book : matches(terms, contained)) {
+            scored.add(new ScoredBook(book, contained.contains(book), 0, score(book, terms)));
+        }
+        return new Results(new PriorityQueue<>(scored));
+    }
+
+    /**
+     * The books matching one query, ranked as they are asked for.
+     */
+    static final class Results {
+        private final PriorityQueue<ScoredBook> unranked;
+        private final List<Book> ranked;
+
+        // rep invariant:
+        //    every book in ranked ranks above every book in unranked, and ranked is in
+        //      decreasing order of rank
+        //
+        // abstraction function:
+        //    represents the sequence of books ranked followed by the books of unranked in
+        //      RANK order
+        //
+        // safety from rep exposure:
+        //    fields are private and final and never returned; Book is immutable.
+        //
+        // thread safety argument:
+        //    all accesses to unranked and ranked are in synchronized methods.
+
+        private Results(PriorityQueue<ScoredBook> unranked) {
+            this.unranked = unranked;
+            this.ranked = new ArrayList<>();
+        }
+
+        /**
+         * @param ranked books already in rank order
+         * @return results listing exactly ranked, in order
+         */
+        static Results of(List<Book> ranked) {
+            Results results = new Results(new PriorityQueue<ScoredBook>());
+            results.ranked.addAll(ranked);
+            return results;
+        }
+
+        /**
+         * @param rank nonnegative position in these results
+         * @return the book at that position, or null if there are no more than rank results
+         */
+        synchronized Book get(int rank) {
+            while (ranked.size() <= rank && !unranked.isEmpty()) {
+                ranked.add(unranked.poll().book);
+            }
+            return rank < ranked.size() ? ranked.get(rank) : null;
+        }
+    }
+
+    /**
+     * @return map from the distinct tokens of query that are in the index to weight 1
+     */
+    private Map<String, Double> terms(String query) {
+        Map<String, Double> terms = new LinkedHashMap<>();
+        for (String token : tokens(query)) {
+            if (postings.containsKey(token)) {
+                terms.put(token, 1.0);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * @return the books in the index whose title or an author occurs in query
+     */
+    private Set<Book> contained(String query) {
+        Set<Book> contained = new HashSet<>();
+        for (String name : names.find(query)) {
+            contained.addAll(booksByName.get(name));
+        }
+        return contained;
+    }
+
+    /**
+     * Find the books containing a token close to a token of a query, best match first.
+     * @param query search string
+     * @param k maximum number of books to return; must be positive
+     * @return the k highest-ranked books in the index whose title or authors contain a
+     *         token within allowedEdits(t) edits of some token t of query, in
+     *         decreasing order of rank.  Books matching more query tokens exactly rank
+     *         first, then books matching more within one edit, then within two; books
+     *         alike in all three are ranked by BM25, in which a token matched with d
+     *         edits counts 1/(d+1) as much as an exact match
+     */
+    public List<Book> fuzzyFind(String query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        Map<String, Double> terms = new LinkedHashMap<>();
+        // within.get(b)[e] is the number of query tokens that b matches within e edits
+        Map<Book, int[]> within = new HashMap<>();
+        for (String token : new LinkedHashSet<>(tokens(query))) {
+            Map<String, Integer> similar = dictionary.similar(token, allowedEdits(token), MAX_EXPANSIONS);
+            Map<Book, Integer> edits = new HashMap<>();
+            for (Map.Entry<String, Integer> entry : similar.entrySet()) {
+                int distance = entry.getValue();
+                double weight = 1.0 / (distance + 1);
+                Double previous = terms.get(entry.getKey());
+                if (previous == null || previous < weight) {
+                    terms.put(entry.getKey(), weight);
+                }
+                for (Book book : postings.get(entry.getKey())) {
+                    Integer best = edits.get(book);
+                    if (best == null || distance < best) {
+                        edits.put(book, distance);
+                    }
+                }
+            }
+            for (Map.Entry<Book, Integer> entry : edits.entrySet()) {
+                int[] counts = within.get(entry.getKey());
+                if (counts == null) {
+                    counts = new int[MAX_EDITS + 1];
+                    within.put(entry.getKey(), counts);
+                }
+                for (int e = entry.getValue(); e <= MAX_EDITS; e++) {
+                    counts[e]++;
+                }
+            }
+        }
+        Map<Book, Long> tiers = new HashMap<>();
+        for (Map.Entry<Book, int[]> entry : within.entrySet()) {
+            long tier = 0;
+            for (int count : entry.getValue()) {
+                tier = (tier << TIER_BITS) | Math.min(count, (1 << TIER_BITS) - 1);
+            }
+            tiers.put(entry.getKey(), tier);
+        }
+        return rank(terms, Collections.<Book>emptySet(), tiers, k);
+    }
+
+    /**
+     * Rank the books containing weighted terms or contained in the query.
+     * @param terms map from distinct tokens in the index to their weights in the query
+     * @param contained books in the index whose title or an author occurs in the query
+     * @param tiers map from books to their tiers, higher ranking first; books not in it
+     *        are in tier 0
+     * @param k maximum number of books to return; must be positive
+     * @return the k highest-ranked books containing some term or in contained, in
+     *         decreasing order of rank
+     */
+    private List<Book> rank(Map<String, Double> terms, Set<Book> contained, Map<Book, Long> tiers, int k) {
+        Set<Book> matches = matches(terms, contained);
+
+        List<ScoredBook> ranked = new ArrayList<>(Math.min(k, matches.size()));
+        if (matches.size() <= k) {
+            for (Book book : matches) {
+                ranked.add(new ScoredBook(book, contained.contains(book), tier(tiers, book),
+                        score(book, terms)));
+            }
+        } else {
+            // keep only the best k in a heap whose head is the worst of them
+            PriorityQueue<ScoredBook> best = new PriorityQueue<>(k, Collections.reverseOrder(RANK));
+            for (Book book : matches) {
+                ScoredBook scored = new ScoredBook(book, contained.contains(book), tier(tiers, book),
+                        score(book, terms));
+                if (best.size() < k) {
+                    best.add(scored);
+                } else if (RANK.compare(scored, best.peek()) < 0) {
+                    best.poll();
+                    best.add(scored);
+                }
+            }
+            ranked.addAll(best);
+        }
+        Collections.sort(ranked, RANK);
+
+        List<Book> books = new ArrayList<>(ranked.size());
+        for (ScoredBook scored : ranked) {
+            books.add(scored.book);
+        }
+        return books;
+    }
+
+    /**
+     * @return the tier of book in tiers, or 0 if it has none
+     */
+    private static long tier(Map<Book, Long> tiers, Book book) {
+        Long tier = tiers.get(book);
+        return tier == null ? 0 : tier;
+    }
+
+    /**
+     * @return the books containing some term or in contained
+     */
+    private Set<Book> matches(Map<String, Double> terms, Set<Book> contained) {
+        Set<Book> matches = new HashSet<>(contained);
+        for (String term : terms.keySet()) {
+            matches.addAll(postings.get(term));
+        }
+        return matches;
+    }
+
+    /**
+     * Complete a prefix of a title or author name.
+     * @param prefix prefix to complete
+     * @param limit maximum number of suggestions; must be positive
+     * @return up to limit distinct titles and author names of books in the index that start
+     *         with prefix, ignoring case, in PrefixIndex.SUGGESTION_ORDER
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return prefixes.suggest(prefix, limit);
+    }
+
+    /**
+     * Compute the BM25 score of a book, treating the title and the authors as two fields
+     * whose normalized term frequencies are summed.
+     * @param book book in the index
+     * @param terms map from distinct tokens in the index to their weights in the query
+     * @return relevance of book to terms; higher is better
+     */
+    private double score(Book book, Map<String, Double> terms) {
+        List<String> title = tokens(book.getTitle());
+        List<String> authors = authorTokens(book);
+        double titleNorm = 1 - B + B * title.size() * size / (double) titleTokens;
+        double authorNorm = 1 - B + B * authors.size() * size / (double) authorTokens;
+        double score = 0;
+        for (Map.Entry<String, Double> entry : terms.entrySet()) {
+            String term = entry.getKey();
+            double tf = Collections.frequency(title, term) / titleNorm
+                    + Collections.frequency(authors, term) / authorNorm;
+            if (tf > 0) {
+                int df = postings.get(term).size();
+                double idf = Math.log(1 + (size - df + 0.5) / (df + 0.5));
+                score += entry.getValue() * idf * tf * (K1 + 1) / (tf + K1);
+            }
+        }
+        return score;
+    }
+
+    /**
+     * A book paired with how well it matches one query, ordered by RANK.
+     */
+    private static class ScoredBook implements Comparable<ScoredBook> {
+        private final Book book;
+        private final boolean contained;
+        private final long tier;
+        private final double score;
+
+        ScoredBook(Book book, boolean contained, long tier, double score) {
+            this.book = book;
+            this.contained = contained;
+            this.tier = tier;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(ScoredBook that) {
+            return RANK.compare(this, that);
+        }
+    }
+
+    /**
+     * Ranking order: books contained in the query first, then decreasing score, then
+     * decreasing year, then by edition.
+     */
+    private static final Comparator<ScoredBook> RANK = new Comparator<ScoredBook>() {
+        @Override
+        public int compare(ScoredBook a, ScoredBook b) {
+            if (a.contained != b.contained) {
+                return a.contained ? -1 : 1;
+            }
+            if (a.tier != b.tier) {
+                return Long.compare(b.tier, a.tier);
+            }
+            int byScore = Double.compare(b.score, a.score);
+            if (byScore != 0) {
+                return byScore;
+            }
+            return compareEditions(a.book, b.book);
+        }
+    };
+
+    /**
+     * Total order on books: decreasing year, then title, then author list.
+     * Two books compare equal if and only if they are equal.
+     */
+    static int compareEditions(Book a, Book b) {
+        if (a.getYear() != b.getYear()) {
+            return Integer.compare(b.getYear(), a.getYear());
+        }
+        int byTitle = a.getTitle().compareTo(b.getTitle());
+        if (byTitle != 0) {
+            return byTitle;
+        }
+        int authors = Math.min(a.getAuthorCount(), b.getAuthorCount());
+        for (int i = 0; i < authors; i++) {
+            int byAuthor = a.getAuthor(i).compareTo(b.getAuthor(i));
+            if (byAuthor != 0) {
+                return byAuthor;
+            }
+        }
+        return Integer.compare(a.getAuthorCount(), b.getAuthorCount());
+    }
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,99 @@
+package library;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SearchPage is an immutable page of the results of a search, with a cursor to the next
+ * page if there may be one.
+ */
+public final class SearchPage {
+
+    private final List<Book> books;
+    private final SearchCursor next;
+
+    // rep invariant:
+    //    books is non-null and contains no duplicates
+    //
+    // abstraction function:
+    //    represents the page listing books, followed by the page at next, or by nothing if
+    //      next is null
+    //
+    // safety from rep exposure:
+    //    books is an unmodifiable list of immutable Books; SearchCursor is immutable.
+    //
+    // thread safety argument:
+    //    this type is immutable.
+
+    private SearchPage(List<Book> books, SearchCursor next) {
+        this.books = Collections.unmodifiableList(books);
+        this.next = next;
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert books != null;
+    }
+
+    /**
+     * List the next page of a search.  Books that have lost all their copies in library
+     * since the search began are skipped, and the page is filled from later results in
+     * their place.
+     * @param library library the search is in
+     * @param results the results of the search
+     * @param position rank in results of the first book that may go on the page
+     * @param pageSize maximum number of books on the page; must be positive
+     * @return the page of the first pageSize books from position on that library still has
+     */
+    static SearchPage next(Library library, SearchIndex.Results results, int position, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size must be positive");
+        }
+        List<Book> books = new ArrayList<>(Math.min(pageSize, 64));
+        Book book;
+        while (books.size() < pageSize && (book = results.get(position)) != null) {
+            position++;
+            if (!library.allCopiesView(book).isEmpty()) {
+                books.add(book);
+            }
+        }
+        SearchCursor next = results.get(position) == null ? null : new SearchCursor(results, position);
+        return new SearchPage(books, next);
+    }
+
+    /**
+     * @return the books on this page, in decreasing order of rank, as an unmodifiable list
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * @return true if and only if this is not the last page of its search
+     */
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * @return a cursor to the next page of this page's search, or null if this is the last
+     *         page
+     */
+    public SearchCursor getNext() {
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return books + (next == null ? "" : " ...");
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
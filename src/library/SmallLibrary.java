@@ -1,18 +1,22 @@
 package library;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Comparator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Set;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeSet;
 
 import java.lang.IllegalArgumentException;
 
 /**
  * SmallLibrary represents a small collection of books, like a single person's home collection.
  */
-public class SmallLibrary implements Library {
+public class SmallLibrary implements Library, Auditable {
 
     // This rep is required!
     // Do not change the types of inLibrary or checkedOut,
@@ -42,10 +46,25 @@ public class SmallLibrary implements Library {
 
     // assert the rep invariant
     private void checkRep() {
+        assert audit().isEmpty() : audit();
+    }
+
+    // assert the part of the rep invariant that involves copy, which a mutation of copy
+    // could have broken, in constant time
+    private void checkRep(BookCopy copy) {
         // same BookCopy cannot be both in inLibrary and checkedOut
+        assert !(inLibrary.contains(copy) && checkedOut.contains(copy));
+    }
+
+    @Override
+    public List<String> audit() {
+        List<String> violations = new ArrayList<>();
         for (BookCopy copy : checkedOut) {
-            assert !inLibrary.contains(copy);
+            if (inLibrary.contains(copy)) {
+                violations.add("both available and checked out: " + copy);
+            }
         }
+        return violations;
     }
 
     @Override
@@ -55,7 +74,7 @@ public class SmallLibrary implements Library {
         }
         BookCopy newCopy = new BookCopy(book);
         inLibrary.add(newCopy);
-        checkRep();
+        checkRep(newCopy);
         return newCopy;
     }
 
@@ -66,7 +85,7 @@ public class SmallLibrary implements Library {
         }
         inLibrary.remove(copy);
         checkedOut.add(copy);
-        checkRep();
+        checkRep(copy);
     }
 
     @Override
@@ -79,7 +98,7 @@ public class SmallLibrary implements Library {
         }
         checkedOut.remove(copy);
         inLibrary.add(copy);
-        checkRep();
+        checkRep(copy);
     }
 
     @Override
@@ -128,37 +147,150 @@ public class SmallLibrary implements Library {
 
     @Override
     public List<Book> find(String query) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
         Set<Book> matchingBooksSet = new HashSet<Book>();
-        for (BookCopy copy : inLibrary) {
-            Book book = copy.getBook();
-            String title = book.getTitle();
-            // exact title match
-            if ( (title.equals(query) || query.lastIndexOf(title) > -1) && !matchingBooksSet.contains(book)) {
-                matchingBooksSet.add(book);
-                continue;           
-            }
-            List<String> authors = book.getAuthors();
-            for (String author : authors) {
-                // exact author match
-                if ( (author.equals(query) || query.lastIndexOf(author) > -1) && !matchingBooksSet.contains(book)) {
+        // search both available and checked out copies
+        for (Set<BookCopy> copies : Arrays.asList(inLibrary, checkedOut)) {
+            for (BookCopy copy : copies) {
+                Book book = copy.getBook();
+                if (!matchingBooksSet.contains(book) && matches(book, query)) {
                     matchingBooksSet.add(book);
-                    break;
                 }
             }
         }
         List<Book> matchedBooks = new ArrayList<Book>(matchingBooksSet);
-        Collections.sort(matchedBooks, new SortyByQueryMatch());
+        Collections.sort(matchedBooks, new SortyByQueryMatch(query));
         return matchedBooks;
     }
-    class SortyByQueryMatch implements Comparator<Book> {
+
+    @Override
+    public List<Book> find(String query, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        List<Book> matchedBooks = find(query);
+        return new ArrayList<Book>(matchedBooks.subList(0, Math.min(k, matchedBooks.size())));
+    }
+
+    @Override
+    public List<Book> fuzzyFind(String query, int k) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        List<String> queryTokens = SearchIndex.tokens(query);
+        final Map<Book, Double> closeness = new HashMap<Book, Double>();
+        for (Set<BookCopy> copies : Arrays.asList(inLibrary, checkedOut)) {
+            for (BookCopy copy : copies) {
+                Book book = copy.getBook();
+                if (closeness.containsKey(book)) {
+                    continue;
+                }
+                Set<String> bookTokens = SearchIndex.tokens(book);
+                double total = 0;
+                for (String queryToken : queryTokens) {
+                    int maxEdits = SearchIndex.allowedEdits(queryToken);
+                    int best = maxEdits + 1;
+                    for (String bookToken : bookTokens) {
+                        best = Math.min(best, PrefixIndex.editDistance(queryToken, bookToken, maxEdits));
+                    }
+                    if (best <= maxEdits) {
+                        total += 1.0 / (best + 1);
+                    }
+                }
+                closeness.put(book, total);
+            }
+        }
+        List<Book> matchedBooks = new ArrayList<Book>();
+        for (Map.Entry<Book, Double> entry : closeness.entrySet()) {
+            if (entry.getValue() > 0) {
+                matchedBooks.add(entry.getKey());
+            }
+        }
+        Collections.sort(matchedBooks, new Comparator<Book>() {
+            @Override
+            public int compare(Book a, Book b) {
+                int byCloseness = Double.compare(closeness.get(b), closeness.get(a));
+                return byCloseness != 0 ? byCloseness : SearchIndex.compareEditions(a, b);
+            }
+        });
+        return new ArrayList<Book>(matchedBooks.subList(0, Math.min(k, matchedBooks.size())));
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix cannot be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        String key = PrefixIndex.key(prefix);
+        Set<String> suggestions = new TreeSet<String>(PrefixIndex.SUGGESTION_ORDER);
+        for (Set<BookCopy> copies : Arrays.asList(inLibrary, checkedOut)) {
+            for (BookCopy copy : copies) {
+                Book book = copy.getBook();
+                if (PrefixIndex.key(book.getTitle()).startsWith(key)) {
+                    suggestions.add(book.getTitle());
+                }
+                for (String author : book.getAuthors()) {
+                    if (PrefixIndex.key(author).startsWith(key)) {
+                        suggestions.add(author);
+                    }
+                }
+            }
+        }
+        List<String> firstSuggestions = new ArrayList<String>(suggestions);
+        return new ArrayList<String>(firstSuggestions.subList(0, Math.min(limit, firstSuggestions.size())));
+    }
+
+    /**
+     * @return true if and only if the title or one of the authors of book equals query
+     *         or is contained in query
+     */
+    private static boolean matches(Book book, String query) {
+        // exact title match
+        if (query.lastIndexOf(book.getTitle()) > -1) {
+            return true;
+        }
+        for (String author : book.getAuthors()) {
+            // exact author match
+            if (query.lastIndexOf(author) > -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Orders matches of a query: books whose title or an author equals the query come
+     * before books that merely contain it, then newer editions before older ones.
+     */
+    static class SortyByQueryMatch implements Comparator<Book> {
+        private final String query;
+
+        SortyByQueryMatch(String query) {
+            this.query = query;
+        }
+
+        private boolean isExactMatch(Book book) {
+            return book.getTitle().equals(query) || book.getAuthors().contains(query);
+        }
+
         @Override
         public int compare(Book a, Book b) {
-            if (a.getTitle().equals(b.getTitle()) && a.getAuthors().equals(b.getAuthors())) {
-                return -a.getYear() + b.getYear();
+            boolean exactA = isExactMatch(a);
+            if (exactA != isExactMatch(b)) {
+                return exactA ? -1 : 1;
             }
-            return 0;
+            return SearchIndex.compareEditions(a, b);
         }
     }
+
     @Override
     public void lose(BookCopy copy) {
         if (copy == null) {
@@ -166,7 +298,15 @@ public class SmallLibrary implements Library {
         }
         inLibrary.remove(copy);
         checkedOut.remove(copy);
-        checkRep();
+        checkRep(copy);
+    }
+
+    /**
+     * Take a snapshot by copying the whole library, which is small.
+     */
+    @Override
+    public LibraryView snapshot() {
+        return LibraryView.copyOf(inLibrary, checkedOut);
     }
 
     // uncomment the following methods if you need to implement equals and hashCode,
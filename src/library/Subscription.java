@@ -0,0 +1,261 @@
+package library;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Subscription delivers the events of a PublishingLibrary to one listener, asynchronously
+ * and in batches, through a queue drained by the subscription's own daemon thread.  A slow
+ * listener therefore never delays the library's operations or other listeners directly:
+ * when its queue is full, the subscription's overflow policy either drops the new event,
+ * counting it, or makes the publishing operation wait for room, applying backpressure.
+ *
+ * Queuing an event never waits, so the library can queue events in sequence order under
+ * one lock without one listener holding up the others.  Under BLOCK, an operation whose
+ * events overfill the queue waits for room only after it has released the library's
+ * locks, so the queue may briefly hold more than its capacity: the events of the
+ * operations that are waiting.  A listener that itself changes the library is never made
+ * to wait for room, in any subscription, since the queue it would wait for may be one that
+ * only its own thread drains.
+ */
+public class Subscription {
+
+    /**
+     * What to do with an event published while the queue is full.
+     */
+    public static enum Overflow {
+        /** discard the event and count it in getDropped() */
+        DROP,
+        /** make the publishing library operation wait until the queue has room */
+        BLOCK
+    };
+
+    // true on the delivery threads of all subscriptions
+    private static final ThreadLocal<Boolean> DELIVERING = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+    private final PublishingLibrary source;
+    private final LibraryListener listener;
+    private final Queue<LibraryEvent> queue;
+    private final int capacity;
+    private final Overflow overflow;
+    private final int maxBatch;
+    private final Thread thread;
+    private final AtomicLong delivered;
+    private final AtomicLong dropped;
+    private final AtomicLong batches;
+    private final AtomicLong failures;
+    private volatile boolean closed;
+
+    // rep invariant:
+    //    capacity > 0 and maxBatch > 0; all counters are nonnegative
+    //    if overflow is DROP, queue.size() <= capacity
+    //
+    // abstraction function:
+    //    represents the subscription of listener to source, with the events in queue
+    //      published but not yet delivered, open if and only if !closed
+    //
+    // safety from rep exposure:
+    //    all fields are private; source and listener are shared with the client by
+    //      design, and queue and thread are never returned.
+    //
+    // thread safety argument:
+    //    queue is only accessed while holding this object's monitor, which is never held
+    //      while waiting for another lock or calling the listener; waiting publishers and
+    //      the delivery thread wait on the monitor and are notified when queue or closed
+    //      changes.  The counters are atomic, and closed is volatile.  listener is only
+    //      called from thread, so it is never called concurrently with itself.
+
+    /**
+     * Make a subscription and start its delivery thread.
+     * @param source library whose events are delivered
+     * @param listener listener to deliver to
+     * @param capacity maximum number of undelivered events; must be positive
+     * @param overflow what to do with events published while capacity events are queued
+     * @param maxBatch maximum number of events per call of the listener, which also never
+     *        exceeds capacity; must be positive
+     */
+    Subscription(PublishingLibrary source, LibraryListener listener, int capacity, Overflow overflow,
+            int maxBatch) {
+        if (source == null || listener == null || overflow == null) {
+            throw new IllegalArgumentException("source, listener and overflow cannot be null");
+        }
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("capacity and batch size must be positive");
+        }
+        this.source = source;
+        this.listener = listener;
+        this.queue = new ArrayDeque<>();
+        this.capacity = capacity;
+        this.overflow = overflow;
+        this.maxBatch = maxBatch;
+        this.delivered = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.batches = new AtomicLong();
+        this.failures = new AtomicLong();
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                DELIVERING.set(true);
+                deliver();
+            }
+        }, "library-events");
+        thread.setDaemon(true);
+        thread.start();
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert capacity > 0 && maxBatch > 0;
+        assert delivered.get() >= 0 && dropped.get() >= 0;
+    }
+
+    /**
+     * Queue an event for delivery, without waiting; if the queue is full, the event is
+     * dropped under DROP, and queued anyway under BLOCK, for the publisher to wait for room
+     * afterwards with awaitRoom().  Events published after close() are dropped.
+     * @param event event to deliver
+     */
+    synchronized void publish(LibraryEvent event) {
+        if (closed || (overflow == Overflow.DROP && queue.size() >= capacity)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.add(event);
+        notifyAll();
+    }
+
+    /**
+     * Under BLOCK, wait until the queue holds at most its capacity, or this subscription is
+     * closed.  Returns at once under DROP, on a delivery thread, or if interrupted, in which
+     * case the interrupt status is set again.  Must not be called while holding a lock that
+     * the listener may need.
+     */
+    void awaitRoom() {
+        if (overflow != Overflow.BLOCK || DELIVERING.get()) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                while (!closed && queue.size() > capacity) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Body of the delivery thread: deliver batches until closed and drained.
+     */
+    private void deliver() {
+        List<LibraryEvent> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            synchronized (this) {
+                while (queue.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // nothing interrupts this thread but shutdown; keep delivering
+                    }
+                }
+                // no more than capacity, so that a stalled listener holds back a BLOCK
+                // publisher even when a whole batch of events was queued at once
+                while (batch.size() < maxBatch && batch.size() < capacity && !queue.isEmpty()) {
+                    batch.add(queue.remove());
+                }
+                // wake publishers waiting for room
+                notifyAll();
+            }
+            try {
+                listener.eventsPublished(Collections.unmodifiableList(new ArrayList<>(batch)));
+            } catch (RuntimeException e) {
+                // one failing batch must not stop delivery of the next
+                failures.incrementAndGet();
+            }
+            delivered.addAndGet(batch.size());
+            batches.incrementAndGet();
+            batch.clear();
+        }
+    }
+
+    /**
+     * Unsubscribe: stop accepting events, and wait until the events already queued have
+     * been delivered.  If called by the listener itself, returns without waiting.
+     * Has no effect if this subscription is already closed.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        source.unsubscribe(this);
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        if (Thread.currentThread() != thread) {
+            thread.join();
+        }
+    }
+
+    /**
+     * @return true if and only if this subscription has not been closed
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * @return number of events passed to the listener so far
+     */
+    public long getDelivered() {
+        return delivered.get();
+    }
+
+    /**
+     * @return number of events dropped so far because the queue was full, or because they
+     *         were published after close()
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of calls of the listener so far
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * @return number of calls of the listener that threw an exception
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return number of events published but not yet passed to the listener
+     */
+    public synchronized int getBacklog() {
+        return queue.size();
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,169 @@
+package library;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SynchronizedLibrary is a threadsafe wrapper that serializes every operation on another
+ * Library with one lock, the wrapper's own monitor.
+ *
+ * It is the simplest way to share a Library between threads, but no two operations run in
+ * parallel; ConcurrentBigLibrary lets operations on different books proceed concurrently.
+ *
+ * It is also the way to audit a library that other threads keep changing: audit() audits
+ * the wrapped library under the same lock as its operations, so an Auditor can audit the
+ * wrapper while it is in use.
+ */
+public class SynchronizedLibrary implements Library, Auditable {
+
+    private final Library library;
+
+    // rep invariant:
+    //    library is non-null, and is only accessed while holding this object's monitor
+    //
+    // abstraction function:
+    //    represents the same collection of copies as library
+    //
+    // safety from rep exposure:
+    //    library is private and final and never returned; the client that wrapped it must
+    //      stop using it directly.
+    //
+    // thread safety argument:
+    //    every method that touches library is synchronized on this, and library's results
+    //      are fresh or immutable, so nothing it returns is shared with another thread.
+
+    /**
+     * Wrap a library.
+     * @param library library to wrap; after this call it must only be used through the
+     *        wrapper
+     */
+    public SynchronizedLibrary(Library library) {
+        if (library == null) {
+            throw new IllegalArgumentException("library cannot be null");
+        }
+        this.library = library;
+        checkRep();
+    }
+
+    // assert the rep invariant
+    private void checkRep() {
+        assert library != null;
+    }
+
+    @Override
+    public synchronized BookCopy buy(Book book) {
+        return library.buy(book);
+    }
+
+    @Override
+    public synchronized List<BookCopy> buy(Book book, int count) {
+        return library.buy(book, count);
+    }
+
+    @Override
+    public synchronized List<BookCopy> buyAll(Map<Book, Integer> shipment) {
+        return library.buyAll(shipment);
+    }
+
+    @Override
+    public synchronized List<BookCopy> checkoutAll(Collection<BookCopy> copies) {
+        return library.checkoutAll(copies);
+    }
+
+    @Override
+    public synchronized List<BookCopy> checkinAll(Collection<BookCopy> copies) {
+        return library.checkinAll(copies);
+    }
+
+    @Override
+    public synchronized void checkout(BookCopy copy) {
+        library.checkout(copy);
+    }
+
+    @Override
+    public synchronized void checkin(BookCopy copy) {
+        library.checkin(copy);
+    }
+
+    @Override
+    public synchronized boolean isAvailable(BookCopy copy) {
+        return library.isAvailable(copy);
+    }
+
+    @Override
+    public synchronized Set<BookCopy> allCopies(Book book) {
+        return library.allCopies(book);
+    }
+
+    @Override
+    public synchronized Set<BookCopy> availableCopies(Book book) {
+        return library.availableCopies(book);
+    }
+
+    @Override
+    public synchronized List<Book> find(String query) {
+        return library.find(query);
+    }
+
+    @Override
+    public synchronized List<Book> find(String query, int k) {
+        return library.find(query, k);
+    }
+
+    @Override
+    public synchronized SearchPage findPage(String query, int pageSize) {
+        return library.findPage(query, pageSize);
+    }
+
+    @Override
+    public synchronized SearchPage findPage(SearchCursor cursor, int pageSize) {
+        return library.findPage(cursor, pageSize);
+    }
+
+    @Override
+    public synchronized List<Book> fuzzyFind(String query, int k) {
+        return library.fuzzyFind(query, k);
+    }
+
+    @Override
+    public synchronized List<String> suggest(String prefix, int limit) {
+        return library.suggest(prefix, limit);
+    }
+
+    @Override
+    public synchronized void lose(BookCopy copy) {
+        library.lose(copy);
+    }
+
+    /**
+     * Audit the wrapped library, while holding the lock of its operations.
+     * @return the violations of the wrapped library's rep invariant, or an empty list if it
+     *         is not Auditable
+     */
+    @Override
+    public synchronized List<String> audit() {
+        if (library instanceof Auditable) {
+            return ((Auditable) library).audit();
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Take a snapshot of the wrapped library.  The view can be read without the lock, while
+     * other threads keep changing the library.
+     */
+    @Override
+    public synchronized LibraryView snapshot() {
+        return library.snapshot();
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
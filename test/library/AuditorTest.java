@@ -0,0 +1,221 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test suite for Auditor and the audit() of the Library implementations.
+ */
+public class AuditorTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * audit : SmallLibrary, BigLibrary, SynchronizedLibrary of either or of a library that
+     *         is not Auditable; empty, after buying, checking out, checking in and losing
+     *         copies
+     * auditNow : target has violations, has none
+     * start : running, not running; periodic audit finds violations, throws; listener throws;
+     *         target mutated by other threads while audits run
+     * stop : running, not running
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * An Auditable that always reports the same violations.
+     */
+    private static class FixedAudit implements Auditable {
+        private final List<String> violations;
+
+        FixedAudit(String... violations) {
+            this.violations = Arrays.asList(violations);
+        }
+
+        @Override
+        public List<String> audit() {
+            return violations;
+        }
+    }
+
+    /**
+     * An AuditListener that counts down a latch on each notification.
+     */
+    private static class CountingListener implements AuditListener {
+        private final CountDownLatch latch;
+        private volatile List<String> last = Collections.emptyList();
+
+        CountingListener(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        @Override
+        public void violationsFound(Auditable target, List<String> violations) {
+            last = violations;
+            latch.countDown();
+        }
+    }
+
+    private static void exercise(Library library) {
+        Book book = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        BookCopy first = library.buy(book);
+        BookCopy second = library.buy(book);
+        library.buy(new Book("Emma", Arrays.asList("Jane Austen"), 1815));
+        library.checkout(first);
+        library.checkout(second);
+        library.checkin(first);
+        library.lose(second);
+        library.lose(first);
+    }
+
+    @Test
+    public void testAuditLibraries() {
+        for (Library library : Arrays.<Library>asList(new SmallLibrary(), new BigLibrary(),
+                new SynchronizedLibrary(new SmallLibrary()), new SynchronizedLibrary(new BigLibrary()),
+                new SynchronizedLibrary(new CachingLibrary(new BigLibrary(), 10)))) {
+            assertEquals("empty library", Collections.emptyList(), ((Auditable) library).audit());
+            exercise(library);
+            assertEquals("after mutations", Collections.emptyList(), ((Auditable) library).audit());
+        }
+    }
+
+    @Test
+    public void testAuditNow() {
+        CountingListener listener = new CountingListener(1);
+        Auditor auditor = new Auditor(new FixedAudit("broken"), listener);
+        assertEquals(Arrays.asList("broken"), auditor.auditNow());
+        assertEquals("listener notified", 0, listener.latch.getCount());
+        assertEquals(Arrays.asList("broken"), listener.last);
+
+        CountingListener quiet = new CountingListener(1);
+        assertEquals(Collections.emptyList(), new Auditor(new BigLibrary(), quiet).auditNow());
+        assertEquals("listener not notified", 1, quiet.latch.getCount());
+    }
+
+    @Test
+    public void testPeriodicAudit() throws InterruptedException {
+        CountingListener listener = new CountingListener(2);
+        Auditor auditor = new Auditor(new FixedAudit("broken"), listener);
+        assertFalse(auditor.isRunning());
+        auditor.start(1, TimeUnit.MILLISECONDS);
+        try {
+            assertTrue(auditor.isRunning());
+            assertTrue("expected two audits", listener.latch.await(10, TimeUnit.SECONDS));
+        } finally {
+            auditor.stop();
+        }
+        assertFalse(auditor.isRunning());
+        auditor.stop();
+        assertFalse(auditor.isRunning());
+    }
+
+    @Test
+    public void testPeriodicAuditSurvivesExceptions() throws InterruptedException {
+        final CountingListener listener = new CountingListener(2);
+        Auditable failing = new Auditable() {
+            @Override
+            public List<String> audit() {
+                throw new IllegalStateException("corrupt");
+            }
+        };
+        Auditor auditor = new Auditor(failing, new AuditListener() {
+            @Override
+            public void violationsFound(Auditable target, List<String> violations) {
+                listener.violationsFound(target, violations);
+                throw new RuntimeException("listener failed");
+            }
+        });
+        auditor.start(1, TimeUnit.MILLISECONDS);
+        try {
+            assertTrue("expected two failed audits", listener.latch.await(10, TimeUnit.SECONDS));
+            assertTrue(auditor.isRunning());
+        } finally {
+            auditor.stop();
+        }
+        assertEquals(1, listener.last.size());
+        assertTrue(listener.last.get(0), listener.last.get(0).contains("corrupt"));
+    }
+
+    @Test
+    public void testPeriodicAuditDuringMutations() throws InterruptedException {
+        for (final Library library : Arrays.<Library>asList(new SynchronizedLibrary(new BigLibrary()),
+                new ConcurrentBigLibrary())) {
+            final AtomicInteger audits = new AtomicInteger();
+            Auditable counted = new Auditable() {
+                @Override
+                public List<String> audit() {
+                    audits.incrementAndGet();
+                    return ((Auditable) library).audit();
+                }
+            };
+            CountingListener listener = new CountingListener(1);
+            Auditor auditor = new Auditor(counted, listener);
+            final AtomicBoolean running = new AtomicBoolean(true);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                final int thread = t;
+                threads.add(new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; running.get(); i++) {
+                            Book book = new Book("Title " + (i % 100), Arrays.asList("Author " + thread), 2000);
+                            List<BookCopy> copies = library.buy(book, 3);
+                            library.checkout(copies.get(0));
+                            library.checkinAll(copies);
+                            library.lose(copies.get(i % 3));
+                        }
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            auditor.start(1, TimeUnit.MILLISECONDS);
+            try {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+                while (audits.get() < 50 && System.nanoTime() < deadline) {
+                    Thread.sleep(1);
+                }
+            } finally {
+                auditor.stop();
+                running.set(false);
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue("expected audits to run", audits.get() >= 50);
+            assertEquals(library + " reported " + listener.last, 1, listener.latch.getCount());
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testStartTwice() {
+        Auditor auditor = new Auditor(new BigLibrary(), new CountingListener(1));
+        auditor.start(1, TimeUnit.HOURS);
+        try {
+            auditor.start(1, TimeUnit.HOURS);
+        } finally {
+            auditor.stop();
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -5,6 +5,9 @@ import static org.junit.Assert.*;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Test suite for BigLibrary's stronger specs.
@@ -19,12 +22,25 @@ public class BigLibraryTest {
     /*
      * Testing strategy
      * ==================
-     * 
-     * TODO: your testing strategy for BigLibrary.find() should go here.
-     * Make sure you have partitions.
+     *
+     * find : query shares one word with title, with author, with neither
+     *        query differs from title in case, in punctuation
+     *        matching book is available, checked out, lost
+     *        title or author contained in query, inside a longer word of query
+     *        ranking: matches share more tokens with query, rarer tokens, same score,
+     *                 title contained in query
+     * buy : book equal to the book of a copy already in the library, available or checked out
+     * lose : copy already lost, after its book was bought again through an equal Book
+     * find(query, k) : k < matches, with matches of different scores
+     * index built on first search : books bought, bought in bulk and lost before the
+     *                               first find() and suggest(), and after it
+     * buildIndex : before any search, called twice
+     * snapshot : taken before any change, after many; books gaining their first copy and
+     *            losing their last between snapshots; books unchanged between snapshots
+     * allCopiesView, availableCopiesView : live across checkout, checkin, losing the last copy
+     *                                      and buying the book again; iteration
      */
-    
-    // TODO: put JUnit @Test methods here that you developed from your testing strategy
+
     @Test
     public void testExampleTest() {
         // this is just an example test, you should delete it
@@ -32,6 +48,237 @@ public class BigLibraryTest {
         assertEquals(Collections.emptyList(), library.find("This Test Is Just An Example"));
     }
 
+    @Test
+    public void testFindSingleWordOfTitle() {
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Book book2 = new Book("Darwin's Radio sequel", Arrays.asList("Greg Bear"), 2003);
+        Book other = new Book("Blood Music", Arrays.asList("Greg Bear"), 1985);
+        Library library = new BigLibrary();
+        library.buy(book);
+        library.buy(book2);
+        library.buy(other);
+        List<Book> matchedBooks = library.find("Radio");
+        assertEquals("expected 2 matches", 2, matchedBooks.size());
+        assertTrue("expected Darwin", matchedBooks.contains(book));
+        assertTrue("expected Darwin sequel", matchedBooks.contains(book2));
+    }
+
+    @Test
+    public void testFindSingleWordOfAuthor() {
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Book other = new Book("Cryptonomicon", Arrays.asList("Neal Stephenson"), 1999);
+        Library library = new BigLibrary();
+        library.buy(book);
+        library.buy(other);
+        assertEquals(Arrays.asList(book), library.find("bear"));
+    }
+
+    @Test
+    public void testFindIgnoresCaseAndPunctuation() {
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Library library = new BigLibrary();
+        library.buy(book);
+        assertEquals(Arrays.asList(book), library.find("DARWIN radio!"));
+    }
+
+    @Test
+    public void testFindCheckedOutAndLost() {
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Library library = new BigLibrary();
+        BookCopy copy = library.buy(book);
+        library.checkout(copy);
+        assertEquals("checked out book is found", Arrays.asList(book), library.find("radio"));
+        library.lose(copy);
+        assertEquals("lost book is not found", Collections.emptyList(), library.find("radio"));
+    }
+
+    @Test
+    public void testFindRanksMoreMatchingTokensFirst() {
+        Book radio = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Book days = new Book("Radio Days", Arrays.asList("Woody Allen"), 1987);
+        Book origin = new Book("On the Origin of Species", Arrays.asList("Charles Darwin"), 1859);
+        Library library = new BigLibrary();
+        library.buy(days);
+        library.buy(origin);
+        library.buy(radio);
+        List<Book> matchedBooks = library.find("darwin radio");
+        assertEquals("expected 3 matches", 3, matchedBooks.size());
+        assertEquals("book matching both words ranks first", radio, matchedBooks.get(0));
+    }
+
+    @Test
+    public void testFindRanksRareTokenFirst() {
+        Library library = new BigLibrary();
+        for (int i = 0; i < 5; i++) {
+            library.buy(new Book("The Book " + i, Arrays.asList("Anonymous"), 1990 + i));
+        }
+        Book rare = new Book("Rare Book", Arrays.asList("Someone"), 1950);
+        library.buy(rare);
+        List<Book> matchedBooks = library.find("rare anonymous");
+        assertEquals("expected 6 matches", 6, matchedBooks.size());
+        assertEquals("rare word outweighs common word", rare, matchedBooks.get(0));
+        assertEquals("top 1 is the same book", Arrays.asList(rare), library.find("rare anonymous", 1));
+    }
+
+    @Test
+    public void testFindTopKKeepsBestScores() {
+        Library library = new BigLibrary();
+        Book best = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        library.buy(best);
+        for (int i = 0; i < 20; i++) {
+            library.buy(new Book("Dune Companion volume " + i, Arrays.asList("Various"), 2000 + i));
+        }
+        List<Book> top = library.find("dune", 3);
+        assertEquals("expected 3 results", 3, top.size());
+        assertEquals("shortest title matches best", best, top.get(0));
+        assertEquals("same scores are ordered newest first", library.find("dune").subList(0, 3), top);
+    }
+
+    @Test
+    public void testFindTitleInsideQueryWord() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Library library = new BigLibrary();
+        library.buy(dune);
+        assertEquals("title contained in a longer word", Arrays.asList(dune), library.find("Dunes of Arrakis"));
+        assertEquals("author contained in query", Arrays.asList(dune), library.find("by Frank Herbertson"));
+        assertEquals("containment is case-sensitive", Collections.emptyList(), library.find("DUNES"));
+    }
+
+    @Test
+    public void testFindRanksContainedTitleFirst() {
+        Book whole = new Book("The Stars", Arrays.asList("Alfred Bester"), 1956);
+        Book partial = new Book("Stars Stars Stars", Arrays.asList("Various"), 2010);
+        Library library = new BigLibrary();
+        library.buy(whole);
+        library.buy(partial);
+        List<Book> matchedBooks = library.find("Among The Stars");
+        assertEquals("expected 2 matches", 2, matchedBooks.size());
+        assertEquals("title contained in query ranks first", whole, matchedBooks.get(0));
+        lose(library, whole);
+        assertEquals("lost book no longer contained", Arrays.asList(partial), library.find("Among The Stars"));
+    }
+
+    @Test
+    public void testCopiesShareBook() {
+        Library library = new BigLibrary();
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        BookCopy first = library.buy(dune);
+        library.checkout(first);
+        BookCopy second = library.buy(new Book("Dune", Arrays.asList("Frank Herbert"), 1965));
+        assertSame("copies of one edition share a Book", first.getBook(), second.getBook());
+        library.lose(first);
+        library.lose(second);
+        Book reprint = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        assertSame("no copies left, so the new book is used", reprint, library.buy(reprint).getBook());
+    }
+
+    @Test
+    public void testLoseAgainAfterRebuyingEqualBook() {
+        Library library = new BigLibrary();
+        BookCopy lost = library.buy(new Book("Dune", Arrays.asList("Frank Herbert"), 1965));
+        library.lose(lost);
+        Book reprint = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        BookCopy bought = library.buy(reprint);
+        library.lose(lost);
+        assertEquals(Collections.singleton(bought), library.allCopies(reprint));
+        assertFalse(library.isAvailable(lost));
+        assertEquals(Collections.emptyList(), ((Auditable) library).audit());
+    }
+
+    private static void lose(Library library, Book book) {
+        for (BookCopy copy : library.allCopies(book)) {
+            library.lose(copy);
+        }
+    }
+
+    @Test
+    public void testIndexBuiltOnFirstSearch() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book emma = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+        Book lost = new Book("Lost Horizon", Arrays.asList("James Hilton"), 1933);
+        BigLibrary library = new BigLibrary(false);
+        library.buy(dune, 2);
+        library.buyAll(Collections.singletonMap(emma, 1));
+        library.lose(library.buy(lost));
+        assertTrue(library.audit().isEmpty());
+        assertEquals(Arrays.asList("Frank Herbert"), library.suggest("Fr", 5));
+        assertEquals(Arrays.asList(emma), library.find("Emma"));
+        assertEquals(Collections.emptyList(), library.find("Lost Horizon"));
+
+        BookCopy copy = library.buy(lost);
+        assertEquals("index maintained once built", Arrays.asList(lost), library.find("Lost Horizon"));
+        library.lose(copy);
+        assertEquals(Collections.emptyList(), library.find("Lost Horizon"));
+        assertTrue(library.audit().isEmpty());
+    }
+
+    @Test
+    public void testBuildIndex() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book emma = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+        BigLibrary library = new BigLibrary(false);
+        library.buy(dune, 2);
+        library.buyAll(Collections.singletonMap(emma, 1));
+        library.buildIndex();
+        assertTrue(library.audit().isEmpty());
+        library.buildIndex();
+        assertTrue(library.audit().isEmpty());
+        assertEquals(Arrays.asList(emma), library.find("Emma"));
+        assertEquals(Arrays.asList("Frank Herbert"), library.suggest("Fr", 5));
+    }
+
+    @Test
+    public void testSnapshotRecordsOnlyChanges() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book emma = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+        Book lost = new Book("Lost Horizon", Arrays.asList("James Hilton"), 1933);
+        BigLibrary library = new BigLibrary();
+        BookCopy copy = library.buy(dune);
+        BookCopy last = library.buy(lost);
+        LibraryView first = library.snapshot();
+        assertTrue(library.audit().isEmpty());
+
+        library.checkout(copy);
+        library.buy(emma, 3);
+        library.lose(last);
+        assertTrue("changes tracked since the snapshot", library.audit().isEmpty());
+        LibraryView second = library.snapshot();
+        LibraryView third = library.snapshot();
+
+        assertEquals(new HashSet<>(Arrays.asList(dune, lost)), first.books());
+        assertTrue(first.isAvailable(copy));
+        assertEquals(new HashSet<>(Arrays.asList(dune, emma)), second.books());
+        assertFalse(second.isAvailable(copy));
+        assertEquals(3, second.availableCopies(emma).size());
+        assertSame("unchanged books shared between snapshots",
+                second.allCopies(dune), third.allCopies(dune));
+        assertTrue(library.audit().isEmpty());
+    }
+
+    @Test
+    public void testCopiesViewsAreLive() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        BigLibrary library = new BigLibrary();
+        Set<BookCopy> all = library.allCopiesView(dune);
+        Set<BookCopy> available = library.availableCopiesView(dune);
+        BookCopy first = library.buy(dune);
+        assertEquals(Collections.singleton(first), all);
+        assertEquals(1, available.size());
+
+        library.checkout(first);
+        assertEquals(1, all.size());
+        assertTrue(available.isEmpty());
+        library.lose(first);
+        assertTrue(all.isEmpty());
+
+        BookCopy second = library.buy(dune);
+        BookCopy third = library.buy(dune);
+        library.checkout(third);
+        assertEquals("follows the book's new buckets", new HashSet<>(Arrays.asList(second, third)), all);
+        assertEquals(Collections.singleton(second), available);
+        assertFalse(all.contains(first));
+    }
+
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
         assert false; // make sure assertions are enabled with VM argument: -ea
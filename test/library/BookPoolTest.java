@@ -0,0 +1,97 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Test suite for BookPool.
+ */
+public class BookPoolTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * intern : book new to the pool, equal book already pooled, different edition sharing
+     *          a title or an author with a pooled book; one thread, many threads at once
+     * size : empty pool, after interning equal and different books
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * @return a book equal to book whose strings are distinct objects
+     */
+    private static Book copyOf(Book book) {
+        List<String> authors = new ArrayList<>();
+        for (String author : book.getAuthors()) {
+            authors.add(new String(author));
+        }
+        return new Book(new String(book.getTitle()), authors, book.getYear());
+    }
+
+    @Test
+    public void testInternEqualBooks() {
+        BookPool pool = new BookPool();
+        assertEquals(0, pool.size());
+        Book book = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book first = pool.intern(book);
+        assertEquals(book, first);
+        assertSame("equal book gets the same instance", first, pool.intern(copyOf(book)));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testInternSharesStrings() {
+        BookPool pool = new BookPool();
+        Book dune = pool.intern(new Book("Dune", Arrays.asList("Frank Herbert"), 1965));
+        Book messiah = pool.intern(new Book("Dune Messiah", Arrays.asList(new String("Frank Herbert")), 1969));
+        Book reprint = pool.intern(new Book(new String("Dune"), Arrays.asList("Frank Herbert"), 1990));
+        assertEquals(3, pool.size());
+        assertSame("author shared between editions", dune.getAuthor(0), messiah.getAuthor(0));
+        assertSame("title shared between editions", dune.getTitle(), reprint.getTitle());
+    }
+
+    @Test
+    public void testInternConcurrently() throws Exception {
+        final BookPool pool = new BookPool();
+        final Book book = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Book>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                results.add(executor.submit(new Callable<Book>() {
+                    @Override
+                    public Book call() {
+                        return pool.intern(copyOf(book));
+                    }
+                }));
+            }
+            Book canonical = results.get(0).get();
+            for (Future<Book> result : results) {
+                assertSame(canonical, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, pool.size());
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
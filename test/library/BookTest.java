@@ -1,5 +1,6 @@
 package library;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import org.junit.Test;
@@ -17,6 +18,9 @@ public class BookTest {
      * title.length: 0, 1, > 1
      * authors.length: 0, 1, > 1
      * year: <0, 0, >0
+     * getAuthors: mutate the list passed to the constructor, try to mutate the result
+     * getAuthor, getAuthorCount: one author, several authors
+     * hashCode: equal books, books differing in author order
      */
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -57,6 +61,43 @@ public class BookTest {
         assertEquals("year is 2011", year, b.getYear());
     }
 
+    @Test
+    public void testAuthorsNotShared() {
+        List<String> authors = new ArrayList<>(Arrays.asList("Greg Bear"));
+        Book b = new Book("Darwin's Radio", authors, 2000);
+        authors.add("Someone Else");
+        assertEquals("constructor copies authors", Arrays.asList("Greg Bear"), b.getAuthors());
+        try {
+            b.getAuthors().add("Someone Else");
+            fail("expected authors to be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(Arrays.asList("Greg Bear"), b.getAuthors());
+    }
+
+    @Test
+    public void testIndexedAuthors() {
+        Book one = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        assertEquals(1, one.getAuthorCount());
+        assertEquals("Greg Bear", one.getAuthor(0));
+        Book three = new Book("Good Omens", Arrays.asList("Terry Pratchett", "Neil Gaiman", "Anon"), 1990);
+        assertEquals(3, three.getAuthorCount());
+        assertEquals("Terry Pratchett", three.getAuthor(0));
+        assertEquals("Anon", three.getAuthor(2));
+    }
+
+    @Test
+    public void testHashCode() {
+        Book a = new Book("Good Omens", Arrays.asList("Terry Pratchett", "Neil Gaiman"), 1990);
+        Book b = new Book("Good Omens", new ArrayList<>(Arrays.asList("Terry Pratchett", "Neil Gaiman")), 1990);
+        Book swapped = new Book("Good Omens", Arrays.asList("Neil Gaiman", "Terry Pratchett"), 1990);
+        assertEquals(a, b);
+        assertEquals("equal books hash equally", a.hashCode(), b.hashCode());
+        assertEquals("hash is stable", a.hashCode(), a.hashCode());
+        assertNotEquals("author order matters", a, swapped);
+    }
+
     /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
      * Redistribution of original or derived work requires explicit permission.
      * Don't post any of this code on the web or to a public Github repository.
@@ -0,0 +1,172 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Test suite for CachingLibrary.
+ */
+public class CachingLibraryTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * find : repeated query hits; find(query, k) with k within, beyond a cached k; cached
+     *        result complete; result list modified by the client
+     * invalidation : checkout, checkin and buying another copy of a held book keep every
+     *                entry; a new book or losing the last copy drops exactly the queries it
+     *                could match, by shared token or by containment; another lost copy
+     *                keeps them; more than MAX_CHANGES books joined
+     * eviction : capacity 1, 2; least recently used query evicted
+     * concurrency : last copy lost while another copy is bought and the book searched;
+     *               cached result then holds the book
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final Book DUNE = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+    private static final Book MESSIAH = new Book("Dune Messiah", Arrays.asList("Frank Herbert"), 1969);
+    private static final Book EMMA = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+
+    @Test
+    public void testHitsAndTopK() {
+        CachingLibrary library = new CachingLibrary(new BigLibrary(), 10);
+        library.buy(DUNE);
+        library.buy(MESSIAH);
+        assertEquals(Arrays.asList(DUNE, MESSIAH), library.find("Dune"));
+        List<Book> again = library.find("Dune");
+        assertEquals(Arrays.asList(DUNE, MESSIAH), again);
+        assertEquals(1, library.getHits());
+        assertEquals(1, library.getMisses());
+
+        again.clear();
+        assertEquals("cache unaffected by the client", Arrays.asList(DUNE), library.find("Dune", 1));
+        assertEquals(2, library.getHits());
+
+        assertEquals(Arrays.asList(MESSIAH), library.find("Herbert Messiah", 1));
+        assertEquals(Arrays.asList(MESSIAH, DUNE), library.find("Herbert Messiah", 2));
+        assertEquals("k beyond the cached k", 3, library.getMisses());
+        assertEquals(Arrays.asList(MESSIAH, DUNE), library.find("Herbert Messiah", 5));
+        assertEquals("two results for k = 2 might not be all", 4, library.getMisses());
+        assertEquals(Arrays.asList(MESSIAH, DUNE), library.find("Herbert Messiah", 50));
+        assertEquals("cached result shorter than its k is complete", 4, library.getMisses());
+    }
+
+    @Test
+    public void testPreciseInvalidation() {
+        CachingLibrary library = new CachingLibrary(new BigLibrary(), 10);
+        BookCopy dune = library.buy(DUNE);
+        BookCopy emma = library.buy(EMMA);
+        library.find("Dune");
+        library.find("Emma");
+        library.find("Reading Dune Messiah tonight");
+
+        library.checkout(emma);
+        library.checkin(emma);
+        BookCopy second = library.buy(DUNE);
+        library.lose(second);
+        assertEquals(0, library.getInvalidations());
+        assertEquals(3, library.getSize());
+
+        library.buy(MESSIAH);
+        assertEquals("queries sharing a token, or containing the title", 2, library.getInvalidations());
+        assertEquals(Arrays.asList(DUNE, MESSIAH), library.find("Dune"));
+        assertEquals(Arrays.asList(MESSIAH, DUNE), library.find("Reading Dune Messiah tonight"));
+        long misses = library.getMisses();
+        assertEquals(Arrays.asList(EMMA), library.find("Emma"));
+        assertEquals("unrelated query still cached", misses, library.getMisses());
+
+        library.lose(dune);
+        assertEquals(Arrays.asList(MESSIAH), library.find("Dune"));
+        assertEquals(Arrays.asList(EMMA), library.find("Emma", 3));
+    }
+
+    @Test
+    public void testStaleAfterManyChanges() {
+        CachingLibrary library = new CachingLibrary(new BigLibrary(), 10);
+        library.buy(EMMA);
+        library.find("Emma");
+        for (int i = 0; i <= CachingLibrary.MAX_CHANGES; i++) {
+            library.buy(new Book("Volume " + i, Arrays.asList("Anonymous"), 2000));
+        }
+        assertEquals(1, library.getSize());
+        assertEquals(Arrays.asList(EMMA), library.find("Emma"));
+        assertEquals(0, library.getHits());
+        assertEquals(1, library.getInvalidations());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        CachingLibrary library = new CachingLibrary(new SmallLibrary(), 2);
+        library.buy(DUNE);
+        library.buy(EMMA);
+        library.find("Dune");
+        library.find("Emma");
+        library.find("Dune");
+        library.find("Frank Herbert");
+        assertEquals(1, library.getEvictions());
+        assertEquals(2, library.getSize());
+        library.find("Dune");
+        assertEquals(2, library.getHits());
+        library.find("Emma");
+        assertEquals("Emma was evicted", 4, library.getMisses());
+    }
+
+    @Test(timeout=10000)
+    public void testLoseRacingBuy() throws InterruptedException {
+        final CountDownLatch buying = new CountDownLatch(1);
+        final CountDownLatch proceed = new CountDownLatch(1);
+        // pauses buy(book) after the wrapper has checked whether book is held; the threads
+        // below never touch the BigLibrary at the same time
+        final CachingLibrary library = new CachingLibrary(new BigLibrary() {
+            @Override
+            public BookCopy buy(Book book) {
+                buying.countDown();
+                try {
+                    proceed.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                return super.buy(book);
+            }
+        }, 10);
+        final BookCopy last = library.buy(DUNE, 1).get(0);
+        Thread buyer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                library.buy(DUNE);
+            }
+        });
+        buyer.start();
+        buying.await();
+        Thread loser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                library.lose(last);
+            }
+        });
+        loser.start();
+        loser.join(200);
+        assertTrue("lose waits for the buy of the same book", loser.isAlive());
+        library.find("Dune");
+        proceed.countDown();
+        buyer.join();
+        loser.join();
+        assertEquals(1, library.allCopies(DUNE).size());
+        assertEquals(Arrays.asList(DUNE), library.find("Dune"));
+    }
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,157 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+/**
+ * Test suite for CatalogImporter.
+ */
+public class CatalogImporterTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * fields : CSV unquoted, quoted with separator, quoted with doubled quote, empty fields,
+     *          unterminated quote, text after closing quote; TSV with quotes as literals
+     * importInto : CSV, TSV; with and without header; blank lines; record repeated, so
+     *              copies are summed; several authors; malformed records (wrong number of
+     *              fields, bad number, negative year, zero copies, no authors); empty
+     *              catalog; catalog larger than one chunk, parsed by several threads
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testFieldsCsv() {
+        CatalogImporter.Format csv = CatalogImporter.Format.CSV;
+        assertEquals(Arrays.asList("Dune", "Frank Herbert", "1965", "2"),
+                CatalogImporter.fields("Dune,Frank Herbert,1965,2", csv));
+        assertEquals(Arrays.asList("Hello, World", "say \"hi\"", "", ""),
+                CatalogImporter.fields("\"Hello, World\",\"say \"\"hi\"\"\",,\"\"", csv));
+        assertNull("unterminated quote", CatalogImporter.fields("\"Dune,Frank Herbert", csv));
+        assertNull("text after quote", CatalogImporter.fields("\"Dune\"x,Frank Herbert", csv));
+    }
+
+    @Test
+    public void testFieldsTsv() {
+        assertEquals(Arrays.asList("\"Dune, a novel\"", "Frank Herbert"),
+                CatalogImporter.fields("\"Dune, a novel\"\tFrank Herbert", CatalogImporter.Format.TSV));
+    }
+
+    @Test
+    public void testImportCsv() throws IOException {
+        String catalog = "Title,Authors,Year,Copies\n"
+                + "Dune,Frank Herbert,1965,2\n"
+                + "\n"
+                + "\"Good Omens\",Terry Pratchett; Neil Gaiman,1990,1\r\n"
+                + "Dune, Frank Herbert ,1965, 3\n";
+        Library library = new BigLibrary();
+        CatalogImporter.Report report = new CatalogImporter(CatalogImporter.Format.CSV)
+                .importInto(new StringReader(catalog), library);
+        assertEquals(3, report.getRecords());
+        assertEquals(0, report.getMalformed());
+        assertEquals(2, report.getBooks());
+        assertEquals(6, report.getCopies());
+
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book omens = new Book("Good Omens", Arrays.asList("Terry Pratchett", "Neil Gaiman"), 1990);
+        assertEquals("copies of repeated records summed", 5, library.availableCopies(dune).size());
+        assertEquals(1, library.allCopies(omens).size());
+        assertEquals(Arrays.asList(omens), library.find("Neil Gaiman"));
+    }
+
+    @Test
+    public void testImportTsvWithoutHeader() throws IOException {
+        String catalog = "Dune\tFrank Herbert\t1965\t1\n"
+                + "Hello, World\tAnonymous\t2000\t2";
+        Library library = new SmallLibrary();
+        CatalogImporter.Report report = new CatalogImporter(CatalogImporter.Format.TSV)
+                .importInto(new StringReader(catalog), library);
+        assertEquals(2, report.getRecords());
+        assertEquals(3, report.getCopies());
+        assertEquals(2, library.allCopies(new Book("Hello, World", Arrays.asList("Anonymous"), 2000)).size());
+    }
+
+    @Test
+    public void testMalformedRecordsSkipped() throws IOException {
+        String catalog = "Dune,Frank Herbert,1965\n"
+                + "Dune,Frank Herbert,year,1\n"
+                + "Dune,Frank Herbert,-1,1\n"
+                + "Dune,Frank Herbert,1965,0\n"
+                + "Dune, ; ,1965,1\n"
+                + "\"Dune,Frank Herbert,1965,1\n"
+                + "Emma,Jane Austen,1815,1\n";
+        Library library = new BigLibrary();
+        CatalogImporter.Report report = new CatalogImporter(CatalogImporter.Format.CSV)
+                .importInto(new StringReader(catalog), library);
+        assertEquals(1, report.getRecords());
+        assertEquals(6, report.getMalformed());
+        assertEquals(Collections.emptyList(), library.find("Dune"));
+        assertEquals(1, library.allCopies(new Book("Emma", Arrays.asList("Jane Austen"), 1815)).size());
+    }
+
+    @Test
+    public void testEmptyCatalog() throws IOException {
+        CatalogImporter.Report report = new CatalogImporter(CatalogImporter.Format.CSV)
+                .importInto(new StringReader(""), new BigLibrary());
+        assertEquals(0, report.getRecords());
+        assertEquals(0, report.getMalformed());
+        assertEquals(0, report.getCopies());
+    }
+
+    @Test
+    public void testLargeCatalogInParallel() throws IOException {
+        StringBuilder catalog = new StringBuilder();
+        int records = 50000;
+        for (int i = 0; i < records; i++) {
+            // every title occurs twice, so the two records of a book often land in different chunks
+            int title = i % (records / 2);
+            catalog.append("Title ").append(title).append(",Author ").append(title % 100)
+                   .append(",2000,").append(i < records / 2 ? 1 : 2).append('\n');
+            if (i % 1000 == 0) {
+                catalog.append("malformed\n");
+            }
+        }
+        Library library = new BigLibrary();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CatalogImporter.Report report = new CatalogImporter(CatalogImporter.Format.CSV, pool)
+                    .importInto(new StringReader(catalog.toString()), library);
+            assertEquals(records, report.getRecords());
+            assertEquals(records / 1000, report.getMalformed());
+            assertEquals(records / 2, report.getBooks());
+            assertEquals(3 * records / 2, report.getCopies());
+            assertTrue(report.getRecordsPerSecond() > 0);
+        } finally {
+            pool.shutdown();
+        }
+        Book book = new Book("Title 12345", Arrays.asList("Author 45"), 2000);
+        Set<BookCopy> copies = library.allCopies(book);
+        assertEquals(3, copies.size());
+        Set<Book> instances = Collections.newSetFromMap(new IdentityHashMap<Book, Boolean>());
+        for (BookCopy copy : copies) {
+            instances.add(copy.getBook());
+        }
+        assertEquals("copies share one Book", 1, instances.size());
+        assertEquals(Arrays.asList(book), library.find("Title 12345", 1));
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
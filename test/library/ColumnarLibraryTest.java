@@ -0,0 +1,130 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test suite for the copy handles of ColumnarLibrary.
+ */
+public class ColumnarLibraryTest {
+
+    /*
+     * NOTE: tests of the Library spec are in LibraryTest.java, which also runs against
+     * ColumnarLibrary.
+     */
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * handles : from buy, from allCopies, from availableCopies; same copy, different copies
+     * condition : set through one handle, read through another; lost copy
+     * copy not made by this library : plain BookCopy, handle from another ColumnarLibrary
+     * audit : after buying, checking out, checking in and losing copies
+     * losing most copies of a book : observers exact before and after, and never change
+     *     the rep
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private final Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+
+    @Test
+    public void testHandlesOfSameCopyAreEqual() {
+        ColumnarLibrary library = new ColumnarLibrary();
+        BookCopy bought = library.buy(dune);
+        BookCopy other = library.buy(dune);
+        assertNotEquals(bought, other);
+        assertTrue(library.allCopies(dune).contains(bought));
+        library.checkout(other);
+        assertEquals(Collections.singleton(bought), library.availableCopies(dune));
+        BookCopy found = library.availableCopies(dune).iterator().next();
+        assertEquals(bought.hashCode(), found.hashCode());
+        assertEquals(dune, found.getBook());
+    }
+
+    @Test
+    public void testConditionSharedBetweenHandles() {
+        ColumnarLibrary library = new ColumnarLibrary();
+        BookCopy bought = library.buy(dune);
+        BookCopy found = library.allCopies(dune).iterator().next();
+        assertEquals(BookCopy.Condition.GOOD, found.getCondition());
+        bought.setCondition(BookCopy.Condition.DAMAGED);
+        assertEquals(BookCopy.Condition.DAMAGED, found.getCondition());
+        assertTrue(found.toString().endsWith("damaged"));
+        found.setCondition(BookCopy.Condition.GOOD);
+        assertEquals(BookCopy.Condition.GOOD, bought.getCondition());
+        library.lose(bought);
+        bought.setCondition(BookCopy.Condition.DAMAGED);
+        assertEquals("lost copy keeps its condition", BookCopy.Condition.DAMAGED, bought.getCondition());
+        assertEquals(Collections.emptySet(), library.allCopies(dune));
+    }
+
+    @Test
+    public void testForeignCopies() {
+        ColumnarLibrary library = new ColumnarLibrary();
+        ColumnarLibrary other = new ColumnarLibrary();
+        library.buy(dune);
+        BookCopy foreign = other.buy(dune);
+        assertFalse(library.isAvailable(foreign));
+        assertFalse(library.isAvailable(new BookCopy(dune)));
+        try {
+            library.checkout(foreign);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        library.lose(foreign);
+        assertTrue("losing a foreign copy changes nothing", other.isAvailable(foreign));
+        assertEquals(1, library.allCopies(dune).size());
+    }
+
+    @Test
+    public void testAudit() {
+        ColumnarLibrary library = new ColumnarLibrary();
+        assertEquals(Collections.emptyList(), library.audit());
+        for (int i = 0; i < 100; i++) {
+            BookCopy copy = library.buy(new Book("Title " + (i % 7), Arrays.asList("Author"), 2000));
+            if (i % 3 == 0) {
+                library.checkout(copy);
+            } else if (i % 3 == 1) {
+                library.lose(copy);
+            }
+        }
+        library.allCopies(new Book("Title 1", Arrays.asList("Author"), 2000));
+        assertEquals(Collections.emptyList(), library.audit());
+    }
+
+    @Test
+    public void testLoseMostCopies() {
+        ColumnarLibrary library = new ColumnarLibrary();
+        List<BookCopy> copies = library.buy(dune, 100);
+        for (int i = 0; i < 99; i++) {
+            library.lose(copies.get(i));
+            assertEquals(100 - i - 1, library.allCopies(dune).size());
+            assertEquals(Collections.emptyList(), library.audit());
+        }
+        BookCopy last = copies.get(99);
+        library.checkout(last);
+        assertEquals(Collections.singleton(last), library.allCopies(dune));
+        assertEquals(Collections.emptySet(), library.availableCopies(dune));
+        List<BookCopy> more = library.buy(dune, 3);
+        assertEquals(3, library.availableCopies(dune).size());
+        assertTrue(library.availableCopies(dune).containsAll(more));
+        assertEquals(Collections.emptyList(), library.audit());
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,304 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Test suite for ConcurrentBigLibrary under concurrent use.
+ */
+public class ConcurrentBigLibraryTest {
+
+    /*
+     * NOTE: tests of the Library spec are in LibraryTest.java, which also runs against
+     * ConcurrentBigLibrary.
+     */
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * constructor : stripes = 1, not a power of two, nonpositive
+     * concurrent checkout of the same copy : exactly one thread succeeds
+     * concurrent checkout, checkin and lose of the same copies : lost copies stay lost
+     * concurrent mix of buy, checkout, checkin, lose and find on shared books :
+     *     final state satisfies the rep invariant and matches each thread's own record
+     * snapshot during concurrent checkout and checkin : every copy in every view; exact
+     *     once the threads stop; a view never sees a later change without an earlier one,
+     *     across books in different stripes
+     * snapshot after buy, lose, checkout : only the changed books differ from the previous
+     *     view, which is unchanged
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testStripeCounts() {
+        Book book = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        for (int stripes : Arrays.asList(1, 3, 100)) {
+            ConcurrentBigLibrary library = new ConcurrentBigLibrary(stripes);
+            BookCopy copy = library.buy(book);
+            assertTrue(library.isAvailable(copy));
+            assertEquals(Collections.emptyList(), library.audit());
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testNoStripes() {
+        new ConcurrentBigLibrary(0);
+    }
+
+    /**
+     * Run task on THREADS threads at once.
+     * @return the results of the threads, in order of thread number
+     */
+    private static <T> List<T> runConcurrently(final Task<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<T>() {
+                    @Override
+                    public T call() throws Exception {
+                        return task.run(thread);
+                    }
+                }));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private interface Task<T> {
+        T run(int thread) throws Exception;
+    }
+
+    @Test
+    public void testConcurrentCheckoutOfSameCopy() throws Exception {
+        final Library library = new ConcurrentBigLibrary();
+        final List<BookCopy> copies = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            copies.add(library.buy(new Book("Title " + (i % 10), Arrays.asList("Author"), 2000)));
+        }
+        List<Integer> checkedOut = runConcurrently(new Task<Integer>() {
+            @Override
+            public Integer run(int thread) {
+                int successes = 0;
+                for (BookCopy copy : copies) {
+                    try {
+                        library.checkout(copy);
+                        successes++;
+                    } catch (IllegalArgumentException e) {
+                        // another thread got it first
+                    }
+                }
+                return successes;
+            }
+        });
+        int total = 0;
+        for (int successes : checkedOut) {
+            total += successes;
+        }
+        assertEquals("each copy checked out exactly once", copies.size(), total);
+        for (BookCopy copy : copies) {
+            assertFalse(library.isAvailable(copy));
+        }
+    }
+
+    @Test
+    public void testConcurrentCirculationAndLose() throws Exception {
+        final Library library = new ConcurrentBigLibrary();
+        final List<BookCopy> copies = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            copies.add(library.buy(new Book("Title " + (i % 10), Arrays.asList("Author"), 2000)));
+        }
+        runConcurrently(new Task<Void>() {
+            @Override
+            public Void run(int thread) {
+                for (BookCopy copy : copies) {
+                    if (thread == 0) {
+                        library.lose(copy);
+                        continue;
+                    }
+                    try {
+                        library.checkout(copy);
+                        library.checkin(copy);
+                    } catch (IllegalArgumentException e) {
+                        // lost, or checked out by another thread
+                    }
+                }
+                return null;
+            }
+        });
+        for (BookCopy copy : copies) {
+            assertFalse(library.isAvailable(copy));
+            try {
+                library.checkin(copy);
+                fail("lost copy cannot be checked in");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assertEquals(Collections.emptyList(), ((Auditable) library).audit());
+        assertEquals(Collections.emptyList(), library.find("Title"));
+    }
+
+    @Test
+    public void testSnapshotDuringCirculation() throws Exception {
+        final Library library = new ConcurrentBigLibrary();
+        final List<BookCopy> copies = new ArrayList<>();
+        final Set<Book> books = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            Book book = new Book("Title " + (i % 10), Arrays.asList("Author"), 2000);
+            copies.add(library.buy(book));
+            books.add(book);
+        }
+        runConcurrently(new Task<Void>() {
+            @Override
+            public Void run(int thread) {
+                for (int round = 0; round < 20; round++) {
+                    if (thread == 0) {
+                        LibraryView view = library.snapshot();
+                        assertEquals(books, view.books());
+                        Set<BookCopy> all = new HashSet<>();
+                        for (Book book : books) {
+                            all.addAll(view.allCopies(book));
+                        }
+                        assertEquals(new HashSet<>(copies), all);
+                        continue;
+                    }
+                    for (BookCopy copy : copies) {
+                        try {
+                            library.checkout(copy);
+                            library.checkin(copy);
+                        } catch (IllegalArgumentException e) {
+                            // checked out by another thread
+                        }
+                    }
+                }
+                return null;
+            }
+        });
+        library.checkout(copies.get(0));
+        LibraryView view = library.snapshot();
+        for (BookCopy copy : copies) {
+            assertEquals(library.isAvailable(copy), view.isAvailable(copy));
+        }
+    }
+
+    @Test
+    public void testSnapshotPointInTime() throws Exception {
+        final Library library = new ConcurrentBigLibrary(64);
+        final BookCopy first = library.buy(new Book("First", Arrays.asList("Author"), 2000));
+        final BookCopy second = library.buy(new Book("Second", Arrays.asList("Author"), 2000));
+        runConcurrently(new Task<Void>() {
+            @Override
+            public Void run(int thread) {
+                for (int round = 0; round < 2000; round++) {
+                    if (thread == 0) {
+                        // first is always checked out before and checked in after second
+                        library.checkout(first);
+                        library.checkout(second);
+                        library.checkin(second);
+                        library.checkin(first);
+                    } else if (thread == 1) {
+                        LibraryView view = library.snapshot();
+                        assertTrue("second checked out without first",
+                                view.isAvailable(second) || !view.isAvailable(first));
+                    }
+                }
+                return null;
+            }
+        });
+        assertTrue(library.snapshot().isAvailable(first));
+    }
+
+    @Test
+    public void testSnapshotAfterChanges() {
+        Library library = new ConcurrentBigLibrary(4);
+        Book kept = new Book("Kept", Arrays.asList("Author"), 2000);
+        Book lost = new Book("Lost", Arrays.asList("Author"), 2000);
+        Book bought = new Book("Bought", Arrays.asList("Author"), 2000);
+        BookCopy keptCopy = library.buy(kept);
+        BookCopy lostCopy = library.buy(lost);
+        LibraryView before = library.snapshot();
+        library.checkout(keptCopy);
+        library.lose(lostCopy);
+        BookCopy boughtCopy = library.buy(bought);
+        LibraryView after = library.snapshot();
+        assertEquals(new HashSet<>(Arrays.asList(kept, lost)), before.books());
+        assertTrue(before.isAvailable(keptCopy));
+        assertTrue(before.isAvailable(lostCopy));
+        assertEquals(new HashSet<>(Arrays.asList(kept, bought)), after.books());
+        assertFalse(after.isAvailable(keptCopy));
+        assertEquals(Collections.singleton(keptCopy), after.allCopies(kept));
+        assertEquals(Collections.singleton(boughtCopy), after.availableCopies(bought));
+        assertEquals(Collections.emptySet(), after.allCopies(lost));
+        assertEquals(Collections.emptyList(), ((Auditable) library).audit());
+    }
+
+    @Test
+    public void testConcurrentMix() throws Exception {
+        final ConcurrentBigLibrary library = new ConcurrentBigLibrary(4);
+        List<List<BookCopy>> kept = runConcurrently(new Task<List<BookCopy>>() {
+            @Override
+            public List<BookCopy> run(int thread) {
+                List<BookCopy> mine = new ArrayList<>();
+                for (int i = 0; i < 500; i++) {
+                    Book book = new Book("Title " + (i % 13), Arrays.asList("Author " + (i % 5)), 2000);
+                    BookCopy copy = library.buy(book);
+                    library.checkout(copy);
+                    if (i % 3 == 0) {
+                        library.lose(copy);
+                    } else {
+                        library.checkin(copy);
+                        mine.add(copy);
+                        assertTrue(library.find(book.getTitle()).contains(book));
+                    }
+                }
+                return mine;
+            }
+        });
+        assertEquals(Collections.emptyList(), library.audit());
+        int total = 0;
+        for (List<BookCopy> mine : kept) {
+            for (BookCopy copy : mine) {
+                assertTrue(library.isAvailable(copy));
+            }
+            total += mine.size();
+        }
+        int inLibrary = 0;
+        for (int i = 0; i < 13 * 5; i++) {
+            inLibrary += library.allCopies(new Book("Title " + (i % 13), Arrays.asList("Author " + (i % 5)), 2000)).size();
+        }
+        assertEquals("every copy not lost is in the library", total, inLibrary);
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
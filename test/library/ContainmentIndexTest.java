@@ -0,0 +1,139 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test suite for ContainmentIndex.
+ */
+public class ContainmentIndexTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * add : new pattern, pattern already present, pattern that is a prefix, suffix or
+     *       substring of another; enough patterns to merge several levels
+     * addAll : empty collection; new patterns, patterns already present, repeated patterns;
+     *          a few new patterns into a large index, merged into its levels
+     * remove : last occurrence, one of several occurrences, absent pattern,
+     *          enough removals to force a rebuild
+     * find : text empty, containing no pattern, overlapping patterns, a pattern several
+     *        times, a pattern only reachable through failure links; pattern differs in case
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static Set<String> set(String... strings) {
+        return new HashSet<>(Arrays.asList(strings));
+    }
+
+    @Test
+    public void testFindOverlappingPatterns() {
+        ContainmentIndex index = new ContainmentIndex();
+        for (String pattern : Arrays.asList("he", "she", "his", "hers")) {
+            index.add(pattern);
+        }
+        assertEquals(set("he", "she", "hers"), index.find("ushers"));
+        assertEquals(set("his"), index.find("this and this"));
+        assertEquals("case-sensitive", Collections.emptySet(), index.find("SHE"));
+        assertEquals(Collections.emptySet(), index.find(""));
+        assertEquals(Collections.emptySet(), index.find("xyz"));
+    }
+
+    @Test
+    public void testFindThroughFailureLinks() {
+        ContainmentIndex index = new ContainmentIndex();
+        index.add("abcd");
+        index.add("bc");
+        index.add("c");
+        assertEquals(set("bc", "c"), index.find("abce"));
+        assertEquals(set("abcd", "bc", "c"), index.find("xabcd"));
+    }
+
+    @Test
+    public void testRemove() {
+        ContainmentIndex index = new ContainmentIndex();
+        index.add("Dune");
+        index.add("Dune");
+        index.add("Emma");
+        index.remove("Dune");
+        assertEquals("one occurrence left", set("Dune", "Emma"), index.find("Dune Emma"));
+        index.remove("Dune");
+        assertEquals(set("Emma"), index.find("Dune Emma"));
+        index.remove("absent");
+        index.add("Dune");
+        assertEquals("added again", set("Dune", "Emma"), index.find("Dune Emma"));
+    }
+
+    @Test
+    public void testManyPatterns() {
+        ContainmentIndex index = new ContainmentIndex();
+        for (int i = 0; i < 100; i++) {
+            index.add("<" + i + ">");
+        }
+        assertEquals(set("<0>", "<37>", "<99>"), index.find("<0><37><99><100>"));
+        for (int i = 0; i < 90; i++) {
+            index.remove("<" + i + ">");
+        }
+        assertEquals("removed patterns forgotten after rebuild", set("<99>"), index.find("<0><37><99>"));
+        index.add("<37>");
+        assertEquals(set("<37>", "<99>"), index.find("<0><37><99>"));
+    }
+
+
+    @Test
+    public void testAddAll() {
+        ContainmentIndex index = new ContainmentIndex();
+        index.add("Dune");
+        index.addAll(Collections.<String>emptyList());
+        assertEquals(set("Dune"), index.find("Dune Emma"));
+        index.addAll(Arrays.asList("Dune", "Emma", "Emma", "Em"));
+        assertEquals(set("Dune", "Emma", "Em"), index.find("Dune Emma"));
+        index.remove("Emma");
+        assertEquals("one of two occurrences removed", set("Dune", "Emma", "Em"), index.find("Dune Emma"));
+        index.remove("Emma");
+        index.remove("Dune");
+        assertEquals("Dune was added twice", set("Dune", "Em"), index.find("Dune Emma"));
+    }
+
+    @Test
+    public void testAddAllFewIntoMany() {
+        ContainmentIndex index = new ContainmentIndex();
+        List<String> many = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            many.add("title" + i + ".");
+        }
+        index.addAll(many);
+        for (int batch = 0; batch < 40; batch++) {
+            List<String> few = new ArrayList<>();
+            for (int i = 0; i < 1 + batch % 7; i++) {
+                few.add("extra" + batch + "-" + i + ".");
+            }
+            few.add("title" + batch + ".");
+            index.addAll(few);
+            assertEquals(set("extra" + batch + "-0.", "title" + batch + ".", "title7."),
+                    index.find("extra" + batch + "-0. title7. title" + batch + "."));
+        }
+        index.remove("title7.");
+        assertEquals("added twice", set("title7."), index.find("title7."));
+        index.remove("title7.");
+        assertEquals(set("title999.", "extra39-0."), index.find("title7. title999. extra39-0."));
+    }
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,212 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+/**
+ * Test suite for InstrumentedLibrary and OperationStats.
+ */
+public class InstrumentedLibraryTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * operations : buy, buy(book, count), checkout, checkin, checkoutAll with a failure,
+     *              isAvailable, allCopies, find, find(k), findPage, suggest, lose;
+     *              results same as the wrapped library's
+     * rejections : IllegalArgumentException counted and rethrown, latency not recorded
+     * result sizes : empty, one, several
+     * sampling : every call timed; a sample timed, every call counted; default interval;
+     *            interval not positive
+     * getStats : every operation, unknown operation
+     * reset : counts start again from zero
+     * register : attributes readable and reset invocable over JMX; registered twice;
+     *            name taken by another library; unregister, then register again
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final Book DUNE = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+    private static final Book EMMA = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+
+    @Test
+    public void testRecordsCallsAndResultSizes() {
+        InstrumentedLibrary library = new InstrumentedLibrary(new BigLibrary(), 1);
+        BookCopy dune = library.buy(DUNE);
+        List<BookCopy> emmas = library.buy(EMMA, 3);
+        library.checkout(dune);
+        assertFalse(library.isAvailable(dune));
+        library.checkin(dune);
+        assertEquals(Collections.singletonList(dune), library.checkoutAll(Arrays.asList(emmas.get(0), dune, dune)));
+        assertEquals(4, library.allCopies(EMMA).size() + library.allCopies(DUNE).size());
+        assertEquals(Arrays.asList(EMMA), library.find("Emma"));
+        assertEquals(Collections.emptyList(), library.find("Tolstoy", 5));
+        assertEquals(Arrays.asList(DUNE), library.findPage("Dune", 10).getBooks());
+        assertEquals(Arrays.asList("Dune"), library.suggest("du", 5));
+        library.lose(emmas.get(2));
+
+        assertEquals(1, library.getStats("buy").getCalls());
+        assertEquals(0, library.getStats("buy").getMaxResultSize());
+        assertEquals(1, library.getStats("buy(count)").getCalls());
+        assertEquals(3, library.getStats("buy(count)").getMaxResultSize());
+        assertEquals(1, library.getStats("checkout").getCalls());
+        assertEquals(1, library.getStats("checkin").getCalls());
+        assertEquals(1, library.getStats("checkoutAll").getCalls());
+        assertEquals("failed copies", 1, library.getStats("checkoutAll").getMaxResultSize());
+        assertEquals(1, library.getStats("isAvailable").getCalls());
+        OperationStats allCopies = library.getStats("allCopies");
+        assertEquals(2, allCopies.getCalls());
+        assertEquals(3, allCopies.getMaxResultSize());
+        assertEquals(2, allCopies.getMeanResultSize(), 1e-9);
+        assertEquals(1, library.getStats("find").getResultSize50thPercentile());
+        assertEquals(0, library.getStats("find(k)").getMaxResultSize());
+        assertEquals(1, library.getStats("findPage").getCalls());
+        assertEquals(1, library.getStats("suggest").getCalls());
+        assertEquals(1, library.getStats("lose").getCalls());
+        assertEquals(0, library.getStats("fuzzyFind").getCalls());
+        assertEquals(2, allCopies.getTimedCalls());
+
+        OperationStats find = library.getStats("find");
+        assertTrue(find.getLatency50thPercentile() > 0);
+        assertTrue(find.getLatency50thPercentile() <= find.getLatency999thPercentile());
+        assertTrue(find.getLatency999thPercentile() <= find.getMaxLatency());
+        assertEquals(find.getMaxLatency(), find.getMeanLatency(), find.getMaxLatency() / 32.0);
+    }
+
+    @Test
+    public void testRejections() {
+        InstrumentedLibrary library = new InstrumentedLibrary(new BigLibrary());
+        BookCopy dune = library.buy(DUNE);
+        try {
+            library.checkin(dune);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            library.find(null);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(0, library.getStats("checkin").getCalls());
+        assertEquals(1, library.getStats("checkin").getRejections());
+        assertEquals(1, library.getStats("find").getRejections());
+        assertEquals(0, library.getStats("checkout").getRejections());
+        assertTrue(library.isAvailable(dune));
+    }
+
+    @Test
+    public void testSampling() {
+        InstrumentedLibrary library = new InstrumentedLibrary(new BigLibrary(), 10);
+        BookCopy dune = library.buy(DUNE);
+        for (int i = 0; i < 2000; i++) {
+            assertTrue(library.isAvailable(dune));
+            assertEquals(1, library.availableCopies(DUNE).size());
+        }
+        OperationStats isAvailable = library.getStats("isAvailable");
+        assertEquals(2000, isAvailable.getCalls());
+        assertTrue("about one call in ten timed", isAvailable.getTimedCalls() > 100 && isAvailable.getTimedCalls() < 400);
+        OperationStats availableCopies = library.getStats("availableCopies");
+        assertTrue(availableCopies.getTimedCalls() < 400);
+        assertEquals(1, availableCopies.getMaxResultSize());
+    }
+
+    @Test
+    public void testSamplingByDefault() {
+        InstrumentedLibrary library = new InstrumentedLibrary(new BigLibrary());
+        BookCopy dune = library.buy(DUNE);
+        for (int i = 0; i < 25600; i++) {
+            assertTrue(library.isAvailable(dune));
+        }
+        OperationStats isAvailable = library.getStats("isAvailable");
+        assertEquals(25600, isAvailable.getCalls());
+        assertTrue("about one call in " + InstrumentedLibrary.DEFAULT_SAMPLE_INTERVAL + " timed",
+                isAvailable.getTimedCalls() > 20 && isAvailable.getTimedCalls() < 300);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSampleIntervalNotPositive() {
+        new InstrumentedLibrary(new BigLibrary(), 0);
+    }
+
+    @Test
+    public void testGetStatsAndReset() {
+        InstrumentedLibrary library = new InstrumentedLibrary(new SmallLibrary());
+        assertEquals(20, library.getStats().size());
+        assertEquals("buy", library.getStats().keySet().iterator().next());
+        try {
+            library.getStats("borrow");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        library.buy(DUNE);
+        OperationStats buy = library.getStats("buy");
+        buy.reset();
+        assertEquals(0, buy.getCalls());
+        assertEquals(0, buy.getMaxLatency());
+        library.buy(DUNE);
+        assertEquals(1, buy.getCalls());
+    }
+
+    @Test
+    public void testRegister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName find = new ObjectName("library:type=InstrumentedLibrary,name=test,operation=find");
+        InstrumentedLibrary library = new InstrumentedLibrary(new BigLibrary());
+        InstrumentedLibrary other = new InstrumentedLibrary(new BigLibrary());
+        library.register("test");
+        try {
+            library.buy(DUNE);
+            library.find("Dune");
+            assertEquals(1L, server.getAttribute(find, "Calls"));
+            assertEquals("find", server.getAttribute(find, "Operation"));
+            assertTrue(server.isRegistered(new ObjectName("library:type=InstrumentedLibrary,name=test,operation=find(k)")));
+            server.invoke(find, "reset", new Object[0], new String[0]);
+            assertEquals(0L, server.getAttribute(find, "Calls"));
+
+            try {
+                library.register("again");
+                fail("expected IllegalStateException");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            try {
+                other.register("test");
+                fail("expected JMException");
+            } catch (JMException e) {
+                // expected
+            }
+        } finally {
+            library.unregister();
+        }
+        assertFalse(server.isRegistered(find));
+        other.register("test");
+        try {
+            assertTrue(server.isRegistered(find));
+        } finally {
+            other.unregister();
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
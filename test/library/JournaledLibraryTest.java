@@ -0,0 +1,285 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test suite for JournaledLibrary and its Journal.
+ */
+public class JournaledLibraryTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * reopen after : buy, buy(book, count), buyAll, checkout, checkin, checkoutAll,
+     *                checkinAll, lose, setCondition; a second reopen after more mutations
+     * journal tail : garbage appended, last record truncated (a crash mid-write)
+     * journal : not a journal of this library
+     * setCondition : copy not in library
+     * group commit : on, off; many threads mutating at once
+     * checkpoint : none, one, two; mutations of copies bought before it, after it;
+     *              crash after saving the snapshot, before emptying the journal;
+     *              snapshot missing for the journal's epoch
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final Book DUNE = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+    private static final Book EMMA = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+    private static final Book OMENS = new Book("Good Omens", Arrays.asList("Terry Pratchett", "Neil Gaiman"), 1990);
+
+    private Path journal() {
+        return folder.getRoot().toPath().resolve("library.journal");
+    }
+
+    /**
+     * @return number of copies of book in library that are available and in condition
+     */
+    private static int count(Library library, Book book, boolean available, BookCopy.Condition condition) {
+        int count = 0;
+        for (BookCopy copy : library.allCopies(book)) {
+            if (library.isAvailable(copy) == available && copy.getCondition() == condition) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        for (boolean groupCommit : Arrays.asList(false, true)) {
+            Path file = folder.newFile().toPath();
+            try (JournaledLibrary library = new JournaledLibrary(file, groupCommit)) {
+                BookCopy dune = library.buy(DUNE);
+                List<BookCopy> dunes = library.buy(DUNE, 3);
+                Map<Book, Integer> shipment = new HashMap<>();
+                shipment.put(EMMA, 2);
+                shipment.put(OMENS, 1);
+                List<BookCopy> shipped = library.buyAll(shipment);
+                library.checkout(dune);
+                library.setCondition(dune, BookCopy.Condition.DAMAGED);
+                assertEquals(Collections.emptyList(), library.checkoutAll(dunes));
+                assertEquals(Collections.emptyList(), library.checkinAll(dunes.subList(0, 2)));
+                library.lose(dunes.get(0));
+                for (BookCopy copy : shipped) {
+                    if (copy.getBook().equals(OMENS)) {
+                        library.lose(copy);
+                    } else {
+                        library.setCondition(copy, BookCopy.Condition.DAMAGED);
+                        library.checkout(copy);
+                        library.checkin(copy);
+                    }
+                }
+            }
+            try (JournaledLibrary library = new JournaledLibrary(file, groupCommit)) {
+                assertEquals(3, library.allCopies(DUNE).size());
+                assertEquals(1, count(library, DUNE, false, BookCopy.Condition.DAMAGED));
+                assertEquals(1, count(library, DUNE, true, BookCopy.Condition.GOOD));
+                assertEquals(1, count(library, DUNE, false, BookCopy.Condition.GOOD));
+                assertEquals(2, count(library, EMMA, true, BookCopy.Condition.DAMAGED));
+                assertEquals(Collections.emptySet(), library.allCopies(OMENS));
+                assertEquals(Arrays.asList(EMMA), library.find("Jane Austen"));
+
+                // mutate the recovered copies, then recover again
+                for (BookCopy copy : library.allCopies(DUNE)) {
+                    if (!library.isAvailable(copy)) {
+                        library.checkin(copy);
+                    }
+                }
+                library.buy(OMENS);
+            }
+            try (JournaledLibrary library = new JournaledLibrary(file, groupCommit)) {
+                assertEquals(3, library.availableCopies(DUNE).size());
+                assertEquals(1, library.availableCopies(OMENS).size());
+                assertEquals("ids of new copies do not collide", 6, library.allCopies(DUNE).size()
+                        + library.allCopies(EMMA).size() + library.allCopies(OMENS).size());
+            }
+        }
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        Path file = journal();
+        try (JournaledLibrary library = new JournaledLibrary(file, true)) {
+            library.buy(DUNE, 2);
+        }
+        long intact = Files.size(file);
+        Files.write(file, new byte[] { 0, 0, 0, 9, 1, 2 }, StandardOpenOption.APPEND);
+        try (JournaledLibrary library = new JournaledLibrary(file, true)) {
+            assertEquals("garbage at the end dropped", intact, Files.size(file));
+            BookCopy copy = library.availableCopies(DUNE).iterator().next();
+            library.checkout(copy);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        try (JournaledLibrary library = new JournaledLibrary(file, true)) {
+            assertEquals("torn checkout dropped", 2, library.availableCopies(DUNE).size());
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testNotAJournal() throws IOException {
+        Path file = journal();
+        // a well-framed record that is not a mutation of this library
+        try (Journal journal = new Journal(file, false, new ArrayList<byte[]>())) {
+            journal.append(new byte[] { 42 });
+        }
+        new JournaledLibrary(file, false);
+    }
+
+    @Test
+    public void testSetConditionOfCopyNotInLibrary() throws IOException {
+        try (JournaledLibrary library = new JournaledLibrary(journal(), false)) {
+            BookCopy copy = library.buy(DUNE);
+            library.lose(copy);
+            try {
+                library.setCondition(copy, BookCopy.Condition.DAMAGED);
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            assertEquals(BookCopy.Condition.GOOD, copy.getCondition());
+        }
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        Path file = journal();
+        try (JournaledLibrary library = new JournaledLibrary(file, true)) {
+            List<BookCopy> dunes = library.buy(DUNE, 3);
+            library.checkout(dunes.get(0));
+            library.setCondition(dunes.get(1), BookCopy.Condition.DAMAGED);
+            library.lose(dunes.get(2));
+            long before = Files.size(file);
+            library.checkpoint();
+            assertTrue("journal emptied", Files.size(file) < before);
+            library.checkin(dunes.get(0));
+            library.checkout(dunes.get(1));
+            BookCopy emma = library.buy(EMMA);
+            library.setCondition(emma, BookCopy.Condition.DAMAGED);
+        }
+        try (JournaledLibrary library = new JournaledLibrary(file, false)) {
+            assertEquals(2, library.allCopies(DUNE).size());
+            assertEquals(1, count(library, DUNE, true, BookCopy.Condition.GOOD));
+            assertEquals(1, count(library, DUNE, false, BookCopy.Condition.DAMAGED));
+            assertEquals(1, count(library, EMMA, true, BookCopy.Condition.DAMAGED));
+            assertEquals(Arrays.asList(DUNE), library.find("Herbert"));
+            library.checkpoint();
+            library.checkpoint();
+            library.lose(library.allCopies(EMMA).iterator().next());
+            library.buy(OMENS);
+        }
+        try (JournaledLibrary library = new JournaledLibrary(file, true)) {
+            assertEquals(Collections.emptySet(), library.allCopies(EMMA));
+            assertEquals(1, library.availableCopies(OMENS).size());
+            assertEquals(1, count(library, DUNE, false, BookCopy.Condition.DAMAGED));
+        }
+    }
+
+    @Test
+    public void testCrashDuringCheckpoint() throws IOException {
+        Path file = journal();
+        byte[] stale;
+        try (JournaledLibrary library = new JournaledLibrary(file, false)) {
+            BookCopy dune = library.buy(DUNE);
+            library.checkout(dune);
+            stale = Files.readAllBytes(file);
+            library.checkpoint();
+        }
+        // as if the crash came after the snapshot was saved, before the journal was emptied
+        Files.write(file, stale);
+        try (JournaledLibrary library = new JournaledLibrary(file, false)) {
+            assertEquals("checkout not replayed twice", 1, library.allCopies(DUNE).size());
+            assertEquals(0, library.availableCopies(DUNE).size());
+            library.checkin(library.allCopies(DUNE).iterator().next());
+        }
+        try (JournaledLibrary library = new JournaledLibrary(file, false)) {
+            assertEquals(1, library.availableCopies(DUNE).size());
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testCheckpointMissing() throws IOException {
+        Path file = journal();
+        try (JournaledLibrary library = new JournaledLibrary(file, false)) {
+            library.buy(DUNE);
+            library.checkpoint();
+            library.buy(EMMA);
+        }
+        Files.delete(file.resolveSibling(file.getFileName() + ".snapshot"));
+        new JournaledLibrary(file, false);
+    }
+
+    @Test
+    public void testConcurrentGroupCommit() throws Exception {
+        final int threads = 8;
+        final int rounds = 50;
+        Path file = journal();
+        try (final JournaledLibrary library = new JournaledLibrary(file, true)) {
+            final List<BookCopy> copies = library.buy(DUNE, threads);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final BookCopy copy = copies.get(t);
+                    final boolean keepOut = t % 2 == 0;
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            for (int i = 0; i < rounds; i++) {
+                                library.checkout(copy);
+                                library.checkin(copy);
+                            }
+                            if (keepOut) {
+                                library.checkout(copy);
+                            }
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+        try (JournaledLibrary library = new JournaledLibrary(file, true)) {
+            Set<BookCopy> all = library.allCopies(DUNE);
+            assertEquals(threads, all.size());
+            assertEquals(threads / 2, library.availableCopies(DUNE).size());
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,136 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test suite for LibrarySnapshot.
+ */
+public class LibrarySnapshotTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * save, load : empty library; copies available, checked out, damaged, lost before
+     *              saving; several authors, titles and authors shared between books,
+     *              non-ASCII text; file already exists
+     * load : file is not a snapshot, truncated snapshot, missing file
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testEmptyLibrary() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("empty.snapshot");
+        LibrarySnapshot.save(new BigLibrary(), file);
+        BigLibrary loaded = LibrarySnapshot.load(file);
+        assertEquals(Collections.emptyList(), loaded.find("anything"));
+        assertTrue(loaded.audit().isEmpty());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book messiah = new Book("Dune Messiah", Arrays.asList("Frank Herbert"), 1969);
+        Book omens = new Book("Good Omens", Arrays.asList("Terry Pratchett", "Neil Gaiman"), 1990);
+        Book faust = new Book("Faust \u00e9t\u00e9 \u6f22\u5b57", Arrays.asList("Goethe"), 1808);
+        Book lost = new Book("Lost", Arrays.asList("Nobody"), 2000);
+        BigLibrary library = new BigLibrary();
+        List<BookCopy> dunes = library.buy(dune, 3);
+        library.checkout(dunes.get(0));
+        dunes.get(1).setCondition(BookCopy.Condition.DAMAGED);
+        dunes.get(0).setCondition(BookCopy.Condition.DAMAGED);
+        library.buy(messiah);
+        library.checkout(library.buy(omens));
+        library.buy(faust);
+        library.lose(library.buy(lost));
+
+        Path file = folder.getRoot().toPath().resolve("library.snapshot");
+        Files.write(file, "stale".getBytes());
+        LibrarySnapshot.save(library, file);
+        BigLibrary loaded = LibrarySnapshot.load(file);
+
+        assertTrue(loaded.audit().isEmpty());
+        assertEquals(3, loaded.allCopies(dune).size());
+        assertEquals(2, loaded.availableCopies(dune).size());
+        int damagedAvailable = 0;
+        for (BookCopy copy : loaded.availableCopies(dune)) {
+            if (copy.getCondition() == BookCopy.Condition.DAMAGED) {
+                damagedAvailable++;
+            }
+        }
+        assertEquals(1, damagedAvailable);
+        for (BookCopy copy : loaded.allCopies(dune)) {
+            if (!loaded.isAvailable(copy)) {
+                assertEquals("checked out copy keeps its condition",
+                        BookCopy.Condition.DAMAGED, copy.getCondition());
+            }
+        }
+        assertEquals(1, loaded.availableCopies(messiah).size());
+        assertEquals(1, loaded.allCopies(omens).size());
+        assertEquals(Collections.emptySet(), loaded.availableCopies(omens));
+        assertEquals(1, loaded.availableCopies(faust).size());
+        assertEquals(Collections.emptySet(), loaded.allCopies(lost));
+        assertEquals(Arrays.asList(omens), loaded.find("Neil Gaiman"));
+        assertEquals(Arrays.asList(faust), loaded.find("Faust \u00e9t\u00e9 \u6f22\u5b57"));
+        assertEquals(2, loaded.find("Frank Herbert").size());
+
+        Book loadedDune = loaded.allCopies(dune).iterator().next().getBook();
+        Book loadedMessiah = loaded.allCopies(messiah).iterator().next().getBook();
+        assertSame("author names are shared", loadedDune.getAuthor(0), loadedMessiah.getAuthor(0));
+        assertTrue("index consistent once built", loaded.audit().isEmpty());
+    }
+
+    @Test(expected=IOException.class)
+    public void testNotASnapshot() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("text.snapshot");
+        Files.write(file, "title,authors,year,copies\n".getBytes());
+        LibrarySnapshot.load(file);
+    }
+
+    @Test
+    public void testTruncatedSnapshot() throws IOException {
+        BigLibrary library = new BigLibrary();
+        library.buy(new Book("Dune", Arrays.asList("Frank Herbert"), 1965), 2);
+        Path file = folder.getRoot().toPath().resolve("library.snapshot");
+        LibrarySnapshot.save(library, file);
+        byte[] bytes = Files.readAllBytes(file);
+        for (int length = 0; length < bytes.length; length++) {
+            Files.write(file, Arrays.copyOf(bytes, length));
+            try {
+                LibrarySnapshot.load(file);
+                fail("expected IOException loading " + length + " of " + bytes.length + " bytes");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void testMissingFile() throws IOException {
+        LibrarySnapshot.load(folder.getRoot().toPath().resolve("missing.snapshot"));
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
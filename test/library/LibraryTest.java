@@ -2,10 +2,15 @@ package library;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Set;
 import java.util.List;
+import java.util.Map;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
@@ -33,7 +38,9 @@ public class LibraryTest {
     public static Object[] allImplementationClassNames() {
         return new Object[] {
             "library.SmallLibrary",
-            "library.BigLibrary"
+            "library.BigLibrary",
+            "library.ColumnarLibrary",
+            "library.ConcurrentBigLibrary"
         };
     }
 
@@ -71,7 +78,7 @@ public class LibraryTest {
      * buy(book) : book is new, book already exists in library
      * checkout : copy is 'available', or 'checked out'
      * isAvailable : true, false
-     * allCopies : zero copies, > 1 copies
+     * allCopies : zero copies, > 1 copies, copies both available and checked out
      * availableCopies : zero available, 1 available, > 1 available
      * find : empty match, 1 match, >1 match
      *        query is title (exact match)
@@ -81,7 +88,28 @@ public class LibraryTest {
      *        multiple books with same title but different publication dates
      *        multiple books with same author but different publication dates
      *        test that returned list has no duplicates
+     *        matching book is available, checked out
+     * find(query, k) : k = 1, 1 < k < matches, k >= matches, k <= 0
+     * fuzzyFind : query word exact, 1 edit, 2 edits, too many edits for its length
+     *             misspelled title word, misspelled author word; exact match ranks first,
+     *             also when the exact word is much more common than the misspelled one
+     *             book checked out, lost
+     * suggest : prefix matches title, author, nothing; prefix differs in case; empty prefix
+     *           limit < matches, limit >= matches; string shared by several books
+     *           book checked out, lost
      * lose : lose one copy out of multiple
+     * buy(book, count) : count = 0, count > 1; book new, book already has copies; count < 0
+     * checkoutAll, checkinAll : all succeed; some copies in the wrong state, lost, or
+     *                           repeated; empty collection; collection containing null
+     * buyAll : empty shipment; several books, new and already held; count = 0; null book
+     * snapshot : empty library; copies available, checked out, lost; unchanged by later
+     *            buy, checkout, checkin and lose; successive snapshots
+     * allCopiesView, availableCopiesView : no copies, available and checked out copies;
+     *                                      equal to allCopies and availableCopies;
+     *                                      contains a copy of another book; unmodifiable
+     * findPage : no matches; one page, several pages, page size larger than the matches;
+     *            concatenated pages equal find(); cursor reused; book bought or losing its
+     *            last copy between pages; page size <= 0
      */
     @Test(expected=AssertionError.class)
     public void testAssertionsEnabled() {
@@ -153,6 +181,26 @@ public class LibraryTest {
         assertTrue("library has Darwin copy 2", copies.contains(copy2));
         assertTrue("library has Darwin copy 3", copies.contains(copy3));
     }
+    @Test
+    public void testAllCopiesAvailableAndCheckedOut() {
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Book otherBook = new Book("Darwin's Children", Arrays.asList("Greg Bear"), 2003);
+
+        Library library = makeLibrary();
+        BookCopy copy1 = library.buy(book);
+        BookCopy copy2 = library.buy(book);
+        BookCopy other = library.buy(otherBook);
+        library.checkout(copy1);
+        library.checkout(other);
+
+        assertEquals("all copies include checked out copies", new HashSet<>(Arrays.asList(copy1, copy2)),
+                library.allCopies(book));
+        assertEquals("only copy2 is available", Collections.singleton(copy2), library.availableCopies(book));
+        library.checkin(copy1);
+        assertEquals("checked in copy is available again", new HashSet<>(Arrays.asList(copy1, copy2)),
+                library.availableCopies(book));
+        assertEquals("other book is untouched", Collections.singleton(other), library.allCopies(otherBook));
+    }
     /*************************
      * availableCopies() tests
      *************************/
@@ -267,6 +315,16 @@ public class LibraryTest {
         assertTrue("expected Darwin sequel", matchedBooks.contains(book2));
     }
     
+    @Test
+    public void testFindCheckedOutBook() {
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Library library = makeLibrary();
+        BookCopy copy = library.buy(book);
+        library.checkout(copy);
+        assertEquals("checked out book is found by title", Arrays.asList(book), library.find("Darwin's Radio"));
+        assertEquals("checked out book is found by author", Arrays.asList(book), library.find("Greg Bear"));
+    }
+
 //    @Test
 //    public void testFindNonExactTitleMatchMultiple() {
 //        String title = "Darwin's Radio";
@@ -345,6 +403,129 @@ public class LibraryTest {
 //        assertEquals("expected Darwin 2002", book3, matchedBooks.get(2));
 //    }
     
+    /*************************
+     * find(query, k) tests
+     *************************/
+    @Test
+    public void testFindTopKIsPrefixOfFind() {
+        List<String> authors = Arrays.asList("Greg Bear");
+        Book book = new Book("Darwin's Radio", authors, 2000);
+        Book book2 = new Book("Darwin's Radio", authors, 2001);
+        Book book3 = new Book("Darwin's Radio", authors, 2002);
+        Library library = makeLibrary();
+        library.buy(book);
+        library.buy(book2);
+        library.buy(book3);
+        List<Book> all = library.find("Greg Bear");
+        assertEquals("k = 1", all.subList(0, 1), library.find("Greg Bear", 1));
+        assertEquals("expected newest two editions", Arrays.asList(book3, book2), library.find("Greg Bear", 2));
+        assertEquals("k = matches", all, library.find("Greg Bear", 3));
+        assertEquals("k > matches", all, library.find("Greg Bear", 10));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testFindTopKNonPositive() {
+        Library library = makeLibrary();
+        library.find("Greg Bear", 0);
+    }
+
+    /*************************
+     * fuzzyFind() tests
+     *************************/
+    @Test
+    public void testFuzzyFindMisspelledAuthor() {
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Book other = new Book("Cryptonomicon", Arrays.asList("Neal Stephenson"), 1999);
+        Library library = makeLibrary();
+        library.buy(book);
+        library.buy(other);
+        assertEquals("one edit in a 4-letter word", Arrays.asList(book), library.fuzzyFind("Baer", 10));
+        assertEquals("two edits in a long word", Arrays.asList(other), library.fuzzyFind("Stevenson", 10));
+        assertEquals("two edits in a 4-letter word is too many", Collections.emptyList(), library.fuzzyFind("Bxxr", 10));
+    }
+
+    @Test
+    public void testFuzzyFindMisspelledTitleRanksExactFirst() {
+        List<String> authors = Arrays.asList("Greg Bear");
+        Book radio = new Book("Darwin's Radio", authors, 2000);
+        Book ratio = new Book("The Golden Ratio", Arrays.asList("Mario Livio"), 2002);
+        Library library = makeLibrary();
+        library.buy(ratio);
+        BookCopy copy = library.buy(radio);
+        library.checkout(copy);
+        assertEquals("exact match first, checked out books included", Arrays.asList(radio, ratio),
+                library.fuzzyFind("radio", 10));
+        assertEquals("k limits results", Arrays.asList(ratio), library.fuzzyFind("ratio", 1));
+        library.lose(copy);
+        assertEquals("lost book is not found", Arrays.asList(ratio), library.fuzzyFind("radio", 10));
+    }
+
+    @Test
+    public void testFuzzyFindExactMatchOfCommonWordFirst() {
+        Library library = makeLibrary();
+        for (int i = 0; i < 100; i++) {
+            library.buy(new Book("Volume " + i, Arrays.asList("Sam Bear"), 2000));
+        }
+        Book beard = new Book("Whiskers", Arrays.asList("Sam Beard"), 2000);
+        library.buy(beard);
+        List<Book> found = library.fuzzyFind("bear", 5);
+        assertEquals(5, found.size());
+        assertFalse("rare fuzzy match ranked above common exact ones", found.contains(beard));
+        assertEquals(Arrays.asList("Sam Bear"), found.get(0).getAuthors());
+    }
+
+    @Test
+    public void testFuzzyFindNewerEditionFirst() {
+        List<String> authors = Arrays.asList("Greg Bear");
+        Book book = new Book("Darwin's Radio", authors, 2000);
+        Book book2 = new Book("Darwin's Radio", authors, 2003);
+        Library library = makeLibrary();
+        library.buy(book);
+        library.buy(book2);
+        assertEquals(Arrays.asList(book2, book), library.fuzzyFind("Darwn", 10));
+    }
+
+    /*************************
+     * suggest() tests
+     *************************/
+    @Test
+    public void testSuggestTitlesAndAuthors() {
+        Library library = makeLibrary();
+        library.buy(new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000));
+        library.buy(new Book("Darwin's Children", Arrays.asList("Greg Bear"), 2003));
+        library.buy(new Book("Gregor Samsa", Arrays.asList("Franz Kafka"), 1915));
+        assertEquals("titles in alphabetical order", Arrays.asList("Darwin's Children", "Darwin's Radio"),
+                library.suggest("darwin", 10));
+        assertEquals("titles and authors, each once", Arrays.asList("Greg Bear", "Gregor Samsa"),
+                library.suggest("GREG", 10));
+        assertEquals("limit", Arrays.asList("Darwin's Children"), library.suggest("Dar", 1));
+        assertEquals("no match", Collections.emptyList(), library.suggest("Bear", 10));
+        assertEquals("empty prefix", 5, library.suggest("", 10).size());
+    }
+
+    @Test
+    public void testSuggestCheckedOutAndLost() {
+        Library library = makeLibrary();
+        Book book = new Book("Darwin's Radio", Arrays.asList("Greg Bear"), 2000);
+        Book sequel = new Book("Darwin's Children", Arrays.asList("Greg Bear"), 2003);
+        BookCopy copy = library.buy(book);
+        BookCopy sequelCopy = library.buy(sequel);
+        library.checkout(copy);
+        assertEquals("checked out book is suggested", Arrays.asList("Darwin's Children", "Darwin's Radio"),
+                library.suggest("Darwin", 10));
+        library.lose(copy);
+        assertEquals("lost book is not suggested", Arrays.asList("Darwin's Children"), library.suggest("Darwin", 10));
+        assertEquals("author of remaining book is suggested", Arrays.asList("Greg Bear"), library.suggest("g", 10));
+        library.lose(sequelCopy);
+        assertEquals("no books left", Collections.emptyList(), library.suggest("", 10));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testSuggestNonPositiveLimit() {
+        Library library = makeLibrary();
+        library.suggest("Darwin", 0);
+    }
+
     /**
      * lose() tests
      */
@@ -370,6 +551,202 @@ public class LibraryTest {
         allCopies = library.allCopies(book);
         assertEquals("there are 0 copies of Darwin", 0, allCopies.size());
     }
+    @Test
+    public void testBuyMany() {
+        Book book = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Library library = makeLibrary();
+        assertEquals(Collections.emptyList(), library.buy(book, 0));
+        assertEquals(Collections.emptySet(), library.allCopies(book));
+        BookCopy first = library.buy(book);
+        List<BookCopy> shipment = library.buy(book, 5);
+        assertEquals("5 copies bought", 5, shipment.size());
+        Set<BookCopy> expected = new HashSet<>(shipment);
+        assertEquals("copies are distinct", 5, expected.size());
+        expected.add(first);
+        assertEquals(expected, library.allCopies(book));
+        assertEquals(expected, library.availableCopies(book));
+        assertEquals(Arrays.asList(book), library.find("Dune"));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testBuyNegativeCount() {
+        makeLibrary().buy(new Book("Dune", Arrays.asList("Frank Herbert"), 1965), -1);
+    }
+
+    @Test
+    public void testCheckoutAllAndCheckinAll() {
+        Book book = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Library library = makeLibrary();
+        List<BookCopy> copies = library.buy(book, 4);
+        library.checkout(copies.get(1));
+        library.lose(copies.get(3));
+        List<BookCopy> batch = Arrays.asList(copies.get(0), copies.get(1), copies.get(2), copies.get(3), copies.get(0));
+        assertEquals("checked out, lost and repeated copies fail",
+                Arrays.asList(copies.get(1), copies.get(3), copies.get(0)), library.checkoutAll(batch));
+        assertEquals(Collections.emptySet(), library.availableCopies(book));
+        assertEquals(Collections.emptyList(), library.checkoutAll(Collections.<BookCopy>emptyList()));
+
+        assertEquals(Arrays.asList(copies.get(3)), library.checkinAll(copies));
+        assertEquals(new HashSet<>(copies.subList(0, 3)), library.availableCopies(book));
+        assertEquals("nothing is checked out", copies.subList(0, 3), library.checkinAll(copies.subList(0, 3)));
+    }
+
+    @Test
+    public void testCheckoutAllContainingNull() {
+        Book book = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Library library = makeLibrary();
+        BookCopy copy = library.buy(book);
+        try {
+            library.checkoutAll(Arrays.asList(copy, null));
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertTrue("batch rejected before checking anything out", library.isAvailable(copy));
+    }
+
+    @Test
+    public void testBuyAll() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book emma = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+        Book ulysses = new Book("Ulysses", Arrays.asList("James Joyce"), 1922);
+        Library library = makeLibrary();
+        assertEquals(Collections.emptyList(), library.buyAll(new HashMap<Book, Integer>()));
+        BookCopy held = library.buy(dune);
+
+        Map<Book, Integer> shipment = new LinkedHashMap<>();
+        shipment.put(dune, 2);
+        shipment.put(emma, 3);
+        shipment.put(ulysses, 0);
+        List<BookCopy> copies = library.buyAll(shipment);
+        assertEquals(5, copies.size());
+        assertEquals("copies are distinct", 5, new HashSet<>(copies).size());
+        assertEquals("in shipment order", dune, copies.get(1).getBook());
+        assertEquals(emma, copies.get(2).getBook());
+        Set<BookCopy> expected = new HashSet<>(copies.subList(0, 2));
+        expected.add(held);
+        assertEquals(expected, library.availableCopies(dune));
+        assertEquals(new HashSet<>(copies.subList(2, 5)), library.allCopies(emma));
+        assertEquals(Collections.emptySet(), library.allCopies(ulysses));
+        assertEquals(Arrays.asList(emma), library.find("Emma"));
+        assertEquals(Collections.emptyList(), library.find("Ulysses"));
+    }
+
+    @Test
+    public void testBuyAllContainingNull() {
+        Library library = makeLibrary();
+        Map<Book, Integer> shipment = new HashMap<>();
+        shipment.put(new Book("Dune", Arrays.asList("Frank Herbert"), 1965), 1);
+        shipment.put(null, 1);
+        try {
+            library.buyAll(shipment);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals("shipment rejected before buying anything", Collections.emptyList(), library.find("Dune"));
+    }
+
+    @Test
+    public void testSnapshot() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book emma = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+        Library library = makeLibrary();
+        LibraryView empty = library.snapshot();
+        assertEquals(Collections.emptySet(), empty.books());
+
+        BookCopy first = library.buy(dune);
+        BookCopy second = library.buy(dune);
+        BookCopy lost = library.buy(emma);
+        library.checkout(second);
+        library.lose(lost);
+        LibraryView before = library.snapshot();
+
+        library.checkin(second);
+        library.checkout(first);
+        BookCopy later = library.buy(emma);
+        library.lose(second);
+        LibraryView after = library.snapshot();
+
+        assertEquals(Collections.emptySet(), empty.books());
+        assertEquals(new HashSet<>(Arrays.asList(dune)), before.books());
+        assertEquals(new HashSet<>(Arrays.asList(first, second)), before.allCopies(dune));
+        assertEquals(Collections.singleton(first), before.availableCopies(dune));
+        assertTrue(before.isAvailable(first));
+        assertFalse(before.isAvailable(second));
+        assertEquals(Collections.emptySet(), before.allCopies(emma));
+
+        assertEquals(new HashSet<>(Arrays.asList(dune, emma)), after.books());
+        assertEquals(Collections.singleton(first), after.allCopies(dune));
+        assertEquals(Collections.emptySet(), after.availableCopies(dune));
+        assertEquals(Collections.singleton(later), after.availableCopies(emma));
+        assertEquals(library.allCopies(emma), after.allCopies(emma));
+    }
+
+    @Test
+    public void testCopiesViews() {
+        Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+        Book emma = new Book("Emma", Arrays.asList("Jane Austen"), 1815);
+        Library library = makeLibrary();
+        assertTrue(library.allCopiesView(dune).isEmpty());
+        assertTrue(library.availableCopiesView(dune).isEmpty());
+
+        BookCopy available = library.buy(dune);
+        BookCopy out = library.buy(dune);
+        BookCopy other = library.buy(emma);
+        library.checkout(out);
+        Set<BookCopy> all = library.allCopiesView(dune);
+        Set<BookCopy> availableOnly = library.availableCopiesView(dune);
+        assertEquals(2, all.size());
+        assertEquals(library.allCopies(dune), all);
+        assertEquals(library.availableCopies(dune), availableOnly);
+        assertEquals(1, availableOnly.size());
+        assertTrue(all.contains(out));
+        assertFalse(availableOnly.contains(out));
+        assertTrue(availableOnly.contains(available));
+        assertFalse(all.contains(other));
+        try {
+            all.remove(available);
+            fail("expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertTrue(library.isAvailable(available));
+    }
+
+    @Test
+    public void testFindPage() {
+        Library library = makeLibrary();
+        assertFalse(library.findPage("Ann Smith", 3).hasNext());
+        assertEquals(Collections.emptyList(), library.findPage("Ann Smith", 3).getBooks());
+        List<BookCopy> copies = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            copies.add(library.buy(new Book("Volume " + i, Arrays.asList("Ann Smith"), 1990 + i)));
+        }
+        List<Book> all = library.find("Ann Smith");
+        assertEquals(all, library.findPage("Ann Smith", 20).getBooks());
+        assertFalse(library.findPage("Ann Smith", 20).hasNext());
+
+        SearchPage first = library.findPage("Ann Smith", 4);
+        assertEquals(all.subList(0, 4), first.getBooks());
+        assertTrue(first.hasNext());
+        SearchPage second = library.findPage(first.getNext(), 4);
+        assertEquals(all.subList(4, 8), second.getBooks());
+        assertEquals("cursor can be reused", second.getBooks(), library.findPage(first.getNext(), 4).getBooks());
+
+        library.lose(copies.get(all.get(9).getYear() - 1990));
+        library.buy(new Book("Volume 99", Arrays.asList("Ann Smith"), 2099));
+        SearchPage third = library.findPage(second.getNext(), 4);
+        assertEquals("lost book skipped, new book not listed", all.subList(8, 9), third.getBooks());
+        assertFalse(third.hasNext());
+        try {
+            library.findPage("Ann Smith", 0);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
      * Redistribution of original or derived work requires explicit permission.
      * Don't post any of this code on the web or to a public Github repository.
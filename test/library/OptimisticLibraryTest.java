@@ -0,0 +1,165 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Test suite for OptimisticLibrary.
+ */
+public class OptimisticLibraryTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * observers : with no concurrent writer, with writers running concurrently
+     * snapshot : unchanged by later mutations
+     * bulk mutators : concurrent observers see all of a batch or none of it
+     * invalid arguments : exception reaches the caller
+     * concurrent readers and writers : readers see only states the library passes through,
+     *     wrapped library satisfies its rep invariant afterwards
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private final Book dune = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+
+    @Test
+    public void testSingleThread() {
+        Library library = new OptimisticLibrary(new BigLibrary());
+        BookCopy copy = library.buy(dune);
+        assertTrue(library.isAvailable(copy));
+        library.checkout(copy);
+        assertFalse(library.isAvailable(copy));
+        assertEquals(Collections.singleton(copy), library.allCopies(dune));
+        assertEquals(Collections.emptySet(), library.availableCopies(dune));
+        library.checkin(copy);
+        assertEquals(Arrays.asList(dune), library.find("Dune"));
+        assertEquals(Arrays.asList(dune), library.fuzzyFind("Dnue", 5));
+        assertEquals(Arrays.asList("Dune"), library.suggest("du", 5));
+        library.lose(copy);
+        assertEquals(Collections.emptyList(), library.find("Dune", 1));
+    }
+
+    @Test
+    public void testSnapshot() {
+        Library library = new OptimisticLibrary(new BigLibrary());
+        BookCopy copy = library.buy(dune);
+        LibraryView before = library.snapshot();
+        library.checkout(copy);
+        assertTrue(before.isAvailable(copy));
+        assertFalse(library.snapshot().isAvailable(copy));
+        assertEquals(Collections.singleton(copy), library.allCopiesView(dune));
+        assertEquals(Collections.emptySet(), library.availableCopiesView(dune));
+    }
+
+    @Test
+    public void testBatchesAtomicForReaders() throws InterruptedException {
+        final Library library = new OptimisticLibrary(new BigLibrary());
+        final List<BookCopy> copies = library.buy(dune, 4);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    library.checkoutAll(copies);
+                    library.checkinAll(copies);
+                }
+            }
+        });
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 20000; i++) {
+                        int available = library.availableCopies(dune).size();
+                        assertTrue("saw " + available + " available", available == 0 || available == 4);
+                        assertEquals(4, library.allCopies(dune).size());
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(4, library.availableCopies(dune).size());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidArgument() {
+        new OptimisticLibrary(new BigLibrary()).find(null);
+    }
+
+    @Test
+    public void testConcurrentReadersAndWriters() throws InterruptedException {
+        BigLibrary wrapped = new BigLibrary();
+        final Library library = new OptimisticLibrary(wrapped);
+        final BookCopy pinned = library.buy(dune);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    Book book = new Book("Title " + (i % 50), Arrays.asList("Author"), 2000);
+                    BookCopy copy = library.buy(book);
+                    library.checkout(copy);
+                    library.checkin(copy);
+                    if (i % 2 == 0) {
+                        library.lose(copy);
+                    }
+                }
+            }
+        }));
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 2000; i++) {
+                            assertTrue(library.isAvailable(pinned));
+                            assertEquals(Collections.singleton(pinned), library.allCopies(dune));
+                            assertTrue(library.find("Dune").contains(dune));
+                            library.find("Title " + (i % 50));
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(Collections.emptyList(), wrapped.audit());
+        assertEquals("copies of odd-numbered titles are never lost", 25, library.find("Title").size());
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
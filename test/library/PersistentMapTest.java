@@ -0,0 +1,171 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test suite for PersistentMap.
+ */
+public class PersistentMapTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * plus : new key, key already present with another value; keys whose hashes collide
+     *        completely, share their low bits, or differ; enough keys for several levels
+     * minus : present key, absent key, last key, one of colliding keys
+     * get, containsKey : present, absent, absent key colliding with a present one
+     * size, iterator : empty map, many keys; each key once
+     * persistence : earlier versions unchanged by later plus and minus
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    /**
+     * Key with a chosen hash code.
+     */
+    private static class Key {
+        private final String name;
+        private final int hash;
+
+        Key(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object that) {
+            return that instanceof Key && ((Key) that).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static <K, V> Map<K, V> toMap(PersistentMap<K, V> map) {
+        Map<K, V> result = new HashMap<>();
+        for (K key : map) {
+            assertNull("each key once", result.put(key, map.get(key)));
+        }
+        assertEquals(map.size(), result.size());
+        return result;
+    }
+
+    @Test
+    public void testEmpty() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        assertEquals(0, empty.size());
+        assertNull(empty.get("a"));
+        assertFalse(empty.iterator().hasNext());
+        assertSame(empty, empty.minus("a"));
+    }
+
+    @Test
+    public void testPlusMinusAndPersistence() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        PersistentMap<String, Integer> one = empty.plus("a", 1);
+        PersistentMap<String, Integer> two = one.plus("b", 2);
+        PersistentMap<String, Integer> replaced = two.plus("a", 10);
+        PersistentMap<String, Integer> removed = replaced.minus("b");
+
+        assertEquals(0, empty.size());
+        assertEquals(1, one.size());
+        assertEquals(Integer.valueOf(1), two.get("a"));
+        assertEquals(2, replaced.size());
+        assertEquals(Integer.valueOf(10), replaced.get("a"));
+        assertEquals(Integer.valueOf(1), two.get("a"));
+        assertEquals(1, removed.size());
+        assertFalse(removed.containsKey("b"));
+        assertTrue(replaced.containsKey("b"));
+        assertSame(removed, removed.minus("b"));
+        assertEquals(0, removed.minus("a").size());
+    }
+
+    @Test
+    public void testCollidingHashes() {
+        Key a = new Key("a", 42);
+        Key b = new Key("b", 42);
+        Key c = new Key("c", 42 + (1 << 20)); // same low 20 bits
+        Key d = new Key("d", 42);
+        PersistentMap<Key, String> map = PersistentMap.<Key, String>empty().plus(a, "a").plus(b, "b").plus(c, "c");
+        assertEquals(3, map.size());
+        assertEquals("a", map.get(a));
+        assertEquals("b", map.get(b));
+        assertEquals("c", map.get(c));
+        assertNull("same hash as present keys", map.get(d));
+        assertEquals("b2", map.plus(b, "b2").get(b));
+        assertEquals(3, map.plus(b, "b2").size());
+
+        PersistentMap<Key, String> less = map.minus(a);
+        assertEquals(2, less.size());
+        assertNull(less.get(a));
+        assertEquals("b", less.get(b));
+        assertEquals("c", less.get(c));
+        assertEquals("a", map.get(a));
+        assertEquals(0, less.minus(b).minus(c).size());
+    }
+
+    @Test
+    public void testManyKeysAgainstHashMap() {
+        Random random = new Random(0);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        PersistentMap<Integer, Integer> halfway = null;
+        Map<Integer, Integer> expectedHalfway = null;
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                map = map.plus(key, i);
+                expected.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+            if (i == 10000) {
+                halfway = map;
+                expectedHalfway = new HashMap<>(expected);
+            }
+        }
+        assertEquals(expected, toMap(map));
+        assertEquals("earlier version unchanged", expectedHalfway, toMap(halfway));
+    }
+
+    @Test
+    public void testIteratorExhausted() {
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+        Iterator<String> keys = map.iterator();
+        Set<String> seen = new HashSet<>();
+        seen.add(keys.next());
+        seen.add(keys.next());
+        assertFalse(keys.hasNext());
+        assertEquals(2, seen.size());
+        try {
+            keys.next();
+            fail("expected NoSuchElementException");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
@@ -0,0 +1,120 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test suite for PrefixIndex.
+ */
+public class PrefixIndexTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * add : new string, string already present, string extending or splitting an existing edge,
+     *       string differing only in case from another
+     * remove : last occurrence, one of several occurrences, absent string,
+     *          removal that leaves a node with one child
+     * suggest : prefix ends on a node, inside an edge, diverges inside an edge, matches nothing;
+     *           limit < matches, limit >= matches
+     * editDistance : equal strings, one insertion, deletion, substitution, transposition;
+     *                distance above the bound; lengths differ by more than the bound
+     * similar : exact string, strings at distance 1 and 2, string beyond maxEdits, removed
+     *           string, query differs in case, limit smaller than number of similar strings
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testSuggestSplitEdges() {
+        PrefixIndex index = new PrefixIndex();
+        index.add("Radio");
+        index.add("Radiohead");
+        index.add("Rad");
+        index.add("Ray");
+        assertEquals(Arrays.asList("Rad", "Radio", "Radiohead", "Ray"), index.suggest("r", 10));
+        assertEquals("prefix ends on a node", Arrays.asList("Rad", "Radio", "Radiohead"), index.suggest("rad", 10));
+        assertEquals("prefix ends inside an edge", Arrays.asList("Radiohead"), index.suggest("radioh", 10));
+        assertEquals("prefix diverges inside an edge", Collections.emptyList(), index.suggest("radix", 10));
+        assertEquals("limit", Arrays.asList("Rad", "Radio"), index.suggest("ra", 2));
+    }
+
+    @Test
+    public void testSuggestCaseVariants() {
+        PrefixIndex index = new PrefixIndex();
+        index.add("fred");
+        index.add("FRED");
+        index.add("Fred");
+        assertEquals(Arrays.asList("FRED", "Fred", "fred"), index.suggest("FrE", 10));
+    }
+
+    @Test
+    public void testRemove() {
+        PrefixIndex index = new PrefixIndex();
+        index.add("Radio");
+        index.add("Radio");
+        index.add("Radiohead");
+        index.add("Rad");
+        index.remove("Radio");
+        assertEquals("one occurrence left", Arrays.asList("Rad", "Radio", "Radiohead"), index.suggest("r", 10));
+        index.remove("Radio");
+        assertEquals(Arrays.asList("Rad", "Radiohead"), index.suggest("r", 10));
+        index.remove("Rad");
+        assertEquals(Arrays.asList("Radiohead"), index.suggest("r", 10));
+        assertEquals(Arrays.asList("Radiohead"), index.suggest("radioh", 10));
+        index.remove("Absent");
+        index.remove("radiohead");
+        assertEquals("removal is case-sensitive", Arrays.asList("Radiohead"), index.suggest("", 10));
+        index.remove("Radiohead");
+        assertEquals(Collections.emptyList(), index.suggest("", 10));
+        index.add("Rad");
+        assertEquals("index is usable after becoming empty", Arrays.asList("Rad"), index.suggest("R", 10));
+    }
+
+    @Test
+    public void testEditDistance() {
+        assertEquals(0, PrefixIndex.editDistance("bear", "bear", 2));
+        assertEquals("insertion", 1, PrefixIndex.editDistance("bear", "beard", 2));
+        assertEquals("deletion", 1, PrefixIndex.editDistance("bear", "bar", 2));
+        assertEquals("substitution", 1, PrefixIndex.editDistance("bear", "beer", 2));
+        assertEquals("transposition", 1, PrefixIndex.editDistance("bear", "baer", 2));
+        assertEquals("above the bound", 2, PrefixIndex.editDistance("bear", "bxxr", 1));
+        assertEquals("lengths too different", 3, PrefixIndex.editDistance("a", "abcd", 2));
+    }
+
+    @Test
+    public void testSimilar() {
+        PrefixIndex index = new PrefixIndex();
+        index.add("stephenson");
+        index.add("stevenson");
+        index.add("stevens");
+        index.add("radio");
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("stevenson", 0);
+        expected.put("stephenson", 2);
+        expected.put("stevens", 2);
+        assertEquals(expected, index.similar("Stevenson", 2, 10));
+        assertEquals("limit", Collections.singletonMap("stevenson", 0), index.similar("stevenson", 2, 1));
+        assertEquals("transposition", Collections.singletonMap("radio", 1), index.similar("raido", 1, 10));
+        index.remove("stevenson");
+        expected.remove("stevenson");
+        assertEquals("removed string is not similar", expected, index.similar("stevenson", 2, 10));
+        assertEquals(Collections.emptyMap(), index.similar("stevenson", 1, 10));
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}
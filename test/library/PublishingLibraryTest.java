@@ -0,0 +1,308 @@
+package library;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Test suite for PublishingLibrary and its Subscriptions.
+ */
+public class PublishingLibraryTest {
+
+    /*
+     * Testing strategy
+     * ==================
+     *
+     * events : buy, buy(book, count), buyAll, checkout, checkin, checkoutAll and checkinAll
+     *          with failures, lose of a held and of an already lost copy, setCondition;
+     *          failed operations publish nothing
+     * subscribe : no subscribers, one, several; subscribed after some events
+     * overflow : DROP with a stalled listener drops and counts; BLOCK with a stalled
+     *            listener delivers everything; BLOCK stalled beside DROP, which still
+     *            receives events and can be closed; BLOCK listener that mutates the library
+     * delivery : batches of more than one event; listener throws; close() delivers the
+     *            backlog, later events are not delivered; close() from the listener
+     * ordering : threads racing to check the same copies out and in
+     */
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    private static final Book DUNE = new Book("Dune", Arrays.asList("Frank Herbert"), 1965);
+
+    /**
+     * Listener that records every event, optionally waiting for a latch before each batch.
+     */
+    private static class Recorder implements LibraryListener {
+        private final List<LibraryEvent> events = Collections.synchronizedList(new ArrayList<LibraryEvent>());
+        private final CountDownLatch gate;
+
+        Recorder(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void eventsPublished(List<LibraryEvent> batch) {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            events.addAll(batch);
+        }
+
+        List<LibraryEvent.Type> types() {
+            List<LibraryEvent.Type> types = new ArrayList<>();
+            for (LibraryEvent event : events) {
+                types.add(event.getType());
+            }
+            return types;
+        }
+    }
+
+    private static Recorder recorder() {
+        return new Recorder(new CountDownLatch(0));
+    }
+
+    @Test
+    public void testEventsOfEachOperation() throws InterruptedException {
+        PublishingLibrary library = new PublishingLibrary(new BigLibrary());
+        library.buy(DUNE);
+        Recorder recorder = recorder();
+        Subscription subscription = library.subscribe(recorder, 100, Subscription.Overflow.DROP);
+
+        BookCopy copy = library.buy(DUNE);
+        List<BookCopy> two = library.buy(DUNE, 2);
+        library.buyAll(Collections.singletonMap(DUNE, 1));
+        library.checkout(copy);
+        try {
+            library.checkout(copy);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        library.checkin(copy);
+        assertEquals(Arrays.asList(copy), library.checkoutAll(Arrays.asList(two.get(0), copy, copy)));
+        assertEquals(Arrays.asList(two.get(1)), library.checkinAll(Arrays.asList(two.get(1), copy)));
+        library.setCondition(copy, BookCopy.Condition.DAMAGED);
+        library.lose(copy);
+        library.lose(copy);
+        subscription.close();
+
+        assertEquals(Arrays.asList(
+                LibraryEvent.Type.BOUGHT, LibraryEvent.Type.BOUGHT, LibraryEvent.Type.BOUGHT,
+                LibraryEvent.Type.BOUGHT,
+                LibraryEvent.Type.CHECKED_OUT, LibraryEvent.Type.CHECKED_IN,
+                LibraryEvent.Type.CHECKED_OUT, LibraryEvent.Type.CHECKED_OUT,
+                LibraryEvent.Type.CHECKED_IN,
+                LibraryEvent.Type.CONDITION_CHANGED, LibraryEvent.Type.LOST), recorder.types());
+        for (int i = 0; i < recorder.events.size(); i++) {
+            assertEquals("numbered from the first event published to a subscriber",
+                    i, recorder.events.get(i).getSequence());
+        }
+        LibraryEvent changed = recorder.events.get(9);
+        assertSame(copy, changed.getCopy());
+        assertEquals(DUNE, changed.getBook());
+        assertEquals(BookCopy.Condition.DAMAGED, changed.getCondition());
+        assertEquals(BookCopy.Condition.GOOD, recorder.events.get(0).getCondition());
+        assertEquals(11, subscription.getDelivered());
+        assertEquals(0, subscription.getDropped());
+        assertFalse(subscription.isOpen());
+    }
+
+    @Test
+    public void testDropWhenListenerStalls() throws InterruptedException {
+        PublishingLibrary library = new PublishingLibrary(new SmallLibrary());
+        CountDownLatch gate = new CountDownLatch(1);
+        Recorder stalled = new Recorder(gate);
+        Recorder fast = recorder();
+        Subscription dropping = library.subscribe(stalled, 10, Subscription.Overflow.DROP);
+        Subscription other = library.subscribe(fast, 1000, Subscription.Overflow.DROP);
+        library.buy(DUNE, 100);
+        // the stalled listener holds at most one batch, plus a full queue
+        assertTrue(dropping.getDropped() >= 100 - 10 - 10);
+        gate.countDown();
+        dropping.close();
+        other.close();
+        assertEquals(100, dropping.getDelivered() + dropping.getDropped());
+        assertEquals("other listener unaffected", 100, fast.events.size());
+        long previous = -1;
+        for (LibraryEvent event : stalled.events) {
+            assertTrue("in order", event.getSequence() > previous);
+            previous = event.getSequence();
+        }
+    }
+
+    @Test
+    public void testBlockWhenListenerStalls() throws InterruptedException {
+        final PublishingLibrary library = new PublishingLibrary(new BigLibrary());
+        CountDownLatch gate = new CountDownLatch(1);
+        Recorder stalled = new Recorder(gate);
+        Subscription blocking = library.subscribe(stalled, 5, Subscription.Overflow.BLOCK);
+        Thread buyer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                library.buy(DUNE, 50);
+            }
+        });
+        buyer.start();
+        buyer.join(200);
+        assertTrue("buyer waits for the listener", buyer.isAlive());
+        gate.countDown();
+        buyer.join();
+        blocking.close();
+        assertEquals(50, stalled.events.size());
+        assertEquals(0, blocking.getDropped());
+        assertTrue("delivered in batches", blocking.getBatches() < 50);
+    }
+
+    @Test(timeout=10000)
+    public void testStalledBlockBesideDrop() throws InterruptedException {
+        final PublishingLibrary library = new PublishingLibrary(new BigLibrary());
+        CountDownLatch gate = new CountDownLatch(1);
+        Recorder stalled = new Recorder(gate);
+        Recorder fast = recorder();
+        Subscription blocking = library.subscribe(stalled, 1, Subscription.Overflow.BLOCK);
+        Subscription dropping = library.subscribe(fast, 100, Subscription.Overflow.DROP);
+        Thread buyer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    library.buy(DUNE);
+                }
+            }
+        });
+        buyer.start();
+        buyer.join(200);
+        assertTrue("buyer waits for the stalled listener", buyer.isAlive());
+        // the other listener receives every event published, including the one the buyer
+        // waits on
+        while (fast.events.size() < library.allCopies(DUNE).size()) {
+            Thread.sleep(1);
+        }
+        dropping.close();
+        Subscription late = library.subscribe(recorder(), 10, Subscription.Overflow.DROP);
+        late.close();
+        gate.countDown();
+        buyer.join();
+        blocking.close();
+        assertEquals(10, stalled.events.size());
+        assertEquals(0, blocking.getDropped());
+        assertEquals(10, library.allCopies(DUNE).size());
+    }
+
+    @Test(timeout=10000)
+    public void testBlockingListenerMutatesLibrary() throws InterruptedException {
+        final PublishingLibrary library = new PublishingLibrary(new BigLibrary());
+        Recorder recorder = recorder();
+        Subscription checkingOut = library.subscribe(new LibraryListener() {
+            @Override
+            public void eventsPublished(List<LibraryEvent> events) {
+                for (LibraryEvent event : events) {
+                    if (event.getType() == LibraryEvent.Type.BOUGHT) {
+                        library.checkout(event.getCopy());
+                    }
+                }
+            }
+        }, 1, Subscription.Overflow.BLOCK);
+        Subscription recording = library.subscribe(recorder, 1000, Subscription.Overflow.BLOCK);
+        for (int i = 0; i < 50; i++) {
+            library.buy(DUNE);
+        }
+        checkingOut.close();
+        recording.close();
+        assertEquals(0, checkingOut.getFailures());
+        assertEquals(Collections.emptySet(), library.availableCopies(DUNE));
+        assertEquals(100, recorder.events.size());
+    }
+
+    @Test
+    public void testListenerFailureAndClose() throws InterruptedException {
+        PublishingLibrary library = new PublishingLibrary(new BigLibrary());
+        final CountDownLatch closed = new CountDownLatch(1);
+        final Subscription[] self = new Subscription[1];
+        self[0] = library.subscribe(new LibraryListener() {
+            @Override
+            public void eventsPublished(List<LibraryEvent> events) {
+                if (events.get(0).getType() == LibraryEvent.Type.CHECKED_OUT) {
+                    try {
+                        self[0].close();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    closed.countDown();
+                }
+                throw new RuntimeException("listener failure");
+            }
+        }, 10, Subscription.Overflow.DROP);
+        BookCopy copy = library.buy(DUNE);
+        while (self[0].getBatches() == 0) {
+            Thread.sleep(1);
+        }
+        library.checkout(copy);
+        assertTrue(closed.await(10, TimeUnit.SECONDS));
+        assertFalse(self[0].isOpen());
+        while (self[0].getDelivered() < 2) {
+            Thread.sleep(1);
+        }
+        library.checkin(copy);
+        assertEquals(2, self[0].getFailures());
+        assertEquals(2, self[0].getDelivered());
+        assertTrue(library.isAvailable(copy));
+    }
+
+    @Test
+    public void testEventsOfEachCopyInOrder() throws InterruptedException {
+        final PublishingLibrary library = new PublishingLibrary(new ConcurrentBigLibrary());
+        final List<BookCopy> copies = library.buy(DUNE, 2);
+        Recorder recorder = recorder();
+        Subscription subscription = library.subscribe(recorder, 1000, Subscription.Overflow.BLOCK);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 2000; i++) {
+                        BookCopy copy = copies.get(i % copies.size());
+                        library.checkoutAll(Collections.singletonList(copy));
+                        library.checkinAll(Collections.singletonList(copy));
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        subscription.close();
+        assertEquals(0, subscription.getDropped());
+        for (BookCopy copy : copies) {
+            LibraryEvent.Type expected = LibraryEvent.Type.CHECKED_OUT;
+            for (LibraryEvent event : recorder.events) {
+                if (event.getCopy() == copy) {
+                    assertEquals("event " + event.getSequence(), expected, event.getType());
+                    expected = expected == LibraryEvent.Type.CHECKED_OUT
+                            ? LibraryEvent.Type.CHECKED_IN : LibraryEvent.Type.CHECKED_OUT;
+                }
+            }
+            assertEquals("last event checks in", LibraryEvent.Type.CHECKED_OUT, expected);
+        }
+    }
+
+
+    /* Copyright (c) 2016 MIT 6.005 course staff, all rights reserved.
+     * Redistribution of original or derived work requires explicit permission.
+     * Don't post any of this code on the web or to a public Github repository.
+     */
+
+}